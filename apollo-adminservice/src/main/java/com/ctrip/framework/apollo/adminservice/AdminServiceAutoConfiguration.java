@@ -18,6 +18,9 @@ package com.ctrip.framework.apollo.adminservice;
 
 import com.ctrip.framework.apollo.adminservice.filter.AdminServiceAuthenticationFilter;
 import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.retention.RetentionCleaner;
+import com.ctrip.framework.apollo.biz.search.ItemSearchIndexHolder;
+import com.ctrip.framework.apollo.biz.statistics.InstanceStatisticsHolder;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -42,7 +45,23 @@ public class AdminServiceAutoConfiguration {
         filterRegistrationBean.addUrlPatterns("/items/*");
         filterRegistrationBean.addUrlPatterns("/namespaces/*");
         filterRegistrationBean.addUrlPatterns("/releases/*");
+        filterRegistrationBean.addUrlPatterns("/release-messages/*");
 
         return filterRegistrationBean;
     }
+
+    @Bean
+    public ItemSearchIndexHolder itemSearchIndexHolder() {
+        return new ItemSearchIndexHolder();
+    }
+
+    @Bean
+    public InstanceStatisticsHolder instanceStatisticsHolder() {
+        return new InstanceStatisticsHolder();
+    }
+
+    @Bean
+    public RetentionCleaner retentionCleaner() {
+        return new RetentionCleaner();
+    }
 }
@@ -18,27 +18,40 @@ package com.ctrip.framework.apollo.adminservice.aop;
 
 
 import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.Commit;
 import com.ctrip.framework.apollo.biz.entity.Item;
 import com.ctrip.framework.apollo.biz.entity.Namespace;
 import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.service.CommitService;
 import com.ctrip.framework.apollo.biz.service.ItemService;
 import com.ctrip.framework.apollo.biz.service.NamespaceLockService;
 import com.ctrip.framework.apollo.biz.service.NamespaceService;
 import com.ctrip.framework.apollo.biz.service.ReleaseService;
+import com.ctrip.framework.apollo.biz.utils.ConfigChangeContentBuilder;
 import com.ctrip.framework.apollo.common.constants.GsonType;
 import com.ctrip.framework.apollo.common.dto.ItemChangeSets;
 import com.ctrip.framework.apollo.common.dto.ItemDTO;
 import com.ctrip.framework.apollo.common.exception.BadRequestException;
 import com.ctrip.framework.apollo.core.utils.StringUtils;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.MapDifference;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.gson.Gson;
 import org.aspectj.lang.annotation.After;
 import org.aspectj.lang.annotation.Aspect;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Component;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -48,29 +61,44 @@ import java.util.Map;
  * --------------------------------------------
  * First operate: change k1 = v2 (lock namespace)
  * Second operate: change k1 = v1 (unlock namespace)
+ * --------------------------------------------
+ * The keys modified since the latest release are kept per namespace, and only the keys of the new commits are
+ * checked again on each operation. The whole namespace is compared when the releases change or the commits can not
+ * be replayed.
  */
 @Aspect
 @Component
 public class NamespaceUnlockAspect {
 
     private static final Gson GSON = new Gson();
+    private static final int MAX_REPLAYED_COMMITS = 100;
+    //the chars of the configurations held by the cached modifications, about 20MB
+    private static final long MAX_CACHED_CONFIGURATION_CHARS = 10_000_000;
 
     private final NamespaceLockService namespaceLockService;
     private final NamespaceService namespaceService;
     private final ItemService itemService;
     private final ReleaseService releaseService;
+    private final CommitService commitService;
     private final BizConfig bizConfig;
+    //namespace id -> modification since the latest release, weighed by the configurations held
+    private final Cache<Long, NamespaceModification> modifications = CacheBuilder.newBuilder()
+            .maximumWeight(MAX_CACHED_CONFIGURATION_CHARS)
+            .weigher((Long namespaceId, NamespaceModification modification) -> modification.getWeight())
+            .expireAfterAccess(1, TimeUnit.HOURS).build();
 
     public NamespaceUnlockAspect(
             final NamespaceLockService namespaceLockService,
             final NamespaceService namespaceService,
             final ItemService itemService,
             final ReleaseService releaseService,
+            final CommitService commitService,
             final BizConfig bizConfig) {
         this.namespaceLockService = namespaceLockService;
         this.namespaceService = namespaceService;
         this.itemService = itemService;
         this.releaseService = releaseService;
+        this.commitService = commitService;
         this.bizConfig = bizConfig;
     }
 
@@ -118,49 +146,103 @@ public class NamespaceUnlockAspect {
     }
 
     boolean isModified(Namespace namespace) {
+        //count the commits before loading the items, so the commits meanwhile are replayed next time
+        long commitCount = commitService.count(namespace.getAppId(), namespace.getClusterName(),
+                namespace.getNamespaceName());
+
         Release release = releaseService.findLatestActiveRelease(namespace);
-        List<Item> items = itemService.findItemsWithoutOrdered(namespace.getId());
+        Release parentRelease = null;
+        if (release != null) {
+            Namespace parentNamespace = namespaceService.findParentNamespace(namespace);
+            if (parentNamespace != null) {
+                parentRelease = releaseService.findLatestActiveRelease(parentNamespace);
+            }
+        }
 
-        if (release == null) {
-            return hasNormalItems(items);
+        NamespaceModification modification = modifications.getIfPresent(namespace.getId());
+        if (modification != null && modification.isBasedOn(release, parentRelease)) {
+            modification = replayCommits(namespace, modification, commitCount);
+        } else {
+            modification = null;
+        }
+        if (modification == null) {
+            modification = compare(namespace, release, parentRelease, commitCount);
         }
+        modifications.put(namespace.getId(), modification);
 
-        Map<String, String> releasedConfiguration = GSON.fromJson(release.getConfigurations(), GsonType.CONFIG);
-        Map<String, String> configurationFromItems = generateConfigurationFromItems(namespace, items);
+        return modification.isModified();
+    }
 
-        MapDifference<String, String> difference = Maps.difference(releasedConfiguration, configurationFromItems);
+    /**
+     * @return the modification with the new commits replayed, or null if the commits can not be replayed
+     */
+    private NamespaceModification replayCommits(Namespace namespace, NamespaceModification modification,
+                                                long commitCount) {
+        long newCommitCount = commitCount - modification.getCommitCount();
+        if (newCommitCount < 0 || newCommitCount > MAX_REPLAYED_COMMITS) {
+            return null;
+        }
 
-        return !difference.areEqual();
+        //the new commits are found by id, as the count stays the same when the retention deletes as many commits
+        List<Commit> commits = commitService.findAfter(namespace.getAppId(), namespace.getClusterName(),
+                namespace.getNamespaceName(), modification.getLatestCommitId(),
+                PageRequest.of(0, (int) newCommitCount + 1));
+        //some commits are committed out of order or deleted
+        if (commits.size() != newCommitCount) {
+            return null;
+        }
+        if (commits.isEmpty()) {
+            return modification;
+        }
 
-    }
+        Set<String> changedKeys = Sets.newHashSet();
+        for (Commit commit : commits) {
+            changedKeys.addAll(ConfigChangeContentBuilder.convertJsonString(commit.getChangeSets()).getChangedKeys());
+        }
 
-    private boolean hasNormalItems(List<Item> items) {
-        for (Item item : items) {
-            if (!StringUtils.isEmpty(item.getKey())) {
-                return true;
+        Set<String> modifiedKeys = Sets.newHashSet(modification.getModifiedKeys());
+        for (String key : changedKeys) {
+            if (StringUtils.isBlank(key)) {
+                continue;
+            }
+            if (modification.isModified(key, itemService.findOne(namespace.getId(), key))) {
+                modifiedKeys.add(key);
+            } else {
+                modifiedKeys.remove(key);
             }
         }
 
-        return false;
+        return modification.replayed(commitCount, commits.get(commits.size() - 1).getId(), modifiedKeys);
     }
 
-    private Map<String, String> generateConfigurationFromItems(Namespace namespace, List<Item> namespaceItems) {
+    private NamespaceModification compare(Namespace namespace, Release release, Release parentRelease,
+                                          long commitCount) {
+        List<Commit> latestCommits = commitService.find(namespace.getAppId(), namespace.getClusterName(),
+                namespace.getNamespaceName(), PageRequest.of(0, 1));
+        long latestCommitId = latestCommits == null || latestCommits.isEmpty() ? 0 : latestCommits.get(0).getId();
 
-        Map<String, String> configurationFromItems = Maps.newHashMap();
+        List<Item> items = itemService.findItemsWithoutOrdered(namespace.getId());
 
-        Namespace parentNamespace = namespaceService.findParentNamespace(namespace);
-        //parent namespace
-        if (parentNamespace == null) {
-            generateMapFromItems(namespaceItems, configurationFromItems);
-        } else {//child namespace
-            Release parentRelease = releaseService.findLatestActiveRelease(parentNamespace);
+        Map<String, String> releasedConfiguration = Collections.emptyMap();
+        Map<String, String> parentConfiguration = Collections.emptyMap();
+        if (release != null) {
+            releasedConfiguration = GSON.fromJson(release.getConfigurations(), GsonType.CONFIG);
             if (parentRelease != null) {
-                configurationFromItems = GSON.fromJson(parentRelease.getConfigurations(), GsonType.CONFIG);
+                parentConfiguration = GSON.fromJson(parentRelease.getConfigurations(), GsonType.CONFIG);
             }
-            generateMapFromItems(namespaceItems, configurationFromItems);
         }
 
-        return configurationFromItems;
+        Map<String, String> configurationFromItems = generateMapFromItems(items, Maps.newHashMap(parentConfiguration));
+
+        MapDifference<String, String> difference = Maps.difference(releasedConfiguration, configurationFromItems);
+
+        Set<String> modifiedKeys = Sets.newHashSet();
+        modifiedKeys.addAll(difference.entriesOnlyOnLeft().keySet());
+        modifiedKeys.addAll(difference.entriesOnlyOnRight().keySet());
+        modifiedKeys.addAll(difference.entriesDiffering().keySet());
+
+        return new NamespaceModification(release, parentRelease, releasedConfiguration, parentConfiguration,
+                commitCount, latestCommitId, modifiedKeys);
     }
 
     private Map<String, String> generateMapFromItems(List<Item> items, Map<String, String> configurationFromItems) {
@@ -175,4 +257,86 @@ public class NamespaceUnlockAspect {
         return configurationFromItems;
     }
 
+    private static class NamespaceModification {
+        private final Long releaseId;
+        private final Long parentReleaseId;
+        private final Map<String, String> releasedConfiguration;
+        private final Map<String, String> parentConfiguration;
+        private final long commitCount;
+        private final long latestCommitId;
+        private final Set<String> modifiedKeys;
+        private final int weight;
+
+        NamespaceModification(Release release, Release parentRelease, Map<String, String> releasedConfiguration,
+                              Map<String, String> parentConfiguration, long commitCount, long latestCommitId,
+                              Set<String> modifiedKeys) {
+            this(release == null ? null : release.getId(), parentRelease == null ? null : parentRelease.getId(),
+                    releasedConfiguration, parentConfiguration, commitCount, latestCommitId, modifiedKeys,
+                    weigh(releasedConfiguration, parentConfiguration));
+        }
+
+        private NamespaceModification(Long releaseId, Long parentReleaseId, Map<String, String> releasedConfiguration,
+                                      Map<String, String> parentConfiguration, long commitCount, long latestCommitId,
+                                      Set<String> modifiedKeys, int weight) {
+            this.releaseId = releaseId;
+            this.parentReleaseId = parentReleaseId;
+            this.releasedConfiguration = releasedConfiguration;
+            this.parentConfiguration = parentConfiguration;
+            this.commitCount = commitCount;
+            this.latestCommitId = latestCommitId;
+            this.modifiedKeys = ImmutableSet.copyOf(modifiedKeys);
+            this.weight = weight;
+        }
+
+        private static int weigh(Map<String, String> releasedConfiguration, Map<String, String> parentConfiguration) {
+            long chars = 0;
+            for (Map<String, String> configuration : Arrays.asList(releasedConfiguration, parentConfiguration)) {
+                for (Map.Entry<String, String> entry : configuration.entrySet()) {
+                    chars += entry.getKey().length() + (entry.getValue() == null ? 0 : entry.getValue().length());
+                }
+            }
+            return (int) Math.min(chars + 1, Integer.MAX_VALUE);
+        }
+
+        boolean isBasedOn(Release release, Release parentRelease) {
+            return Objects.equals(releaseId, release == null ? null : release.getId())
+                    && Objects.equals(parentReleaseId, parentRelease == null ? null : parentRelease.getId());
+        }
+
+        /**
+         * @param item the current item of the key, or null if absent
+         */
+        boolean isModified(String key, Item item) {
+            boolean present = item != null || parentConfiguration.containsKey(key);
+            String value = item != null ? item.getValue() : parentConfiguration.get(key);
+            return present != releasedConfiguration.containsKey(key)
+                    || !Objects.equals(value, releasedConfiguration.get(key));
+        }
+
+        NamespaceModification replayed(long commitCount, long latestCommitId, Set<String> modifiedKeys) {
+            return new NamespaceModification(releaseId, parentReleaseId, releasedConfiguration, parentConfiguration,
+                    commitCount, latestCommitId, modifiedKeys, weight);
+        }
+
+        boolean isModified() {
+            return !modifiedKeys.isEmpty();
+        }
+
+        long getCommitCount() {
+            return commitCount;
+        }
+
+        long getLatestCommitId() {
+            return latestCommitId;
+        }
+
+        Set<String> getModifiedKeys() {
+            return modifiedKeys;
+        }
+
+        int getWeight() {
+            return weight;
+        }
+    }
+
 }
@@ -21,6 +21,7 @@ import com.ctrip.framework.apollo.biz.entity.InstanceConfig;
 import com.ctrip.framework.apollo.biz.entity.Release;
 import com.ctrip.framework.apollo.biz.service.InstanceService;
 import com.ctrip.framework.apollo.biz.service.ReleaseService;
+import com.ctrip.framework.apollo.biz.statistics.InstanceStatisticsHolder;
 import com.ctrip.framework.apollo.common.dto.InstanceConfigDTO;
 import com.ctrip.framework.apollo.common.dto.InstanceDTO;
 import com.ctrip.framework.apollo.common.dto.PageDTO;
@@ -34,6 +35,7 @@ import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.util.CollectionUtils;
@@ -59,10 +61,13 @@ public class InstanceConfigController {
             .trimResults();
     private final ReleaseService releaseService;
     private final InstanceService instanceService;
+    private final InstanceStatisticsHolder instanceStatisticsHolder;
 
-    public InstanceConfigController(final ReleaseService releaseService, final InstanceService instanceService) {
+    public InstanceConfigController(final ReleaseService releaseService, final InstanceService instanceService,
+                                    final InstanceStatisticsHolder instanceStatisticsHolder) {
         this.releaseService = releaseService;
         this.instanceService = instanceService;
+        this.instanceStatisticsHolder = instanceStatisticsHolder;
     }
 
     @GetMapping("/by-release")
@@ -72,8 +77,8 @@ public class InstanceConfigController {
         if (release == null) {
             throw new NotFoundException("release not found for %s", releaseId);
         }
-        Page<InstanceConfig> instanceConfigsPage = instanceService.findActiveInstanceConfigsByReleaseKey
-                (release.getReleaseKey(), pageable);
+        Page<InstanceConfig> instanceConfigsPage = findActiveInstanceConfigsByReleaseKey(release.getReleaseKey(),
+                pageable);
 
         List<InstanceDTO> instanceDTOs = Collections.emptyList();
 
@@ -112,6 +117,17 @@ public class InstanceConfigController {
         return new PageDTO<>(instanceDTOs, pageable, instanceConfigsPage.getTotalElements());
     }
 
+    private Page<InstanceConfig> findActiveInstanceConfigsByReleaseKey(String releaseKey, Pageable pageable) {
+        if (!instanceStatisticsHolder.isReady()) {
+            return instanceService.findActiveInstanceConfigsByReleaseKey(releaseKey, pageable);
+        }
+        List<InstanceConfig> instanceConfigs = instanceService.findActiveInstanceConfigsByReleaseKeyWithoutCount(
+                releaseKey, pageable);
+        //the count may lag behind, PageImpl corrects it by the instance configs found on the last page
+        return new PageImpl<>(instanceConfigs, pageable,
+                instanceStatisticsHolder.getInstanceCountByReleaseKey(releaseKey));
+    }
+
     @GetMapping("/by-namespace-and-releases-not-in")
     public List<InstanceDTO> getByReleasesNotIn(@RequestParam("appId") String appId,
                                                 @RequestParam("clusterName") String clusterName,
@@ -198,6 +214,9 @@ public class InstanceConfigController {
     public long getInstancesCountByNamespace(@RequestParam("appId") String appId,
                                              @RequestParam("clusterName") String clusterName,
                                              @RequestParam("namespaceName") String namespaceName) {
+        if (instanceStatisticsHolder.isReady()) {
+            return instanceStatisticsHolder.getInstanceCountByNamespace(appId, clusterName, namespaceName);
+        }
         Page<Instance> instances = instanceService.findInstancesByNamespace(appId, clusterName,
                 namespaceName, PageRequest.of(0, 1));
         return instances.getTotalElements();
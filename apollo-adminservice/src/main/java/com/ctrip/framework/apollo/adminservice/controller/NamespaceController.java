@@ -17,8 +17,11 @@
 package com.ctrip.framework.apollo.adminservice.controller;
 
 import com.ctrip.framework.apollo.biz.entity.Namespace;
+import com.ctrip.framework.apollo.biz.search.ItemSearchIndexHolder;
 import com.ctrip.framework.apollo.biz.service.NamespaceService;
 import com.ctrip.framework.apollo.common.dto.NamespaceDTO;
+import com.ctrip.framework.apollo.common.dto.NamespaceSnapshotDTO;
+import com.ctrip.framework.apollo.common.dto.NamespaceVersionDTO;
 import com.ctrip.framework.apollo.common.dto.PageDTO;
 import com.ctrip.framework.apollo.common.exception.BadRequestException;
 import com.ctrip.framework.apollo.common.exception.NotFoundException;
@@ -42,9 +45,12 @@ import java.util.Map;
 public class NamespaceController {
 
     private final NamespaceService namespaceService;
+    private final ItemSearchIndexHolder itemSearchIndexHolder;
 
-    public NamespaceController(final NamespaceService namespaceService) {
+    public NamespaceController(final NamespaceService namespaceService,
+                               final ItemSearchIndexHolder itemSearchIndexHolder) {
         this.namespaceService = namespaceService;
+        this.itemSearchIndexHolder = itemSearchIndexHolder;
     }
 
     @PostMapping("/apps/{appId}/clusters/{clusterName}/namespaces")
@@ -82,6 +88,27 @@ public class NamespaceController {
         return BeanUtils.batchTransform(NamespaceDTO.class, groups);
     }
 
+    /**
+     * The namespaces in the cluster with their items, latest releases and deleted items, for the portal to render a
+     * cluster in one request
+     */
+    @GetMapping("/apps/{appId}/clusters/{clusterName}/namespace-snapshots")
+    public List<NamespaceSnapshotDTO> findSnapshots(@PathVariable("appId") String appId,
+                                                    @PathVariable("clusterName") String clusterName,
+                                                    @RequestParam(value = "includeDeletedItems", defaultValue = "true")
+                                                            boolean includeDeletedItems) {
+        return namespaceService.findNamespaceSnapshots(appId, clusterName, includeDeletedItems);
+    }
+
+    /**
+     * The versions of the namespaces in the cluster, for the portal to tell whether the namespaces cached are changed
+     */
+    @GetMapping("/apps/{appId}/clusters/{clusterName}/namespace-versions")
+    public List<NamespaceVersionDTO> findVersions(@PathVariable("appId") String appId,
+                                                  @PathVariable("clusterName") String clusterName) {
+        return namespaceService.findNamespaceVersions(appId, clusterName);
+    }
+
     @GetMapping("/namespaces/{namespaceId}")
     public NamespaceDTO get(@PathVariable("namespaceId") Long namespaceId) {
         Namespace namespace = namespaceService.findOne(namespaceId);
@@ -93,10 +120,14 @@ public class NamespaceController {
 
     /**
      * the returned content's size is not fixed. so please carefully used.
+     * <p>
+     * When the item search index is ready, the item key is matched by prefix and substring against the item keys,
+     * item values, namespace names and app ids, and the namespaces are ranked.
      */
     @GetMapping("/namespaces/find-by-item")
     public PageDTO<NamespaceDTO> findByItem(@RequestParam String itemKey, Pageable pageable) {
-        Page<Namespace> namespacePage = namespaceService.findByItem(itemKey, pageable);
+        Page<Namespace> namespacePage = itemSearchIndexHolder.isReady() ?
+                itemSearchIndexHolder.search(itemKey, pageable) : namespaceService.findByItem(itemKey, pageable);
 
         List<NamespaceDTO> namespaceDTOS = BeanUtils.batchTransform(NamespaceDTO.class, namespacePage.getContent());
 
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.adminservice.controller;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.message.ReleaseMessageBroadcaster;
+import com.ctrip.framework.apollo.biz.message.ReleaseMessageListener;
+import com.ctrip.framework.apollo.common.exception.BadRequestException;
+import com.google.gson.Gson;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams the release messages saved by this admin service to the config services as server-sent events, so that the
+ * config services don't have to wait for the next ReleaseMessage scan.
+ */
+@RestController
+public class ReleaseMessageStreamController {
+    private static final Gson GSON = new Gson();
+    // the stream is closed periodically and the config service reconnects, so that dead connections are recycled
+    private static final long STREAM_TIMEOUT_IN_MILLI = TimeUnit.MINUTES.toMillis(5);
+
+    private final ReleaseMessageBroadcaster releaseMessageBroadcaster;
+    private final BizConfig bizConfig;
+
+    public ReleaseMessageStreamController(
+            final ReleaseMessageBroadcaster releaseMessageBroadcaster,
+            final BizConfig bizConfig) {
+        this.releaseMessageBroadcaster = releaseMessageBroadcaster;
+        this.bizConfig = bizConfig;
+    }
+
+    @GetMapping(value = "/release-messages/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamReleaseMessages() {
+        if (!bizConfig.isReleaseMessagePushEnabled()) {
+            throw new BadRequestException("Release message push is not enabled");
+        }
+
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_IN_MILLI);
+        ReleaseMessageListener subscriber = new SseEmitterSubscriber(emitter);
+
+        emitter.onCompletion(() -> releaseMessageBroadcaster.unsubscribe(subscriber));
+        emitter.onTimeout(() -> releaseMessageBroadcaster.unsubscribe(subscriber));
+        emitter.onError(ex -> releaseMessageBroadcaster.unsubscribe(subscriber));
+
+        releaseMessageBroadcaster.subscribe(subscriber);
+
+        return emitter;
+    }
+
+    private static class SseEmitterSubscriber implements ReleaseMessageListener {
+        private final SseEmitter emitter;
+
+        SseEmitterSubscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void handleMessage(ReleaseMessage message, String channel) {
+            try {
+                emitter.send(SseEmitter.event()
+                        .id(String.valueOf(message.getId()))
+                        .name(channel)
+                        .data(GSON.toJson(message), MediaType.TEXT_PLAIN));
+            } catch (IOException ex) {
+                emitter.completeWithError(ex);
+            }
+        }
+    }
+}
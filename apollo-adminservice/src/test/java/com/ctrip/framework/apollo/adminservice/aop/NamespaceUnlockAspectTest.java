@@ -16,12 +16,18 @@
  */
 package com.ctrip.framework.apollo.adminservice.aop;
 
+import com.ctrip.framework.apollo.biz.entity.Commit;
 import com.ctrip.framework.apollo.biz.entity.Item;
 import com.ctrip.framework.apollo.biz.entity.Namespace;
 import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.service.CommitService;
 import com.ctrip.framework.apollo.biz.service.ItemService;
 import com.ctrip.framework.apollo.biz.service.NamespaceService;
 import com.ctrip.framework.apollo.biz.service.ReleaseService;
+import com.ctrip.framework.apollo.biz.utils.ConfigChangeContentBuilder;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.gson.Gson;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -33,7 +39,14 @@ import org.mockito.junit.MockitoJUnitRunner;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -45,6 +58,8 @@ public class NamespaceUnlockAspectTest {
     private ItemService itemService;
     @Mock
     private NamespaceService namespaceService;
+    @Mock
+    private CommitService commitService;
 
     @InjectMocks
     private NamespaceUnlockAspect namespaceUnlockAspect;
@@ -174,6 +189,129 @@ public class NamespaceUnlockAspectTest {
         Assert.assertTrue(isModified);
     }
 
+    @Test
+    public void testReplayCommitsOnLargeNamespace() {
+        long namespaceId = 1;
+        Namespace namespace = createNamespace(namespaceId);
+
+        Map<String, String> configurations = Maps.newHashMap();
+        List<Item> items = Lists.newArrayList();
+        for (int i = 0; i < 5000; i++) {
+            configurations.put("k" + i, "v" + i);
+            items.add(createItem("k" + i, "v" + i));
+        }
+        Release release = createRelease(new Gson().toJson(configurations));
+        release.setId(1);
+
+        when(releaseService.findLatestActiveRelease(namespace)).thenReturn(release);
+        when(itemService.findItemsWithoutOrdered(namespaceId)).thenReturn(items);
+
+        Assert.assertFalse(namespaceUnlockAspect.isModified(namespace));
+
+        //change k1 = v2
+        Item oldItem = createItem("k1", "v1");
+        Item newItem = createItem("k1", "v2");
+        when(commitService.count(any(), any(), any())).thenReturn(1L);
+        when(commitService.findAfter(any(), any(), any(), eq(0L), any())).thenReturn(Collections.singletonList(
+                createCommit(1, new ConfigChangeContentBuilder().updateItem(oldItem, newItem).build())));
+        when(itemService.findOne(namespaceId, "k1")).thenReturn(newItem);
+
+        Assert.assertTrue(namespaceUnlockAspect.isModified(namespace));
+
+        //change k1 = v1
+        when(commitService.count(any(), any(), any())).thenReturn(2L);
+        when(commitService.findAfter(any(), any(), any(), eq(1L), any())).thenReturn(Collections.singletonList(
+                createCommit(2, new ConfigChangeContentBuilder().updateItem(newItem, oldItem).build())));
+        when(itemService.findOne(namespaceId, "k1")).thenReturn(oldItem);
+
+        Assert.assertFalse(namespaceUnlockAspect.isModified(namespace));
+
+        //no new commits
+        Assert.assertFalse(namespaceUnlockAspect.isModified(namespace));
+
+        //only the first operation compares the whole namespace
+        verify(itemService, times(1)).findItemsWithoutOrdered(namespaceId);
+        verify(itemService, times(2)).findOne(namespaceId, "k1");
+    }
+
+    @Test
+    public void testCompareAfterNewRelease() {
+        long namespaceId = 1;
+        Namespace namespace = createNamespace(namespaceId);
+
+        Release release = createRelease("{\"k1\":\"v1\"}");
+        release.setId(1);
+        Release newRelease = createRelease("{\"k1\":\"v2\"}");
+        newRelease.setId(2);
+        List<Item> items = Collections.singletonList(createItem("k1", "v2"));
+
+        when(releaseService.findLatestActiveRelease(namespace)).thenReturn(release, newRelease);
+        when(itemService.findItemsWithoutOrdered(namespaceId)).thenReturn(items);
+
+        Assert.assertTrue(namespaceUnlockAspect.isModified(namespace));
+        Assert.assertFalse(namespaceUnlockAspect.isModified(namespace));
+
+        verify(itemService, times(2)).findItemsWithoutOrdered(namespaceId);
+    }
+
+    @Test
+    public void testCompareWhenCommitsOutOfOrder() {
+        long namespaceId = 1;
+        Namespace namespace = createNamespace(namespaceId);
+
+        Release release = createRelease("{\"k1\":\"v1\"}");
+        release.setId(1);
+
+        when(releaseService.findLatestActiveRelease(namespace)).thenReturn(release);
+        when(itemService.findItemsWithoutOrdered(namespaceId)).thenReturn(
+                Collections.singletonList(createItem("k1", "v1")),
+                Collections.singletonList(createItem("k1", "v2")));
+
+        Assert.assertFalse(namespaceUnlockAspect.isModified(namespace));
+
+        //the new commit is not after the latest one seen
+        when(commitService.count(any(), any(), any())).thenReturn(1L);
+        when(commitService.findAfter(any(), any(), any(), anyLong(), any())).thenReturn(Collections.emptyList());
+
+        Assert.assertTrue(namespaceUnlockAspect.isModified(namespace));
+
+        verify(itemService, never()).findOne(anyLong(), any());
+    }
+
+    @Test
+    public void testCompareWhenCommitsDeletedAndAdded() {
+        long namespaceId = 1;
+        Namespace namespace = createNamespace(namespaceId);
+
+        Release release = createRelease("{\"k1\":\"v1\"}");
+        release.setId(1);
+
+        when(commitService.count(any(), any(), any())).thenReturn(1L);
+        when(commitService.find(any(), any(), any(), any())).thenReturn(Collections.singletonList(
+                createCommit(1, "{}")));
+        when(releaseService.findLatestActiveRelease(namespace)).thenReturn(release);
+        when(itemService.findItemsWithoutOrdered(namespaceId)).thenReturn(
+                Collections.singletonList(createItem("k1", "v1")),
+                Collections.singletonList(createItem("k1", "v2")));
+
+        Assert.assertFalse(namespaceUnlockAspect.isModified(namespace));
+
+        //the retention deletes the first commit, and change k1 = v2 adds one, so the count stays the same
+        when(commitService.findAfter(any(), any(), any(), eq(1L), any())).thenReturn(Collections.singletonList(
+                createCommit(2, new ConfigChangeContentBuilder()
+                        .updateItem(createItem("k1", "v1"), createItem("k1", "v2")).build())));
+
+        Assert.assertTrue(namespaceUnlockAspect.isModified(namespace));
+
+        verify(itemService, times(2)).findItemsWithoutOrdered(namespaceId);
+    }
+
+    private Commit createCommit(long id, String changeSets) {
+        Commit commit = new Commit();
+        commit.setId(id);
+        commit.setChangeSets(changeSets);
+        return commit;
+    }
 
     private Namespace createNamespace(long namespaceId) {
         Namespace namespace = new Namespace();
@@ -21,6 +21,7 @@ import com.ctrip.framework.apollo.biz.entity.InstanceConfig;
 import com.ctrip.framework.apollo.biz.entity.Release;
 import com.ctrip.framework.apollo.biz.service.InstanceService;
 import com.ctrip.framework.apollo.biz.service.ReleaseService;
+import com.ctrip.framework.apollo.biz.statistics.InstanceStatisticsHolder;
 import com.ctrip.framework.apollo.common.dto.InstanceDTO;
 import com.ctrip.framework.apollo.common.dto.PageDTO;
 import com.ctrip.framework.apollo.common.exception.NotFoundException;
@@ -44,8 +45,11 @@ import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -61,11 +65,15 @@ public class InstanceConfigControllerTest {
     @Mock
     private InstanceService instanceService;
 
+    @Mock
+    private InstanceStatisticsHolder instanceStatisticsHolder;
+
     private Pageable pageable;
 
     @Before
     public void setUp() throws Exception {
-        instanceConfigController = new InstanceConfigController(releaseService, instanceService);
+        instanceConfigController = new InstanceConfigController(releaseService, instanceService,
+                instanceStatisticsHolder);
 
         pageable = PageRequest.of(0, 2);
     }
@@ -330,6 +338,51 @@ public class InstanceConfigControllerTest {
         assertEquals(2, result);
     }
 
+    @Test
+    public void testGetInstancesCountByNamespaceFromStatistics() throws Exception {
+        String someAppId = "someAppId";
+        String someClusterName = "someClusterName";
+        String someNamespaceName = "someNamespaceName";
+
+        when(instanceStatisticsHolder.isReady()).thenReturn(true);
+        when(instanceStatisticsHolder.getInstanceCountByNamespace(someAppId, someClusterName, someNamespaceName))
+                .thenReturn(3L);
+
+        long result = instanceConfigController.getInstancesCountByNamespace(someAppId,
+                someClusterName, someNamespaceName);
+
+        assertEquals(3, result);
+        verify(instanceService, never()).findInstancesByNamespace(anyString(), anyString(), anyString(),
+                any(Pageable.class));
+    }
+
+    @Test
+    public void getByReleaseCountedFromStatistics() throws Exception {
+        long someReleaseId = 1;
+        String someReleaseKey = "someKey";
+        Release someRelease = new Release();
+        someRelease.setReleaseKey(someReleaseKey);
+        InstanceConfig someInstanceConfig = assembleInstanceConfig(1, "someConfigAppId", "someNamespace",
+                someReleaseKey, new Date());
+        InstanceConfig anotherInstanceConfig = assembleInstanceConfig(2, "someConfigAppId", "someNamespace",
+                someReleaseKey, new Date());
+
+        when(releaseService.findOne(someReleaseId)).thenReturn(someRelease);
+        when(instanceStatisticsHolder.isReady()).thenReturn(true);
+        when(instanceStatisticsHolder.getInstanceCountByReleaseKey(someReleaseKey)).thenReturn(10L);
+        when(instanceService.findActiveInstanceConfigsByReleaseKeyWithoutCount(someReleaseKey, pageable))
+                .thenReturn(Lists.newArrayList(someInstanceConfig, anotherInstanceConfig));
+        when(instanceService.findInstancesByIds(Sets.newHashSet(1L, 2L))).thenReturn(Lists.newArrayList(
+                assembleInstance(1, "someAppId", "someCluster", "someDC", "someIp"),
+                assembleInstance(2, "someAppId", "someCluster", "someDC", "anotherIp")));
+
+        PageDTO<InstanceDTO> result = instanceConfigController.getByRelease(someReleaseId, pageable);
+
+        assertEquals(2, result.getContent().size());
+        assertEquals(10, result.getTotal());
+        verify(instanceService, never()).findActiveInstanceConfigsByReleaseKey(anyString(), any(Pageable.class));
+    }
+
     private void verifyInstance(Instance instance, InstanceDTO instanceDTO) {
         assertEquals(instance.getId(), instanceDTO.getId());
         assertEquals(instance.getAppId(), instanceDTO.getAppId());
@@ -16,10 +16,21 @@
  */
 package com.ctrip.framework.apollo.adminservice.controller;
 
+import com.ctrip.framework.apollo.common.dto.ItemDTO;
 import com.ctrip.framework.apollo.common.dto.NamespaceDTO;
+import com.ctrip.framework.apollo.common.dto.NamespaceSnapshotDTO;
+import com.ctrip.framework.apollo.common.dto.NamespaceVersionDTO;
+import com.ctrip.framework.apollo.common.dto.ReleaseDTO;
 import com.ctrip.framework.apollo.common.utils.InputValidator;
 import org.junit.Assert;
 import org.junit.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.Sql.ExecutionPhase;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.HttpClientErrorException;
 
 import static org.hamcrest.Matchers.containsString;
@@ -45,4 +56,54 @@ public class NamespaceControllerTest extends AbstractControllerTest {
             Assert.assertThat(new String(e.getResponseBodyAsByteArray()), containsString(InputValidator.INVALID_CLUSTER_NAMESPACE_MESSAGE));
         }
     }
+
+    @Test
+    @Sql(scripts = "/controller/test-namespace-snapshot.sql", executionPhase = ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "/controller/cleanup.sql", executionPhase = ExecutionPhase.AFTER_TEST_METHOD)
+    public void testFindSnapshots() {
+        String appId = "snapshotAppId";
+        String clusterName = "default";
+
+        NamespaceSnapshotDTO[] snapshots = restTemplate.getForObject(
+                url("/apps/{appId}/clusters/{clusterName}/namespace-snapshots"), NamespaceSnapshotDTO[].class, appId,
+                clusterName);
+        Assert.assertEquals(1, snapshots.length);
+        NamespaceSnapshotDTO snapshot = snapshots[0];
+        Assert.assertEquals("application", snapshot.getNamespace().getNamespaceName());
+        Assert.assertNull(snapshot.getLatestRelease());
+        Assert.assertEquals(3, snapshot.getItems().size());
+        Assert.assertTrue(snapshot.getDeletedItems().isEmpty());
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+        MultiValueMap<String, String> parameters = new LinkedMultiValueMap<>();
+        parameters.add("name", "someReleaseName");
+        parameters.add("comment", "someComment");
+        parameters.add("operator", "test");
+        ReleaseDTO release = restTemplate.postForObject(
+                url("/apps/{appId}/clusters/{clusterName}/namespaces/{namespaceName}/releases"),
+                new HttpEntity<>(parameters, headers), ReleaseDTO.class, appId, clusterName, "application");
+        ItemDTO deletedItem = snapshot.getItems().get(0);
+        restTemplate.delete(url("/items/{itemId}?operator={operator}"), deletedItem.getId(), "test");
+
+        snapshots = restTemplate.getForObject(url("/apps/{appId}/clusters/{clusterName}/namespace-snapshots"),
+                NamespaceSnapshotDTO[].class, appId, clusterName);
+        snapshot = snapshots[0];
+        Assert.assertEquals(release.getId(), snapshot.getLatestRelease().getId());
+        Assert.assertEquals(2, snapshot.getItems().size());
+        Assert.assertEquals(1, snapshot.getDeletedItems().size());
+        Assert.assertEquals(deletedItem.getKey(), snapshot.getDeletedItems().get(0).getKey());
+
+        snapshots = restTemplate.getForObject(
+                url("/apps/{appId}/clusters/{clusterName}/namespace-snapshots?includeDeletedItems=false"),
+                NamespaceSnapshotDTO[].class, appId, clusterName);
+        Assert.assertNull(snapshots[0].getDeletedItems());
+
+        NamespaceVersionDTO[] versions = restTemplate.getForObject(
+                url("/apps/{appId}/clusters/{clusterName}/namespace-versions"), NamespaceVersionDTO[].class, appId,
+                clusterName);
+        Assert.assertEquals(1, versions.length);
+        Assert.assertEquals(release.getId(), versions[0].getLatestReleaseId());
+        Assert.assertTrue(versions[0].getLatestCommitId() > 0);
+    }
 }
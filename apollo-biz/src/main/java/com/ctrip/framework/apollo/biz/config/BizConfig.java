@@ -46,7 +46,17 @@ public class BizConfig extends RefreshableConfig {
     private static final int DEFAULT_RELEASE_MESSAGE_SCAN_INTERVAL_IN_MS = 1000; //1000ms
     private static final int DEFAULT_RELEASE_MESSAGE_NOTIFICATION_BATCH = 100;
     private static final int DEFAULT_RELEASE_MESSAGE_NOTIFICATION_BATCH_INTERVAL_IN_MILLI = 100;//100ms
+    private static final int DEFAULT_RELEASE_MESSAGE_NOTIFICATION_WORKERS = 4;
     private static final int DEFAULT_LONG_POLLING_TIMEOUT = 60; //60s
+    private static final int DEFAULT_INSTANCE_CONFIG_AUDIT_BATCH = 500;
+    private static final int DEFAULT_INSTANCE_CONFIG_AUDIT_FLUSH_INTERVAL_IN_MILLI = 1000;//1000ms
+    private static final int DEFAULT_ITEM_SEARCH_INDEX_SCAN_INTERVAL = 1; //1s
+    private static final int DEFAULT_ITEM_SEARCH_INDEX_REBUILD_INTERVAL = 3600; //1 hour
+    private static final int DEFAULT_INSTANCE_STATISTICS_REFRESH_INTERVAL = 300; //5 minutes
+    private static final int DEFAULT_RETENTION_CLEAN_INTERVAL = 86400; //1 day
+    private static final int DEFAULT_RETENTION_BATCH_SIZE = 500;
+    private static final int DEFAULT_RETENTION_DELETE_PERMITS_PER_SECOND = 1000;
+    private static final int DEFAULT_CONFIG_SERVICE_AFFINITY_ROUTING_SUBSET_SIZE = 3;
 
     private static final Gson GSON = new Gson();
 
@@ -179,10 +189,198 @@ public class BizConfig extends RefreshableConfig {
         return checkInt(interval, 10, Integer.MAX_VALUE, DEFAULT_RELEASE_MESSAGE_NOTIFICATION_BATCH_INTERVAL_IN_MILLI);
     }
 
+    public int releaseMessageNotificationWorkers() {
+        int workers = getIntProperty("apollo.release-message.notification.workers", DEFAULT_RELEASE_MESSAGE_NOTIFICATION_WORKERS);
+        return checkInt(workers, 1, Integer.MAX_VALUE, DEFAULT_RELEASE_MESSAGE_NOTIFICATION_WORKERS);
+    }
+
+    /**
+     * The max clients to be notified per second on one node, defaults to the rate implied by the notification batch
+     * and batch interval
+     */
+    public int releaseMessageNotificationPermitsPerSecond() {
+        int defaultPermits = (int) Math.min(Integer.MAX_VALUE, Math.max(1,
+                1000L * releaseMessageNotificationBatch() / releaseMessageNotificationBatchIntervalInMilli()));
+        int permits = getIntProperty("apollo.release-message.notification.permits-per-second", defaultPermits);
+        return checkInt(permits, 1, Integer.MAX_VALUE, defaultPermits);
+    }
+
+    /**
+     * The max instance config audits written in one flush
+     */
+    public int instanceConfigAuditBatch() {
+        int batch = getIntProperty("apollo.instance-config.audit.batch", DEFAULT_INSTANCE_CONFIG_AUDIT_BATCH);
+        return checkInt(batch, 1, 10000, DEFAULT_INSTANCE_CONFIG_AUDIT_BATCH);
+    }
+
+    /**
+     * The max time the instance config audits are coalesced before flushed
+     */
+    public int instanceConfigAuditFlushIntervalInMilli() {
+        int interval = getIntProperty("apollo.instance-config.audit.flush.interval",
+                DEFAULT_INSTANCE_CONFIG_AUDIT_FLUSH_INTERVAL_IN_MILLI);
+        return checkInt(interval, 10, 60000, DEFAULT_INSTANCE_CONFIG_AUDIT_FLUSH_INTERVAL_IN_MILLI);
+    }
+
+    /**
+     * Whether the admin service searches the items in an in memory index, instead of querying the database
+     */
+    public boolean isItemSearchIndexEnabled() {
+        return getBooleanProperty("apollo.item-search-index.enabled", false);
+    }
+
+    /**
+     * The interval in seconds the item search index scans the new commits
+     */
+    public int itemSearchIndexScanInterval() {
+        int interval = getIntProperty("apollo.item-search-index-scan.interval", DEFAULT_ITEM_SEARCH_INDEX_SCAN_INTERVAL);
+        return checkInt(interval, 1, Integer.MAX_VALUE, DEFAULT_ITEM_SEARCH_INDEX_SCAN_INTERVAL);
+    }
+
+    /**
+     * The interval in seconds the item search index is rebuilt, to drop the namespaces deleted
+     */
+    public int itemSearchIndexRebuildInterval() {
+        int interval = getIntProperty("apollo.item-search-index-rebuild.interval",
+                DEFAULT_ITEM_SEARCH_INDEX_REBUILD_INTERVAL);
+        return checkInt(interval, 60, Integer.MAX_VALUE, DEFAULT_ITEM_SEARCH_INDEX_REBUILD_INTERVAL);
+    }
+
+    /**
+     * Whether the admin service counts the instances from the statistics kept in memory, instead of querying the
+     * database on each request
+     */
+    public boolean isInstanceStatisticsEnabled() {
+        return getBooleanProperty("apollo.instance-statistics.enabled", false);
+    }
+
+    /**
+     * The interval in seconds the instance statistics are recounted, which also drops the expired instances
+     */
+    public int instanceStatisticsRefreshInterval() {
+        int interval = getIntProperty("apollo.instance-statistics-refresh.interval",
+                DEFAULT_INSTANCE_STATISTICS_REFRESH_INTERVAL);
+        return checkInt(interval, 60, Integer.MAX_VALUE, DEFAULT_INSTANCE_STATISTICS_REFRESH_INTERVAL);
+    }
+
+    /**
+     * Whether the admin service cleans the release messages replaced and the histories beyond the retention policies
+     */
+    public boolean isRetentionEnabled() {
+        return getBooleanProperty("apollo.retention.enabled", false);
+    }
+
+    /**
+     * The interval in seconds the retention policies are applied
+     */
+    public int retentionCleanInterval() {
+        int interval = getIntProperty("apollo.retention.clean.interval", DEFAULT_RETENTION_CLEAN_INTERVAL);
+        return checkInt(interval, 60, Integer.MAX_VALUE, DEFAULT_RETENTION_CLEAN_INTERVAL);
+    }
+
+    /**
+     * The max rows deleted by one statement of the retention clean
+     */
+    public int retentionBatchSize() {
+        int batch = getIntProperty("apollo.retention.batch.size", DEFAULT_RETENTION_BATCH_SIZE);
+        return checkInt(batch, 1, 10000, DEFAULT_RETENTION_BATCH_SIZE);
+    }
+
+    /**
+     * The max rows deleted per second by the retention clean, to limit the io load of the database
+     */
+    public int retentionDeletePermitsPerSecond() {
+        int permits = getIntProperty("apollo.retention.delete.permits-per-second",
+                DEFAULT_RETENTION_DELETE_PERMITS_PER_SECOND);
+        return checkInt(permits, 1, Integer.MAX_VALUE, DEFAULT_RETENTION_DELETE_PERMITS_PER_SECOND);
+    }
+
+    /**
+     * The release histories kept of each namespace, 0 means no limit
+     */
+    public int releaseHistoryRetentionSize() {
+        return checkInt(getIntProperty("apollo.retention.release-history.size", 0), 0, Integer.MAX_VALUE, 0);
+    }
+
+    /**
+     * The days the release histories are kept, 0 means no limit
+     */
+    public int releaseHistoryRetentionDays() {
+        return checkInt(getIntProperty("apollo.retention.release-history.days", 0), 0, Integer.MAX_VALUE, 0);
+    }
+
+    /**
+     * The commits kept of each namespace, 0 means no limit
+     */
+    public int commitRetentionSize() {
+        return checkInt(getIntProperty("apollo.retention.commit.size", 0), 0, Integer.MAX_VALUE, 0);
+    }
+
+    /**
+     * The days the commits are kept, 0 means no limit
+     */
+    public int commitRetentionDays() {
+        return checkInt(getIntProperty("apollo.retention.commit.days", 0), 0, Integer.MAX_VALUE, 0);
+    }
+
+    /**
+     * The days the audits are kept, 0 means no limit
+     */
+    public int auditRetentionDays() {
+        return checkInt(getIntProperty("apollo.retention.audit.days", 0), 0, Integer.MAX_VALUE, 0);
+    }
+
+    /**
+     * The days the instance configs are kept after the instances last fetched them, 0 means no limit
+     */
+    public int instanceConfigRetentionDays() {
+        return checkInt(getIntProperty("apollo.retention.instance-config.days", 0), 0, Integer.MAX_VALUE, 0);
+    }
+
+    /**
+     * Whether admin services push the release messages to the config services streaming from them, the config
+     * services still scan the ReleaseMessage table to fill the gaps
+     */
+    public boolean isReleaseMessagePushEnabled() {
+        return getBooleanProperty("apollo.release-message.push.enabled", false);
+    }
+
     public boolean isConfigServiceCacheEnabled() {
         return getBooleanProperty("config-service.cache.enabled", false);
     }
 
+    /**
+     * Whether the config service loads all the latest releases at startup, instead of caching them on access
+     */
+    public boolean isConfigServicePreloadEnabled() {
+        return getBooleanProperty("config-service.cache.preload.enabled", false);
+    }
+
+    /**
+     * Whether the config service caches the serialized responses of /configs
+     */
+    public boolean isConfigServiceResponseCacheEnabled() {
+        return getBooleanProperty("config-service.response-cache.enabled", false);
+    }
+
+    /**
+     * Whether the meta service returns each client a subset of the config services picked by rendezvous hashing of
+     * the app id and the client ip, instead of all the config services discovered
+     */
+    public boolean isConfigServiceAffinityRoutingEnabled() {
+        return getBooleanProperty("config-service.affinity-routing.enabled", false);
+    }
+
+    /**
+     * The number of config services returned to each client when the affinity routing is enabled, the preferred one
+     * and the fallbacks
+     */
+    public int configServiceAffinityRoutingSubsetSize() {
+        int size = getIntProperty("config-service.affinity-routing.subset-size",
+                DEFAULT_CONFIG_SERVICE_AFFINITY_ROUTING_SUBSET_SIZE);
+        return checkInt(size, 1, Integer.MAX_VALUE, DEFAULT_CONFIG_SERVICE_AFFINITY_ROUTING_SUBSET_SIZE);
+    }
+
     int checkInt(int value, int min, int max, int defaultValue) {
         if (value >= min && value <= max) {
             return value;
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.biz.grayReleaseRule;
+
+import com.ctrip.framework.apollo.common.constants.NamespaceBranchStatus;
+import com.ctrip.framework.apollo.common.dto.GrayReleaseRuleItemDTO;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable gray release rules of a namespace, compiled to be looked up by the client app id.
+ * <p>
+ * The rule items of the same client app id in a rule are merged into one matcher, as a client matches a rule if it
+ * matches any of its items.
+ */
+final class CompiledGrayReleaseRules {
+    //lower case client app id -> matchers in the order of rule id
+    private final ImmutableListMultimap<String, ClientMatcher> matchers;
+
+    private CompiledGrayReleaseRules(ImmutableListMultimap<String, ClientMatcher> matchers) {
+        this.matchers = matchers;
+    }
+
+    /**
+     * @param rules the rules of a namespace in the order of rule id
+     * @return the compiled rules, or null if none of the rules is active
+     */
+    static CompiledGrayReleaseRules compile(Collection<GrayReleaseRuleCache> rules) {
+        ImmutableListMultimap.Builder<String, ClientMatcher> matchers = ImmutableListMultimap.builder();
+        boolean empty = true;
+        for (GrayReleaseRuleCache rule : rules) {
+            //check branch status
+            if (rule.getBranchStatus() != NamespaceBranchStatus.ACTIVE) {
+                continue;
+            }
+            Map<String, Set<String>> clientIps = Maps.newLinkedHashMap();
+            Map<String, Set<String>> clientLabels = Maps.newHashMap();
+            for (GrayReleaseRuleItemDTO ruleItem : rule.getRuleItems()) {
+                String clientAppId = ruleItem.getClientAppId().toLowerCase();
+                clientIps.computeIfAbsent(clientAppId, k -> Sets.newHashSet()).addAll(ruleItem.getClientIpList());
+                clientLabels.computeIfAbsent(clientAppId, k -> Sets.newHashSet())
+                        .addAll(ruleItem.getClientLabelList());
+            }
+            for (Map.Entry<String, Set<String>> entry : clientIps.entrySet()) {
+                matchers.put(entry.getKey(), new ClientMatcher(rule.getReleaseId(), entry.getValue(),
+                        clientLabels.get(entry.getKey())));
+                empty = false;
+            }
+        }
+        return empty ? null : new CompiledGrayReleaseRules(matchers.build());
+    }
+
+    /**
+     * @return the release id of the first rule matched, or null if none matches
+     */
+    Long findReleaseId(String clientAppId, String clientIp, String clientLabel) {
+        if (clientAppId == null) {
+            return null;
+        }
+        ImmutableList<ClientMatcher> clientMatchers = matchers.get(clientAppId.toLowerCase());
+        for (int i = 0; i < clientMatchers.size(); i++) {
+            ClientMatcher clientMatcher = clientMatchers.get(i);
+            if (clientMatcher.matches(clientIp, clientLabel)) {
+                return clientMatcher.getReleaseId();
+            }
+        }
+        return null;
+    }
+
+    private static final class ClientMatcher {
+        private final Long releaseId;
+        private final boolean allIps;
+        private final Set<String> clientIps;
+        private final boolean allLabels;
+        private final Set<String> clientLabels;
+
+        ClientMatcher(long releaseId, Set<String> clientIps, Set<String> clientLabels) {
+            this.releaseId = releaseId;
+            this.allIps = clientIps.contains(GrayReleaseRuleItemDTO.ALL_IP);
+            this.clientIps = immutableCopyOf(clientIps);
+            this.allLabels = clientLabels.contains(GrayReleaseRuleItemDTO.ALL_Label);
+            this.clientLabels = immutableCopyOf(clientLabels);
+        }
+
+        private static Set<String> immutableCopyOf(Set<String> values) {
+            //ImmutableSet does not accept null
+            values.remove(null);
+            return ImmutableSet.copyOf(values);
+        }
+
+        boolean matches(String clientIp, String clientLabel) {
+            return allIps || clientIps.contains(clientIp) || allLabels || clientLabels.contains(clientLabel);
+        }
+
+        Long getReleaseId() {
+            return releaseId;
+        }
+    }
+}
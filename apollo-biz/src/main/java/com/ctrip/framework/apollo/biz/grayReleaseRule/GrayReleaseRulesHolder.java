@@ -19,7 +19,9 @@ package com.ctrip.framework.apollo.biz.grayReleaseRule;
 import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.google.common.collect.Ordering;
@@ -48,6 +50,7 @@ import org.springframework.util.CollectionUtils;
 
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -69,10 +72,12 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
 
     private int databaseScanInterval;
     private ScheduledExecutorService executorService;
-    //store configAppId+configCluster+configNamespace -> GrayReleaseRuleCache map
+    //store configAppId+configCluster+configNamespace -> GrayReleaseRuleCache map, only accessed when rules change
     private Multimap<String, GrayReleaseRuleCache> grayReleaseRuleCache;
-    //store clientAppId+clientNamespace+ip -> ruleId map
-    private Multimap<String, Long> reversedGrayReleaseRuleCache;
+    //store lower case configAppId+configCluster+configNamespace -> compiled rules, replaced when rules change
+    private ConcurrentMap<String, CompiledGrayReleaseRules> compiledGrayReleaseRules;
+    //store lower case clientAppId+clientNamespace+ip -> ruleIds map, the ruleIds are replaced when rules change
+    private ConcurrentMap<String, Set<Long>> reversedGrayReleaseRuleCache;
     //an auto increment version to indicate the age of rules
     private AtomicLong loadVersion;
 
@@ -80,8 +85,8 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
         loadVersion = new AtomicLong();
         grayReleaseRuleCache = Multimaps.synchronizedSetMultimap(
                 TreeMultimap.create(String.CASE_INSENSITIVE_ORDER, Ordering.natural()));
-        reversedGrayReleaseRuleCache = Multimaps.synchronizedSetMultimap(
-                TreeMultimap.create(String.CASE_INSENSITIVE_ORDER, Ordering.natural()));
+        compiledGrayReleaseRules = Maps.newConcurrentMap();
+        reversedGrayReleaseRuleCache = Maps.newConcurrentMap();
         executorService = Executors.newScheduledThreadPool(1, ApolloThreadFactory
                 .create("GrayReleaseRulesHolder", true));
     }
@@ -136,22 +141,12 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
 
     public Long findReleaseIdFromGrayReleaseRule(String clientAppId, String clientIp, String clientLabel, String
             configAppId, String configCluster, String configNamespaceName) {
-        String key = assembleGrayReleaseRuleKey(configAppId, configCluster, configNamespaceName);
-        if (!grayReleaseRuleCache.containsKey(key)) {
+        CompiledGrayReleaseRules rules = compiledGrayReleaseRules.get(assembleGrayReleaseRuleKey(configAppId,
+                configCluster, configNamespaceName).toLowerCase());
+        if (rules == null) {
             return null;
         }
-        //create a new list to avoid ConcurrentModificationException
-        List<GrayReleaseRuleCache> rules = Lists.newArrayList(grayReleaseRuleCache.get(key));
-        for (GrayReleaseRuleCache rule : rules) {
-            //check branch status
-            if (rule.getBranchStatus() != NamespaceBranchStatus.ACTIVE) {
-                continue;
-            }
-            if (rule.matches(clientAppId, clientIp, clientLabel)) {
-                return rule.getReleaseId();
-            }
-        }
-        return null;
+        return rules.findReleaseId(clientAppId, clientIp, clientLabel);
     }
 
     /**
@@ -216,6 +211,7 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
                 if (oldRule != null) {
                     removeCache(key, oldRule);
                 }
+                compileRules(key);
             } else {
                 if (oldRule.getBranchStatus() == NamespaceBranchStatus.ACTIVE) {
                     //update load version
@@ -223,6 +219,7 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
                 } else if ((loadVersion.get() - oldRule.getLoadVersion()) > 1) {
                     //remove outdated inactive branch rule after 2 update cycles
                     removeCache(key, oldRule);
+                    compileRules(key);
                 }
             }
         }
@@ -232,8 +229,10 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
         if (ruleCache.getBranchStatus() == NamespaceBranchStatus.ACTIVE) {
             for (GrayReleaseRuleItemDTO ruleItemDTO : ruleCache.getRuleItems()) {
                 for (String clientIp : ruleItemDTO.getClientIpList()) {
-                    reversedGrayReleaseRuleCache.put(assembleReversedGrayReleaseRuleKey(ruleItemDTO
-                            .getClientAppId(), ruleCache.getNamespaceName(), clientIp), ruleCache.getRuleId());
+                    reversedGrayReleaseRuleCache.compute(assembleReversedGrayReleaseRuleKey(ruleItemDTO
+                            .getClientAppId(), ruleCache.getNamespaceName(), clientIp), (k, ruleIds) ->
+                            ruleIds == null ? ImmutableSet.of(ruleCache.getRuleId()) :
+                                    ImmutableSet.<Long>builder().addAll(ruleIds).add(ruleCache.getRuleId()).build());
                 }
             }
         }
@@ -244,12 +243,25 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
         grayReleaseRuleCache.remove(key, ruleCache);
         for (GrayReleaseRuleItemDTO ruleItemDTO : ruleCache.getRuleItems()) {
             for (String clientIp : ruleItemDTO.getClientIpList()) {
-                reversedGrayReleaseRuleCache.remove(assembleReversedGrayReleaseRuleKey(ruleItemDTO
-                        .getClientAppId(), ruleCache.getNamespaceName(), clientIp), ruleCache.getRuleId());
+                reversedGrayReleaseRuleCache.computeIfPresent(assembleReversedGrayReleaseRuleKey(ruleItemDTO
+                        .getClientAppId(), ruleCache.getNamespaceName(), clientIp), (k, ruleIds) -> {
+                    Set<Long> remaining = Sets.difference(ruleIds, ImmutableSet.of(ruleCache.getRuleId()));
+                    return remaining.isEmpty() ? null : ImmutableSet.copyOf(remaining);
+                });
             }
         }
     }
 
+    /**
+     * Compile the rules of the key and replace the compiled ones, the compilations of the same key are serialized so
+     * that the last one always sees the latest rules
+     */
+    private void compileRules(String key) {
+        compiledGrayReleaseRules.compute(key.toLowerCase(), (k, compiled) ->
+                //create a new list to avoid ConcurrentModificationException
+                CompiledGrayReleaseRules.compile(Lists.newArrayList(grayReleaseRuleCache.get(key))));
+    }
+
     private GrayReleaseRuleCache transformRuleToRuleCache(GrayReleaseRule grayReleaseRule) {
         Set<GrayReleaseRuleItemDTO> ruleItems;
         try {
@@ -286,7 +298,7 @@ public class GrayReleaseRulesHolder implements ReleaseMessageListener, Initializ
 
     private String assembleReversedGrayReleaseRuleKey(String clientAppId, String
             clientNamespaceName, String clientIp) {
-        return STRING_JOINER.join(clientAppId, clientNamespaceName, clientIp);
+        return STRING_JOINER.join(clientAppId, clientNamespaceName, clientIp).toLowerCase();
     }
 
 }
@@ -48,11 +48,14 @@ public class DatabaseMessageSender implements MessageSender {
     private final AtomicBoolean cleanStopped;
 
     private final ReleaseMessageRepository releaseMessageRepository;
+    private final ReleaseMessageBroadcaster releaseMessageBroadcaster;
 
-    public DatabaseMessageSender(final ReleaseMessageRepository releaseMessageRepository) {
+    public DatabaseMessageSender(final ReleaseMessageRepository releaseMessageRepository,
+                                 final ReleaseMessageBroadcaster releaseMessageBroadcaster) {
         cleanExecutorService = Executors.newSingleThreadExecutor(ApolloThreadFactory.create("DatabaseMessageSender", true));
         cleanStopped = new AtomicBoolean(false);
         this.releaseMessageRepository = releaseMessageRepository;
+        this.releaseMessageBroadcaster = releaseMessageBroadcaster;
     }
 
     @Override
@@ -69,6 +72,7 @@ public class DatabaseMessageSender implements MessageSender {
         try {
             ReleaseMessage newMessage = releaseMessageRepository.save(new ReleaseMessage(message));
             toClean.offer(newMessage.getId());
+            releaseMessageBroadcaster.broadcast(newMessage, channel);
             transaction.setStatus(Transaction.SUCCESS);
         } catch (Throwable ex) {
             logger.error("Sending message to database failed", ex);
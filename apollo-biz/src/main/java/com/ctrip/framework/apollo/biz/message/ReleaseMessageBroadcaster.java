@@ -0,0 +1,100 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.biz.message;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.collect.Lists;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Pushes the release messages saved by this node to the subscribers, e.g. the config services streaming from this
+ * admin service.
+ * <p>
+ * Pushing is only a shortcut, a message could be lost if a subscriber is not connected at the moment, so the
+ * subscribers should still scan the ReleaseMessage table to fill the gaps.
+ */
+@Component
+public class ReleaseMessageBroadcaster {
+    private static final Logger logger = LoggerFactory.getLogger(ReleaseMessageBroadcaster.class);
+
+    private final List<ReleaseMessageListener> subscribers = Lists.newCopyOnWriteArrayList();
+    private final ExecutorService broadcastExecutorService;
+
+    private final BizConfig bizConfig;
+
+    public ReleaseMessageBroadcaster(final BizConfig bizConfig) {
+        this.bizConfig = bizConfig;
+        broadcastExecutorService = Executors.newSingleThreadExecutor(
+                ApolloThreadFactory.create("ReleaseMessageBroadcaster", true));
+    }
+
+    public void subscribe(ReleaseMessageListener subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public void unsubscribe(ReleaseMessageListener subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Broadcast the message once the current transaction, if any, is committed, so that the subscribers never see a
+     * message which is rolled back
+     */
+    public void broadcast(ReleaseMessage message, String channel) {
+        if (!bizConfig.isReleaseMessagePushEnabled() || subscribers.isEmpty()) {
+            return;
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            broadcastExecutorService.submit(() -> doBroadcast(message, channel));
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                broadcastExecutorService.submit(() -> doBroadcast(message, channel));
+            }
+        });
+    }
+
+    private void doBroadcast(ReleaseMessage message, String channel) {
+        for (ReleaseMessageListener subscriber : subscribers) {
+            try {
+                subscriber.handleMessage(message, channel);
+            } catch (Throwable ex) {
+                Tracer.logError(ex);
+                logger.warn("Failed to push message {} to subscriber {}", message, subscriber, ex);
+            }
+        }
+    }
+}
@@ -18,10 +18,12 @@ package com.ctrip.framework.apollo.biz.message;
 
 import com.google.common.collect.Maps;
 
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NavigableMap;
 import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -47,6 +49,7 @@ import com.google.common.collect.Lists;
 public class ReleaseMessageScanner implements InitializingBean {
     private static final Logger logger = LoggerFactory.getLogger(ReleaseMessageScanner.class);
     private static final int missingReleaseMessageMaxAge = 10; // hardcoded to 10, could be configured via BizConfig if necessary
+    private static final int maxPendingPushedMessages = 500;
     @Autowired
     private BizConfig bizConfig;
     @Autowired
@@ -55,6 +58,7 @@ public class ReleaseMessageScanner implements InitializingBean {
     private final List<ReleaseMessageListener> listeners;
     private final ScheduledExecutorService executorService;
     private final Map<Long, Integer> missingReleaseMessages; // missing release message id => age counter
+    private final NavigableMap<Long, ReleaseMessage> pendingPushedMessages; // pushed ahead of a gap, id => message
     private long maxIdScanned;
 
     public ReleaseMessageScanner() {
@@ -62,6 +66,7 @@ public class ReleaseMessageScanner implements InitializingBean {
         executorService = Executors.newScheduledThreadPool(1, ApolloThreadFactory
                 .create("ReleaseMessageScanner", true));
         missingReleaseMessages = Maps.newHashMap();
+        pendingPushedMessages = Maps.newTreeMap();
     }
 
     @Override
@@ -95,6 +100,46 @@ public class ReleaseMessageScanner implements InitializingBean {
         }
     }
 
+    /**
+     * Accept a message pushed by the admin service, so that the listeners could be notified without waiting for the
+     * next scan. The message is handled in the scanning thread, a message already scanned is ignored and a message
+     * out of order is held until the gap is filled by another pushed message or by the next scan.
+     *
+     * @param message the pushed message
+     */
+    public void onMessagePushed(ReleaseMessage message) {
+        executorService.submit(() -> {
+            try {
+                if (message.getId() <= maxIdScanned) {
+                    return;
+                }
+                pendingPushedMessages.put(message.getId(), message);
+                if (pendingPushedMessages.size() > maxPendingPushedMessages) {
+                    scanMessages();
+                    return;
+                }
+                firePendingPushedMessages();
+            } catch (Throwable ex) {
+                logger.error("Handle pushed message {} failed", message, ex);
+            }
+        });
+    }
+
+    /**
+     * Fire the pending pushed messages which follow the max id scanned without a gap
+     */
+    private void firePendingPushedMessages() {
+        pendingPushedMessages.headMap(maxIdScanned, true).clear();
+        Entry<Long, ReleaseMessage> next = pendingPushedMessages.firstEntry();
+        while (next != null && next.getKey() == maxIdScanned + 1) {
+            pendingPushedMessages.pollFirstEntry();
+            Tracer.logEvent("Apollo.ReleaseMessageScanner.PushedMessage", String.valueOf(next.getKey()));
+            fireMessageScanned(Collections.singletonList(next.getValue()));
+            maxIdScanned = next.getKey();
+            next = pendingPushedMessages.firstEntry();
+        }
+    }
+
     /**
      * Scan messages, continue scanning until there is no more messages
      */
@@ -103,6 +148,7 @@ public class ReleaseMessageScanner implements InitializingBean {
         while (hasMoreMessages && !Thread.currentThread().isInterrupted()) {
             hasMoreMessages = scanAndSendMessages();
         }
+        firePendingPushedMessages();
     }
 
     /**
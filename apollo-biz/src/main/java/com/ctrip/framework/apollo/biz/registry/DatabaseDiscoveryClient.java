@@ -32,4 +32,13 @@ public interface DatabaseDiscoveryClient {
      * @return empty list if there is no instance
      */
     List<ServiceInstance> getInstances(String serviceName);
+
+    /**
+     * listen to the changes of instances, if the client pushes them
+     *
+     * @return false if the changes are not pushed, then {@link #getInstances(String)} should be called every time
+     */
+    default boolean addChangeListener(ServiceInstanceChangeListener listener) {
+        return false;
+    }
 }
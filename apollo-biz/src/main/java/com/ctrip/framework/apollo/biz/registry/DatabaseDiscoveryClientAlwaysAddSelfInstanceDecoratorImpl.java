@@ -82,4 +82,9 @@ public class DatabaseDiscoveryClientAlwaysAddSelfInstanceDecoratorImpl
             return this.delegate.getInstances(serviceName);
         }
     }
+
+    @Override
+    public boolean addChangeListener(ServiceInstanceChangeListener listener) {
+        return this.delegate.addChangeListener(listener);
+    }
 }
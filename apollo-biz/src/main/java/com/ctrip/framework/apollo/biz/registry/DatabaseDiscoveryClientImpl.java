@@ -49,7 +49,7 @@ public class DatabaseDiscoveryClientImpl implements DatabaseDiscoveryClient {
     public List<ServiceInstance> getInstances(String serviceName) {
         final List<ServiceRegistry> serviceRegistryListFiltered;
         {
-            LocalDateTime healthTime = LocalDateTime.now()
+            LocalDateTime healthTime = this.serviceRegistryService.databaseTime()
                     .minusSeconds(this.discoveryProperties.getHealthCheckIntervalInSecond());
             List<ServiceRegistry> filterByHealthCheck =
                     this.serviceRegistryService.findByServiceNameDataChangeLastModifiedTimeGreaterThan(
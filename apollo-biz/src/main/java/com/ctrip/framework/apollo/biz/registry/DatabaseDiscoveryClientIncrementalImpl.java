@@ -0,0 +1,231 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.biz.registry;
+
+import com.ctrip.framework.apollo.biz.entity.ServiceRegistry;
+import com.ctrip.framework.apollo.biz.registry.configuration.support.ApolloServiceDiscoveryProperties;
+import com.ctrip.framework.apollo.biz.service.ServiceRegistryService;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * keep the instances of all the services in memory, and only read the registries changed since the last read.
+ * <p>
+ * 1. the registries whose heartbeat is newer than the high-water mark are read by one query for all the services,
+ * the instances not heartbeat in the health check interval are expired in memory. the heartbeats are stamped by the
+ * clock of the database, so the ones of the instances whose clocks lag behind are not missed.
+ * <p>
+ * 2. all the healthy registries are read again once in a health check interval, to drop the ones deregistered.
+ * <p>
+ * 3. the listeners are notified when the instances of a service are changed, so they needn't poll.
+ * <p>
+ * when database happened failure, return the instances in memory.
+ */
+public class DatabaseDiscoveryClientIncrementalImpl implements DatabaseDiscoveryClient {
+
+    private static final Logger log = LoggerFactory.getLogger(DatabaseDiscoveryClientIncrementalImpl.class);
+
+    private static final long SYNC_TASK_PERIOD_IN_SECOND = 5;
+
+    private static final Comparator<ServiceInstance> URI_COMPARATOR = Comparator.comparing(
+            serviceInstance -> serviceInstance.getUri().toString()
+    );
+
+    private final ServiceRegistryService serviceRegistryService;
+
+    private final ApolloServiceDiscoveryProperties discoveryProperties;
+
+    private final String cluster;
+
+    private final List<ServiceInstanceChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * service name -> uri -> registry, only accessed in the sync task
+     */
+    private final Map<String, Map<String, ServiceRegistry>> serviceName2Registries = new HashMap<>();
+
+    /**
+     * replaced by the sync task
+     */
+    private volatile Map<String, List<ServiceInstance>> serviceName2ServiceInstances = Collections.emptyMap();
+
+    /**
+     * the latest heartbeat read, null before the first full read
+     */
+    private LocalDateTime highWaterMark;
+
+    private LocalDateTime lastFullSyncTime;
+
+    private volatile ScheduledExecutorService scheduledExecutorService;
+
+    public DatabaseDiscoveryClientIncrementalImpl(
+            ServiceRegistryService serviceRegistryService,
+            ApolloServiceDiscoveryProperties discoveryProperties,
+            String cluster) {
+        this.serviceRegistryService = serviceRegistryService;
+        this.discoveryProperties = discoveryProperties;
+        this.cluster = cluster;
+    }
+
+    public void init() {
+        this.scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(
+                ApolloThreadFactory
+                        .create("DatabaseDiscoveryIncremental", true)
+        );
+        // load them for init, in the task thread
+        try {
+            this.scheduledExecutorService.submit(this::syncTask).get();
+        } catch (Throwable t) {
+            log.error("fail to load service instances from database", t);
+        }
+        this.scheduledExecutorService.scheduleWithFixedDelay(this::syncTask,
+                SYNC_TASK_PERIOD_IN_SECOND, SYNC_TASK_PERIOD_IN_SECOND, TimeUnit.SECONDS);
+    }
+
+    void syncTask() {
+        try {
+            this.sync(this.serviceRegistryService.databaseTime());
+        } catch (Throwable t) {
+            log.error("fail to read service instances from database", t);
+        }
+    }
+
+    void sync(LocalDateTime now) {
+        final long healthCheckIntervalInSecond = this.discoveryProperties.getHealthCheckIntervalInSecond();
+        final LocalDateTime healthTime = now.minusSeconds(healthCheckIntervalInSecond);
+        final boolean fullSync = this.highWaterMark == null
+                || this.lastFullSyncTime.isBefore(healthTime);
+
+        final List<ServiceRegistry> serviceRegistries;
+        if (fullSync) {
+            serviceRegistries = this.serviceRegistryService.findByDataChangeLastModifiedTimeGreaterThan(healthTime);
+        } else {
+            // read the last period again, for the heartbeat committed later than its time
+            serviceRegistries = this.serviceRegistryService.findByDataChangeLastModifiedTimeGreaterThan(
+                    this.highWaterMark.minusSeconds(SYNC_TASK_PERIOD_IN_SECOND)
+            );
+        }
+
+        if (fullSync) {
+            this.serviceName2Registries.clear();
+            this.lastFullSyncTime = now;
+        }
+        for (ServiceRegistry serviceRegistry : serviceRegistries) {
+            this.serviceName2Registries
+                    .computeIfAbsent(serviceRegistry.getServiceName(), key -> new HashMap<>())
+                    .put(serviceRegistry.getUri(), serviceRegistry);
+            LocalDateTime lastModifiedTime = serviceRegistry.getDataChangeLastModifiedTime();
+            if (this.highWaterMark == null || lastModifiedTime.isAfter(this.highWaterMark)) {
+                this.highWaterMark = lastModifiedTime;
+            }
+        }
+        if (this.highWaterMark == null) {
+            this.highWaterMark = healthTime;
+        }
+
+        // expire the registries not heartbeat in time
+        this.serviceName2Registries.values().forEach(
+                registries -> registries.values()
+                        .removeIf(serviceRegistry -> !serviceRegistry.getDataChangeLastModifiedTime().isAfter(healthTime))
+        );
+        this.serviceName2Registries.values().removeIf(Map::isEmpty);
+
+        this.publish(this.buildServiceInstances());
+    }
+
+    private Map<String, List<ServiceInstance>> buildServiceInstances() {
+        Map<String, List<ServiceInstance>> result = new HashMap<>(this.serviceName2Registries.size());
+        this.serviceName2Registries.forEach((serviceName, registries) -> {
+            List<ServiceInstance> serviceInstances = DatabaseDiscoveryClientImpl
+                    .filterByCluster(new ArrayList<>(registries.values()), this.cluster)
+                    .stream()
+                    .map(DatabaseDiscoveryClientImpl::convert)
+                    .sorted(URI_COMPARATOR)
+                    .collect(Collectors.toList());
+            if (!serviceInstances.isEmpty()) {
+                result.put(serviceName, Collections.unmodifiableList(serviceInstances));
+            }
+        });
+        return result;
+    }
+
+    private void publish(Map<String, List<ServiceInstance>> newServiceName2ServiceInstances) {
+        Map<String, List<ServiceInstance>> oldServiceName2ServiceInstances = this.serviceName2ServiceInstances;
+        this.serviceName2ServiceInstances = newServiceName2ServiceInstances;
+
+        Set<String> serviceNames = new HashSet<>(oldServiceName2ServiceInstances.keySet());
+        serviceNames.addAll(newServiceName2ServiceInstances.keySet());
+        for (String serviceName : serviceNames) {
+            List<ServiceInstance> oldServiceInstances = oldServiceName2ServiceInstances
+                    .getOrDefault(serviceName, Collections.emptyList());
+            List<ServiceInstance> newServiceInstances = newServiceName2ServiceInstances
+                    .getOrDefault(serviceName, Collections.emptyList());
+            if (!Objects.equals(uris(oldServiceInstances), uris(newServiceInstances))) {
+                log.info("instances of service '{}' changed to {}", serviceName, uris(newServiceInstances));
+                this.notifyListeners(serviceName);
+            }
+        }
+    }
+
+    private void notifyListeners(String serviceName) {
+        for (ServiceInstanceChangeListener listener : this.listeners) {
+            try {
+                listener.onChange(serviceName);
+            } catch (Throwable t) {
+                log.error("fail to notify the change of service {}", serviceName, t);
+            }
+        }
+    }
+
+    private static List<String> uris(List<ServiceInstance> serviceInstances) {
+        return serviceInstances.stream()
+                .map(serviceInstance -> serviceInstance.getUri().toString())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * never throw {@link Throwable}, read from memory
+     */
+    @Override
+    public List<ServiceInstance> getInstances(String serviceName) {
+        return this.serviceName2ServiceInstances.getOrDefault(serviceName, Collections.emptyList());
+    }
+
+    @Override
+    public boolean addChangeListener(ServiceInstanceChangeListener listener) {
+        this.listeners.add(listener);
+        return true;
+    }
+}
@@ -41,7 +41,7 @@ public class DatabaseServiceRegistryImpl implements DatabaseServiceRegistry {
 
     public void register(ServiceInstance instance) {
         ServiceRegistry serviceRegistry = convert(instance);
-        this.serviceRegistryService.saveIfNotExistByServiceNameAndUri(serviceRegistry);
+        this.serviceRegistryService.heartbeat(serviceRegistry);
     }
 
     public void deregister(ServiceInstance instance) {
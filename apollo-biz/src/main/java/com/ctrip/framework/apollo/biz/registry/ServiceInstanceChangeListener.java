@@ -0,0 +1,30 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.biz.registry;
+
+/**
+ * notified when the instances of a service are changed
+ *
+ * @see DatabaseDiscoveryClient#addChangeListener(ServiceInstanceChangeListener)
+ */
+public interface ServiceInstanceChangeListener {
+
+    /**
+     * get the instances changed by {@link DatabaseDiscoveryClient#getInstances(String)}
+     */
+    void onChange(String serviceName);
+}
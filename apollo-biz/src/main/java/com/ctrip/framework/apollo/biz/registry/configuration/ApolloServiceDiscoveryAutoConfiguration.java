@@ -19,6 +19,7 @@ package com.ctrip.framework.apollo.biz.registry.configuration;
 import com.ctrip.framework.apollo.biz.registry.DatabaseDiscoveryClient;
 import com.ctrip.framework.apollo.biz.registry.DatabaseDiscoveryClientAlwaysAddSelfInstanceDecoratorImpl;
 import com.ctrip.framework.apollo.biz.registry.DatabaseDiscoveryClientImpl;
+import com.ctrip.framework.apollo.biz.registry.DatabaseDiscoveryClientIncrementalImpl;
 import com.ctrip.framework.apollo.biz.registry.DatabaseDiscoveryClientMemoryCacheDecoratorImpl;
 import com.ctrip.framework.apollo.biz.registry.ServiceInstance;
 import com.ctrip.framework.apollo.biz.registry.configuration.support.ApolloServiceRegistryClearApplicationRunner;
@@ -64,6 +65,13 @@ public class ApolloServiceDiscoveryAutoConfiguration {
             ServiceInstance selfServiceInstance,
             ServiceRegistryService serviceRegistryService
     ) {
+        if (discoveryProperties.isIncrementalSyncEnabled()) {
+            DatabaseDiscoveryClientIncrementalImpl discoveryClient = new DatabaseDiscoveryClientIncrementalImpl(
+                    serviceRegistryService, discoveryProperties, selfServiceInstance.getCluster()
+            );
+            discoveryClient.init();
+            return wrapAlwaysAddSelfInstance(discoveryClient, selfServiceInstance);
+        }
         DatabaseDiscoveryClient discoveryClient = new DatabaseDiscoveryClientImpl(
                 serviceRegistryService, discoveryProperties, selfServiceInstance.getCluster()
         );
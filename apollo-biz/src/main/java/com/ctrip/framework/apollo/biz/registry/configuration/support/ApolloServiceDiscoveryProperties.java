@@ -42,6 +42,12 @@ public class ApolloServiceDiscoveryProperties {
      */
     private long healthCheckIntervalInSecond = 61;
 
+    /**
+     * only read the instances changed since last read, and push the changes to the listeners,
+     * instead of reading all the instances of each service periodically.
+     */
+    private boolean incrementalSyncEnabled = false;
+
     public long getHealthCheckIntervalInSecond() {
         return healthCheckIntervalInSecond;
     }
@@ -50,6 +56,14 @@ public class ApolloServiceDiscoveryProperties {
         this.healthCheckIntervalInSecond = healthCheckIntervalInSecond;
     }
 
+    public boolean isIncrementalSyncEnabled() {
+        return incrementalSyncEnabled;
+    }
+
+    public void setIncrementalSyncEnabled(boolean incrementalSyncEnabled) {
+        this.incrementalSyncEnabled = incrementalSyncEnabled;
+    }
+
     public boolean isEnabled() {
         return enabled;
     }
@@ -18,10 +18,12 @@ package com.ctrip.framework.apollo.biz.repository;
 
 import com.ctrip.framework.apollo.biz.entity.Audit;
 
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Date;
 import java.util.List;
 
 public interface AuditRepository extends PagingAndSortingRepository<Audit, Long> {
@@ -32,4 +34,8 @@ public interface AuditRepository extends PagingAndSortingRepository<Audit, Long>
     @Query("SELECT a from Audit a WHERE a.dataChangeCreatedBy = :owner AND a.entityName =:entity AND a.opName = :op")
     List<Audit> findAudits(@Param("owner") String owner, @Param("entity") String entity,
                            @Param("op") String op);
+
+    @Modifying
+    @Query(value = "DELETE FROM `Audit` WHERE `DataChange_LastTime` < ?1 LIMIT ?2", nativeQuery = true)
+    int deleteByDataChangeLastModifiedTimeBefore(Date date, int limit);
 }
@@ -18,16 +18,19 @@ package com.ctrip.framework.apollo.biz.repository;
 
 import com.ctrip.framework.apollo.biz.entity.Commit;
 
+import java.util.Collection;
 import java.util.Date;
 
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
 
 import java.util.List;
 
-public interface CommitRepository extends PagingAndSortingRepository<Commit, Long> {
+public interface CommitRepository extends PagingAndSortingRepository<Commit, Long>,
+        JpaSpecificationExecutor<Commit> {
 
     List<Commit> findByAppIdAndClusterNameAndNamespaceNameOrderByIdDesc(String appId, String clusterName,
                                                                         String namespaceName, Pageable pageable);
@@ -35,9 +38,47 @@ public interface CommitRepository extends PagingAndSortingRepository<Commit, Lon
     List<Commit> findByAppIdAndClusterNameAndNamespaceNameAndDataChangeLastModifiedTimeGreaterThanEqualOrderByIdDesc(
             String appId, String clusterName, String namespaceName, Date dataChangeLastModifiedTime, Pageable pageable);
 
+    List<Commit> findByAppIdAndClusterNameAndNamespaceNameInOrderByIdDesc(String appId, String clusterName,
+            Collection<String> namespaceNames);
+
+    List<Commit> findByAppIdAndClusterNameAndNamespaceNameAndIdGreaterThanOrderByIdAsc(String appId,
+            String clusterName, String namespaceName, long id, Pageable pageable);
+
+    long countByAppIdAndClusterNameAndNamespaceName(String appId, String clusterName, String namespaceName);
+
+    List<Commit> findFirst500ByIdGreaterThanOrderByIdAsc(long id);
+
+    Commit findTopByOrderByIdDesc();
+
+    @Query("select namespaceName, max(id) as id from Commit where appId = ?1 and clusterName = ?2 group by namespaceName")
+    List<Object[]> findLatestCommitIdsGroupByNamespaceName(String appId, String clusterName);
+
     @Modifying
     @Query("update Commit set IsDeleted = 1, DeletedAt = ROUND(UNIX_TIMESTAMP(NOW(4))*1000), DataChange_LastModifiedBy = ?4 where appId=?1 and clusterName=?2 and namespaceName = ?3 and IsDeleted = 0")
     int batchDelete(String appId, String clusterName, String namespaceName, String operator);
 
     List<Commit> findByAppIdAndClusterNameAndNamespaceNameAndChangeSetsLikeOrderByIdDesc(String appId, String clusterName, String namespaceName, String changeSets, Pageable page);
+
+    @Query("select id from Commit where appId = ?1 and clusterName = ?2 and namespaceName = ?3 order by id desc")
+    List<Long> findIdsByNamespaceOrderByIdDesc(String appId, String clusterName, String namespaceName,
+                                               Pageable pageable);
+
+    @Modifying
+    @Query(value = "DELETE FROM `Commit` WHERE `AppId` = ?1 AND `ClusterName` = ?2 AND `NamespaceName` = ?3 "
+            + "AND `Id` <= ?4 LIMIT ?5", nativeQuery = true)
+    int deleteByNamespaceAndIdLessThanEqual(String appId, String clusterName, String namespaceName, long id,
+                                           int limit);
+
+    @Query("select min(id) from Commit where appId = ?1 and clusterName = ?2 and namespaceName = ?3 "
+            + "and dataChangeLastModifiedTime >= ?4")
+    Long findFirstIdByNamespaceSince(String appId, String clusterName, String namespaceName, Date date);
+
+    @Modifying
+    @Query(value = "DELETE FROM `Commit` WHERE `DataChange_LastTime` < ?1 AND (`IsDeleted` = 1 OR EXISTS ("
+            + "SELECT 1 FROM `Release` WHERE `Release`.`AppId` = `Commit`.`AppId` "
+            + "AND `Release`.`ClusterName` = `Commit`.`ClusterName` "
+            + "AND `Release`.`NamespaceName` = `Commit`.`NamespaceName` "
+            + "AND `Release`.`IsAbandoned` = 0 AND `Release`.`IsDeleted` = 0 "
+            + "AND `Release`.`DataChange_CreatedTime` > `Commit`.`DataChange_LastTime`)) LIMIT ?2", nativeQuery = true)
+    int deleteReleasedByDataChangeLastModifiedTimeBefore(Date date, int limit);
 }
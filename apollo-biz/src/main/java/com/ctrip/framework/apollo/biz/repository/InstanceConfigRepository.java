@@ -34,15 +34,29 @@ public interface InstanceConfigRepository extends PagingAndSortingRepository<Ins
     InstanceConfig findByInstanceIdAndConfigAppIdAndConfigNamespaceName(long instanceId, String
             configAppId, String configNamespaceName);
 
+    List<InstanceConfig> findByInstanceIdIn(Set<Long> instanceIds);
+
     Page<InstanceConfig> findByReleaseKeyAndDataChangeLastModifiedTimeAfter(String releaseKey, Date
             validDate, Pageable pageable);
 
+    /**
+     * Same as {@link #findByReleaseKeyAndDataChangeLastModifiedTimeAfter(String, Date, Pageable)}, without the count
+     * query
+     */
+    List<InstanceConfig> queryByReleaseKeyAndDataChangeLastModifiedTimeAfter(String releaseKey, Date validDate,
+            Pageable pageable);
+
     Page<InstanceConfig> findByConfigAppIdAndConfigClusterNameAndConfigNamespaceNameAndDataChangeLastModifiedTimeAfter(
             String appId, String clusterName, String namespaceName, Date validDate, Pageable pageable);
 
     List<InstanceConfig> findByConfigAppIdAndConfigClusterNameAndConfigNamespaceNameAndDataChangeLastModifiedTimeAfterAndReleaseKeyNotIn(
             String appId, String clusterName, String namespaceName, Date validDate, Set<String> releaseKey);
 
+    @Query("select configAppId, configClusterName, configNamespaceName, releaseKey, count(id) from InstanceConfig " +
+            "where dataChangeLastModifiedTime > ?1 " +
+            "group by configAppId, configClusterName, configNamespaceName, releaseKey")
+    List<Object[]> countByDataChangeLastModifiedTimeAfterGroupByNamespaceAndReleaseKey(Date validDate);
+
     @Modifying
     @Query("delete from InstanceConfig  where ConfigAppId=?1 and ConfigClusterName=?2 and ConfigNamespaceName = ?3")
     int batchDelete(String appId, String clusterName, String namespaceName);
@@ -61,4 +75,8 @@ public interface InstanceConfigRepository extends PagingAndSortingRepository<Ins
             @Param("instanceAppId") String instanceAppId, @Param("configAppId") String configAppId,
             @Param("clusterName") String clusterName, @Param("namespaceName") String namespaceName,
             @Param("validDate") Date validDate, Pageable pageable);
+
+    @Modifying
+    @Query(value = "DELETE FROM `InstanceConfig` WHERE `DataChange_LastTime` < ?1 LIMIT ?2", nativeQuery = true)
+    int deleteByDataChangeLastModifiedTimeBefore(Date date, int limit);
 }
@@ -24,6 +24,7 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -33,6 +34,8 @@ public interface ItemRepository extends PagingAndSortingRepository<Item, Long> {
 
     List<Item> findByNamespaceIdOrderByLineNumAsc(Long namespaceId);
 
+    List<Item> findByNamespaceIdInOrderByLineNumAsc(Collection<Long> namespaceIds);
+
     List<Item> findByNamespaceId(Long namespaceId);
 
     List<Item> findByNamespaceIdAndDataChangeLastModifiedTimeGreaterThan(Long namespaceId, Date date);
@@ -43,6 +46,10 @@ public interface ItemRepository extends PagingAndSortingRepository<Item, Long> {
 
     Item findFirst1ByNamespaceIdOrderByLineNumDesc(Long namespaceId);
 
+    @Query("select n.namespaceName, count(i.id), max(i.dataChangeLastModifiedTime) from Item i, Namespace n "
+            + "where i.namespaceId = n.id and n.appId = ?1 and n.clusterName = ?2 group by n.namespaceName")
+    List<Object[]> findItemStampsGroupByNamespaceName(String appId, String clusterName);
+
     @Modifying
     @Query("update Item set IsDeleted = 1, DeletedAt = ROUND(UNIX_TIMESTAMP(NOW(4))*1000), DataChange_LastModifiedBy = ?2 where namespaceId = ?1 and IsDeleted = 0")
     int deleteByNamespaceId(long namespaceId, String operator);
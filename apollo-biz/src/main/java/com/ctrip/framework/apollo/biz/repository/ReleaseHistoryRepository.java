@@ -18,6 +18,8 @@ package com.ctrip.framework.apollo.biz.repository;
 
 import com.ctrip.framework.apollo.biz.entity.ReleaseHistory;
 
+import java.util.Date;
+import java.util.List;
 import java.util.Set;
 
 import org.springframework.data.domain.Page;
@@ -43,4 +45,17 @@ public interface ReleaseHistoryRepository extends PagingAndSortingRepository<Rel
     @Query("update ReleaseHistory set IsDeleted = 1, DeletedAt = ROUND(UNIX_TIMESTAMP(NOW(4))*1000), DataChange_LastModifiedBy = ?4 where appId=?1 and clusterName=?2 and namespaceName = ?3 and IsDeleted = 0")
     int batchDelete(String appId, String clusterName, String namespaceName, String operator);
 
+    @Query("select id from ReleaseHistory where appId = ?1 and clusterName = ?2 and namespaceName = ?3 order by id desc")
+    List<Long> findIdsByNamespaceOrderByIdDesc(String appId, String clusterName, String namespaceName,
+                                               Pageable pageable);
+
+    @Modifying
+    @Query(value = "DELETE FROM `ReleaseHistory` WHERE `AppId` = ?1 AND `ClusterName` = ?2 AND `NamespaceName` = ?3 "
+            + "AND `Id` <= ?4 LIMIT ?5", nativeQuery = true)
+    int deleteByNamespaceAndIdLessThanEqual(String appId, String clusterName, String namespaceName, long id,
+                                           int limit);
+
+    @Modifying
+    @Query(value = "DELETE FROM `ReleaseHistory` WHERE `DataChange_LastTime` < ?1 LIMIT ?2", nativeQuery = true)
+    int deleteByDataChangeLastModifiedTimeBefore(Date date, int limit);
 }
@@ -18,6 +18,7 @@ package com.ctrip.framework.apollo.biz.repository;
 
 import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
 
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.data.repository.query.Param;
@@ -39,4 +40,8 @@ public interface ReleaseMessageRepository extends PagingAndSortingRepository<Rel
 
     @Query("select message, max(id) as id from ReleaseMessage where message in :messages group by message")
     List<Object[]> findLatestReleaseMessagesGroupByMessages(@Param("messages") Collection<String> messages);
+
+    @Modifying
+    @Query("delete from ReleaseMessage where id in ?1")
+    int batchDelete(Collection<Long> ids);
 }
@@ -47,6 +47,12 @@ public interface ReleaseRepository extends PagingAndSortingRepository<Release, L
 
     List<Release> findByIdIn(Set<Long> releaseIds);
 
+    @Query("select max(id) from Release where isAbandoned = false group by appId, clusterName, namespaceName")
+    List<Long> findLatestActiveReleaseIds();
+
+    @Query("select namespaceName, max(id) as id from Release where appId = ?1 and clusterName = ?2 and isAbandoned = false group by namespaceName")
+    List<Object[]> findLatestActiveReleaseIdsGroupByNamespaceName(String appId, String clusterName);
+
     @Modifying
     @Query("update Release set IsDeleted = 1, DeletedAt = ROUND(UNIX_TIMESTAMP(NOW(4))*1000), DataChange_LastModifiedBy = ?4 where appId=?1 and clusterName=?2 and namespaceName = ?3 and IsDeleted = 0")
     int batchDelete(String appId, String clusterName, String namespaceName, String operator);
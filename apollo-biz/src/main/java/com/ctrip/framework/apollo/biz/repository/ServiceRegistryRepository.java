@@ -18,10 +18,15 @@ package com.ctrip.framework.apollo.biz.repository;
 
 import com.ctrip.framework.apollo.biz.entity.ServiceRegistry;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 
 public interface ServiceRegistryRepository extends PagingAndSortingRepository<ServiceRegistry, Long> {
 
@@ -29,9 +34,21 @@ public interface ServiceRegistryRepository extends PagingAndSortingRepository<Se
             String serviceName, LocalDateTime localDateTime
     );
 
+    List<ServiceRegistry> findByDataChangeLastModifiedTimeGreaterThan(LocalDateTime localDateTime);
+
     ServiceRegistry findByServiceNameAndUri(String serviceName, String uri);
 
     List<ServiceRegistry> deleteByDataChangeLastModifiedTimeLessThan(LocalDateTime localDateTime);
 
     int deleteByServiceNameAndUri(String serviceName, String uri);
+
+    @Query(value = "SELECT CURRENT_TIMESTAMP", nativeQuery = true)
+    Timestamp selectCurrentTimestamp();
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE ServiceRegistry s SET s.cluster = :cluster, s.metadata = :metadata, "
+            + "s.dataChangeLastModifiedTime = :lastModifiedTime WHERE s.serviceName = :serviceName AND s.uri = :uri")
+    int updateHeartbeat(@Param("serviceName") String serviceName, @Param("uri") String uri,
+                        @Param("cluster") String cluster, @Param("metadata") Map<String, String> metadata,
+                        @Param("lastModifiedTime") LocalDateTime lastModifiedTime);
 }
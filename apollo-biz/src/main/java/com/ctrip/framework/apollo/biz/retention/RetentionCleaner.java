@@ -0,0 +1,279 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.biz.retention;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.Namespace;
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.repository.NamespaceRepository;
+import com.ctrip.framework.apollo.biz.service.AuditService;
+import com.ctrip.framework.apollo.biz.service.CommitService;
+import com.ctrip.framework.apollo.biz.service.InstanceService;
+import com.ctrip.framework.apollo.biz.service.ReleaseHistoryService;
+import com.ctrip.framework.apollo.biz.service.ReleaseMessageService;
+import com.ctrip.framework.apollo.biz.service.ReleaseService;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.RateLimiter;
+import io.micrometer.core.instrument.Metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Applies the retention policies periodically: drops the release messages replaced by newer ones with the same
+ * message, the release histories and commits beyond the size kept of each namespace, and the release histories,
+ * commits, audits and instance configs older than the days kept. The commits since the latest active release of their
+ * namespace are always kept.
+ * <p>
+ * The rows are deleted by statements of at most {@link BizConfig#retentionBatchSize()} rows, each in its own
+ * transaction and throttled by {@link BizConfig#retentionDeletePermitsPerSecond()}. So the admin services could
+ * clean at the same time, they only delete fewer rows each.
+ */
+public class RetentionCleaner implements InitializingBean, DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(RetentionCleaner.class);
+    private static final int SCAN_BATCH_SIZE = 500;
+    //the admin services started together don't clean at the same time
+    private static final int MAX_INITIAL_DELAY = 600; //10 minutes
+
+    @Autowired
+    private BizConfig bizConfig;
+    @Autowired
+    private NamespaceRepository namespaceRepository;
+    @Autowired
+    private ReleaseMessageService releaseMessageService;
+    @Autowired
+    private ReleaseHistoryService releaseHistoryService;
+    @Autowired
+    private CommitService commitService;
+    @Autowired
+    private ReleaseService releaseService;
+    @Autowired
+    private AuditService auditService;
+    @Autowired
+    private InstanceService instanceService;
+
+    private final ScheduledExecutorService executorService;
+    //only accessed in the executor thread, reset on each clean
+    private RateLimiter rateLimiter;
+    private int batchSize;
+
+    public RetentionCleaner() {
+        executorService = Executors.newScheduledThreadPool(1, ApolloThreadFactory
+                .create("RetentionCleaner", true));
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (!bizConfig.isRetentionEnabled()) {
+            return;
+        }
+        int interval = bizConfig.retentionCleanInterval();
+        int initialDelay = ThreadLocalRandom.current().nextInt(Math.min(interval, MAX_INITIAL_DELAY));
+        executorService.scheduleWithFixedDelay(this::clean, initialDelay, interval, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        executorService.shutdownNow();
+    }
+
+    void clean() {
+        rateLimiter = RateLimiter.create(bizConfig.retentionDeletePermitsPerSecond());
+        batchSize = bizConfig.retentionBatchSize();
+
+        clean("ReleaseMessage", this::cleanReleaseMessages);
+        clean("ReleaseHistory", () -> cleanBefore("ReleaseHistory", bizConfig.releaseHistoryRetentionDays(),
+                releaseHistoryService::deleteBefore));
+        clean("Commit", () -> cleanBefore("Commit", bizConfig.commitRetentionDays(), commitService::deleteBefore));
+        clean("Audit", () -> cleanBefore("Audit", bizConfig.auditRetentionDays(), auditService::deleteBefore));
+        clean("InstanceConfig", () -> cleanBefore("InstanceConfig", bizConfig.instanceConfigRetentionDays(),
+                instanceService::deleteInstanceConfigsBefore));
+        clean("RetentionSize", this::cleanBeyondRetentionSize);
+    }
+
+    private void clean(String name, CleanTask task) {
+        Transaction transaction = Tracer.newTransaction("Apollo.Retention", name);
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        try {
+            long deleted = task.clean();
+            if (deleted > 0) {
+                logger.info("Retention deleted {} rows for {} in {} ms", deleted, name,
+                        stopwatch.elapsed(TimeUnit.MILLISECONDS));
+            }
+            transaction.addData("deleted", deleted);
+            transaction.setStatus(Transaction.SUCCESS);
+        } catch (Throwable ex) {
+            transaction.setStatus(ex);
+            logger.error("Retention clean for {} failed", name, ex);
+        } finally {
+            transaction.complete();
+        }
+    }
+
+    /**
+     * Delete the release messages older than the latest one with the same message
+     */
+    private long cleanReleaseMessages() {
+        long deleted = 0;
+        long maxIdScanned = 0;
+        List<ReleaseMessage> releaseMessages;
+        do {
+            releaseMessages = releaseMessageService.findReleaseMessagesAfter(maxIdScanned);
+            if (releaseMessages.isEmpty()) {
+                break;
+            }
+            Map<String, Long> latestIds = Maps.newHashMap();
+            List<String> messages = releaseMessages.stream().map(ReleaseMessage::getMessage).distinct()
+                    .collect(Collectors.toList());
+            for (ReleaseMessage latest : releaseMessageService.findLatestReleaseMessagesGroupByMessages(messages)) {
+                latestIds.put(latest.getMessage(), latest.getId());
+            }
+            List<Long> toDelete = Lists.newArrayList();
+            for (ReleaseMessage releaseMessage : releaseMessages) {
+                Long latestId = latestIds.get(releaseMessage.getMessage());
+                if (latestId != null && releaseMessage.getId() < latestId) {
+                    toDelete.add(releaseMessage.getId());
+                }
+            }
+            for (List<Long> ids : Lists.partition(toDelete, batchSize)) {
+                rateLimiter.acquire(ids.size());
+                deleted += count("ReleaseMessage", releaseMessageService.batchDelete(ids));
+            }
+            maxIdScanned = releaseMessages.get(releaseMessages.size() - 1).getId();
+        } while (releaseMessages.size() == SCAN_BATCH_SIZE && !Thread.currentThread().isInterrupted());
+        return deleted;
+    }
+
+    private long cleanBefore(String table, int retentionDays, DeleteBefore deleteBefore) {
+        if (retentionDays <= 0) {
+            return 0;
+        }
+        Date date = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retentionDays));
+        return deleteInBatches(table, limit -> deleteBefore.delete(date, limit));
+    }
+
+    /**
+     * Delete the release histories and commits beyond the retention size of each namespace
+     */
+    private long cleanBeyondRetentionSize() {
+        int releaseHistoryRetentionSize = bizConfig.releaseHistoryRetentionSize();
+        int commitRetentionSize = bizConfig.commitRetentionSize();
+        if (releaseHistoryRetentionSize <= 0 && commitRetentionSize <= 0) {
+            return 0;
+        }
+        long deleted = 0;
+        long maxIdScanned = 0;
+        List<Namespace> namespaces;
+        do {
+            namespaces = namespaceRepository.findFirst500ByIdGreaterThanOrderByIdAsc(maxIdScanned);
+            for (Namespace namespace : namespaces) {
+                String appId = namespace.getAppId();
+                String clusterName = namespace.getClusterName();
+                String namespaceName = namespace.getNamespaceName();
+                if (releaseHistoryRetentionSize > 0) {
+                    rateLimiter.acquire();
+                    Long id = releaseHistoryService.findIdBeyondRetention(appId, clusterName, namespaceName,
+                            releaseHistoryRetentionSize);
+                    if (id != null) {
+                        deleted += deleteInBatches("ReleaseHistory", limit -> releaseHistoryService
+                                .deleteUpTo(appId, clusterName, namespaceName, id, limit));
+                    }
+                }
+                if (commitRetentionSize > 0) {
+                    rateLimiter.acquire();
+                    Long id = findCommitIdBeyondRetention(appId, clusterName, namespaceName, commitRetentionSize);
+                    if (id != null) {
+                        deleted += deleteInBatches("Commit", limit -> commitService
+                                .deleteUpTo(appId, clusterName, namespaceName, id, limit));
+                    }
+                }
+                maxIdScanned = namespace.getId();
+            }
+        } while (namespaces.size() == SCAN_BATCH_SIZE && !Thread.currentThread().isInterrupted());
+        return deleted;
+    }
+
+    /**
+     * @return the id of the newest commit beyond the retention size and before the commits since the latest active
+     * release, or null if none. The commits not released yet are kept, as the deleted items and the comments are
+     * restored from them.
+     */
+    private Long findCommitIdBeyondRetention(String appId, String clusterName, String namespaceName,
+                                             int retentionSize) {
+        Long id = commitService.findIdBeyondRetention(appId, clusterName, namespaceName, retentionSize);
+        if (id == null) {
+            return null;
+        }
+        Release release = releaseService.findLatestActiveRelease(appId, clusterName, namespaceName);
+        if (release == null) {
+            return null;
+        }
+        Long firstIdSinceRelease = commitService.findFirstIdSince(appId, clusterName, namespaceName,
+                release.getDataChangeCreatedTime());
+        if (firstIdSinceRelease == null) {
+            return id;
+        }
+        long upTo = Math.min(id, firstIdSinceRelease - 1);
+        return upTo > 0 ? upTo : null;
+    }
+
+    /**
+     * @param batchDelete deletes at most the limit rows, returns the rows deleted
+     */
+    private long deleteInBatches(String table, IntUnaryOperator batchDelete) {
+        long deleted = 0;
+        int batchDeleted;
+        do {
+            rateLimiter.acquire(batchSize);
+            batchDeleted = count(table, batchDelete.applyAsInt(batchSize));
+            deleted += batchDeleted;
+        } while (batchDeleted == batchSize && !Thread.currentThread().isInterrupted());
+        return deleted;
+    }
+
+    private int count(String table, int deleted) {
+        Metrics.counter("apollo.retention.deleted", "table", table).increment(deleted);
+        return deleted;
+    }
+
+    private interface CleanTask {
+        long clean();
+    }
+
+    private interface DeleteBefore {
+        int delete(Date date, int limit);
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.biz.search;
+
+import com.ctrip.framework.apollo.biz.entity.Item;
+import com.ctrip.framework.apollo.biz.entity.Namespace;
+import com.google.common.base.Strings;
+import com.google.common.collect.Maps;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In memory inverted index from the lower case item keys, item values, namespace names and app ids to the namespaces
+ * containing them.
+ * <p>
+ * The terms are kept sorted, so the exact and prefix matches are looked up by range, while the substring matches
+ * scan the distinct terms, which are far fewer than the items. The namespaces matched are ranked by how the query
+ * matches (exact, prefix, substring) and then by the field matched (item key, namespace, item value).
+ */
+public final class ItemSearchIndex {
+    //values longer than this are not indexed, they are rarely searched and would bloat the term dictionary
+    static final int MAX_INDEXED_VALUE_LENGTH = 256;
+    //shorter queries are matched by prefix only, as a substring of one or two chars matches almost every term
+    static final int MIN_SUBSTRING_QUERY_LENGTH = 3;
+
+    private static final int FIELD_VALUE = 1;
+    private static final int FIELD_NAMESPACE = 1 << 1;
+    private static final int FIELD_KEY = 1 << 2;
+
+    private static final int MATCH_WEIGHT = FIELD_KEY << 1;
+    private static final int MATCH_SUBSTRING = 1;
+    private static final int MATCH_PREFIX = 2;
+    private static final int MATCH_EXACT = 3;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    //term -> namespace id -> fields containing the term
+    private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    //namespace id -> term -> fields containing the term
+    private final Map<Long, Map<String, Integer>> documents = Maps.newHashMap();
+
+    /**
+     * Index the namespace with its items, replacing the previous ones if any
+     */
+    public void put(Namespace namespace, Collection<Item> items) {
+        Map<String, Integer> terms = Maps.newHashMap();
+        addTerm(terms, namespace.getAppId(), FIELD_NAMESPACE);
+        addTerm(terms, namespace.getNamespaceName(), FIELD_NAMESPACE);
+        for (Item item : items) {
+            addTerm(terms, item.getKey(), FIELD_KEY);
+            if (item.getValue() != null && item.getValue().length() <= MAX_INDEXED_VALUE_LENGTH) {
+                addTerm(terms, item.getValue(), FIELD_VALUE);
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeDocument(namespace.getId());
+            documents.put(namespace.getId(), terms);
+            for (Map.Entry<String, Integer> term : terms.entrySet()) {
+                postings.computeIfAbsent(term.getKey(), k -> Maps.newHashMapWithExpectedSize(1))
+                        .put(namespace.getId(), term.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long namespaceId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(namespaceId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the ids of the namespaces matching the query, in the order of rank
+     */
+    public Page<Long> search(String query, Pageable pageable) {
+        if (Strings.isNullOrEmpty(query) || query.trim().isEmpty()) {
+            return Page.empty(pageable);
+        }
+        String term = query.trim().toLowerCase();
+
+        //namespace id -> score
+        Map<Long, Integer> scores = Maps.newHashMap();
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<String, Map<Long, Integer>> posting :
+                    postings.subMap(term, true, term + Character.MAX_VALUE, true).entrySet()) {
+                score(scores, posting.getValue(), posting.getKey().length() == term.length() ? MATCH_EXACT :
+                        MATCH_PREFIX);
+            }
+            if (term.length() >= MIN_SUBSTRING_QUERY_LENGTH) {
+                for (Map.Entry<String, Map<Long, Integer>> posting : postings.entrySet()) {
+                    if (!posting.getKey().startsWith(term) && posting.getKey().contains(term)) {
+                        score(scores, posting.getValue(), MATCH_SUBSTRING);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Map.Entry<Long, Integer>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(Map.Entry.<Long, Integer>comparingByValue(Comparator.reverseOrder())
+                .thenComparing(Map.Entry.comparingByKey()));
+
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(namespaceIds(ranked), pageable, ranked.size());
+        }
+        int from = (int) Math.min(pageable.getOffset(), ranked.size());
+        int to = Math.min(from + pageable.getPageSize(), ranked.size());
+        return new PageImpl<>(namespaceIds(ranked.subList(from, to)), pageable, ranked.size());
+    }
+
+    private void score(Map<Long, Integer> scores, Map<Long, Integer> namespaces, int match) {
+        for (Map.Entry<Long, Integer> namespace : namespaces.entrySet()) {
+            //the match type outweighs the field
+            int score = match * MATCH_WEIGHT + Integer.highestOneBit(namespace.getValue());
+            scores.merge(namespace.getKey(), score, Math::max);
+        }
+    }
+
+    private List<Long> namespaceIds(List<Map.Entry<Long, Integer>> ranked) {
+        if (ranked.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> namespaceIds = new ArrayList<>(ranked.size());
+        for (Map.Entry<Long, Integer> entry : ranked) {
+            namespaceIds.add(entry.getKey());
+        }
+        return namespaceIds;
+    }
+
+    private void addTerm(Map<String, Integer> terms, String value, int field) {
+        if (Strings.isNullOrEmpty(value)) {
+            return;
+        }
+        terms.merge(value.toLowerCase(), field, (a, b) -> a | b);
+    }
+
+    private void removeDocument(long namespaceId) {
+        Map<String, Integer> terms = documents.remove(namespaceId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms.keySet()) {
+            Map<Long, Integer> namespaces = postings.get(term);
+            if (namespaces == null) {
+                continue;
+            }
+            namespaces.remove(namespaceId);
+            if (namespaces.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+}
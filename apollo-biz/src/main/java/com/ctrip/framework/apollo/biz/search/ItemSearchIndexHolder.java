@@ -0,0 +1,273 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.biz.search;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.Commit;
+import com.ctrip.framework.apollo.biz.entity.Item;
+import com.ctrip.framework.apollo.biz.entity.Namespace;
+import com.ctrip.framework.apollo.biz.repository.CommitRepository;
+import com.ctrip.framework.apollo.biz.repository.ItemRepository;
+import com.ctrip.framework.apollo.biz.repository.NamespaceRepository;
+import com.ctrip.framework.apollo.biz.utils.ReleaseMessageKeyGenerator;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the {@link ItemSearchIndex} of all the namespaces. The index is built in the background at startup, then kept
+ * up to date with the new commits and rebuilt periodically to drop the namespaces deleted.
+ * <p>
+ * The search falls back to the database until the index is built, see {@link #isReady()}.
+ * <p>
+ * The index holds the distinct terms of each namespace, i.e. about the size of the item keys plus the values not
+ * longer than {@link ItemSearchIndex#MAX_INDEXED_VALUE_LENGTH}. The rebuild loads the items of 500 namespaces at a
+ * time, so it needs the old and new index plus one batch of items at most.
+ */
+public class ItemSearchIndexHolder implements InitializingBean, DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(ItemSearchIndexHolder.class);
+    private static final int BATCH_SIZE = 500;
+    private static final int missingCommitMaxAge = 10;
+
+    @Autowired
+    private BizConfig bizConfig;
+    @Autowired
+    private NamespaceRepository namespaceRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private CommitRepository commitRepository;
+
+    private final ScheduledExecutorService executorService;
+    //replaced on rebuild, null until built
+    private volatile ItemSearchIndex index;
+    //only accessed in the executor thread
+    private long maxCommitIdScanned;
+    //only accessed in the executor thread, missing commit id => age counter
+    private final Map<Long, Integer> missingCommits = Maps.newHashMap();
+
+    public ItemSearchIndexHolder() {
+        executorService = Executors.newScheduledThreadPool(1, ApolloThreadFactory
+                .create("ItemSearchIndexHolder", true));
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (!bizConfig.isItemSearchIndexEnabled()) {
+            return;
+        }
+        int scanInterval = bizConfig.itemSearchIndexScanInterval();
+        int rebuildInterval = bizConfig.itemSearchIndexRebuildInterval();
+        //both run in the single executor thread, so a scan never interleaves with a rebuild
+        executorService.scheduleWithFixedDelay(this::rebuildIndex, 0, rebuildInterval, TimeUnit.SECONDS);
+        executorService.scheduleWithFixedDelay(this::scanCommits, scanInterval, scanInterval, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        executorService.shutdownNow();
+    }
+
+    public boolean isReady() {
+        return index != null;
+    }
+
+    /**
+     * @return the namespaces whose item keys, item values, names or app ids match the query, in the order of rank
+     */
+    public Page<Namespace> search(String query, Pageable pageable) {
+        ItemSearchIndex current = index;
+        if (current == null) {
+            throw new IllegalStateException("Item search index is not ready");
+        }
+        Page<Long> namespaceIds = current.search(query, pageable);
+        if (!namespaceIds.hasContent()) {
+            return new PageImpl<>(Collections.emptyList(), pageable, namespaceIds.getTotalElements());
+        }
+
+        Map<Long, Namespace> namespaces = Maps.newHashMap();
+        for (Namespace namespace : namespaceRepository.findByIdIn(Sets.newHashSet(namespaceIds.getContent()))) {
+            namespaces.put(namespace.getId(), namespace);
+        }
+        List<Namespace> result = Lists.newArrayListWithCapacity(namespaces.size());
+        for (Long namespaceId : namespaceIds.getContent()) {
+            Namespace namespace = namespaces.get(namespaceId);
+            if (namespace == null) {
+                //deleted since indexed
+                current.remove(namespaceId);
+                continue;
+            }
+            result.add(namespace);
+        }
+        return new PageImpl<>(result, pageable, namespaceIds.getTotalElements());
+    }
+
+    private void rebuildIndex() {
+        Transaction transaction = Tracer.newTransaction("Apollo.ItemSearchIndex", "rebuild");
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        try {
+            //record the latest commit before loading, so the items changed meanwhile are scanned later
+            Commit latestCommit = commitRepository.findTopByOrderByIdDesc();
+            long commitId = latestCommit == null ? 0 : latestCommit.getId();
+
+            ItemSearchIndex newIndex = new ItemSearchIndex();
+            long maxIdScanned = 0;
+            List<Namespace> namespaceBatch;
+            do {
+                namespaceBatch = namespaceRepository.findFirst500ByIdGreaterThanOrderByIdAsc(maxIdScanned);
+                if (namespaceBatch.isEmpty()) {
+                    break;
+                }
+                //the items of the batch only, so the whole item table is never loaded at once
+                Map<Long, List<Item>> items = Maps.newHashMap();
+                List<Long> namespaceIds = Lists.newArrayListWithCapacity(namespaceBatch.size());
+                namespaceBatch.forEach(namespace -> namespaceIds.add(namespace.getId()));
+                for (Item item : itemRepository.findByNamespaceIdInOrderByLineNumAsc(namespaceIds)) {
+                    items.computeIfAbsent(item.getNamespaceId(), k -> Lists.newArrayList()).add(item);
+                }
+                for (Namespace namespace : namespaceBatch) {
+                    newIndex.put(namespace, items.getOrDefault(namespace.getId(), Collections.emptyList()));
+                    maxIdScanned = namespace.getId();
+                }
+            } while (namespaceBatch.size() == BATCH_SIZE && !Thread.currentThread().isInterrupted());
+
+            //a rebuild keeps the scan cursor and the missing commits, so the commits not visible yet when the latest
+            //commit was recorded are still scanned later
+            if (index == null) {
+                maxCommitIdScanned = commitId;
+            }
+            index = newIndex;
+
+            logger.info("Built item search index of {} namespaces in {} ms", newIndex.size(),
+                    stopwatch.elapsed(TimeUnit.MILLISECONDS));
+            transaction.addData("namespaces", newIndex.size());
+            transaction.setStatus(Transaction.SUCCESS);
+        } catch (Throwable ex) {
+            transaction.setStatus(ex);
+            logger.error("Build item search index failed", ex);
+        } finally {
+            transaction.complete();
+        }
+    }
+
+    /**
+     * Reindex the namespaces of the commits after the ones scanned, and of the commits missing between them, which are
+     * the transactions not committed yet when the ids after them were scanned
+     */
+    private void scanCommits() {
+        ItemSearchIndex current = index;
+        if (current == null) {
+            return;
+        }
+        Transaction transaction = Tracer.newTransaction("Apollo.ItemSearchIndex", "scanCommits");
+        try {
+            if (!missingCommits.isEmpty()) {
+                scanMissingCommits(current);
+            }
+            boolean hasMore = true;
+            while (hasMore && !Thread.currentThread().isInterrupted()) {
+                List<Commit> commits = commitRepository.findFirst500ByIdGreaterThanOrderByIdAsc(maxCommitIdScanned);
+                if (commits.isEmpty()) {
+                    break;
+                }
+                reindex(current, commits);
+                recordMissingCommitIds(commits, maxCommitIdScanned);
+                maxCommitIdScanned = commits.get(commits.size() - 1).getId();
+                hasMore = commits.size() == BATCH_SIZE;
+            }
+            transaction.setStatus(Transaction.SUCCESS);
+        } catch (Throwable ex) {
+            transaction.setStatus(ex);
+            logger.error("Scan commits for item search index failed", ex);
+        } finally {
+            transaction.complete();
+        }
+    }
+
+    private void scanMissingCommits(ItemSearchIndex current) {
+        List<Commit> commits = Lists.newArrayList(commitRepository.findAllById(missingCommits.keySet()));
+        reindex(current, commits);
+        commits.forEach(commit -> missingCommits.remove(commit.getId()));
+        growAndCleanMissingCommits();
+    }
+
+    private void growAndCleanMissingCommits() {
+        Iterator<Entry<Long, Integer>> iterator = missingCommits.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Entry<Long, Integer> entry = iterator.next();
+            if (entry.getValue() > missingCommitMaxAge) {
+                iterator.remove();
+            } else {
+                entry.setValue(entry.getValue() + 1);
+            }
+        }
+    }
+
+    private void recordMissingCommitIds(List<Commit> commits, long startId) {
+        for (Commit commit : commits) {
+            long currentId = commit.getId();
+            for (long i = startId + 1; i < currentId; i++) {
+                missingCommits.putIfAbsent(i, 1);
+            }
+            startId = currentId;
+        }
+    }
+
+    private void reindex(ItemSearchIndex current, List<Commit> commits) {
+        //namespace key -> commit, so a namespace committed several times is reindexed once
+        Map<String, Commit> namespaces = Maps.newLinkedHashMap();
+        for (Commit commit : commits) {
+            namespaces.put(ReleaseMessageKeyGenerator.generate(commit.getAppId(), commit.getClusterName(),
+                    commit.getNamespaceName()), commit);
+        }
+        for (Commit commit : namespaces.values()) {
+            reindex(current, commit);
+        }
+    }
+
+    private void reindex(ItemSearchIndex current, Commit commit) {
+        Namespace namespace = namespaceRepository.findByAppIdAndClusterNameAndNamespaceName(commit.getAppId(),
+                commit.getClusterName(), commit.getNamespaceName());
+        //the namespaces deleted are dropped on search or rebuild
+        if (namespace == null) {
+            return;
+        }
+        current.put(namespace, itemRepository.findByNamespaceId(namespace.getId()));
+    }
+}
@@ -21,6 +21,7 @@ import com.ctrip.framework.apollo.biz.repository.AuditRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Date;
 import java.util.List;
 
 @Service
@@ -54,4 +55,12 @@ public class AuditService {
     public void audit(Audit audit) {
         auditRepository.save(audit);
     }
+
+    /**
+     * Physically delete at most limit audits last modified before the date, including the ones marked deleted
+     */
+    @Transactional
+    public int deleteBefore(Date date, int limit) {
+        return auditRepository.deleteByDataChangeLastModifiedTimeBefore(date, limit);
+    }
 }
@@ -18,17 +18,28 @@ package com.ctrip.framework.apollo.biz.service;
 
 import com.ctrip.framework.apollo.biz.entity.Commit;
 import com.ctrip.framework.apollo.biz.repository.CommitRepository;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import javax.persistence.criteria.Predicate;
 
 @Service
 public class CommitService {
+    private static final int NAMESPACE_BATCH_SIZE = 100;
 
     private final CommitRepository commitRepository;
 
@@ -53,6 +64,64 @@ public class CommitService {
                         appId, clusterName, namespaceName, lastModifiedTime, page);
     }
 
+    /**
+     * @return the commits of all the namespaces in the cluster modified since the time, in the reverse order of id
+     */
+    /**
+     * @param lastModifiedTimes namespace name -> the time since which the commits of the namespace are found
+     * @return the commits of the namespaces in the cluster, each since its own time, filtered in the database
+     */
+    public List<Commit> findByNamespacesSince(String appId, String clusterName, Map<String, Date> lastModifiedTimes) {
+        List<Commit> commits = Lists.newArrayList();
+        for (List<Map.Entry<String, Date>> batch : Iterables.partition(lastModifiedTimes.entrySet(),
+                NAMESPACE_BATCH_SIZE)) {
+            Specification<Commit> specification = (root, query, builder) -> {
+                List<Predicate> namespaces = Lists.newArrayListWithCapacity(batch.size());
+                for (Map.Entry<String, Date> entry : batch) {
+                    namespaces.add(builder.and(builder.equal(root.get("namespaceName"), entry.getKey()),
+                            builder.greaterThanOrEqualTo(root.get("dataChangeLastModifiedTime"), entry.getValue())));
+                }
+                return builder.and(builder.equal(root.get("appId"), appId),
+                        builder.equal(root.get("clusterName"), clusterName),
+                        builder.or(namespaces.toArray(new Predicate[0])));
+            };
+            commits.addAll(commitRepository.findAll(specification, Sort.by(Sort.Direction.DESC, "id")));
+        }
+        return commits;
+    }
+
+    public List<Commit> findByNamespaceNames(String appId, String clusterName, Collection<String> namespaceNames) {
+        if (namespaceNames.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return commitRepository.findByAppIdAndClusterNameAndNamespaceNameInOrderByIdDesc(appId, clusterName,
+                namespaceNames);
+    }
+
+    /**
+     * @return the commits after the commit id, in the order of id
+     */
+    public List<Commit> findAfter(String appId, String clusterName, String namespaceName, long commitId,
+                                  Pageable page) {
+        return commitRepository.findByAppIdAndClusterNameAndNamespaceNameAndIdGreaterThanOrderByIdAsc(appId,
+                clusterName, namespaceName, commitId, page);
+    }
+
+    /**
+     * @return namespace name -> the id of the latest commit, of the namespaces committed in the cluster
+     */
+    public Map<String, Long> findLatestCommitIds(String appId, String clusterName) {
+        Map<String, Long> commitIds = Maps.newHashMap();
+        for (Object[] o : commitRepository.findLatestCommitIdsGroupByNamespaceName(appId, clusterName)) {
+            commitIds.put((String) o[0], (Long) o[1]);
+        }
+        return commitIds;
+    }
+
+    public long count(String appId, String clusterName, String namespaceName) {
+        return commitRepository.countByAppIdAndClusterNameAndNamespaceName(appId, clusterName, namespaceName);
+    }
+
     public List<Commit> findByKey(String appId, String clusterName, String namespaceName, String key, Pageable page) {
         String queryKey = "\"key\":\"" + key + "\"";
         return commitRepository.findByAppIdAndClusterNameAndNamespaceNameAndChangeSetsLikeOrderByIdDesc(appId, clusterName, namespaceName, "%" + queryKey + "%", page);
@@ -63,4 +132,36 @@ public class CommitService {
         return commitRepository.batchDelete(appId, clusterName, namespaceName, operator);
     }
 
+    /**
+     * @return the id of the newest commit beyond the retention size of the namespace, or null if not exceeded
+     */
+    public Long findIdBeyondRetention(String appId, String clusterName, String namespaceName, int retentionSize) {
+        List<Long> ids = commitRepository.findIdsByNamespaceOrderByIdDesc(appId, clusterName, namespaceName,
+                PageRequest.of(retentionSize, 1));
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    /**
+     * Physically delete at most limit commits of the namespace whose id is not greater than the id
+     */
+    @Transactional
+    public int deleteUpTo(String appId, String clusterName, String namespaceName, long id, int limit) {
+        return commitRepository.deleteByNamespaceAndIdLessThanEqual(appId, clusterName, namespaceName, id, limit);
+    }
+
+    /**
+     * @return the id of the first commit of the namespace since the date, or null if none
+     */
+    public Long findFirstIdSince(String appId, String clusterName, String namespaceName, Date date) {
+        return commitRepository.findFirstIdByNamespaceSince(appId, clusterName, namespaceName, date);
+    }
+
+    /**
+     * Physically delete at most limit commits last modified before the date, including the ones marked deleted. The
+     * commits not released yet are kept, as the deleted items and the comments are restored from them.
+     */
+    @Transactional
+    public int deleteBefore(Date date, int limit) {
+        return commitRepository.deleteReleasedByDataChangeLastModifiedTimeBefore(date, limit);
+    }
 }
@@ -20,8 +20,12 @@ import com.ctrip.framework.apollo.biz.entity.Instance;
 import com.ctrip.framework.apollo.biz.entity.InstanceConfig;
 import com.ctrip.framework.apollo.biz.repository.InstanceConfigRepository;
 import com.ctrip.framework.apollo.biz.repository.InstanceRepository;
+import com.ctrip.framework.apollo.biz.utils.ReleaseMessageKeyGenerator;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Table;
 
 import java.util.Objects;
 
@@ -37,6 +41,7 @@ import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -79,12 +84,43 @@ public class InstanceService {
                         instanceId, configAppId, configNamespaceName);
     }
 
+    public List<InstanceConfig> findInstanceConfigs(Set<Long> instanceIds) {
+        if (CollectionUtils.isEmpty(instanceIds)) {
+            return Collections.emptyList();
+        }
+        return instanceConfigRepository.findByInstanceIdIn(instanceIds);
+    }
+
     public Page<InstanceConfig> findActiveInstanceConfigsByReleaseKey(String releaseKey, Pageable
             pageable) {
         return instanceConfigRepository.findByReleaseKeyAndDataChangeLastModifiedTimeAfter(releaseKey,
                 getValidInstanceConfigDate(), pageable);
     }
 
+    /**
+     * Same as {@link #findActiveInstanceConfigsByReleaseKey(String, Pageable)}, without counting the instance configs
+     */
+    public List<InstanceConfig> findActiveInstanceConfigsByReleaseKeyWithoutCount(String releaseKey,
+                                                                                  Pageable pageable) {
+        return instanceConfigRepository.queryByReleaseKeyAndDataChangeLastModifiedTimeAfter(releaseKey,
+                getValidInstanceConfigDate(), pageable);
+    }
+
+    /**
+     * @return the count of the active instance configs, by the namespace key (see {@link
+     * com.ctrip.framework.apollo.biz.utils.ReleaseMessageKeyGenerator}) and the release key
+     */
+    public Table<String, String, Long> countActiveInstanceConfigs() {
+        List<Object[]> counts = instanceConfigRepository
+                .countByDataChangeLastModifiedTimeAfterGroupByNamespaceAndReleaseKey(getValidInstanceConfigDate());
+        Table<String, String, Long> result = HashBasedTable.create();
+        for (Object[] count : counts) {
+            result.put(ReleaseMessageKeyGenerator.generate((String) count[0], (String) count[1], (String) count[2]),
+                    (String) count[3], ((Number) count[4]).longValue());
+        }
+        return result;
+    }
+
     public Page<Instance> findInstancesByNamespace(String appId, String clusterName, String
             namespaceName, Pageable pageable) {
         Page<InstanceConfig> instanceConfigs = instanceConfigRepository.
@@ -187,8 +223,44 @@ public class InstanceService {
         return instanceConfigRepository.save(existedInstanceConfig);
     }
 
+    /**
+     * Create the instance configs without id and update the others in one transaction
+     */
+    @Transactional
+    public void batchSaveInstanceConfigs(List<InstanceConfig> instanceConfigs) {
+        List<InstanceConfig> toSave = Lists.newArrayListWithCapacity(instanceConfigs.size());
+        Map<Long, InstanceConfig> toUpdate = Maps.newHashMap();
+        for (InstanceConfig instanceConfig : instanceConfigs) {
+            if (instanceConfig.getId() > 0) {
+                toUpdate.put(instanceConfig.getId(), instanceConfig);
+            } else {
+                toSave.add(instanceConfig);
+            }
+        }
+
+        for (InstanceConfig existedInstanceConfig : instanceConfigRepository.findAllById(toUpdate.keySet())) {
+            InstanceConfig instanceConfig = toUpdate.get(existedInstanceConfig.getId());
+            existedInstanceConfig.setConfigClusterName(instanceConfig.getConfigClusterName());
+            existedInstanceConfig.setReleaseKey(instanceConfig.getReleaseKey());
+            existedInstanceConfig.setReleaseDeliveryTime(instanceConfig.getReleaseDeliveryTime());
+            existedInstanceConfig.setDataChangeLastModifiedTime(instanceConfig
+                    .getDataChangeLastModifiedTime());
+            toSave.add(existedInstanceConfig);
+        }
+
+        instanceConfigRepository.saveAll(toSave);
+    }
+
     @Transactional
     public int batchDeleteInstanceConfig(String configAppId, String configClusterName, String configNamespaceName) {
         return instanceConfigRepository.batchDelete(configAppId, configClusterName, configNamespaceName);
     }
+
+    /**
+     * Physically delete at most limit instance configs last modified before the date, including the ones marked deleted
+     */
+    @Transactional
+    public int deleteInstanceConfigsBefore(Date date, int limit) {
+        return instanceConfigRepository.deleteByDataChangeLastModifiedTimeBefore(date, limit);
+    }
 }
@@ -26,6 +26,7 @@ import com.ctrip.framework.apollo.common.exception.BadRequestException;
 import com.ctrip.framework.apollo.common.exception.NotFoundException;
 import com.ctrip.framework.apollo.common.utils.BeanUtils;
 import com.ctrip.framework.apollo.core.utils.StringUtils;
+import com.google.common.collect.Maps;
 
 import org.springframework.context.annotation.Lazy;
 import org.springframework.data.domain.Page;
@@ -33,6 +34,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
@@ -88,6 +90,10 @@ public class ItemService {
         return itemRepository.findByNamespaceIdAndKey(namespace.getId(), key);
     }
 
+    public Item findOne(long namespaceId, String key) {
+        return itemRepository.findByNamespaceIdAndKey(namespaceId, key);
+    }
+
     public Item findLastOne(String appId, String clusterName, String namespaceName) {
         Namespace namespace = findNamespaceByAppIdAndClusterNameAndNamespaceName(appId, clusterName, namespaceName);
         return findLastOne(namespace.getId());
@@ -125,6 +131,16 @@ public class ItemService {
         return items;
     }
 
+    /**
+     * @return the items of all the namespaces, in the order of line number
+     */
+    public List<Item> findItemsWithOrdered(Collection<Long> namespaceIds) {
+        if (namespaceIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return itemRepository.findByNamespaceIdInOrderByLineNumAsc(namespaceIds);
+    }
+
     public List<Item> findItemsWithOrdered(String appId, String clusterName, String namespaceName) {
         Namespace namespace = namespaceService.findOne(appId, clusterName, namespaceName);
         if (namespace != null) {
@@ -137,6 +153,19 @@ public class ItemService {
         return itemRepository.findByNamespaceIdAndDataChangeLastModifiedTimeGreaterThan(namespaceId, date);
     }
 
+    /**
+     * @return namespace name -> {the count of the items, the latest modified time of the items in millis}, of the
+     * namespaces with items in the cluster
+     */
+    public Map<String, long[]> findItemStamps(String appId, String clusterName) {
+        Map<String, long[]> stamps = Maps.newHashMap();
+        for (Object[] o : itemRepository.findItemStampsGroupByNamespaceName(appId, clusterName)) {
+            Date lastModifiedTime = (Date) o[2];
+            stamps.put((String) o[0], new long[]{(Long) o[1], lastModifiedTime == null ? 0 : lastModifiedTime.getTime()});
+        }
+        return stamps;
+    }
+
     public Page<Item> findItemsByKey(String key, Pageable pageable) {
         return itemRepository.findByKey(key, pageable);
     }
@@ -18,21 +18,29 @@ package com.ctrip.framework.apollo.biz.service;
 
 import com.ctrip.framework.apollo.biz.entity.Audit;
 import com.ctrip.framework.apollo.biz.entity.Cluster;
+import com.ctrip.framework.apollo.biz.entity.Commit;
 import com.ctrip.framework.apollo.biz.entity.Item;
 import com.ctrip.framework.apollo.biz.entity.Namespace;
 import com.ctrip.framework.apollo.biz.entity.Release;
 import com.ctrip.framework.apollo.biz.message.MessageSender;
 import com.ctrip.framework.apollo.biz.message.Topics;
 import com.ctrip.framework.apollo.biz.repository.NamespaceRepository;
+import com.ctrip.framework.apollo.biz.utils.ConfigChangeContentBuilder;
 import com.ctrip.framework.apollo.biz.utils.ReleaseMessageKeyGenerator;
 import com.ctrip.framework.apollo.common.constants.GsonType;
 import com.ctrip.framework.apollo.common.constants.NamespaceBranchStatus;
+import com.ctrip.framework.apollo.common.dto.ItemDTO;
+import com.ctrip.framework.apollo.common.dto.NamespaceDTO;
+import com.ctrip.framework.apollo.common.dto.NamespaceSnapshotDTO;
+import com.ctrip.framework.apollo.common.dto.NamespaceVersionDTO;
+import com.ctrip.framework.apollo.common.dto.ReleaseDTO;
 import com.ctrip.framework.apollo.common.entity.AppNamespace;
 import com.ctrip.framework.apollo.common.exception.BadRequestException;
 import com.ctrip.framework.apollo.common.exception.ServiceException;
 import com.ctrip.framework.apollo.common.utils.BeanUtils;
 import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.gson.Gson;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.data.domain.Page;
@@ -55,6 +63,7 @@ import java.util.stream.Collectors;
 public class NamespaceService {
 
     private static final Gson GSON = new Gson();
+    private static final long ITEMS_MODIFIED_TIME_SETTLE_IN_MILLI = 2000;
 
     private final NamespaceRepository namespaceRepository;
     private final AuditService auditService;
@@ -220,6 +229,110 @@ public class NamespaceService {
         return namespaces;
     }
 
+    /**
+     * @return the versions of the namespaces released, committed or with items in the cluster, in three queries
+     * whatever the number of namespaces
+     */
+    public List<NamespaceVersionDTO> findNamespaceVersions(String appId, String clusterName) {
+        Map<String, Long> releaseIds = releaseService.findLatestActiveReleaseIds(appId, clusterName);
+        Map<String, Long> commitIds = commitService.findLatestCommitIds(appId, clusterName);
+        Map<String, long[]> itemStamps = itemService.findItemStamps(appId, clusterName);
+
+        long now = System.currentTimeMillis();
+        Set<String> namespaceNames = Sets.union(Sets.union(releaseIds.keySet(), commitIds.keySet()),
+                itemStamps.keySet());
+        List<NamespaceVersionDTO> versions = new LinkedList<>();
+        for (String namespaceName : namespaceNames) {
+            long[] itemStamp = itemStamps.getOrDefault(namespaceName, new long[2]);
+            //DataChange_LastTime is in seconds, so another change in the same second would keep the version, the
+            //version of the items changed just now is made different on each load until the time is settled
+            long itemsLastModifiedTime = itemStamp[1] > now - ITEMS_MODIFIED_TIME_SETTLE_IN_MILLI ? now : itemStamp[1];
+            versions.add(new NamespaceVersionDTO(namespaceName, releaseIds.getOrDefault(namespaceName, 0L),
+                    commitIds.getOrDefault(namespaceName, 0L), itemStamp[0], itemsLastModifiedTime));
+        }
+        return versions;
+    }
+
+    /**
+     * @return the namespaces in the cluster with their items, latest active releases and the items deleted since the
+     * releases if required, in a few queries whatever the number of namespaces
+     */
+    public List<NamespaceSnapshotDTO> findNamespaceSnapshots(String appId, String clusterName,
+                                                             boolean includeDeletedItems) {
+        List<Namespace> namespaces = findNamespaces(appId, clusterName);
+        if (namespaces.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Set<Long> namespaceIds = namespaces.stream().map(Namespace::getId).collect(Collectors.toSet());
+        Map<Long, List<ItemDTO>> items = Maps.newHashMap();
+        for (Item item : itemService.findItemsWithOrdered(namespaceIds)) {
+            items.computeIfAbsent(item.getNamespaceId(), k -> new LinkedList<>())
+                    .add(BeanUtils.transform(ItemDTO.class, item));
+        }
+
+        Map<String, Release> releases = Maps.newHashMap();
+        for (Release release : releaseService.findLatestActiveReleases(appId, clusterName)) {
+            releases.put(release.getNamespaceName(), release);
+        }
+
+        Map<String, List<ItemDTO>> deletedItems = includeDeletedItems ?
+                findDeletedItems(appId, clusterName, namespaces, releases) : null;
+
+        List<NamespaceSnapshotDTO> snapshots = new LinkedList<>();
+        for (Namespace namespace : namespaces) {
+            NamespaceSnapshotDTO snapshot = new NamespaceSnapshotDTO();
+            snapshot.setNamespace(BeanUtils.transform(NamespaceDTO.class, namespace));
+            Release release = releases.get(namespace.getNamespaceName());
+            if (release != null) {
+                snapshot.setLatestRelease(BeanUtils.transform(ReleaseDTO.class, release));
+            }
+            snapshot.setItems(items.getOrDefault(namespace.getId(), Collections.emptyList()));
+            if (deletedItems != null) {
+                snapshot.setDeletedItems(deletedItems.getOrDefault(namespace.getNamespaceName(),
+                        Collections.emptyList()));
+            }
+            snapshots.add(snapshot);
+        }
+        return snapshots;
+    }
+
+    /**
+     * @return namespace name -> the items deleted since the latest active release, or ever if never released
+     */
+    private Map<String, List<ItemDTO>> findDeletedItems(String appId, String clusterName, List<Namespace> namespaces,
+                                                        Map<String, Release> releases) {
+        Set<String> unreleasedNamespaceNames = Sets.newHashSet();
+        Map<String, Date> releaseTimes = Maps.newHashMap();
+        for (Namespace namespace : namespaces) {
+            Release release = releases.get(namespace.getNamespaceName());
+            if (release == null) {
+                unreleasedNamespaceNames.add(namespace.getNamespaceName());
+            } else {
+                releaseTimes.put(namespace.getNamespaceName(), release.getDataChangeCreatedTime());
+            }
+        }
+
+        Map<String, List<ItemDTO>> deletedItems = Maps.newHashMap();
+        for (Commit commit : commitService.findByNamespaceNames(appId, clusterName, unreleasedNamespaceNames)) {
+            addDeletedItems(deletedItems, commit);
+        }
+        //the commits of each released namespace since its own release
+        for (Commit commit : commitService.findByNamespacesSince(appId, clusterName, releaseTimes)) {
+            addDeletedItems(deletedItems, commit);
+        }
+        return deletedItems;
+    }
+
+    private void addDeletedItems(Map<String, List<ItemDTO>> deletedItems, Commit commit) {
+        List<Item> items = ConfigChangeContentBuilder.convertJsonString(commit.getChangeSets()).getDeleteItems();
+        if (items.isEmpty()) {
+            return;
+        }
+        deletedItems.computeIfAbsent(commit.getNamespaceName(), k -> new LinkedList<>())
+                .addAll(BeanUtils.batchTransform(ItemDTO.class, items));
+    }
+
     public List<Namespace> findByAppIdAndNamespaceName(String appId, String namespaceName) {
         return namespaceRepository.findByAppIdAndNamespaceNameOrderByIdAsc(appId, namespaceName);
     }
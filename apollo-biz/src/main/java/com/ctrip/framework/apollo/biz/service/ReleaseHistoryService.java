@@ -21,11 +21,13 @@ import com.ctrip.framework.apollo.biz.entity.ReleaseHistory;
 import com.ctrip.framework.apollo.biz.repository.ReleaseHistoryRepository;
 import com.google.gson.Gson;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -99,4 +101,29 @@ public class ReleaseHistoryService {
     public int batchDelete(String appId, String clusterName, String namespaceName, String operator) {
         return releaseHistoryRepository.batchDelete(appId, clusterName, namespaceName, operator);
     }
+
+    /**
+     * @return the id of the newest release history beyond the retention size of the namespace, or null if not exceeded
+     */
+    public Long findIdBeyondRetention(String appId, String clusterName, String namespaceName, int retentionSize) {
+        List<Long> ids = releaseHistoryRepository.findIdsByNamespaceOrderByIdDesc(appId, clusterName, namespaceName,
+                PageRequest.of(retentionSize, 1));
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    /**
+     * Physically delete at most limit release historys of the namespace whose id is not greater than the id
+     */
+    @Transactional
+    public int deleteUpTo(String appId, String clusterName, String namespaceName, long id, int limit) {
+        return releaseHistoryRepository.deleteByNamespaceAndIdLessThanEqual(appId, clusterName, namespaceName, id, limit);
+    }
+
+    /**
+     * Physically delete at most limit release historys last modified before the date, including the ones marked deleted
+     */
+    @Transactional
+    public int deleteBefore(Date date, int limit) {
+        return releaseHistoryRepository.deleteByDataChangeLastModifiedTimeBefore(date, limit);
+    }
 }
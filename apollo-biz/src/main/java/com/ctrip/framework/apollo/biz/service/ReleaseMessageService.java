@@ -21,6 +21,7 @@ import com.ctrip.framework.apollo.biz.repository.ReleaseMessageRepository;
 import com.ctrip.framework.apollo.tracer.Tracer;
 import com.google.common.collect.Lists;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
 
 import java.util.Collection;
@@ -38,6 +39,17 @@ public class ReleaseMessageService {
         this.releaseMessageRepository = releaseMessageRepository;
     }
 
+    public ReleaseMessage findLatestReleaseMessage() {
+        return releaseMessageRepository.findTopByOrderByIdDesc();
+    }
+
+    /**
+     * @return at most 500 release messages after the id, in ascending order
+     */
+    public List<ReleaseMessage> findReleaseMessagesAfter(long id) {
+        return releaseMessageRepository.findFirst500ByIdGreaterThanOrderByIdAsc(id);
+    }
+
     public ReleaseMessage findLatestReleaseMessageForMessages(Collection<String> messages) {
         if (CollectionUtils.isEmpty(messages)) {
             return null;
@@ -63,4 +75,12 @@ public class ReleaseMessageService {
         }
         return releaseMessages;
     }
+
+    @Transactional
+    public int batchDelete(Collection<Long> ids) {
+        if (CollectionUtils.isEmpty(ids)) {
+            return 0;
+        }
+        return releaseMessageRepository.batchDelete(ids);
+    }
 }
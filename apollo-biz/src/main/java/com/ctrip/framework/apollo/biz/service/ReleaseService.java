@@ -118,6 +118,35 @@ public class ReleaseService {
         return Lists.newArrayList(releases);
     }
 
+    /**
+     * @return the ids of the latest active releases of all the namespaces
+     */
+    public List<Long> findLatestActiveReleaseIds() {
+        return releaseRepository.findLatestActiveReleaseIds();
+    }
+
+    /**
+     * @return namespace name -> the id of the latest active release, of the namespaces released in the cluster
+     */
+    public Map<String, Long> findLatestActiveReleaseIds(String appId, String clusterName) {
+        Map<String, Long> releaseIds = Maps.newHashMap();
+        for (Object[] o : releaseRepository.findLatestActiveReleaseIdsGroupByNamespaceName(appId, clusterName)) {
+            releaseIds.put((String) o[0], (Long) o[1]);
+        }
+        return releaseIds;
+    }
+
+    /**
+     * @return the latest active releases of the namespaces released in the cluster
+     */
+    public List<Release> findLatestActiveReleases(String appId, String clusterName) {
+        Map<String, Long> releaseIds = findLatestActiveReleaseIds(appId, clusterName);
+        if (releaseIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return releaseRepository.findByIdIn(Sets.newHashSet(releaseIds.values()));
+    }
+
     public List<Release> findByReleaseKeys(Set<String> releaseKeys) {
         return releaseRepository.findByReleaseKeyIn(releaseKeys);
     }
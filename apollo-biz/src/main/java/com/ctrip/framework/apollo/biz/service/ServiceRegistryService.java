@@ -33,9 +33,17 @@ public class ServiceRegistryService {
         this.repository = repository;
     }
 
+    /**
+     * the registries are stamped and compared by the clock of the database, so the clocks of the instances needn't
+     * agree
+     */
+    public LocalDateTime databaseTime() {
+        return this.repository.selectCurrentTimestamp().toLocalDateTime();
+    }
+
     public ServiceRegistry saveIfNotExistByServiceNameAndUri(ServiceRegistry serviceRegistry) {
         ServiceRegistry serviceRegistrySaved = this.repository.findByServiceNameAndUri(serviceRegistry.getServiceName(), serviceRegistry.getUri());
-        final LocalDateTime now = LocalDateTime.now();
+        final LocalDateTime now = this.databaseTime();
         if (null == serviceRegistrySaved) {
             serviceRegistrySaved = serviceRegistry;
             serviceRegistrySaved.setDataChangeCreatedTime(now);
@@ -49,6 +57,21 @@ public class ServiceRegistryService {
         return this.repository.save(serviceRegistrySaved);
     }
 
+    /**
+     * refresh the registry by one update, insert it only if not registered yet
+     */
+    @Transactional
+    public void heartbeat(ServiceRegistry serviceRegistry) {
+        final LocalDateTime now = this.databaseTime();
+        int updated = this.repository.updateHeartbeat(serviceRegistry.getServiceName(), serviceRegistry.getUri(),
+                serviceRegistry.getCluster(), serviceRegistry.getMetadata(), now);
+        if (updated == 0) {
+            serviceRegistry.setDataChangeCreatedTime(now);
+            serviceRegistry.setDataChangeLastModifiedTime(now);
+            this.repository.save(serviceRegistry);
+        }
+    }
+
     @Transactional
     public void delete(ServiceRegistry serviceRegistry) {
         this.repository.deleteByServiceNameAndUri(
@@ -63,9 +86,13 @@ public class ServiceRegistryService {
         return this.repository.findByServiceNameAndDataChangeLastModifiedTimeGreaterThan(serviceName, localDateTime);
     }
 
+    public List<ServiceRegistry> findByDataChangeLastModifiedTimeGreaterThan(LocalDateTime localDateTime) {
+        return this.repository.findByDataChangeLastModifiedTimeGreaterThan(localDateTime);
+    }
+
     @Transactional
     public List<ServiceRegistry> deleteTimeBefore(Duration duration) {
-        LocalDateTime time = LocalDateTime.now().minus(duration);
+        LocalDateTime time = this.databaseTime().minus(duration);
         return this.repository.deleteByDataChangeLastModifiedTimeLessThan(time);
     }
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.biz.statistics;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.service.InstanceService;
+import com.ctrip.framework.apollo.biz.utils.ReleaseMessageKeyGenerator;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Table;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the counts of the active instances of each namespace and release, recounted periodically in the background
+ * with one grouped query, so counting the instances does not query the database on each request. The instances
+ * expired are dropped on recount.
+ * <p>
+ * The counts may lag behind the database by the refresh interval, and are not available until counted, see {@link
+ * #isReady()}.
+ */
+public class InstanceStatisticsHolder implements InitializingBean, DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(InstanceStatisticsHolder.class);
+
+    @Autowired
+    private BizConfig bizConfig;
+    @Autowired
+    private InstanceService instanceService;
+
+    private final ScheduledExecutorService executorService;
+    //replaced on refresh, null until counted
+    private volatile InstanceStatistics statistics;
+
+    public InstanceStatisticsHolder() {
+        executorService = Executors.newScheduledThreadPool(1, ApolloThreadFactory
+                .create("InstanceStatisticsHolder", true));
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (!bizConfig.isInstanceStatisticsEnabled()) {
+            return;
+        }
+        int refreshInterval = bizConfig.instanceStatisticsRefreshInterval();
+        executorService.scheduleWithFixedDelay(this::refresh, 0, refreshInterval, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        executorService.shutdownNow();
+    }
+
+    public boolean isReady() {
+        return statistics != null;
+    }
+
+    public long getInstanceCountByNamespace(String appId, String clusterName, String namespaceName) {
+        return current().namespaceCounts.getOrDefault(
+                ReleaseMessageKeyGenerator.generate(appId, clusterName, namespaceName), 0L);
+    }
+
+    public long getInstanceCountByReleaseKey(String releaseKey) {
+        return current().releaseCounts.getOrDefault(releaseKey, 0L);
+    }
+
+    private InstanceStatistics current() {
+        InstanceStatistics current = statistics;
+        if (current == null) {
+            throw new IllegalStateException("Instance statistics are not ready");
+        }
+        return current;
+    }
+
+    void refresh() {
+        Transaction transaction = Tracer.newTransaction("Apollo.InstanceStatistics", "refresh");
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        try {
+            Table<String, String, Long> counts = instanceService.countActiveInstanceConfigs();
+
+            Map<String, Long> namespaceCounts = Maps.newHashMapWithExpectedSize(counts.rowKeySet().size());
+            Map<String, Long> releaseCounts = Maps.newHashMapWithExpectedSize(counts.columnKeySet().size());
+            for (Table.Cell<String, String, Long> cell : counts.cellSet()) {
+                namespaceCounts.merge(cell.getRowKey(), cell.getValue(), Long::sum);
+                releaseCounts.merge(cell.getColumnKey(), cell.getValue(), Long::sum);
+            }
+            statistics = new InstanceStatistics(namespaceCounts, releaseCounts);
+
+            logger.debug("Counted the instances of {} namespaces in {} ms", namespaceCounts.size(),
+                    stopwatch.elapsed(TimeUnit.MILLISECONDS));
+            transaction.addData("namespaces", namespaceCounts.size());
+            transaction.setStatus(Transaction.SUCCESS);
+        } catch (Throwable ex) {
+            transaction.setStatus(ex);
+            logger.error("Count instances failed", ex);
+        } finally {
+            transaction.complete();
+        }
+    }
+
+    private static class InstanceStatistics {
+        //namespace key -> count
+        private final Map<String, Long> namespaceCounts;
+        //release key -> count
+        private final Map<String, Long> releaseCounts;
+
+        InstanceStatistics(Map<String, Long> namespaceCounts, Map<String, Long> releaseCounts) {
+            this.namespaceCounts = namespaceCounts;
+            this.releaseCounts = releaseCounts;
+        }
+    }
+}
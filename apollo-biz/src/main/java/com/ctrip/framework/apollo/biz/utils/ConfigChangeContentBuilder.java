@@ -23,8 +23,10 @@ import com.google.gson.GsonBuilder;
 import org.springframework.beans.BeanUtils;
 
 import java.util.Date;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 public class ConfigChangeContentBuilder {
 
@@ -113,4 +115,21 @@ public class ConfigChangeContentBuilder {
     public List<Item> getDeleteItems() {
         return deleteItems;
     }
+
+    /**
+     * @return the keys of the items created, updated or deleted
+     */
+    public Set<String> getChangedKeys() {
+        Set<String> keys = new HashSet<>();
+        for (Item item : createItems) {
+            keys.add(item.getKey());
+        }
+        for (ItemPair item : updateItems) {
+            keys.add(item.newItem.getKey());
+        }
+        for (Item item : deleteItems) {
+            keys.add(item.getKey());
+        }
+        return keys;
+    }
 }
@@ -78,6 +78,26 @@ public class BizConfigTest {
         assertEquals(defaultBatch, bizConfig.releaseMessageNotificationBatch());
     }
 
+    @Test
+    public void testReleaseMessageNotificationPermitsPerSecondWithDefaultValue() throws Exception {
+        int someBatch = 20;
+        int someBatchInterval = 50;
+        when(environment.getProperty("apollo.release-message.notification.batch")).thenReturn(String.valueOf(someBatch));
+        when(environment.getProperty("apollo.release-message.notification.batch.interval"))
+                .thenReturn(String.valueOf(someBatchInterval));
+
+        assertEquals(someBatch * 1000 / someBatchInterval, bizConfig.releaseMessageNotificationPermitsPerSecond());
+    }
+
+    @Test
+    public void testReleaseMessageNotificationPermitsPerSecond() throws Exception {
+        int somePermits = 5000;
+        when(environment.getProperty("apollo.release-message.notification.permits-per-second"))
+                .thenReturn(String.valueOf(somePermits));
+
+        assertEquals(somePermits, bizConfig.releaseMessageNotificationPermitsPerSecond());
+    }
+
     @Test
     public void testCheckInt() throws Exception {
         int someInvalidValue = 1;
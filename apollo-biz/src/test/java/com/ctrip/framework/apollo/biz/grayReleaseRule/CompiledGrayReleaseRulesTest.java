@@ -0,0 +1,103 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.biz.grayReleaseRule;
+
+import com.ctrip.framework.apollo.common.constants.NamespaceBranchStatus;
+import com.ctrip.framework.apollo.common.dto.GrayReleaseRuleItemDTO;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CompiledGrayReleaseRulesTest {
+    private static final String someNamespaceName = "someNamespaceName";
+    private static final String someClientAppId = "someClientAppId";
+    private static final String someClientIp = "1.1.1.1";
+    private static final String anotherClientIp = "2.2.2.2";
+    private static final String someClientLabel = "someClientLabel";
+
+    @Test
+    public void testFindReleaseId() throws Exception {
+        long someReleaseId = 1;
+        long anotherReleaseId = 2;
+
+        CompiledGrayReleaseRules rules = CompiledGrayReleaseRules.compile(Lists.newArrayList(
+                assembleRule(1, someReleaseId, NamespaceBranchStatus.ACTIVE,
+                        assembleRuleItem(someClientAppId, Sets.newHashSet(someClientIp), Collections.emptySet()),
+                        assembleRuleItem(someClientAppId, Collections.emptySet(), Sets.newHashSet(someClientLabel))),
+                assembleRule(2, anotherReleaseId, NamespaceBranchStatus.ACTIVE,
+                        assembleRuleItem(someClientAppId, Sets.newHashSet(someClientIp, anotherClientIp),
+                                Collections.emptySet()))));
+
+        //the first rule matched wins
+        assertEquals(someReleaseId, (long) rules.findReleaseId(someClientAppId, someClientIp, null));
+        //the items of the same client app id are merged
+        assertEquals(someReleaseId, (long) rules.findReleaseId(someClientAppId, "3.3.3.3", someClientLabel));
+        assertEquals(anotherReleaseId, (long) rules.findReleaseId(someClientAppId, anotherClientIp, null));
+        //client app id is case insensitive
+        assertEquals(someReleaseId, (long) rules.findReleaseId(someClientAppId.toUpperCase(), someClientIp, null));
+        assertNull(rules.findReleaseId(someClientAppId, "3.3.3.3", "anotherClientLabel"));
+        assertNull(rules.findReleaseId("anotherClientAppId", someClientIp, someClientLabel));
+        assertNull(rules.findReleaseId(null, someClientIp, someClientLabel));
+    }
+
+    @Test
+    public void testFindReleaseIdWithWildcards() throws Exception {
+        long someReleaseId = 1;
+        long anotherReleaseId = 2;
+
+        CompiledGrayReleaseRules rules = CompiledGrayReleaseRules.compile(Lists.newArrayList(
+                assembleRule(1, someReleaseId, NamespaceBranchStatus.ACTIVE,
+                        assembleRuleItem(someClientAppId, Sets.newHashSet(GrayReleaseRuleItemDTO.ALL_IP),
+                                Collections.emptySet())),
+                assembleRule(2, anotherReleaseId, NamespaceBranchStatus.ACTIVE,
+                        assembleRuleItem("anotherClientAppId", Collections.emptySet(),
+                                Sets.newHashSet(GrayReleaseRuleItemDTO.ALL_Label)))));
+
+        assertEquals(someReleaseId, (long) rules.findReleaseId(someClientAppId, "3.3.3.3", null));
+        assertEquals(anotherReleaseId, (long) rules.findReleaseId("anotherClientAppId", null, "anyLabel"));
+    }
+
+    @Test
+    public void testInactiveRulesIgnored() throws Exception {
+        GrayReleaseRuleCache inactiveRule = assembleRule(1, 1, NamespaceBranchStatus.DELETED,
+                assembleRuleItem(someClientAppId, Sets.newHashSet(someClientIp), Collections.emptySet()));
+        GrayReleaseRuleCache activeRule = assembleRule(2, 2, NamespaceBranchStatus.ACTIVE,
+                assembleRuleItem(someClientAppId, Sets.newHashSet(someClientIp), Collections.emptySet()));
+
+        assertNull(CompiledGrayReleaseRules.compile(Lists.newArrayList(inactiveRule)));
+        assertNull(CompiledGrayReleaseRules.compile(Collections.emptyList()));
+        assertEquals(2, (long) CompiledGrayReleaseRules.compile(Lists.newArrayList(inactiveRule, activeRule))
+                .findReleaseId(someClientAppId, someClientIp, null));
+    }
+
+    private GrayReleaseRuleCache assembleRule(long ruleId, long releaseId, int branchStatus,
+                                              GrayReleaseRuleItemDTO... ruleItems) {
+        return new GrayReleaseRuleCache(ruleId, "someBranchName", someNamespaceName, releaseId, branchStatus, 0,
+                Sets.newLinkedHashSet(Lists.newArrayList(ruleItems)));
+    }
+
+    private GrayReleaseRuleItemDTO assembleRuleItem(String clientAppId, Set<String> clientIps,
+                                                    Set<String> clientLabels) {
+        return new GrayReleaseRuleItemDTO(clientAppId, Sets.newHashSet(clientIps), Sets.newHashSet(clientLabels));
+    }
+}
@@ -34,10 +34,12 @@ public class DatabaseMessageSenderTest extends AbstractUnitTest {
     private DatabaseMessageSender messageSender;
     @Mock
     private ReleaseMessageRepository releaseMessageRepository;
+    @Mock
+    private ReleaseMessageBroadcaster releaseMessageBroadcaster;
 
     @Before
     public void setUp() throws Exception {
-        messageSender = new DatabaseMessageSender(releaseMessageRepository);
+        messageSender = new DatabaseMessageSender(releaseMessageRepository, releaseMessageBroadcaster);
     }
 
     @Test
@@ -54,6 +56,7 @@ public class DatabaseMessageSenderTest extends AbstractUnitTest {
 
         verify(releaseMessageRepository, times(1)).save(captor.capture());
         assertEquals(someMessage, captor.getValue().getMessage());
+        verify(releaseMessageBroadcaster, times(1)).broadcast(someReleaseMessage, Topics.APOLLO_RELEASE_TOPIC);
     }
 
     @Test
@@ -64,6 +67,7 @@ public class DatabaseMessageSenderTest extends AbstractUnitTest {
         messageSender.sendMessage(someMessage, someUnsupportedTopic);
 
         verify(releaseMessageRepository, never()).save(any(ReleaseMessage.class));
+        verify(releaseMessageBroadcaster, never()).broadcast(any(ReleaseMessage.class), anyString());
     }
 
     @Test(expected = RuntimeException.class)
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.biz.message;
+
+import com.ctrip.framework.apollo.biz.AbstractUnitTest;
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.mockito.Mockito.*;
+
+public class ReleaseMessageBroadcasterTest extends AbstractUnitTest {
+    private ReleaseMessageBroadcaster releaseMessageBroadcaster;
+    @Mock
+    private BizConfig bizConfig;
+    @Mock
+    private ReleaseMessageListener someSubscriber;
+    @Mock
+    private ReleaseMessageListener anotherSubscriber;
+
+    private ReleaseMessage someReleaseMessage;
+
+    @Before
+    public void setUp() throws Exception {
+        releaseMessageBroadcaster = new ReleaseMessageBroadcaster(bizConfig);
+        releaseMessageBroadcaster.subscribe(someSubscriber);
+        releaseMessageBroadcaster.subscribe(anotherSubscriber);
+
+        someReleaseMessage = new ReleaseMessage("someAppId+default+application");
+        someReleaseMessage.setId(1);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testBroadcast() throws Exception {
+        when(bizConfig.isReleaseMessagePushEnabled()).thenReturn(true);
+        doThrow(new RuntimeException("some exception")).when(someSubscriber)
+                .handleMessage(someReleaseMessage, Topics.APOLLO_RELEASE_TOPIC);
+
+        releaseMessageBroadcaster.broadcast(someReleaseMessage, Topics.APOLLO_RELEASE_TOPIC);
+
+        verify(someSubscriber, timeout(1000)).handleMessage(someReleaseMessage, Topics.APOLLO_RELEASE_TOPIC);
+        verify(anotherSubscriber, timeout(1000)).handleMessage(someReleaseMessage, Topics.APOLLO_RELEASE_TOPIC);
+    }
+
+    @Test
+    public void testBroadcastWithPushDisabled() throws Exception {
+        when(bizConfig.isReleaseMessagePushEnabled()).thenReturn(false);
+
+        releaseMessageBroadcaster.broadcast(someReleaseMessage, Topics.APOLLO_RELEASE_TOPIC);
+
+        verify(someSubscriber, after(100).never()).handleMessage(any(ReleaseMessage.class), anyString());
+    }
+
+    @Test
+    public void testBroadcastAfterTransactionCommitted() throws Exception {
+        when(bizConfig.isReleaseMessagePushEnabled()).thenReturn(true);
+        TransactionSynchronizationManager.initSynchronization();
+
+        releaseMessageBroadcaster.broadcast(someReleaseMessage, Topics.APOLLO_RELEASE_TOPIC);
+
+        verify(someSubscriber, after(100).never()).handleMessage(any(ReleaseMessage.class), anyString());
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+
+        verify(someSubscriber, timeout(1000)).handleMessage(someReleaseMessage, Topics.APOLLO_RELEASE_TOPIC);
+    }
+
+    @Test
+    public void testBroadcastAfterUnsubscribe() throws Exception {
+        when(bizConfig.isReleaseMessagePushEnabled()).thenReturn(true);
+        releaseMessageBroadcaster.unsubscribe(someSubscriber);
+
+        releaseMessageBroadcaster.broadcast(someReleaseMessage, Topics.APOLLO_RELEASE_TOPIC);
+
+        verify(anotherSubscriber, timeout(1000)).handleMessage(someReleaseMessage, Topics.APOLLO_RELEASE_TOPIC);
+        verify(someSubscriber, never()).handleMessage(any(ReleaseMessage.class), anyString());
+    }
+}
@@ -30,11 +30,13 @@ import org.mockito.Mock;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import static org.awaitility.Awaitility.await;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
 
 /**
@@ -180,6 +182,67 @@ public class ReleaseMessageScannerTest extends AbstractUnitTest {
         });
     }
 
+    @Test
+    public void testPushedMessageNotifyMessageListener() throws Exception {
+        ReleaseMessage someReleaseMessage = assembleReleaseMessage(1, "someMessage");
+        ReleaseMessage anotherReleaseMessage = assembleReleaseMessage(2, "anotherMessage");
+        ReleaseMessage yetAnotherReleaseMessage = assembleReleaseMessage(4, "yetAnotherMessage");
+
+        List<ReleaseMessage> receivedMessage = Lists.newCopyOnWriteArrayList();
+        releaseMessageScanner.addMessageListener((message, channel) -> receivedMessage.add(message));
+
+        when(releaseMessageRepository.findFirst500ByIdGreaterThanOrderByIdAsc(0L)).thenReturn(
+                Lists.newArrayList(someReleaseMessage));
+
+        await().untilAsserted(() -> assertEquals(1, receivedMessage.size()));
+
+        releaseMessageScanner.onMessagePushed(anotherReleaseMessage);
+        //duplicate and stale messages are ignored
+        releaseMessageScanner.onMessagePushed(anotherReleaseMessage);
+        releaseMessageScanner.onMessagePushed(someReleaseMessage);
+
+        await().untilAsserted(() -> {
+            assertEquals(2, receivedMessage.size());
+            assertSame(anotherReleaseMessage, receivedMessage.get(1));
+        });
+
+        //a message out of order is left to the scan
+        when(releaseMessageRepository.findFirst500ByIdGreaterThanOrderByIdAsc(anotherReleaseMessage.getId()))
+                .thenReturn(Lists.newArrayList(yetAnotherReleaseMessage));
+        releaseMessageScanner.onMessagePushed(yetAnotherReleaseMessage);
+
+        await().untilAsserted(() -> {
+            assertEquals(3, receivedMessage.size());
+            assertSame(yetAnotherReleaseMessage, receivedMessage.get(2));
+        });
+    }
+
+    @Test
+    public void testPushedMessageOutOfOrderHeldUntilGapFilled() throws Exception {
+        ReleaseMessage someReleaseMessage = assembleReleaseMessage(1, "someMessage");
+        ReleaseMessage anotherReleaseMessage = assembleReleaseMessage(2, "anotherMessage");
+        ReleaseMessage yetAnotherReleaseMessage = assembleReleaseMessage(3, "yetAnotherMessage");
+
+        List<ReleaseMessage> receivedMessage = Lists.newCopyOnWriteArrayList();
+        releaseMessageScanner.addMessageListener((message, channel) -> receivedMessage.add(message));
+
+        releaseMessageScanner.onMessagePushed(yetAnotherReleaseMessage);
+        releaseMessageScanner.onMessagePushed(anotherReleaseMessage);
+
+        //held since message 1 is not committed yet
+        Thread.sleep(databaseScanInterval * 3);
+        assertTrue(receivedMessage.isEmpty());
+
+        releaseMessageScanner.onMessagePushed(someReleaseMessage);
+
+        await().untilAsserted(() -> {
+            assertEquals(3, receivedMessage.size());
+            assertSame(someReleaseMessage, receivedMessage.get(0));
+            assertSame(anotherReleaseMessage, receivedMessage.get(1));
+            assertSame(yetAnotherReleaseMessage, receivedMessage.get(2));
+        });
+    }
+
     private ReleaseMessage assembleReleaseMessage(long id, String message) {
         ReleaseMessage releaseMessage = new ReleaseMessage();
         releaseMessage.setId(id);
@@ -57,6 +57,7 @@ class DatabaseDiscoveryClientImplTest {
     void getInstances_filterByCluster() {
         final String serviceName = "a-service";
         ServiceRegistryService serviceRegistryService = Mockito.mock(ServiceRegistryService.class);
+        Mockito.when(serviceRegistryService.databaseTime()).thenReturn(LocalDateTime.now());
         {
             List<ServiceRegistry> serviceRegistryList = Arrays.asList(
                     newServiceRegistry(serviceName, "http://localhost:8081/", "1"),
@@ -86,6 +87,7 @@ class DatabaseDiscoveryClientImplTest {
     void getInstances_filterByHealthCheck() {
         final String serviceName = "a-service";
         ServiceRegistryService serviceRegistryService = Mockito.mock(ServiceRegistryService.class);
+        Mockito.when(serviceRegistryService.databaseTime()).thenReturn(LocalDateTime.now());
 
         ServiceRegistry healthy = newServiceRegistry(serviceName, "http://localhost:8081/", "1",
                 LocalDateTime.now());
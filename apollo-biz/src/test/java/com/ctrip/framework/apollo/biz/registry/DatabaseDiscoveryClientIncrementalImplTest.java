@@ -0,0 +1,152 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.biz.registry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ctrip.framework.apollo.biz.entity.ServiceRegistry;
+import com.ctrip.framework.apollo.biz.registry.configuration.support.ApolloServiceDiscoveryProperties;
+import com.ctrip.framework.apollo.biz.service.ServiceRegistryService;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+class DatabaseDiscoveryClientIncrementalImplTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2022, 1, 1, 12, 0, 0);
+
+    private ServiceRegistryService serviceRegistryService;
+
+    private ServiceInstanceChangeListener listener;
+
+    private DatabaseDiscoveryClientIncrementalImpl client;
+
+    @BeforeEach
+    void setUp() {
+        serviceRegistryService = Mockito.mock(ServiceRegistryService.class);
+        listener = Mockito.mock(ServiceInstanceChangeListener.class);
+        ApolloServiceDiscoveryProperties discoveryProperties = new ApolloServiceDiscoveryProperties();
+        discoveryProperties.setHealthCheckIntervalInSecond(60);
+        client = new DatabaseDiscoveryClientIncrementalImpl(serviceRegistryService, discoveryProperties, "beijing");
+        assertTrue(client.addChangeListener(listener));
+    }
+
+    @Test
+    void sync_full_then_incremental() {
+        Mockito.when(serviceRegistryService.findByDataChangeLastModifiedTimeGreaterThan(NOW.minusSeconds(60)))
+                .thenReturn(Arrays.asList(
+                        newServiceRegistry("a-service", "http://10.240.34.56:8081/", "beijing", NOW.minusSeconds(10)),
+                        newServiceRegistry("a-service", "http://10.240.34.56:8080/", "beijing", NOW.minusSeconds(5)),
+                        newServiceRegistry("a-service", "http://10.240.34.56:8082/", "shanghai", NOW.minusSeconds(5))
+                ));
+        client.sync(NOW);
+
+        List<ServiceInstance> instances = client.getInstances("a-service");
+        assertEquals(2, instances.size());
+        assertEquals("http://10.240.34.56:8080/", instances.get(0).getUri().toString());
+        assertEquals("http://10.240.34.56:8081/", instances.get(1).getUri().toString());
+        assertTrue(client.getInstances("b-service").isEmpty());
+        Mockito.verify(listener, Mockito.times(1)).onChange("a-service");
+
+        // only read the registries since the high-water mark, minus the sync period
+        Mockito.when(serviceRegistryService.findByDataChangeLastModifiedTimeGreaterThan(NOW.minusSeconds(10)))
+                .thenReturn(Collections.singletonList(
+                        newServiceRegistry("b-service", "http://10.240.56.78:8080/", "beijing", NOW.plusSeconds(3))
+                ));
+        client.sync(NOW.plusSeconds(5));
+
+        assertEquals(2, client.getInstances("a-service").size());
+        assertEquals(1, client.getInstances("b-service").size());
+        Mockito.verify(listener, Mockito.times(1)).onChange("a-service");
+        Mockito.verify(listener, Mockito.times(1)).onChange("b-service");
+    }
+
+    @Test
+    void sync_expire_instances_not_heartbeat() {
+        Mockito.when(serviceRegistryService.findByDataChangeLastModifiedTimeGreaterThan(Mockito.any()))
+                .thenReturn(Arrays.asList(
+                        newServiceRegistry("a-service", "http://10.240.34.56:8080/", "beijing", NOW.minusSeconds(50)),
+                        newServiceRegistry("a-service", "http://10.240.34.56:8081/", "beijing", NOW.minusSeconds(5))
+                ))
+                .thenReturn(Collections.emptyList());
+        client.sync(NOW);
+        assertEquals(2, client.getInstances("a-service").size());
+
+        client.sync(NOW.plusSeconds(20));
+
+        List<ServiceInstance> instances = client.getInstances("a-service");
+        assertEquals(1, instances.size());
+        assertEquals("http://10.240.34.56:8081/", instances.get(0).getUri().toString());
+        Mockito.verify(listener, Mockito.times(2)).onChange("a-service");
+    }
+
+    @Test
+    void sync_full_again_to_drop_instances_deregistered() {
+        Mockito.when(serviceRegistryService.findByDataChangeLastModifiedTimeGreaterThan(NOW.minusSeconds(60)))
+                .thenReturn(Arrays.asList(
+                        newServiceRegistry("a-service", "http://10.240.34.56:8080/", "beijing", NOW),
+                        newServiceRegistry("a-service", "http://10.240.34.56:8081/", "beijing", NOW)
+                ));
+        client.sync(NOW);
+        assertEquals(2, client.getInstances("a-service").size());
+
+        // one of them deregistered, the other heartbeat
+        LocalDateTime later = NOW.plusSeconds(61);
+        Mockito.when(serviceRegistryService.findByDataChangeLastModifiedTimeGreaterThan(later.minusSeconds(60)))
+                .thenReturn(Collections.singletonList(
+                        newServiceRegistry("a-service", "http://10.240.34.56:8080/", "beijing", later)
+                ));
+        client.sync(later);
+
+        assertEquals(1, client.getInstances("a-service").size());
+        Mockito.verify(listener, Mockito.times(2)).onChange("a-service");
+    }
+
+    @Test
+    void sync_keep_instances_when_database_crash() {
+        Mockito.when(serviceRegistryService.databaseTime()).thenReturn(LocalDateTime.now());
+        Mockito.when(serviceRegistryService.findByDataChangeLastModifiedTimeGreaterThan(Mockito.any()))
+                .thenReturn(Collections.singletonList(
+                        newServiceRegistry("a-service", "http://10.240.34.56:8080/", "beijing", LocalDateTime.now())
+                ))
+                .thenThrow(OutOfMemoryError.class);
+        client.syncTask();
+        // task won't be interrupted by Throwable
+        client.syncTask();
+
+        assertEquals(1, client.getInstances("a-service").size());
+        Mockito.verify(listener, Mockito.times(1)).onChange("a-service");
+    }
+
+    private static ServiceRegistry newServiceRegistry(String serviceName, String uri, String cluster,
+                                                      LocalDateTime lastModifiedTime) {
+        ServiceRegistry serviceRegistry = new ServiceRegistry();
+        serviceRegistry.setServiceName(serviceName);
+        serviceRegistry.setUri(uri);
+        serviceRegistry.setCluster(cluster);
+        serviceRegistry.setMetadata(Collections.emptyMap());
+        serviceRegistry.setDataChangeLastModifiedTime(lastModifiedTime);
+        return serviceRegistry;
+    }
+}
@@ -18,15 +18,20 @@ package com.ctrip.framework.apollo.biz.registry;
 
 import static com.ctrip.framework.apollo.biz.registry.ServiceInstanceFactory.newServiceInstance;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 
 import com.ctrip.framework.apollo.biz.AbstractIntegrationTest;
+import com.ctrip.framework.apollo.biz.entity.ServiceRegistry;
 import com.ctrip.framework.apollo.biz.registry.DatabaseDiscoveryWithoutDecoratorIntegrationTest.ApolloServiceDiscoveryWithoutDecoratorAutoConfiguration;
 import com.ctrip.framework.apollo.biz.registry.configuration.ApolloServiceDiscoveryAutoConfiguration;
 import com.ctrip.framework.apollo.biz.registry.configuration.ApolloServiceRegistryAutoConfiguration;
 import com.ctrip.framework.apollo.biz.registry.configuration.support.ApolloServiceDiscoveryProperties;
+import com.ctrip.framework.apollo.biz.registry.configuration.support.ApolloServiceRegistryProperties;
 import com.ctrip.framework.apollo.biz.repository.ServiceRegistryRepository;
 import com.ctrip.framework.apollo.biz.service.ServiceRegistryService;
 
+import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.Test;
@@ -67,6 +72,12 @@ public class DatabaseDiscoveryIntegrationTest extends AbstractIntegrationTest {
     @Autowired
     private DatabaseDiscoveryClient discoveryClient;
 
+    @Autowired
+    private ServiceRegistryRepository serviceRegistryRepository;
+
+    @Autowired
+    private ServiceRegistryService serviceRegistryService;
+
     /**
      * discover one after register, and delete it
      */
@@ -130,6 +141,45 @@ public class DatabaseDiscoveryIntegrationTest extends AbstractIntegrationTest {
         assertEquals(1, serviceInstances.size());
     }
 
+    /**
+     * heartbeat updates the registry in place
+     */
+    @Test
+    public void registerAgainWithMetadataChanged() {
+        String serviceName = "e-service";
+        String uri = "http://192.168.1.20:8080/";
+        ApolloServiceRegistryProperties instance = (ApolloServiceRegistryProperties) newServiceInstance(
+                serviceName, uri, "default"
+        );
+        this.serviceRegistry.register(instance);
+        ServiceRegistry registered = this.serviceRegistryRepository.findByServiceNameAndUri(serviceName, uri);
+
+        instance.setMetadata(Collections.singletonMap("someKey", "someValue"));
+        this.serviceRegistry.register(instance);
+
+        ServiceRegistry heartbeat = this.serviceRegistryRepository.findByServiceNameAndUri(serviceName, uri);
+        assertEquals(registered.getId(), heartbeat.getId());
+        assertEquals(Collections.singletonMap("someKey", "someValue"), heartbeat.getMetadata());
+        assertFalse(heartbeat.getDataChangeLastModifiedTime().isBefore(registered.getDataChangeLastModifiedTime()));
+    }
+
+    /**
+     * heartbeat is stamped by the clock of the database
+     */
+    @Test
+    public void registerWithDatabaseTime() {
+        String serviceName = "f-service";
+        String uri = "http://192.168.1.20:8080/";
+        LocalDateTime before = this.serviceRegistryService.databaseTime();
+        this.serviceRegistry.register(newServiceInstance(serviceName, uri, "default"));
+        LocalDateTime after = this.serviceRegistryService.databaseTime();
+
+        LocalDateTime heartbeatTime = this.serviceRegistryRepository.findByServiceNameAndUri(serviceName, uri)
+                .getDataChangeLastModifiedTime();
+        assertFalse(heartbeatTime.isBefore(before));
+        assertFalse(heartbeatTime.isAfter(after));
+    }
+
     @Test
     public void registerTwoInstancesThenDeleteOne() {
         final String serviceName = "d-service";
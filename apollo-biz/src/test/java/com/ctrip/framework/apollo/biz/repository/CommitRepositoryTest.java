@@ -0,0 +1,131 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.biz.repository;
+
+import com.ctrip.framework.apollo.biz.AbstractIntegrationTest;
+import com.ctrip.framework.apollo.biz.entity.Commit;
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CommitRepositoryTest extends AbstractIntegrationTest {
+    @Autowired
+    private CommitRepository commitRepository;
+    @Autowired
+    private ReleaseRepository releaseRepository;
+
+    @Test
+    public void testDeleteBeyondRetentionSize() {
+        List<Long> ids = Lists.newArrayList();
+        for (int i = 0; i < 5; i++) {
+            ids.add(commitRepository.save(assembleCommit("someNamespace", new Date())).getId());
+        }
+        long anotherId = commitRepository.save(assembleCommit("anotherNamespace", new Date())).getId();
+
+        //keep the newest 2
+        List<Long> beyond = commitRepository.findIdsByNamespaceOrderByIdDesc("someAppId", "default", "someNamespace",
+                PageRequest.of(2, 1));
+        assertEquals(Lists.newArrayList(ids.get(2)), beyond);
+
+        assertEquals(2, commitRepository.deleteByNamespaceAndIdLessThanEqual("someAppId", "default",
+                "someNamespace", beyond.get(0), 2));
+        assertEquals(1, commitRepository.deleteByNamespaceAndIdLessThanEqual("someAppId", "default",
+                "someNamespace", beyond.get(0), 2));
+
+        assertEquals(2, commitRepository.countByAppIdAndClusterNameAndNamespaceName("someAppId", "default",
+                "someNamespace"));
+        assertTrue(commitRepository.findById(ids.get(4)).isPresent());
+        assertTrue(commitRepository.findById(anotherId).isPresent());
+    }
+
+    @Test
+    public void testDeleteBeforeIncludingDeleted() {
+        Date old = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(10));
+        commitRepository.save(assembleCommit("someNamespace", old));
+        Commit deleted = assembleCommit("someNamespace", old);
+        deleted.setDeleted(true);
+        commitRepository.save(deleted);
+        long recentId = commitRepository.save(assembleCommit("someNamespace", new Date())).getId();
+        releaseRepository.save(assembleRelease("someNamespace",
+                new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(8))));
+
+        Date date = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(5));
+        assertEquals(2, commitRepository.deleteReleasedByDataChangeLastModifiedTimeBefore(date, 10));
+        assertEquals(0, commitRepository.deleteReleasedByDataChangeLastModifiedTimeBefore(date, 10));
+        assertTrue(commitRepository.findById(recentId).isPresent());
+    }
+
+    @Test
+    public void testDeleteBeforeKeepingCommitsNotReleased() {
+        Date old = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(10));
+        commitRepository.save(assembleCommit("someNamespace", old));
+        long notReleasedId = commitRepository.save(assembleCommit("someNamespace",
+                new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(7)))).getId();
+        //not released recently
+        long anotherNotReleasedId = commitRepository.save(assembleCommit("anotherNamespace", old)).getId();
+        //never released
+        long yetAnotherNotReleasedId = commitRepository.save(assembleCommit("yetAnotherNamespace", old)).getId();
+        Date releaseTime = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(8));
+        releaseRepository.save(assembleRelease("someNamespace", releaseTime));
+        releaseRepository.save(assembleRelease("anotherNamespace",
+                new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(20))));
+
+        Date date = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(5));
+        assertEquals(1, commitRepository.deleteReleasedByDataChangeLastModifiedTimeBefore(date, 10));
+
+        assertEquals(Lists.newArrayList(notReleasedId), commitRepository.findIdsByNamespaceOrderByIdDesc("someAppId",
+                "default", "someNamespace", PageRequest.of(0, 10)));
+        assertTrue(commitRepository.findById(anotherNotReleasedId).isPresent());
+        assertTrue(commitRepository.findById(yetAnotherNotReleasedId).isPresent());
+        assertEquals(notReleasedId, (long) commitRepository.findFirstIdByNamespaceSince("someAppId", "default",
+                "someNamespace", releaseTime));
+    }
+
+    private Release assembleRelease(String namespaceName, Date createdTime) {
+        Release release = new Release();
+        release.setReleaseKey(namespaceName + createdTime.getTime());
+        release.setName(namespaceName);
+        release.setAppId("someAppId");
+        release.setClusterName("default");
+        release.setNamespaceName(namespaceName);
+        release.setConfigurations("{}");
+        release.setComment("");
+        release.setDataChangeCreatedBy("someOperator");
+        release.setDataChangeCreatedTime(createdTime);
+        return release;
+    }
+
+    private Commit assembleCommit(String namespaceName, Date lastModifiedTime) {
+        Commit commit = new Commit();
+        commit.setAppId("someAppId");
+        commit.setClusterName("default");
+        commit.setNamespaceName(namespaceName);
+        commit.setChangeSets("{}");
+        commit.setDataChangeCreatedBy("someOperator");
+        commit.setDataChangeLastModifiedTime(lastModifiedTime);
+        return commit;
+    }
+}
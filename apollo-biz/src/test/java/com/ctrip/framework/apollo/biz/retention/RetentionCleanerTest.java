@@ -0,0 +1,185 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.biz.retention;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.Namespace;
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.repository.NamespaceRepository;
+import com.ctrip.framework.apollo.biz.service.AuditService;
+import com.ctrip.framework.apollo.biz.service.CommitService;
+import com.ctrip.framework.apollo.biz.service.InstanceService;
+import com.ctrip.framework.apollo.biz.service.ReleaseHistoryService;
+import com.ctrip.framework.apollo.biz.service.ReleaseMessageService;
+import com.ctrip.framework.apollo.biz.service.ReleaseService;
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Collections;
+import java.util.Date;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RetentionCleanerTest {
+    private static final int BATCH_SIZE = 2;
+
+    @Mock
+    private BizConfig bizConfig;
+    @Mock
+    private NamespaceRepository namespaceRepository;
+    @Mock
+    private ReleaseMessageService releaseMessageService;
+    @Mock
+    private ReleaseHistoryService releaseHistoryService;
+    @Mock
+    private CommitService commitService;
+    @Mock
+    private ReleaseService releaseService;
+    @Mock
+    private AuditService auditService;
+    @Mock
+    private InstanceService instanceService;
+    @InjectMocks
+    private RetentionCleaner retentionCleaner;
+
+    @Before
+    public void setUp() throws Exception {
+        when(bizConfig.retentionBatchSize()).thenReturn(BATCH_SIZE);
+        when(bizConfig.retentionDeletePermitsPerSecond()).thenReturn(Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testCleanReleaseMessages() throws Exception {
+        when(releaseMessageService.findReleaseMessagesAfter(0)).thenReturn(Lists.newArrayList(
+                assembleReleaseMessage(1, "someMessage"), assembleReleaseMessage(2, "anotherMessage"),
+                assembleReleaseMessage(3, "someMessage"), assembleReleaseMessage(4, "someMessage")));
+        when(releaseMessageService.findLatestReleaseMessagesGroupByMessages(
+                Lists.newArrayList("someMessage", "anotherMessage"))).thenReturn(Lists.newArrayList(
+                assembleReleaseMessage(5, "someMessage"), assembleReleaseMessage(2, "anotherMessage")));
+
+        retentionCleaner.clean();
+
+        //deleted in batches
+        verify(releaseMessageService, times(1)).batchDelete(Lists.newArrayList(1L, 3L));
+        verify(releaseMessageService, times(1)).batchDelete(Lists.newArrayList(4L));
+    }
+
+    @Test
+    public void testCleanNothingByDefault() throws Exception {
+        when(releaseMessageService.findReleaseMessagesAfter(0)).thenReturn(Collections.emptyList());
+
+        retentionCleaner.clean();
+
+        verify(releaseHistoryService, never()).deleteBefore(any(Date.class), anyInt());
+        verify(commitService, never()).deleteBefore(any(Date.class), anyInt());
+        verify(auditService, never()).deleteBefore(any(Date.class), anyInt());
+        verify(instanceService, never()).deleteInstanceConfigsBefore(any(Date.class), anyInt());
+        verify(namespaceRepository, never()).findFirst500ByIdGreaterThanOrderByIdAsc(anyLong());
+    }
+
+    @Test
+    public void testCleanBeforeRetentionDays() throws Exception {
+        when(bizConfig.auditRetentionDays()).thenReturn(30);
+        //until a batch is not full
+        when(auditService.deleteBefore(any(Date.class), eq(BATCH_SIZE))).thenReturn(BATCH_SIZE, BATCH_SIZE, 1);
+
+        retentionCleaner.clean();
+
+        verify(auditService, times(3)).deleteBefore(any(Date.class), eq(BATCH_SIZE));
+        verify(commitService, never()).deleteBefore(any(Date.class), anyInt());
+    }
+
+    @Test
+    public void testCleanBeyondRetentionSize() throws Exception {
+        when(bizConfig.releaseHistoryRetentionSize()).thenReturn(100);
+        when(namespaceRepository.findFirst500ByIdGreaterThanOrderByIdAsc(0)).thenReturn(Lists.newArrayList(
+                assembleNamespace(1, "someNamespace"), assembleNamespace(2, "anotherNamespace")));
+        when(releaseHistoryService.findIdBeyondRetention("someAppId", "default", "someNamespace", 100))
+                .thenReturn(10L);
+        when(releaseHistoryService.findIdBeyondRetention("someAppId", "default", "anotherNamespace", 100))
+                .thenReturn(null);
+        when(releaseHistoryService.deleteUpTo("someAppId", "default", "someNamespace", 10L, BATCH_SIZE))
+                .thenReturn(BATCH_SIZE, 0);
+
+        retentionCleaner.clean();
+
+        verify(releaseHistoryService, times(2)).deleteUpTo("someAppId", "default", "someNamespace", 10L,
+                BATCH_SIZE);
+        verify(releaseHistoryService, never()).deleteUpTo(eq("someAppId"), eq("default"), eq("anotherNamespace"),
+                anyLong(), anyInt());
+        verify(commitService, never()).findIdBeyondRetention(anyString(), anyString(), anyString(), anyInt());
+    }
+
+    @Test
+    public void testKeepCommitsSinceLatestRelease() throws Exception {
+        when(bizConfig.commitRetentionSize()).thenReturn(100);
+        when(namespaceRepository.findFirst500ByIdGreaterThanOrderByIdAsc(0)).thenReturn(Lists.newArrayList(
+                assembleNamespace(1, "someNamespace"), assembleNamespace(2, "anotherNamespace"),
+                assembleNamespace(3, "yetAnotherNamespace")));
+        when(commitService.findIdBeyondRetention(eq("someAppId"), eq("default"), anyString(), eq(100)))
+                .thenReturn(10L);
+        Release someRelease = new Release();
+        someRelease.setDataChangeCreatedTime(new Date());
+        //the commits since the release start from 6
+        when(releaseService.findLatestActiveRelease("someAppId", "default", "someNamespace")).thenReturn(someRelease);
+        when(commitService.findFirstIdSince("someAppId", "default", "someNamespace",
+                someRelease.getDataChangeCreatedTime())).thenReturn(6L);
+        //not released recently, the commits since the release start from 1
+        when(releaseService.findLatestActiveRelease("someAppId", "default", "anotherNamespace"))
+                .thenReturn(someRelease);
+        when(commitService.findFirstIdSince("someAppId", "default", "anotherNamespace",
+                someRelease.getDataChangeCreatedTime())).thenReturn(1L);
+        //never released
+        when(releaseService.findLatestActiveRelease("someAppId", "default", "yetAnotherNamespace"))
+                .thenReturn(null);
+
+        retentionCleaner.clean();
+
+        verify(commitService, times(1)).deleteUpTo("someAppId", "default", "someNamespace", 5L, BATCH_SIZE);
+        verify(commitService, never()).deleteUpTo(eq("someAppId"), eq("default"), eq("anotherNamespace"),
+                anyLong(), anyInt());
+        verify(commitService, never()).deleteUpTo(eq("someAppId"), eq("default"), eq("yetAnotherNamespace"),
+                anyLong(), anyInt());
+    }
+
+    private ReleaseMessage assembleReleaseMessage(long id, String message) {
+        ReleaseMessage releaseMessage = new ReleaseMessage(message);
+        releaseMessage.setId(id);
+        return releaseMessage;
+    }
+
+    private Namespace assembleNamespace(long id, String namespaceName) {
+        Namespace namespace = new Namespace("someAppId", "default", namespaceName);
+        namespace.setId(id);
+        return namespace;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.biz.search;
+
+import com.ctrip.framework.apollo.biz.entity.Commit;
+import com.ctrip.framework.apollo.biz.entity.Item;
+import com.ctrip.framework.apollo.biz.entity.Namespace;
+import com.ctrip.framework.apollo.biz.repository.CommitRepository;
+import com.ctrip.framework.apollo.biz.repository.ItemRepository;
+import com.ctrip.framework.apollo.biz.repository.NamespaceRepository;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ItemSearchIndexHolderTest {
+    private ItemSearchIndexHolder itemSearchIndexHolder;
+    @Mock
+    private NamespaceRepository namespaceRepository;
+    @Mock
+    private ItemRepository itemRepository;
+    @Mock
+    private CommitRepository commitRepository;
+
+    private String someAppId;
+    private String someClusterName;
+    private String someNamespaceName;
+
+    @Before
+    public void setUp() throws Exception {
+        itemSearchIndexHolder = new ItemSearchIndexHolder();
+        ReflectionTestUtils.setField(itemSearchIndexHolder, "namespaceRepository", namespaceRepository);
+        ReflectionTestUtils.setField(itemSearchIndexHolder, "itemRepository", itemRepository);
+        ReflectionTestUtils.setField(itemSearchIndexHolder, "commitRepository", commitRepository);
+
+        someAppId = "someAppId";
+        someClusterName = "default";
+        someNamespaceName = "application";
+    }
+
+    @Test
+    public void testScanCommitCommittedAfterHigherId() throws Exception {
+        long someNamespaceId = 1;
+        Namespace someNamespace = new Namespace(someAppId, someClusterName, someNamespaceName);
+        someNamespace.setId(someNamespaceId);
+        Commit lateCommit = assembleCommit(2, someNamespaceName);
+
+        ReflectionTestUtils.invokeMethod(itemSearchIndexHolder, "rebuildIndex");
+
+        //commit 2 is not committed yet when commit 3 is scanned
+        when(commitRepository.findFirst500ByIdGreaterThanOrderByIdAsc(0))
+                .thenReturn(Lists.newArrayList(assembleCommit(1, "anotherNamespace"), assembleCommit(3, "third")));
+        ReflectionTestUtils.invokeMethod(itemSearchIndexHolder, "scanCommits");
+
+        assertFalse(currentIndex().search("timeout", PageRequest.of(0, 10)).hasContent());
+
+        when(commitRepository.findAllById(Sets.newHashSet(2L))).thenReturn(Collections.singletonList(lateCommit));
+        when(namespaceRepository.findByAppIdAndClusterNameAndNamespaceName(someAppId, someClusterName,
+                someNamespaceName)).thenReturn(someNamespace);
+        when(itemRepository.findByNamespaceId(someNamespaceId))
+                .thenReturn(Lists.newArrayList(assembleItem("timeout", "100")));
+        ReflectionTestUtils.invokeMethod(itemSearchIndexHolder, "scanCommits");
+
+        assertEquals(Lists.newArrayList(someNamespaceId),
+                currentIndex().search("timeout", PageRequest.of(0, 10)).getContent());
+    }
+
+    private ItemSearchIndex currentIndex() {
+        return (ItemSearchIndex) ReflectionTestUtils.getField(itemSearchIndexHolder, "index");
+    }
+
+    private Commit assembleCommit(long id, String namespaceName) {
+        Commit commit = new Commit();
+        commit.setId(id);
+        commit.setAppId(someAppId);
+        commit.setClusterName(someClusterName);
+        commit.setNamespaceName(namespaceName);
+        return commit;
+    }
+
+    private Item assembleItem(String key, String value) {
+        Item item = new Item();
+        item.setKey(key);
+        item.setValue(value);
+        return item;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.biz.search;
+
+import com.ctrip.framework.apollo.biz.entity.Item;
+import com.ctrip.framework.apollo.biz.entity.Namespace;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ItemSearchIndexTest {
+    private ItemSearchIndex index;
+
+    @Before
+    public void setUp() throws Exception {
+        index = new ItemSearchIndex();
+        index.put(assembleNamespace(1, "someAppId", "application"),
+                Lists.newArrayList(assembleItem("timeout", "100"), assembleItem("db.url", "jdbc:mysql://someHost")));
+        index.put(assembleNamespace(2, "anotherAppId", "application"),
+                Lists.newArrayList(assembleItem("http.timeout.ms", "200")));
+        index.put(assembleNamespace(3, "someAppId", "timeout.settings"),
+                Lists.newArrayList(assembleItem("connect", "someHost")));
+        index.put(assembleNamespace(4, "thirdAppId", "application"),
+                Lists.newArrayList(assembleItem("retry", "TIMEOUT")));
+        index.put(assembleNamespace(5, "fourthAppId", "application"),
+                Lists.newArrayList(assembleItem("timeoutInMillis", "300")));
+    }
+
+    @Test
+    public void testSearchRanked() throws Exception {
+        Page<Long> result = index.search("Timeout", PageRequest.of(0, 10));
+
+        //exact key, exact value, prefix key, prefix namespace, substring key
+        assertEquals(Lists.newArrayList(1L, 4L, 5L, 3L, 2L), result.getContent());
+        assertEquals(5, result.getTotalElements());
+    }
+
+    @Test
+    public void testSearchPaged() throws Exception {
+        Page<Long> result = index.search("timeout", PageRequest.of(1, 2));
+
+        assertEquals(Lists.newArrayList(5L, 3L), result.getContent());
+        assertEquals(5, result.getTotalElements());
+        assertEquals(0, index.search("timeout", PageRequest.of(3, 2)).getNumberOfElements());
+    }
+
+    @Test
+    public void testSearchByValueAndAppId() throws Exception {
+        assertEquals(Lists.newArrayList(3L, 1L), index.search("someHost", PageRequest.of(0, 10)).getContent());
+        assertEquals(Lists.newArrayList(2L), index.search("anotherApp", PageRequest.of(0, 10)).getContent());
+    }
+
+    @Test
+    public void testShortQueryMatchesPrefixOnly() throws Exception {
+        assertEquals(Lists.newArrayList(1L), index.search("db", PageRequest.of(0, 10)).getContent());
+        assertFalse(index.search("ry", PageRequest.of(0, 10)).hasContent());
+        assertFalse(index.search(" ", PageRequest.of(0, 10)).hasContent());
+    }
+
+    @Test
+    public void testPutAndRemove() throws Exception {
+        index.put(assembleNamespace(1, "someAppId", "application"),
+                Lists.newArrayList(assembleItem("db.url", "jdbc:mysql://someHost")));
+
+        assertEquals(Lists.newArrayList(4L, 5L, 3L, 2L), index.search("timeout", PageRequest.of(0, 10)).getContent());
+
+        index.remove(4);
+        index.remove(5);
+
+        assertEquals(Lists.newArrayList(3L, 2L), index.search("timeout", PageRequest.of(0, 10)).getContent());
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    public void testLongValueNotIndexed() throws Exception {
+        String longValue = Strings.repeat("x", ItemSearchIndex.MAX_INDEXED_VALUE_LENGTH) + "needle";
+        index.put(assembleNamespace(6, "someAppId", "long"), Collections.singletonList(assembleItem("key", longValue)));
+
+        assertFalse(index.search("needle", PageRequest.of(0, 10)).hasContent());
+        assertTrue(index.search("long", PageRequest.of(0, 10)).getContent().contains(6L));
+    }
+
+    private Namespace assembleNamespace(long id, String appId, String namespaceName) {
+        Namespace namespace = new Namespace(appId, "default", namespaceName);
+        namespace.setId(id);
+        return namespace;
+    }
+
+    private Item assembleItem(String key, String value) {
+        Item item = new Item();
+        item.setKey(key);
+        item.setValue(value);
+        return item;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.biz.service;
+
+import com.ctrip.framework.apollo.biz.AbstractIntegrationTest;
+import com.ctrip.framework.apollo.biz.entity.Commit;
+import com.ctrip.framework.apollo.biz.repository.CommitRepository;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CommitServiceTest extends AbstractIntegrationTest {
+    @Autowired
+    private CommitService commitService;
+    @Autowired
+    private CommitRepository commitRepository;
+
+    @Test
+    @Sql(scripts = "/sql/clean.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    public void testFindByNamespacesSince() {
+        save("someNamespace", new Date(1000));
+        long someNewCommitId = save("someNamespace", new Date(3000));
+        save("anotherNamespace", new Date(3000));
+        long anotherNewCommitId = save("anotherNamespace", new Date(5000));
+        save("yetAnotherNamespace", new Date(5000));
+
+        List<Long> commitIds = commitService.findByNamespacesSince("someAppId", "default",
+                        ImmutableMap.of("someNamespace", new Date(2000), "anotherNamespace", new Date(4000)))
+                .stream().map(Commit::getId).collect(Collectors.toList());
+
+        assertEquals(Lists.newArrayList(anotherNewCommitId, someNewCommitId), commitIds);
+        assertTrue(commitService.findByNamespacesSince("someAppId", "default", Collections.emptyMap()).isEmpty());
+    }
+
+    private long save(String namespaceName, Date lastModifiedTime) {
+        Commit commit = new Commit();
+        commit.setAppId("someAppId");
+        commit.setClusterName("default");
+        commit.setNamespaceName(namespaceName);
+        commit.setChangeSets("{}");
+        commit.setDataChangeCreatedBy("someOperator");
+        commit.setDataChangeLastModifiedTime(lastModifiedTime);
+        return commitRepository.save(commit).getId();
+    }
+}
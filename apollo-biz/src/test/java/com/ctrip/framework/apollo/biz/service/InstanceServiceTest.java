@@ -18,10 +18,12 @@ package com.ctrip.framework.apollo.biz.service;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.collect.Table;
 
 import com.ctrip.framework.apollo.biz.AbstractIntegrationTest;
 import com.ctrip.framework.apollo.biz.entity.Instance;
 import com.ctrip.framework.apollo.biz.entity.InstanceConfig;
+import com.ctrip.framework.apollo.biz.utils.ReleaseMessageKeyGenerator;
 
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -126,6 +128,70 @@ public class InstanceServiceTest extends AbstractIntegrationTest {
         assertEquals(anotherReleaseKey, updated.getReleaseKey());
     }
 
+    @Test
+    @Rollback
+    public void testBatchSaveAndFindInstanceConfigs() throws Exception {
+        long someInstanceId = 1;
+        long anotherInstanceId = 2;
+        String someConfigAppId = "someConfigAppId";
+        String someConfigClusterName = "someConfigClusterName";
+        String someConfigNamespaceName = "someConfigNamespaceName";
+        String someReleaseKey = "someReleaseKey";
+        String anotherReleaseKey = "anotherReleaseKey";
+
+        InstanceConfig someInstanceConfig = instanceService.createInstanceConfig(assembleInstanceConfig(
+                someInstanceId, someConfigAppId, someConfigClusterName, someConfigNamespaceName, someReleaseKey));
+
+        InstanceConfig toUpdate = assembleInstanceConfig(someInstanceId, someConfigAppId, someConfigClusterName,
+                someConfigNamespaceName, anotherReleaseKey);
+        toUpdate.setId(someInstanceConfig.getId());
+        InstanceConfig toCreate = assembleInstanceConfig(anotherInstanceId, someConfigAppId,
+                someConfigClusterName, someConfigNamespaceName, someReleaseKey);
+
+        instanceService.batchSaveInstanceConfigs(Lists.newArrayList(toUpdate, toCreate));
+
+        List<InstanceConfig> instanceConfigs = instanceService.findInstanceConfigs(
+                Sets.newHashSet(someInstanceId, anotherInstanceId));
+
+        assertEquals(2, instanceConfigs.size());
+        assertEquals(anotherReleaseKey, instanceService.findInstanceConfig(someInstanceId, someConfigAppId,
+                someConfigNamespaceName).getReleaseKey());
+        assertEquals(someReleaseKey, instanceService.findInstanceConfig(anotherInstanceId, someConfigAppId,
+                someConfigNamespaceName).getReleaseKey());
+    }
+
+    @Test
+    @Rollback
+    public void testCountActiveInstanceConfigs() throws Exception {
+        String someConfigAppId = "countedConfigAppId";
+        String someConfigClusterName = "someConfigClusterName";
+        String someConfigNamespaceName = "someConfigNamespaceName";
+        String someReleaseKey = "countedReleaseKey";
+        String anotherReleaseKey = "anotherCountedReleaseKey";
+        Date someValidDate = new Date();
+
+        Calendar calendar = Calendar.getInstance();
+        calendar.add(Calendar.DATE, -2);
+        Date someInvalidDate = calendar.getTime();
+
+        prepareInstanceConfigForInstance(1, someConfigAppId, someConfigClusterName, someConfigNamespaceName,
+                someReleaseKey, someValidDate);
+        prepareInstanceConfigForInstance(2, someConfigAppId, someConfigClusterName, someConfigNamespaceName,
+                someReleaseKey, someValidDate);
+        prepareInstanceConfigForInstance(3, someConfigAppId, someConfigClusterName, someConfigNamespaceName,
+                anotherReleaseKey, someValidDate);
+        prepareInstanceConfigForInstance(4, someConfigAppId, someConfigClusterName, someConfigNamespaceName,
+                anotherReleaseKey, someInvalidDate);
+
+        Table<String, String, Long> counts = instanceService.countActiveInstanceConfigs();
+        String namespaceKey = ReleaseMessageKeyGenerator.generate(someConfigAppId, someConfigClusterName,
+                someConfigNamespaceName);
+
+        assertEquals(2, counts.row(namespaceKey).size());
+        assertEquals(2L, (long) counts.get(namespaceKey, someReleaseKey));
+        assertEquals(1L, (long) counts.get(namespaceKey, anotherReleaseKey));
+    }
+
     @Test
     @Rollback
     public void testFindActiveInstanceConfigs() throws Exception {
@@ -18,16 +18,26 @@ package com.ctrip.framework.apollo.biz.service;
 
 import com.ctrip.framework.apollo.biz.AbstractIntegrationTest;
 import com.ctrip.framework.apollo.biz.entity.Item;
+import com.ctrip.framework.apollo.biz.entity.Namespace;
+import com.ctrip.framework.apollo.biz.repository.ItemRepository;
+import com.ctrip.framework.apollo.biz.repository.NamespaceRepository;
 import com.ctrip.framework.apollo.common.exception.BadRequestException;
 import org.junit.Assert;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.jdbc.Sql;
 
+import java.util.Date;
+import java.util.Map;
+
 public class ItemServiceTest extends AbstractIntegrationTest {
 
     @Autowired
     private ItemService itemService;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private NamespaceRepository namespaceRepository;
 
     @Test
     @Sql(scripts = "/sql/item-test.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
@@ -71,4 +81,35 @@ public class ItemServiceTest extends AbstractIntegrationTest {
         Assert.assertEquals("v1-new", dbItem.getValue());
     }
 
+    @Test
+    @Sql(scripts = "/sql/clean.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    public void testFindItemStamps() {
+        Namespace namespace = new Namespace("someAppId", "default", "someNamespace");
+        namespace.setDataChangeCreatedBy("someOperator");
+        namespace = namespaceRepository.save(namespace);
+        Item someItem = assembleItem(namespace.getId(), "k1", new Date(1000));
+        Item anotherItem = assembleItem(namespace.getId(), "k2", new Date(2000));
+        itemRepository.save(someItem);
+        itemRepository.save(anotherItem);
+
+        Map<String, long[]> stamps = itemService.findItemStamps("someAppId", "default");
+        Assert.assertEquals(1, stamps.size());
+        Assert.assertArrayEquals(new long[]{2, 2000}, stamps.get("someNamespace"));
+
+        //deleted items are not counted
+        anotherItem.setDeleted(true);
+        itemRepository.save(anotherItem);
+        Assert.assertEquals(1, itemService.findItemStamps("someAppId", "default").get("someNamespace")[0]);
+    }
+
+    private Item assembleItem(long namespaceId, String key, Date lastModifiedTime) {
+        Item item = new Item();
+        item.setNamespaceId(namespaceId);
+        item.setKey(key);
+        item.setValue("someValue");
+        item.setDataChangeCreatedBy("someOperator");
+        item.setDataChangeLastModifiedTime(lastModifiedTime);
+        return item;
+    }
+
 }
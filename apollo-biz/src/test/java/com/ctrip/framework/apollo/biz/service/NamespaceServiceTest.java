@@ -20,9 +20,12 @@ import com.ctrip.framework.apollo.biz.AbstractUnitTest;
 import com.ctrip.framework.apollo.biz.MockBeanFactory;
 import com.ctrip.framework.apollo.biz.entity.Namespace;
 import com.ctrip.framework.apollo.biz.repository.NamespaceRepository;
+import com.ctrip.framework.apollo.common.dto.NamespaceVersionDTO;
 import com.ctrip.framework.apollo.common.entity.AppNamespace;
 import com.ctrip.framework.apollo.common.exception.BadRequestException;
 import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
 
 import org.junit.Test;
 import org.mockito.InjectMocks;
@@ -33,8 +36,10 @@ import org.springframework.data.domain.Pageable;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.when;
 
@@ -44,6 +49,12 @@ public class NamespaceServiceTest extends AbstractUnitTest {
     private AppNamespaceService appNamespaceService;
     @Mock
     private NamespaceRepository namespaceRepository;
+    @Mock
+    private ReleaseService releaseService;
+    @Mock
+    private CommitService commitService;
+    @Mock
+    private ItemService itemService;
 
     @Spy
     @InjectMocks
@@ -85,4 +96,45 @@ public class NamespaceServiceTest extends AbstractUnitTest {
         assertEquals(2, namespaces.size());
     }
 
+    @Test
+    public void testFindNamespaceVersions() throws Exception {
+        String someAppId = "someAppId";
+        String someClusterName = "someClusterName";
+        Map<String, Long> releaseIds = ImmutableMap.of("application", 10L, "released", 20L);
+        Map<String, Long> commitIds = ImmutableMap.of("application", 100L, "committed", 200L);
+        long someLastModifiedTime = System.currentTimeMillis() - 60000;
+        Map<String, long[]> itemStamps = ImmutableMap.of("application", new long[]{2, System.currentTimeMillis()},
+                "itemsOnly", new long[]{3, someLastModifiedTime});
+
+        when(releaseService.findLatestActiveReleaseIds(someAppId, someClusterName)).thenReturn(releaseIds);
+        when(commitService.findLatestCommitIds(someAppId, someClusterName)).thenReturn(commitIds);
+        when(itemService.findItemStamps(someAppId, someClusterName)).thenReturn(itemStamps);
+
+        Map<String, NamespaceVersionDTO> versions = Maps.newHashMap();
+        for (NamespaceVersionDTO version : namespaceService.findNamespaceVersions(someAppId, someClusterName)) {
+            versions.put(version.getNamespaceName(), version);
+        }
+
+        assertEquals(4, versions.size());
+        assertEquals(10L, versions.get("application").getLatestReleaseId());
+        assertEquals(100L, versions.get("application").getLatestCommitId());
+        assertEquals(2L, versions.get("application").getItemCount());
+        assertEquals(20L, versions.get("released").getLatestReleaseId());
+        assertEquals(0L, versions.get("released").getLatestCommitId());
+        assertEquals(0L, versions.get("committed").getLatestReleaseId());
+        assertEquals(200L, versions.get("committed").getLatestCommitId());
+        assertEquals(0L, versions.get("committed").getItemCount());
+        assertEquals(3L, versions.get("itemsOnly").getItemCount());
+        assertEquals(someLastModifiedTime, versions.get("itemsOnly").getItemsLastModifiedTime());
+
+        //the version of the items changed just now is different on each load
+        Thread.sleep(5);
+        for (NamespaceVersionDTO version : namespaceService.findNamespaceVersions(someAppId, someClusterName)) {
+            if (version.getNamespaceName().equals("application")) {
+                assertNotEquals(versions.get("application").getItemsLastModifiedTime(),
+                        version.getItemsLastModifiedTime());
+            }
+        }
+    }
+
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.biz.statistics;
+
+import com.ctrip.framework.apollo.biz.service.InstanceService;
+import com.ctrip.framework.apollo.biz.utils.ReleaseMessageKeyGenerator;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Table;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class InstanceStatisticsHolderTest {
+    @Mock
+    private InstanceService instanceService;
+    @InjectMocks
+    private InstanceStatisticsHolder instanceStatisticsHolder;
+
+    @Test
+    public void testRefresh() throws Exception {
+        Table<String, String, Long> counts = HashBasedTable.create();
+        counts.put(ReleaseMessageKeyGenerator.generate("someAppId", "default", "application"), "someReleaseKey", 2L);
+        counts.put(ReleaseMessageKeyGenerator.generate("someAppId", "default", "application"), "anotherReleaseKey",
+                3L);
+        counts.put(ReleaseMessageKeyGenerator.generate("someAppId", "someCluster", "application"), "thirdReleaseKey",
+                1L);
+        when(instanceService.countActiveInstanceConfigs()).thenReturn(counts);
+
+        assertFalse(instanceStatisticsHolder.isReady());
+
+        instanceStatisticsHolder.refresh();
+
+        assertTrue(instanceStatisticsHolder.isReady());
+        assertEquals(5, instanceStatisticsHolder.getInstanceCountByNamespace("someAppId", "default", "application"));
+        assertEquals(1, instanceStatisticsHolder.getInstanceCountByNamespace("someAppId", "someCluster",
+                "application"));
+        assertEquals(0, instanceStatisticsHolder.getInstanceCountByNamespace("someAppId", "default", "unknown"));
+        assertEquals(3, instanceStatisticsHolder.getInstanceCountByReleaseKey("anotherReleaseKey"));
+        assertEquals(0, instanceStatisticsHolder.getInstanceCountByReleaseKey("unknownReleaseKey"));
+    }
+
+    @Test
+    public void testRefreshFailedKeepsPreviousCounts() throws Exception {
+        Table<String, String, Long> counts = HashBasedTable.create();
+        counts.put(ReleaseMessageKeyGenerator.generate("someAppId", "default", "application"), "someReleaseKey", 2L);
+        when(instanceService.countActiveInstanceConfigs()).thenReturn(counts)
+                .thenThrow(new RuntimeException("some exception"));
+
+        instanceStatisticsHolder.refresh();
+        instanceStatisticsHolder.refresh();
+
+        assertEquals(2, instanceStatisticsHolder.getInstanceCountByNamespace("someAppId", "default", "application"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNotReady() throws Exception {
+        instanceStatisticsHolder.getInstanceCountByReleaseKey("someReleaseKey");
+    }
+}
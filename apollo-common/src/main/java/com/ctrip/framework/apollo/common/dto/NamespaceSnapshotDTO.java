@@ -0,0 +1,65 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.common.dto;
+
+import java.util.List;
+
+/**
+ * A namespace with its items, latest active release and the items deleted since the release, to render the namespace
+ * without further requests
+ */
+public class NamespaceSnapshotDTO {
+
+    private NamespaceDTO namespace;
+    //null if never released
+    private ReleaseDTO latestRelease;
+    private List<ItemDTO> items;
+    //null if not requested
+    private List<ItemDTO> deletedItems;
+
+    public NamespaceDTO getNamespace() {
+        return namespace;
+    }
+
+    public void setNamespace(NamespaceDTO namespace) {
+        this.namespace = namespace;
+    }
+
+    public ReleaseDTO getLatestRelease() {
+        return latestRelease;
+    }
+
+    public void setLatestRelease(ReleaseDTO latestRelease) {
+        this.latestRelease = latestRelease;
+    }
+
+    public List<ItemDTO> getItems() {
+        return items;
+    }
+
+    public void setItems(List<ItemDTO> items) {
+        this.items = items;
+    }
+
+    public List<ItemDTO> getDeletedItems() {
+        return deletedItems;
+    }
+
+    public void setDeletedItems(List<ItemDTO> deletedItems) {
+        this.deletedItems = deletedItems;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.common.dto;
+
+/**
+ * The ids of the latest active release and the latest commit of a namespace, and the count and latest modified time
+ * of its items, either changes when the namespace is released or its items are modified, including the changes
+ * without commit, e.g. of the comments or the order
+ */
+public class NamespaceVersionDTO {
+
+    private String namespaceName;
+    private long latestReleaseId;
+    private long latestCommitId;
+    private long itemCount;
+    private long itemsLastModifiedTime;
+
+    public NamespaceVersionDTO() {
+    }
+
+    public NamespaceVersionDTO(String namespaceName, long latestReleaseId, long latestCommitId, long itemCount,
+                               long itemsLastModifiedTime) {
+        this.namespaceName = namespaceName;
+        this.latestReleaseId = latestReleaseId;
+        this.latestCommitId = latestCommitId;
+        this.itemCount = itemCount;
+        this.itemsLastModifiedTime = itemsLastModifiedTime;
+    }
+
+    public String getNamespaceName() {
+        return namespaceName;
+    }
+
+    public void setNamespaceName(String namespaceName) {
+        this.namespaceName = namespaceName;
+    }
+
+    public long getLatestReleaseId() {
+        return latestReleaseId;
+    }
+
+    public void setLatestReleaseId(long latestReleaseId) {
+        this.latestReleaseId = latestReleaseId;
+    }
+
+    public long getLatestCommitId() {
+        return latestCommitId;
+    }
+
+    public void setLatestCommitId(long latestCommitId) {
+        this.latestCommitId = latestCommitId;
+    }
+
+    public long getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(long itemCount) {
+        this.itemCount = itemCount;
+    }
+
+    public long getItemsLastModifiedTime() {
+        return itemsLastModifiedTime;
+    }
+
+    public void setItemsLastModifiedTime(long itemsLastModifiedTime) {
+        this.itemsLastModifiedTime = itemsLastModifiedTime;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.common.utils;
+
+import com.ctrip.framework.apollo.common.exception.BeanUtilsException;
+
+import org.springframework.beans.FatalBeanException;
+import org.springframework.core.ResolvableType;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Copies the non null properties of a source class to a new instance of a target class, the same as
+ * {@link org.springframework.beans.BeanUtils#copyProperties} with the null properties ignored.
+ * <p>
+ * The property pairs and their method handles are resolved once per class pair, so copying an object does not
+ * introspect the classes again.
+ */
+final class BeanCopier {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    //source class -> target class -> copier
+    private static final ConcurrentMap<Class<?>, ConcurrentMap<Class<?>, BeanCopier>> COPIERS =
+            new ConcurrentHashMap<>();
+
+    private final MethodHandle constructor;
+    private final Exception constructorException;
+    private final PropertyCopier[] propertyCopiers;
+
+    private BeanCopier(Class<?> sourceClass, Class<?> targetClass) {
+        MethodHandle constructor = null;
+        Exception constructorException = null;
+        try {
+            Constructor<?> defaultConstructor = targetClass.getDeclaredConstructor();
+            ReflectionUtils.makeAccessible(defaultConstructor);
+            constructor = LOOKUP.unreflectConstructor(defaultConstructor).asType(CONSTRUCTOR_TYPE);
+        } catch (Exception e) {
+            //fail on copy, the same as Class.newInstance
+            constructorException = e;
+        }
+        this.constructor = constructor;
+        this.constructorException = constructorException;
+        this.propertyCopiers = resolvePropertyCopiers(sourceClass, targetClass);
+    }
+
+    static BeanCopier of(Class<?> sourceClass, Class<?> targetClass) {
+        return COPIERS.computeIfAbsent(sourceClass, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(targetClass, k -> new BeanCopier(sourceClass, targetClass));
+    }
+
+    Object copy(Object source) {
+        Object target = newInstance();
+        for (PropertyCopier propertyCopier : propertyCopiers) {
+            propertyCopier.copy(source, target);
+        }
+        return target;
+    }
+
+    private Object newInstance() {
+        if (constructor == null) {
+            throw new BeanUtilsException(constructorException);
+        }
+        try {
+            return (Object) constructor.invokeExact();
+        } catch (Throwable ex) {
+            throw new BeanUtilsException(ex);
+        }
+    }
+
+    /**
+     * The same property pairs as {@link org.springframework.beans.BeanUtils#copyProperties} would copy
+     */
+    private static PropertyCopier[] resolvePropertyCopiers(Class<?> sourceClass, Class<?> targetClass) {
+        List<PropertyCopier> propertyCopiers = new ArrayList<>();
+        for (PropertyDescriptor targetPd : org.springframework.beans.BeanUtils.getPropertyDescriptors(targetClass)) {
+            Method writeMethod = targetPd.getWriteMethod();
+            if (writeMethod == null) {
+                continue;
+            }
+            PropertyDescriptor sourcePd =
+                    org.springframework.beans.BeanUtils.getPropertyDescriptor(sourceClass, targetPd.getName());
+            if (sourcePd == null || sourcePd.getReadMethod() == null) {
+                continue;
+            }
+            Method readMethod = sourcePd.getReadMethod();
+            if (!isAssignable(readMethod, writeMethod)) {
+                continue;
+            }
+            try {
+                ReflectionUtils.makeAccessible(readMethod);
+                ReflectionUtils.makeAccessible(writeMethod);
+                propertyCopiers.add(new PropertyCopier(targetPd.getName(),
+                        LOOKUP.unreflect(readMethod).asType(GETTER_TYPE),
+                        LOOKUP.unreflect(writeMethod).asType(SETTER_TYPE)));
+            } catch (IllegalAccessException ex) {
+                throw new FatalBeanException(
+                        "Could not access property '" + targetPd.getName() + "' from source to target", ex);
+            }
+        }
+        return propertyCopiers.toArray(new PropertyCopier[0]);
+    }
+
+    private static boolean isAssignable(Method readMethod, Method writeMethod) {
+        ResolvableType sourceType = ResolvableType.forMethodReturnType(readMethod);
+        ResolvableType targetType = ResolvableType.forMethodParameter(writeMethod, 0);
+        if (sourceType.hasUnresolvableGenerics() || targetType.hasUnresolvableGenerics()) {
+            return ClassUtils.isAssignable(writeMethod.getParameterTypes()[0], readMethod.getReturnType());
+        }
+        return targetType.isAssignableFrom(sourceType);
+    }
+
+    private static final class PropertyCopier {
+        private final String name;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        PropertyCopier(String name, MethodHandle getter, MethodHandle setter) {
+            this.name = name;
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        void copy(Object source, Object target) {
+            try {
+                Object value = (Object) getter.invokeExact(source);
+                if (value != null) {
+                    setter.invokeExact(target, value);
+                }
+            } catch (Throwable ex) {
+                throw new FatalBeanException("Could not copy property '" + name + "' from source to target", ex);
+            }
+        }
+    }
+}
@@ -18,11 +18,11 @@ package com.ctrip.framework.apollo.common.utils;
 
 import com.ctrip.framework.apollo.common.exception.BeanUtilsException;
 
-import org.springframework.beans.BeanWrapper;
-import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.util.CollectionUtils;
 
-import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -30,7 +30,10 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 
 public class BeanUtils {
@@ -60,34 +63,18 @@ public class BeanUtils {
      *      UserBean userBean = new UserBean("username");
      *      return BeanUtil.transform(UserDTO.class, userBean);
      * </pre>
+     * <p>
+     * The null properties of the source are not copied. The property mappings are resolved once per class pair, see
+     * {@link BeanCopier}.
      */
     public static <T> T transform(Class<T> clazz, Object src) {
         if (src == null) {
             return null;
         }
-        T instance;
-        try {
-            instance = clazz.newInstance();
-        } catch (Exception e) {
-            throw new BeanUtilsException(e);
-        }
-        org.springframework.beans.BeanUtils.copyProperties(src, instance, getNullPropertyNames(src));
-        return instance;
-    }
-
-    private static String[] getNullPropertyNames(Object source) {
-        final BeanWrapper src = new BeanWrapperImpl(source);
-        PropertyDescriptor[] pds = src.getPropertyDescriptors();
-
-        Set<String> emptyNames = new HashSet<>();
-        for (PropertyDescriptor pd : pds) {
-            Object srcValue = src.getPropertyValue(pd.getName());
-            if (srcValue == null) {
-                emptyNames.add(pd.getName());
-            }
+        if (clazz == null) {
+            throw new BeanUtilsException(new IllegalArgumentException("Target class must not be null"));
         }
-        String[] result = new String[emptyNames.size()];
-        return emptyNames.toArray(result);
+        return clazz.cast(BeanCopier.of(src.getClass(), clazz).copy(src));
     }
 
     /**
@@ -107,14 +94,12 @@ public class BeanUtils {
             return map;
         }
         try {
-            Class<?> clazz = list.get(0).getClass();
-            Field field = deepFindField(clazz, key);
-            if (field == null) {
+            FieldAccessor accessor = findFieldAccessor(list.get(0).getClass(), key);
+            if (accessor == null) {
                 throw new IllegalArgumentException("Could not find the key");
             }
-            field.setAccessible(true);
             for (Object o : list) {
-                map.put((K) field.get(o), (V) o);
+                map.put((K) accessor.get(o), (V) o);
             }
         } catch (Exception e) {
             throw new BeanUtilsException(e);
@@ -137,14 +122,12 @@ public class BeanUtils {
             return map;
         }
         try {
-            Class<?> clazz = list.get(0).getClass();
-            Field field = deepFindField(clazz, key);
-            if (field == null) {
+            FieldAccessor accessor = findFieldAccessor(list.get(0).getClass(), key);
+            if (accessor == null) {
                 throw new IllegalArgumentException("Could not find the key");
             }
-            field.setAccessible(true);
             for (Object o : list) {
-                K k = (K) field.get(o);
+                K k = (K) accessor.get(o);
                 map.computeIfAbsent(k, k1 -> new ArrayList<>());
                 map.get(k).add((V) o);
             }
@@ -169,14 +152,12 @@ public class BeanUtils {
             return set;
         }
         try {
-            Class<?> clazz = list.get(0).getClass();
-            Field field = deepFindField(clazz, key);
-            if (field == null) {
+            FieldAccessor accessor = findFieldAccessor(list.get(0).getClass(), key);
+            if (accessor == null) {
                 throw new IllegalArgumentException("Could not find the key");
             }
-            field.setAccessible(true);
             for (Object o : list) {
-                set.add((K) field.get(o));
+                set.add((K) accessor.get(o));
             }
         } catch (Exception e) {
             throw new BeanUtilsException(e);
@@ -185,6 +166,15 @@ public class BeanUtils {
     }
 
 
+    private static FieldAccessor findFieldAccessor(Class<?> clazz, String key) {
+        if (key == null) {
+            return null;
+        }
+        return FIELD_ACCESSORS.computeIfAbsent(clazz, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(key, k -> Optional.ofNullable(deepFindField(clazz, key)).map(FieldAccessor::of))
+                .orElse(null);
+    }
+
     private static Field deepFindField(Class<?> clazz, String key) {
         Field field = null;
         while (!clazz.getName().equals(Object.class.getName())) {
@@ -205,10 +195,9 @@ public class BeanUtils {
      */
     public static Object getProperty(Object obj, String fieldName) {
         try {
-            Field field = deepFindField(obj.getClass(), fieldName);
-            if (field != null) {
-                field.setAccessible(true);
-                return field.get(obj);
+            FieldAccessor accessor = findFieldAccessor(obj.getClass(), fieldName);
+            if (accessor != null) {
+                return accessor.get(obj);
             }
         } catch (Exception e) {
             throw new BeanUtilsException(e);
@@ -221,10 +210,9 @@ public class BeanUtils {
      */
     public static void setProperty(Object obj, String fieldName, Object value) {
         try {
-            Field field = deepFindField(obj.getClass(), fieldName);
-            if (field != null) {
-                field.setAccessible(true);
-                field.set(obj, value);
+            FieldAccessor accessor = findFieldAccessor(obj.getClass(), fieldName);
+            if (accessor != null) {
+                accessor.set(obj, value);
             }
         } catch (Exception e) {
             throw new BeanUtilsException(e);
@@ -250,4 +238,43 @@ public class BeanUtils {
     }
 
     private static final String[] COPY_IGNORED_PROPERTIES = {"id", "dataChangeCreatedBy", "dataChangeCreatedTime", "dataChangeLastModifiedTime"};
+
+    //class -> field name -> accessor of the field, empty if the field does not exist
+    private static final ConcurrentMap<Class<?>, ConcurrentMap<String, Optional<FieldAccessor>>> FIELD_ACCESSORS =
+            new ConcurrentHashMap<>();
+
+    private static final class FieldAccessor {
+        private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+        private final Field field;
+        private final MethodHandle getter;
+
+        private FieldAccessor(Field field, MethodHandle getter) {
+            this.field = field;
+            this.getter = getter;
+        }
+
+        static FieldAccessor of(Field field) {
+            field.setAccessible(true);
+            try {
+                return new FieldAccessor(field, MethodHandles.lookup().unreflectGetter(field).asType(GETTER_TYPE));
+            } catch (IllegalAccessException e) {
+                throw new BeanUtilsException(e);
+            }
+        }
+
+        Object get(Object obj) {
+            try {
+                return (Object) getter.invokeExact(obj);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new BeanUtilsException(e);
+            }
+        }
+
+        void set(Object obj, Object value) throws IllegalAccessException {
+            field.set(obj, value);
+        }
+    }
 }
@@ -14,10 +14,13 @@
  */
 package com.ctrip.framework.apollo.common.utils;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.Before;
@@ -125,4 +128,122 @@ public class BeanUtilsTest {
         assertNull(BeanUtils.getProperty(new KeyClass(), "keys"));
     }
 
+    @Test
+    public void testTransform() {
+        SourceBean source = new SourceBean();
+        source.setName("someName");
+        source.setCount(10);
+        source.setValues(Collections.singletonList(1));
+
+        TargetBean target = BeanUtils.transform(TargetBean.class, source);
+
+        assertEquals("someName", target.getName());
+        assertEquals(Integer.valueOf(10), target.getCount());
+        //the null properties are not copied
+        assertEquals("defaultComment", target.getComment());
+        //the properties of incompatible generic types are not copied
+        assertNull(target.getValues());
+    }
+
+    @Test
+    public void testTransformCachesCopier() {
+        assertSame(BeanCopier.of(SourceBean.class, TargetBean.class), BeanCopier.of(SourceBean.class, TargetBean.class));
+    }
+
+    @Test
+    public void testBatchTransformLargeList() {
+        List<SourceBean> sources = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            SourceBean source = new SourceBean();
+            source.setName("someName" + i);
+            source.setCount(i);
+            sources.add(source);
+        }
+
+        List<TargetBean> targets = BeanUtils.batchTransform(TargetBean.class, sources);
+
+        assertEquals(sources.size(), targets.size());
+        for (int i = 0; i < targets.size(); i++) {
+            assertEquals("someName" + i, targets.get(i).getName());
+            assertEquals(Integer.valueOf(i), targets.get(i).getCount());
+        }
+    }
+
+    public static class SourceBean {
+        private String name;
+        private int count;
+        private String comment;
+        private List<Integer> values;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public String getComment() {
+            return comment;
+        }
+
+        public void setComment(String comment) {
+            this.comment = comment;
+        }
+
+        public List<Integer> getValues() {
+            return values;
+        }
+
+        public void setValues(List<Integer> values) {
+            this.values = values;
+        }
+    }
+
+    public static class TargetBean {
+        private String name;
+        private Integer count;
+        private String comment = "defaultComment";
+        private List<String> values;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Integer getCount() {
+            return count;
+        }
+
+        public void setCount(Integer count) {
+            this.count = count;
+        }
+
+        public String getComment() {
+            return comment;
+        }
+
+        public void setComment(String comment) {
+            this.comment = comment;
+        }
+
+        public List<String> getValues() {
+            return values;
+        }
+
+        public void setValues(List<String> values) {
+            this.values = values;
+        }
+    }
 }
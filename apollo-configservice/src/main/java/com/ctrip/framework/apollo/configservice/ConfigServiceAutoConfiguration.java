@@ -23,11 +23,16 @@ import com.ctrip.framework.apollo.configservice.controller.ConfigFileController;
 import com.ctrip.framework.apollo.configservice.controller.NotificationController;
 import com.ctrip.framework.apollo.configservice.controller.NotificationControllerV2;
 import com.ctrip.framework.apollo.configservice.filter.ClientAuthenticationFilter;
+import com.ctrip.framework.apollo.configservice.service.ConfigResponseCache;
+import com.ctrip.framework.apollo.configservice.service.ReleaseKeyIndex;
 import com.ctrip.framework.apollo.configservice.service.ReleaseMessageServiceWithCache;
+import com.ctrip.framework.apollo.configservice.service.ReleaseMessageStreamClient;
 import com.ctrip.framework.apollo.configservice.service.config.ConfigService;
 import com.ctrip.framework.apollo.configservice.service.config.ConfigServiceWithCache;
+import com.ctrip.framework.apollo.configservice.service.config.ConfigServiceWithPreload;
 import com.ctrip.framework.apollo.configservice.service.config.DefaultConfigService;
 import com.ctrip.framework.apollo.configservice.util.AccessKeyUtil;
+import com.ctrip.framework.apollo.metaservice.service.DiscoveryService;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -52,6 +57,9 @@ public class ConfigServiceAutoConfiguration {
 
     @Bean
     public ConfigService configService() {
+        if (bizConfig.isConfigServicePreloadEnabled()) {
+            return new ConfigServiceWithPreload();
+        }
         if (bizConfig.isConfigServiceCacheEnabled()) {
             return new ConfigServiceWithCache();
         }
@@ -83,6 +91,8 @@ public class ConfigServiceAutoConfiguration {
         private final GrayReleaseRulesHolder grayReleaseRulesHolder;
         private final ReleaseMessageServiceWithCache releaseMessageServiceWithCache;
         private final ConfigService configService;
+        private final ConfigResponseCache configResponseCache;
+        private final ReleaseKeyIndex releaseKeyIndex;
 
         public MessageScannerConfiguration(
                 final NotificationController notificationController,
@@ -90,13 +100,17 @@ public class ConfigServiceAutoConfiguration {
                 final NotificationControllerV2 notificationControllerV2,
                 final GrayReleaseRulesHolder grayReleaseRulesHolder,
                 final ReleaseMessageServiceWithCache releaseMessageServiceWithCache,
-                final ConfigService configService) {
+                final ConfigService configService,
+                final ConfigResponseCache configResponseCache,
+                final ReleaseKeyIndex releaseKeyIndex) {
             this.notificationController = notificationController;
             this.configFileController = configFileController;
             this.notificationControllerV2 = notificationControllerV2;
             this.grayReleaseRulesHolder = grayReleaseRulesHolder;
             this.releaseMessageServiceWithCache = releaseMessageServiceWithCache;
             this.configService = configService;
+            this.configResponseCache = configResponseCache;
+            this.releaseKeyIndex = releaseKeyIndex;
         }
 
         @Bean
@@ -108,12 +122,22 @@ public class ConfigServiceAutoConfiguration {
             releaseMessageScanner.addMessageListener(grayReleaseRulesHolder);
             //2. handle server cache
             releaseMessageScanner.addMessageListener(configService);
+            releaseMessageScanner.addMessageListener(configResponseCache);
+            releaseMessageScanner.addMessageListener(releaseKeyIndex);
             releaseMessageScanner.addMessageListener(configFileController);
             //3. notify clients
             releaseMessageScanner.addMessageListener(notificationControllerV2);
             releaseMessageScanner.addMessageListener(notificationController);
             return releaseMessageScanner;
         }
+
+        @Bean
+        public ReleaseMessageStreamClient releaseMessageStreamClient(
+                final ReleaseMessageScanner releaseMessageScanner,
+                final DiscoveryService discoveryService,
+                final BizConfig bizConfig) {
+            return new ReleaseMessageStreamClient(releaseMessageScanner, discoveryService, bizConfig);
+        }
     }
 
 }
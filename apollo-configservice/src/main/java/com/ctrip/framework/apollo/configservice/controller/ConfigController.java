@@ -20,25 +20,38 @@ import com.ctrip.framework.apollo.biz.entity.Release;
 import com.ctrip.framework.apollo.common.entity.AppNamespace;
 import com.ctrip.framework.apollo.common.utils.WebUtils;
 import com.ctrip.framework.apollo.configservice.service.AppNamespaceServiceWithCache;
+import com.ctrip.framework.apollo.configservice.service.ConfigResponseCache;
+import com.ctrip.framework.apollo.configservice.service.ConfigResponseCache.CachedResponse;
+import com.ctrip.framework.apollo.configservice.service.ReleaseKeyIndex;
+import com.ctrip.framework.apollo.configservice.service.config.CompactRelease;
 import com.ctrip.framework.apollo.configservice.service.config.ConfigService;
 import com.ctrip.framework.apollo.configservice.util.InstanceConfigAuditUtil;
 import com.ctrip.framework.apollo.configservice.util.NamespaceUtil;
+import com.ctrip.framework.apollo.configservice.util.WatchKeysUtil;
 import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.dto.ApolloConfig;
 import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
 import com.ctrip.framework.apollo.tracer.Tracer;
 import com.google.common.base.Strings;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -54,6 +67,9 @@ public class ConfigController {
     private final AppNamespaceServiceWithCache appNamespaceService;
     private final NamespaceUtil namespaceUtil;
     private final InstanceConfigAuditUtil instanceConfigAuditUtil;
+    private final ConfigResponseCache configResponseCache;
+    private final ReleaseKeyIndex releaseKeyIndex;
+    private final WatchKeysUtil watchKeysUtil;
     private final Gson gson;
 
     private static final Type CONFIGURATION_TYPE_REFERENCE = new TypeToken<Map<String, String>>() {
@@ -64,11 +80,17 @@ public class ConfigController {
             final AppNamespaceServiceWithCache appNamespaceService,
             final NamespaceUtil namespaceUtil,
             final InstanceConfigAuditUtil instanceConfigAuditUtil,
+            final ConfigResponseCache configResponseCache,
+            final ReleaseKeyIndex releaseKeyIndex,
+            final WatchKeysUtil watchKeysUtil,
             final Gson gson) {
         this.configService = configService;
         this.appNamespaceService = appNamespaceService;
         this.namespaceUtil = namespaceUtil;
         this.instanceConfigAuditUtil = instanceConfigAuditUtil;
+        this.configResponseCache = configResponseCache;
+        this.releaseKeyIndex = releaseKeyIndex;
+        this.watchKeysUtil = watchKeysUtil;
         this.gson = gson;
     }
 
@@ -81,6 +103,26 @@ public class ConfigController {
                                     @RequestParam(value = "label", required = false) String clientLabel,
                                     @RequestParam(value = "messages", required = false) String messagesAsString,
                                     HttpServletRequest request, HttpServletResponse response) throws IOException {
+        return doQueryConfig(appId, clusterName, namespace, dataCenter, clientSideReleaseKey, clientIp, clientLabel,
+                messagesAsString, request, response, true);
+    }
+
+    /**
+     * Same as {@link #queryConfig} but always returns the config, without the conditional request and the cached
+     * response handling
+     */
+    ApolloConfig loadConfig(String appId, String clusterName, String namespace, String dataCenter,
+                            String clientSideReleaseKey, String clientIp, String clientLabel,
+                            String messagesAsString, HttpServletRequest request,
+                            HttpServletResponse response) throws IOException {
+        return doQueryConfig(appId, clusterName, namespace, dataCenter, clientSideReleaseKey, clientIp, clientLabel,
+                messagesAsString, request, response, false);
+    }
+
+    private ApolloConfig doQueryConfig(String appId, String clusterName, String namespace, String dataCenter,
+                                       String clientSideReleaseKey, String clientIp, String clientLabel,
+                                       String messagesAsString, HttpServletRequest request,
+                                       HttpServletResponse response, boolean directRequest) throws IOException {
         String originalNamespace = namespace;
         //strip out .properties suffix
         namespace = namespaceUtil.filterNamespaceName(namespace);
@@ -93,28 +135,23 @@ public class ConfigController {
 
         ApolloNotificationMessages clientMessages = transformMessages(messagesAsString);
 
-        List<Release> releases = Lists.newLinkedList();
-
-        String appClusterNameLoaded = clusterName;
-        if (!ConfigConsts.NO_APPID_PLACEHOLDER.equalsIgnoreCase(appId)) {
-            Release currentAppRelease = configService.loadConfig(appId, clientIp, clientLabel, appId, clusterName, namespace,
-                    dataCenter, clientMessages);
-
-            if (currentAppRelease != null) {
-                releases.add(currentAppRelease);
-                //we have cluster search process, so the cluster name might be overridden
-                appClusterNameLoaded = currentAppRelease.getClusterName();
+        //the client knows the newer messages might not be received by this node yet, so the index is skipped
+        if (directRequest && clientMessages == null && request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+            ReleaseKeyIndex.Entry indexed = releaseKeyIndex.find(appId, clusterName, namespace, dataCenter, clientIp,
+                    clientLabel);
+            if (indexed != null && isNotModified(indexed.getETag(), request, response)) {
+                auditReleases(appId, clusterName, dataCenter, clientIp, indexed.getReleases());
+                Tracer.logEvent("Apollo.Config.NotModified",
+                        assembleKey(appId, clusterName, originalNamespace, dataCenter));
+                return null;
             }
         }
 
-        //if namespace does not belong to this appId, should check if there is a public configuration
-        if (!namespaceBelongsToAppId(appId, namespace)) {
-            Release publicRelease = this.findPublicConfig(appId, clientIp, clientLabel, clusterName, namespace,
-                    dataCenter, clientMessages);
-            if (Objects.nonNull(publicRelease)) {
-                releases.add(publicRelease);
-            }
-        }
+        long indexVersion = releaseKeyIndex.currentVersion();
+        List<Release> releases = Lists.newLinkedList();
+
+        String appClusterNameLoaded = loadReleases(releases, appId, clusterName, namespace, dataCenter, clientIp,
+                clientLabel, clientMessages);
 
         if (releases.isEmpty()) {
             response.sendError(HttpServletResponse.SC_NOT_FOUND,
@@ -131,6 +168,14 @@ public class ConfigController {
         String mergedReleaseKey = releases.stream().map(Release::getReleaseKey)
                 .collect(Collectors.joining(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR));
 
+        releaseKeyIndex.put(appId, clusterName, namespace, dataCenter, clientIp, clientLabel, indexVersion,
+                mergedReleaseKey, releases);
+        if (directRequest && isNotModified(ReleaseKeyIndex.assembleETag(mergedReleaseKey), request, response)) {
+            Tracer.logEvent("Apollo.Config.NotModified",
+                    assembleKey(appId, appClusterNameLoaded, originalNamespace, dataCenter));
+            return null;
+        }
+
         if (mergedReleaseKey.equals(clientSideReleaseKey)) {
             // Client side configuration is the same with server side, return 304
             response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
@@ -139,15 +184,194 @@ public class ConfigController {
             return null;
         }
 
-        ApolloConfig apolloConfig = new ApolloConfig(appId, appClusterNameLoaded, originalNamespace,
-                mergedReleaseKey);
-        apolloConfig.setConfigurations(mergeReleaseConfigurations(releases));
-
         Tracer.logEvent("Apollo.Config.Found", assembleKey(appId, appClusterNameLoaded,
                 originalNamespace, dataCenter));
+
+        String clusterNameLoaded = appClusterNameLoaded;
+        if (directRequest && configResponseCache.isEnabled()) {
+            CachedResponse cachedResponse = configResponseCache.get(appId, clusterNameLoaded, originalNamespace,
+                    mergedReleaseKey, releases,
+                    () -> assembleConfig(appId, clusterNameLoaded, originalNamespace, mergedReleaseKey, releases));
+            writeCachedResponse(cachedResponse, request, response);
+            return null;
+        }
+
+        return assembleConfig(appId, clusterNameLoaded, originalNamespace, mergedReleaseKey, releases);
+    }
+
+    /**
+     * Query the configs of several namespaces in one request
+     *
+     * @param clientSideReleaseKeys the namespaces mapped to their client side release keys
+     * @return the configs of the namespaces changed, the namespaces not found are omitted
+     */
+    @PostMapping(value = "/{appId}/{clusterName}")
+    public List<ApolloConfig> queryConfigs(@PathVariable String appId, @PathVariable String clusterName,
+                                           @RequestParam(value = "dataCenter", required = false) String dataCenter,
+                                           @RequestParam(value = "ip", required = false) String clientIp,
+                                           @RequestParam(value = "label", required = false) String clientLabel,
+                                           @RequestParam(value = "messages", required = false) String messagesAsString,
+                                           @RequestBody Map<String, String> clientSideReleaseKeys,
+                                           HttpServletRequest request) {
+        if (Strings.isNullOrEmpty(clientIp)) {
+            clientIp = WebUtils.tryToGetClientIp(request);
+        }
+
+        ApolloNotificationMessages clientMessages = transformMessages(messagesAsString);
+
+        Map<String, String> originalNamespaces = Maps.newLinkedHashMap();
+        for (String originalNamespace : clientSideReleaseKeys.keySet()) {
+            String namespace = namespaceUtil.filterNamespaceName(originalNamespace);
+            originalNamespaces.put(originalNamespace, namespaceUtil.normalizeNamespace(appId, namespace));
+        }
+
+        //the watch keys of all the namespaces are assembled at most once, and only if some namespace is to be indexed
+        Supplier<Multimap<String, String>> watchedKeys = Suppliers.memoize(() -> watchKeysUtil
+                .assembleAllWatchKeys(appId, clusterName, Sets.newHashSet(originalNamespaces.values()), dataCenter));
+
+        long indexVersion = releaseKeyIndex.currentVersion();
+        List<ApolloConfig> configs = Lists.newArrayList();
+        for (Map.Entry<String, String> entry : originalNamespaces.entrySet()) {
+            String originalNamespace = entry.getKey();
+            String namespace = entry.getValue();
+            List<Release> releases = Lists.newLinkedList();
+
+            String appClusterNameLoaded = loadReleases(releases, appId, clusterName, namespace, dataCenter, clientIp,
+                    clientLabel, clientMessages);
+
+            if (releases.isEmpty()) {
+                Tracer.logEvent("Apollo.Config.NotFound",
+                        assembleKey(appId, clusterName, originalNamespace, dataCenter));
+                continue;
+            }
+
+            auditReleases(appId, clusterName, dataCenter, clientIp, releases);
+
+            String mergedReleaseKey = releases.stream().map(Release::getReleaseKey)
+                    .collect(Collectors.joining(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR));
+
+            releaseKeyIndex.put(appId, clusterName, namespace, dataCenter, clientIp, clientLabel, indexVersion,
+                    mergedReleaseKey, releases, () -> Sets.newHashSet(watchedKeys.get().get(namespace)));
+
+            if (mergedReleaseKey.equals(clientSideReleaseKeys.get(originalNamespace))) {
+                Tracer.logEvent("Apollo.Config.NotModified",
+                        assembleKey(appId, appClusterNameLoaded, originalNamespace, dataCenter));
+                continue;
+            }
+
+            Tracer.logEvent("Apollo.Config.Found", assembleKey(appId, appClusterNameLoaded,
+                    originalNamespace, dataCenter));
+            configs.add(assembleConfig(appId, appClusterNameLoaded, originalNamespace, mergedReleaseKey, releases));
+        }
+
+        return configs;
+    }
+
+    /**
+     * Load the releases of the namespace, the app's own release goes before the public one
+     *
+     * @param releases the list the releases loaded are added to
+     * @return the cluster name of the app's own release, as the cluster might be overridden by the cluster search
+     */
+    private String loadReleases(List<Release> releases, String appId, String clusterName, String namespace,
+                                String dataCenter, String clientIp, String clientLabel,
+                                ApolloNotificationMessages clientMessages) {
+        String appClusterNameLoaded = clusterName;
+        if (!ConfigConsts.NO_APPID_PLACEHOLDER.equalsIgnoreCase(appId)) {
+            Release currentAppRelease = configService.loadConfig(appId, clientIp, clientLabel, appId, clusterName, namespace,
+                    dataCenter, clientMessages);
+
+            if (currentAppRelease != null) {
+                releases.add(currentAppRelease);
+                //we have cluster search process, so the cluster name might be overridden
+                appClusterNameLoaded = currentAppRelease.getClusterName();
+            }
+        }
+
+        //if namespace does not belong to this appId, should check if there is a public configuration
+        if (!namespaceBelongsToAppId(appId, namespace)) {
+            Release publicRelease = this.findPublicConfig(appId, clientIp, clientLabel, clusterName, namespace,
+                    dataCenter, clientMessages);
+            if (Objects.nonNull(publicRelease)) {
+                releases.add(publicRelease);
+            }
+        }
+        return appClusterNameLoaded;
+    }
+
+    /**
+     * Check the <code>If-None-Match</code> header against the eTag, which is also set to the response
+     */
+    private boolean isNotModified(String eTag, HttpServletRequest request, HttpServletResponse response) {
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) == null) {
+            response.setHeader(HttpHeaders.ETAG, eTag);
+            return false;
+        }
+        return new ServletWebRequest(request, response).checkNotModified(eTag);
+    }
+
+    private ApolloConfig assembleConfig(String appId, String clusterName, String namespace, String mergedReleaseKey,
+                                        List<Release> releases) {
+        ApolloConfig apolloConfig = new ApolloConfig(appId, clusterName, namespace, mergedReleaseKey);
+        apolloConfig.setConfigurations(mergeReleaseConfigurations(releases));
         return apolloConfig;
     }
 
+    private void writeCachedResponse(CachedResponse cachedResponse, HttpServletRequest request,
+                                     HttpServletResponse response) throws IOException {
+        byte[] body = cachedResponse.getBody();
+        if (cachedResponse.getGzippedBody() != null && acceptsGzip(request)) {
+            body = cachedResponse.getGzippedBody();
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private boolean acceptsGzip(HttpServletRequest request) {
+        return acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+    }
+
+    /**
+     * Check the Accept-Encoding header, gzip is accepted when it or the wildcard coding is listed with a positive
+     * q-value, an explicit gzip entry takes precedence over the wildcard
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (Strings.isNullOrEmpty(acceptEncoding)) {
+            return false;
+        }
+        Boolean gzipAccepted = null;
+        boolean wildcardAccepted = false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            boolean accepted = qualityOf(parts) > 0;
+            if ("gzip".equals(name) || "x-gzip".equals(name)) {
+                gzipAccepted = gzipAccepted == null ? accepted : gzipAccepted || accepted;
+            } else if ("*".equals(name)) {
+                wildcardAccepted = accepted;
+            }
+        }
+        return gzipAccepted != null ? gzipAccepted : wildcardAccepted;
+    }
+
+    private static double qualityOf(String[] codingParts) {
+        for (int i = 1; i < codingParts.length; i++) {
+            String param = codingParts[i].trim();
+            if (param.length() > 2 && param.substring(0, 2).equalsIgnoreCase("q=")) {
+                try {
+                    return Double.parseDouble(param.substring(2).trim());
+                } catch (NumberFormatException ex) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
     private boolean namespaceBelongsToAppId(String appId, String namespaceName) {
         //Every app has an 'application' namespace
         if (Objects.equals(ConfigConsts.NAMESPACE_APPLICATION, namespaceName)) {
@@ -191,6 +415,10 @@ public class ConfigController {
     Map<String, String> mergeReleaseConfigurations(List<Release> releases) {
         Map<String, String> result = Maps.newLinkedHashMap();
         for (Release release : Lists.reverse(releases)) {
+            if (release instanceof CompactRelease) {
+                ((CompactRelease) release).getCompactConfigurations().forEach(result::put);
+                continue;
+            }
             result.putAll(gson.fromJson(release.getConfigurations(), CONFIGURATION_TYPE_REFERENCE));
         }
         return result;
@@ -21,6 +21,7 @@ import com.ctrip.framework.apollo.biz.grayReleaseRule.GrayReleaseRulesHolder;
 import com.ctrip.framework.apollo.biz.message.ReleaseMessageListener;
 import com.ctrip.framework.apollo.biz.message.Topics;
 import com.ctrip.framework.apollo.common.utils.WebUtils;
+import com.ctrip.framework.apollo.configservice.service.ReleaseKeyIndex;
 import com.ctrip.framework.apollo.configservice.util.NamespaceUtil;
 import com.ctrip.framework.apollo.configservice.util.WatchKeysUtil;
 import com.ctrip.framework.apollo.core.ConfigConsts;
@@ -43,6 +44,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -77,12 +79,14 @@ public class ConfigFileController implements ReleaseMessageListener {
     private final NamespaceUtil namespaceUtil;
     private final WatchKeysUtil watchKeysUtil;
     private final GrayReleaseRulesHolder grayReleaseRulesHolder;
+    private final ReleaseKeyIndex releaseKeyIndex;
 
     public ConfigFileController(
             final ConfigController configController,
             final NamespaceUtil namespaceUtil,
             final WatchKeysUtil watchKeysUtil,
-            final GrayReleaseRulesHolder grayReleaseRulesHolder) {
+            final GrayReleaseRulesHolder grayReleaseRulesHolder,
+            final ReleaseKeyIndex releaseKeyIndex) {
         localCache = CacheBuilder.newBuilder()
                 .expireAfterWrite(EXPIRE_AFTER_WRITE, TimeUnit.MINUTES)
                 .weigher((Weigher<String, String>) (key, value) -> value == null ? 0 : value.length())
@@ -111,6 +115,7 @@ public class ConfigFileController implements ReleaseMessageListener {
         this.namespaceUtil = namespaceUtil;
         this.watchKeysUtil = watchKeysUtil;
         this.grayReleaseRulesHolder = grayReleaseRulesHolder;
+        this.releaseKeyIndex = releaseKeyIndex;
     }
 
     @GetMapping(value = "/{appId}/{clusterName}/{namespace:.+}")
@@ -124,6 +129,10 @@ public class ConfigFileController implements ReleaseMessageListener {
                                                           HttpServletResponse response)
             throws IOException {
 
+        if (isNotModified(appId, clusterName, namespace, dataCenter, clientIp, clientLabel, request, response)) {
+            return null;
+        }
+
         String result =
                 queryConfig(ConfigFileOutputFormat.PROPERTIES, appId, clusterName, namespace, dataCenter,
                         clientIp, clientLabel, request, response);
@@ -132,7 +141,8 @@ public class ConfigFileController implements ReleaseMessageListener {
             return NOT_FOUND_RESPONSE;
         }
 
-        return new ResponseEntity<>(result, propertiesResponseHeaders, HttpStatus.OK);
+        return assembleResponse(result, propertiesResponseHeaders, appId, clusterName, namespace, dataCenter,
+                clientIp, clientLabel, request);
     }
 
     @GetMapping(value = "/json/{appId}/{clusterName}/{namespace:.+}")
@@ -145,6 +155,10 @@ public class ConfigFileController implements ReleaseMessageListener {
                                                     HttpServletRequest request,
                                                     HttpServletResponse response) throws IOException {
 
+        if (isNotModified(appId, clusterName, namespace, dataCenter, clientIp, clientLabel, request, response)) {
+            return null;
+        }
+
         String result = queryConfig(ConfigFileOutputFormat.JSON, appId, clusterName, namespace, dataCenter,
                 clientIp, clientLabel, request, response);
 
@@ -152,7 +166,50 @@ public class ConfigFileController implements ReleaseMessageListener {
             return NOT_FOUND_RESPONSE;
         }
 
-        return new ResponseEntity<>(result, jsonResponseHeaders, HttpStatus.OK);
+        return assembleResponse(result, jsonResponseHeaders, appId, clusterName, namespace, dataCenter,
+                clientIp, clientLabel, request);
+    }
+
+    /**
+     * Answer the conditional request from the release key index, without loading the config
+     */
+    private boolean isNotModified(String appId, String clusterName, String namespace, String dataCenter,
+                                  String clientIp, String clientLabel, HttpServletRequest request,
+                                  HttpServletResponse response) {
+        if (request.getHeader(HttpHeaders.IF_NONE_MATCH) == null) {
+            return false;
+        }
+        String eTag = findETag(appId, clusterName, namespace, dataCenter, clientIp, clientLabel, request);
+        if (eTag == null || !new ServletWebRequest(request, response).checkNotModified(eTag)) {
+            return false;
+        }
+        Tracer.logEvent("ConfigFile.NotModified", STRING_JOINER.join(appId, clusterName, namespace));
+        return true;
+    }
+
+    /**
+     * The ETag is added when the releases are indexed, and Spring answers the matched conditional request with 304
+     */
+    private ResponseEntity<String> assembleResponse(String result, HttpHeaders headers, String appId,
+                                                    String clusterName, String namespace, String dataCenter,
+                                                    String clientIp, String clientLabel,
+                                                    HttpServletRequest request) {
+        String eTag = findETag(appId, clusterName, namespace, dataCenter, clientIp, clientLabel, request);
+        if (eTag == null) {
+            return new ResponseEntity<>(result, headers, HttpStatus.OK);
+        }
+        return ResponseEntity.ok().headers(headers).eTag(eTag).body(result);
+    }
+
+    private String findETag(String appId, String clusterName, String namespace, String dataCenter,
+                            String clientIp, String clientLabel, HttpServletRequest request) {
+        namespace = namespaceUtil.normalizeNamespace(appId, namespaceUtil.filterNamespaceName(namespace));
+        if (Strings.isNullOrEmpty(clientIp)) {
+            clientIp = WebUtils.tryToGetClientIp(request);
+        }
+        ReleaseKeyIndex.Entry indexed = releaseKeyIndex.find(appId, clusterName, namespace, dataCenter, clientIp,
+                clientLabel);
+        return indexed == null ? null : indexed.getETag();
     }
 
     String queryConfig(ConfigFileOutputFormat outputFormat, String appId, String clusterName,
@@ -224,7 +281,7 @@ public class ConfigFileController implements ReleaseMessageListener {
                               String namespace, String dataCenter, String clientIp, String clientLabel,
                               HttpServletRequest request,
                               HttpServletResponse response) throws IOException {
-        ApolloConfig apolloConfig = configController.queryConfig(appId, clusterName, namespace,
+        ApolloConfig apolloConfig = configController.loadConfig(appId, clusterName, namespace,
                 dataCenter, "-1", clientIp, clientLabel, null, request, response);
 
         if (apolloConfig == null || apolloConfig.getConfigurations() == null) {
@@ -24,21 +24,19 @@ import com.ctrip.framework.apollo.biz.utils.EntityManagerUtil;
 import com.ctrip.framework.apollo.common.exception.BadRequestException;
 import com.ctrip.framework.apollo.configservice.service.ReleaseMessageServiceWithCache;
 import com.ctrip.framework.apollo.configservice.util.NamespaceUtil;
+import com.ctrip.framework.apollo.configservice.util.NotificationFanoutExecutor;
 import com.ctrip.framework.apollo.configservice.util.WatchKeysUtil;
+import com.ctrip.framework.apollo.configservice.wrapper.DeferredResultRegistry;
 import com.ctrip.framework.apollo.configservice.wrapper.DeferredResultWrapper;
 import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
-import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.tracer.Tracer;
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
-import com.google.common.collect.Multimaps;
-import com.google.common.collect.Ordering;
 import com.google.common.collect.Sets;
-import com.google.common.collect.TreeMultimap;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import org.slf4j.Logger;
@@ -58,9 +56,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 /**
@@ -70,20 +65,18 @@ import java.util.function.Function;
 @RequestMapping("/notifications/v2")
 public class NotificationControllerV2 implements ReleaseMessageListener {
     private static final Logger logger = LoggerFactory.getLogger(NotificationControllerV2.class);
-    private final Multimap<String, DeferredResultWrapper> deferredResults =
-            Multimaps.synchronizedSetMultimap(TreeMultimap.create(String.CASE_INSENSITIVE_ORDER, Ordering.natural()));
+    private final DeferredResultRegistry<DeferredResultWrapper> deferredResults = new DeferredResultRegistry<>();
     private static final Splitter STRING_SPLITTER =
             Splitter.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR).omitEmptyStrings();
     private static final Type NOTIFICATIONS_TYPE_REFERENCE =
             new TypeToken<List<ApolloConfigNotification>>() {
             }.getType();
 
-    private final ExecutorService largeNotificationBatchExecutorService;
-
     private final WatchKeysUtil watchKeysUtil;
     private final ReleaseMessageServiceWithCache releaseMessageService;
     private final EntityManagerUtil entityManagerUtil;
     private final NamespaceUtil namespaceUtil;
+    private final NotificationFanoutExecutor notificationFanoutExecutor;
     private final Gson gson;
     private final BizConfig bizConfig;
 
@@ -93,14 +86,14 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
             final ReleaseMessageServiceWithCache releaseMessageService,
             final EntityManagerUtil entityManagerUtil,
             final NamespaceUtil namespaceUtil,
+            final NotificationFanoutExecutor notificationFanoutExecutor,
             final Gson gson,
             final BizConfig bizConfig) {
-        largeNotificationBatchExecutorService = Executors.newSingleThreadExecutor(ApolloThreadFactory.create
-                ("NotificationControllerV2", true));
         this.watchKeysUtil = watchKeysUtil;
         this.releaseMessageService = releaseMessageService;
         this.entityManagerUtil = entityManagerUtil;
         this.namespaceUtil = namespaceUtil;
+        this.notificationFanoutExecutor = notificationFanoutExecutor;
         this.gson = gson;
         this.bizConfig = bizConfig;
     }
@@ -161,14 +154,14 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
         deferredResultWrapper.onCompletion(() -> {
             //unregister all keys
             for (String key : watchedKeys) {
-                deferredResults.remove(key, deferredResultWrapper);
+                deferredResults.unregister(key, deferredResultWrapper);
             }
             logWatchedKeys(watchedKeys, "Apollo.LongPoll.CompletedKeys");
         });
 
         //register all keys
         for (String key : watchedKeys) {
-            this.deferredResults.put(key, deferredResultWrapper);
+            this.deferredResults.register(key, deferredResultWrapper);
         }
 
         logWatchedKeys(watchedKeys, "Apollo.LongPoll.RegisteredKeys");
@@ -276,42 +269,16 @@ public class NotificationControllerV2 implements ReleaseMessageListener {
             return;
         }
 
-        if (!deferredResults.containsKey(content)) {
+        //the registry returns a snapshot, so the waiters could complete concurrently
+        List<DeferredResultWrapper> results = deferredResults.get(content);
+        if (results.isEmpty()) {
             return;
         }
 
-        //create a new list to avoid ConcurrentModificationException
-        List<DeferredResultWrapper> results = Lists.newArrayList(deferredResults.get(content));
-
         ApolloConfigNotification configNotification = new ApolloConfigNotification(changedNamespace, message.getId());
         configNotification.addMessage(content, message.getId());
 
-        //do async notification if too many clients
-        if (results.size() > bizConfig.releaseMessageNotificationBatch()) {
-            largeNotificationBatchExecutorService.submit(() -> {
-                logger.debug("Async notify {} clients for key {} with batch {}", results.size(), content,
-                        bizConfig.releaseMessageNotificationBatch());
-                for (int i = 0; i < results.size(); i++) {
-                    if (i > 0 && i % bizConfig.releaseMessageNotificationBatch() == 0) {
-                        try {
-                            TimeUnit.MILLISECONDS.sleep(bizConfig.releaseMessageNotificationBatchIntervalInMilli());
-                        } catch (InterruptedException e) {
-                            //ignore
-                        }
-                    }
-                    logger.debug("Async notify {}", results.get(i));
-                    results.get(i).setResult(configNotification);
-                }
-            });
-            return;
-        }
-
-        logger.debug("Notify {} clients for key {}", results.size(), content);
-
-        for (DeferredResultWrapper result : results) {
-            result.setResult(configNotification);
-        }
-        logger.debug("Notification completed");
+        notificationFanoutExecutor.notify(content, results, configNotification);
     }
 
     private static final Function<String, String> retrieveNamespaceFromReleaseMessage =
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.configservice.service;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.message.ReleaseMessageListener;
+import com.ctrip.framework.apollo.biz.message.Topics;
+import com.ctrip.framework.apollo.biz.utils.ReleaseMessageKeyGenerator;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.core.dto.ApolloConfig;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.gson.Gson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Caches the serialized responses of /configs, so that the configurations of a release are parsed, merged and
+ * serialized once rather than once per request.
+ * <p>
+ * The merged release key is part of the cache key, so a cached response never goes stale. The release messages are
+ * only used to evict the responses of the replaced releases early.
+ */
+@Service
+public class ConfigResponseCache implements ReleaseMessageListener {
+    private static final Logger logger = LoggerFactory.getLogger(ConfigResponseCache.class);
+    private static final Joiner STRING_JOINER = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR);
+    private static final long MAX_CACHE_SIZE = 50 * 1024 * 1024; // 50MB
+    private static final long EXPIRE_AFTER_ACCESS = 60;
+    // responses smaller than this are not worth compressing
+    private static final int MIN_GZIP_SIZE = 1024;
+
+    private final Cache<String, CachedResponse> responseCache;
+    private final Multimap<String, String>
+            watchedKeys2CacheKey = Multimaps.synchronizedSetMultimap(HashMultimap.create());
+    private final Multimap<String, String>
+            cacheKey2WatchedKeys = Multimaps.synchronizedSetMultimap(HashMultimap.create());
+
+    private final BizConfig bizConfig;
+    private final Gson gson;
+
+    public ConfigResponseCache(final BizConfig bizConfig, final Gson gson) {
+        this.bizConfig = bizConfig;
+        this.gson = gson;
+        responseCache = CacheBuilder.newBuilder()
+                .expireAfterAccess(EXPIRE_AFTER_ACCESS, TimeUnit.MINUTES)
+                .weigher((Weigher<String, CachedResponse>) (key, value) -> value.getWeight())
+                .maximumWeight(MAX_CACHE_SIZE)
+                .removalListener(notification -> {
+                    String cacheKey = notification.getKey();
+                    //create a new list to avoid ConcurrentModificationException
+                    List<String> watchedKeys = new ArrayList<>(cacheKey2WatchedKeys.get(cacheKey));
+                    for (String watchedKey : watchedKeys) {
+                        watchedKeys2CacheKey.remove(watchedKey, cacheKey);
+                    }
+                    cacheKey2WatchedKeys.removeAll(cacheKey);
+                })
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return bizConfig.isConfigServiceResponseCacheEnabled();
+    }
+
+    /**
+     * Get the cached response, or serialize the config built by the loader if absent. Concurrent requests for the
+     * same response wait for one loader instead of serializing it each.
+     *
+     * @param releases the releases the config is merged from
+     * @param loader   builds the config to be serialized
+     */
+    public CachedResponse get(String appId, String clusterName, String namespace, String mergedReleaseKey,
+                              List<Release> releases, Supplier<ApolloConfig> loader) {
+        String cacheKey = STRING_JOINER.join(appId, clusterName, namespace, mergedReleaseKey);
+        CachedResponse cachedResponse = responseCache.getIfPresent(cacheKey);
+        if (cachedResponse != null) {
+            Tracer.logEvent("ConfigResponseCache.Hit", cacheKey);
+            return cachedResponse;
+        }
+
+        Tracer.logEvent("ConfigResponseCache.Miss", cacheKey);
+        try {
+            return responseCache.get(cacheKey, () -> {
+                CachedResponse response = serialize(loader.get());
+                Set<String> watchedKeys = Sets.newHashSet();
+                for (Release release : releases) {
+                    watchedKeys.add(ReleaseMessageKeyGenerator.generate(release.getAppId(), release.getClusterName(),
+                            release.getNamespaceName()));
+                }
+                for (String watchedKey : watchedKeys) {
+                    watchedKeys2CacheKey.put(watchedKey, cacheKey);
+                }
+                cacheKey2WatchedKeys.putAll(cacheKey, watchedKeys);
+                return response;
+            });
+        } catch (ExecutionException | UncheckedExecutionException ex) {
+            throw new IllegalStateException(String.format("Serialize config response for %s failed", cacheKey),
+                    ex.getCause());
+        }
+    }
+
+    private CachedResponse serialize(ApolloConfig apolloConfig) throws IOException {
+        byte[] body = gson.toJson(apolloConfig).getBytes(StandardCharsets.UTF_8);
+        if (body.length < MIN_GZIP_SIZE) {
+            return new CachedResponse(body, null);
+        }
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(gzipped)) {
+            gzipOutputStream.write(body);
+        }
+        return new CachedResponse(body, gzipped.toByteArray());
+    }
+
+    long size() {
+        return responseCache.size();
+    }
+
+    @Override
+    public void handleMessage(ReleaseMessage message, String channel) {
+        String content = message.getMessage();
+        if (!Topics.APOLLO_RELEASE_TOPIC.equals(channel) || Strings.isNullOrEmpty(content)) {
+            return;
+        }
+
+        if (!watchedKeys2CacheKey.containsKey(content)) {
+            return;
+        }
+
+        //create a new list to avoid ConcurrentModificationException
+        List<String> cacheKeys = new ArrayList<>(watchedKeys2CacheKey.get(content));
+
+        for (String cacheKey : cacheKeys) {
+            logger.debug("invalidate response cache key: {}", cacheKey);
+            responseCache.invalidate(cacheKey);
+        }
+        Tracer.logEvent("ConfigResponseCache.Invalidate", content);
+    }
+
+    public static class CachedResponse {
+        private final byte[] body;
+        private final byte[] gzippedBody;
+
+        CachedResponse(byte[] body, byte[] gzippedBody) {
+            this.body = body;
+            this.gzippedBody = gzippedBody;
+        }
+
+        /**
+         * @return the json bytes in UTF-8
+         */
+        public byte[] getBody() {
+            return body;
+        }
+
+        /**
+         * @return the gzip compressed json bytes, or null if the response is too small to be compressed
+         */
+        public byte[] getGzippedBody() {
+            return gzippedBody;
+        }
+
+        int getWeight() {
+            return body.length + (gzippedBody == null ? 0 : gzippedBody.length);
+        }
+    }
+}
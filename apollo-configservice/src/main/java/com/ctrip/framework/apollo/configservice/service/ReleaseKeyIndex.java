@@ -0,0 +1,234 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.configservice.service;
+
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.grayReleaseRule.GrayReleaseRulesHolder;
+import com.ctrip.framework.apollo.biz.message.ReleaseMessageListener;
+import com.ctrip.framework.apollo.biz.message.Topics;
+import com.ctrip.framework.apollo.configservice.util.WatchKeysUtil;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Indexes the release keys last served for each appId, cluster, namespace and data center, so that conditional
+ * requests could be answered without loading the releases.
+ * <p>
+ * Clients with gray release rules or labels are not indexed, as the releases they get might differ from the others.
+ */
+@Service
+public class ReleaseKeyIndex implements ReleaseMessageListener {
+    private static final Joiner STRING_JOINER = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR).useForNull("");
+    private static final long MAX_SIZE = 100000;
+    private static final long EXPIRE_AFTER_ACCESS = 60;
+
+    private final Cache<String, Entry> index;
+    private final Multimap<String, String>
+            watchedKeys2IndexKey = Multimaps.synchronizedSetMultimap(HashMultimap.create());
+    private final Multimap<String, String>
+            indexKey2WatchedKeys = Multimaps.synchronizedSetMultimap(HashMultimap.create());
+    // bumped on every release message, so the releases loaded before a message are not indexed after it
+    private final AtomicLong version = new AtomicLong();
+
+    private final WatchKeysUtil watchKeysUtil;
+    private final GrayReleaseRulesHolder grayReleaseRulesHolder;
+
+    public ReleaseKeyIndex(
+            final WatchKeysUtil watchKeysUtil,
+            final GrayReleaseRulesHolder grayReleaseRulesHolder) {
+        this.watchKeysUtil = watchKeysUtil;
+        this.grayReleaseRulesHolder = grayReleaseRulesHolder;
+        index = CacheBuilder.newBuilder()
+                .expireAfterAccess(EXPIRE_AFTER_ACCESS, TimeUnit.MINUTES)
+                .maximumSize(MAX_SIZE)
+                .removalListener(notification -> {
+                    //the watched keys of a replaced entry are still in use
+                    if (notification.getCause() == RemovalCause.REPLACED) {
+                        return;
+                    }
+                    String indexKey = (String) notification.getKey();
+                    //create a new list to avoid ConcurrentModificationException
+                    List<String> watchedKeys = new ArrayList<>(indexKey2WatchedKeys.get(indexKey));
+                    for (String watchedKey : watchedKeys) {
+                        watchedKeys2IndexKey.remove(watchedKey, indexKey);
+                    }
+                    indexKey2WatchedKeys.removeAll(indexKey);
+                })
+                .build();
+    }
+
+    /**
+     * @return the current version, to be passed to {@link #put} after the releases are loaded
+     */
+    public long currentVersion() {
+        return version.get();
+    }
+
+    /**
+     * @return the indexed entry, or null if absent or the client is not indexed
+     */
+    public Entry find(String appId, String clusterName, String namespace, String dataCenter, String clientIp,
+                      String clientLabel) {
+        if (!isIndexable(appId, namespace, clientIp, clientLabel)) {
+            return null;
+        }
+        return index.getIfPresent(assembleIndexKey(appId, clusterName, namespace, dataCenter));
+    }
+
+    /**
+     * Index the releases loaded, unless a release message is received since <code>loadedVersion</code>
+     */
+    public void put(String appId, String clusterName, String namespace, String dataCenter, String clientIp,
+                    String clientLabel, long loadedVersion, String mergedReleaseKey, List<Release> releases) {
+        put(appId, clusterName, namespace, dataCenter, clientIp, clientLabel, loadedVersion, mergedReleaseKey,
+                releases, () -> watchKeysUtil.assembleAllWatchKeys(appId, clusterName, namespace, dataCenter));
+    }
+
+    /**
+     * Same as the other one, with the watch keys supplied by the caller, which are only assembled if the index
+     * changes
+     */
+    public void put(String appId, String clusterName, String namespace, String dataCenter, String clientIp,
+                    String clientLabel, long loadedVersion, String mergedReleaseKey, List<Release> releases,
+                    Supplier<Set<String>> watchedKeysSupplier) {
+        if (!isIndexable(appId, namespace, clientIp, clientLabel)) {
+            return;
+        }
+        String indexKey = assembleIndexKey(appId, clusterName, namespace, dataCenter);
+        Entry current = index.getIfPresent(indexKey);
+        if (current != null && current.getMergedReleaseKey().equals(mergedReleaseKey)) {
+            return;
+        }
+
+        if (version.get() != loadedVersion) {
+            return;
+        }
+        //assembled outside the lock, as it might load the app namespaces
+        Set<String> watchedKeys = watchedKeysSupplier.get();
+
+        synchronized (version) {
+            //checked again, so a rejected put leaves no watched keys behind
+            if (version.get() != loadedVersion) {
+                return;
+            }
+            for (String watchedKey : watchedKeys) {
+                watchedKeys2IndexKey.put(watchedKey.toLowerCase(), indexKey);
+            }
+            for (String watchedKey : watchedKeys) {
+                indexKey2WatchedKeys.put(indexKey, watchedKey.toLowerCase());
+            }
+            index.put(indexKey, new Entry(mergedReleaseKey, releases));
+        }
+    }
+
+    private boolean isIndexable(String appId, String namespace, String clientIp, String clientLabel) {
+        return Strings.isNullOrEmpty(clientLabel) && !grayReleaseRulesHolder.hasGrayReleaseRule(appId, clientIp,
+                namespace);
+    }
+
+    private String assembleIndexKey(String appId, String clusterName, String namespace, String dataCenter) {
+        return STRING_JOINER.join(appId, clusterName, namespace, dataCenter).toLowerCase();
+    }
+
+    /**
+     * @return the weak entity tag of the releases, as the representations differ between /configs and /configfiles
+     */
+    public static String assembleETag(String mergedReleaseKey) {
+        return "W/\"" + mergedReleaseKey + "\"";
+    }
+
+    long size() {
+        return index.size();
+    }
+
+    @Override
+    public void handleMessage(ReleaseMessage message, String channel) {
+        String content = message.getMessage();
+        if (!Topics.APOLLO_RELEASE_TOPIC.equals(channel) || Strings.isNullOrEmpty(content)) {
+            return;
+        }
+
+        synchronized (version) {
+            version.incrementAndGet();
+        }
+
+        //create a new list to avoid ConcurrentModificationException
+        List<String> indexKeys = new ArrayList<>(watchedKeys2IndexKey.get(content.toLowerCase()));
+        for (String indexKey : indexKeys) {
+            index.invalidate(indexKey);
+        }
+        if (!indexKeys.isEmpty()) {
+            Tracer.logEvent("ReleaseKeyIndex.Invalidate", content);
+        }
+    }
+
+    public static class Entry {
+        private final String mergedReleaseKey;
+        private final String eTag;
+        private final List<Release> releases;
+
+        Entry(String mergedReleaseKey, List<Release> releases) {
+            this.mergedReleaseKey = mergedReleaseKey;
+            this.eTag = assembleETag(mergedReleaseKey);
+            List<Release> identities = Lists.newArrayListWithCapacity(releases.size());
+            for (Release release : releases) {
+                // keep the identity only, the configurations are not needed
+                Release identity = new Release();
+                identity.setAppId(release.getAppId());
+                identity.setClusterName(release.getClusterName());
+                identity.setNamespaceName(release.getNamespaceName());
+                identity.setReleaseKey(release.getReleaseKey());
+                identities.add(identity);
+            }
+            this.releases = Collections.unmodifiableList(identities);
+        }
+
+        public String getMergedReleaseKey() {
+            return mergedReleaseKey;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        /**
+         * @return the identities of the releases, without the configurations
+         */
+        public List<Release> getReleases() {
+            return releases;
+        }
+    }
+}
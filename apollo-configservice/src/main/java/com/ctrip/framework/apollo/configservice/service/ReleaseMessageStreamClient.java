@@ -0,0 +1,225 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.configservice.service;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.message.ReleaseMessageScanner;
+import com.ctrip.framework.apollo.biz.message.Topics;
+import com.ctrip.framework.apollo.core.ServiceNameConsts;
+import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.metaservice.service.DiscoveryService;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.gson.Gson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Subscribes the release message streams of all the admin services and hands the pushed messages over to the
+ * {@link ReleaseMessageScanner}, which keeps scanning the ReleaseMessage table to fill the gaps.
+ */
+public class ReleaseMessageStreamClient implements InitializingBean, DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(ReleaseMessageStreamClient.class);
+    private static final Gson GSON = new Gson();
+    private static final Splitter ACCESS_TOKEN_SPLITTER = Splitter.on(",").omitEmptyStrings().trimResults();
+    private static final String STREAM_PATH = "release-messages/stream";
+    private static final int REFRESH_INTERVAL_IN_SECONDS = 30;
+    private static final int CONNECT_TIMEOUT_IN_MILLI = 5000;
+    // larger than the stream timeout of the admin service, so a live stream is always closed by the server side
+    private static final int READ_TIMEOUT_IN_MILLI = (int) TimeUnit.MINUTES.toMillis(6);
+    private static final long MAX_RETRY_INTERVAL_IN_MILLI = TimeUnit.SECONDS.toMillis(30);
+
+    private final ConcurrentMap<String, Future<?>> streams = Maps.newConcurrentMap();
+    private final ScheduledExecutorService refreshExecutorService;
+    private final ExecutorService streamExecutorService;
+
+    private final ReleaseMessageScanner releaseMessageScanner;
+    private final DiscoveryService discoveryService;
+    private final BizConfig bizConfig;
+
+    public ReleaseMessageStreamClient(
+            final ReleaseMessageScanner releaseMessageScanner,
+            final DiscoveryService discoveryService,
+            final BizConfig bizConfig) {
+        this.releaseMessageScanner = releaseMessageScanner;
+        this.discoveryService = discoveryService;
+        this.bizConfig = bizConfig;
+        refreshExecutorService = Executors.newSingleThreadScheduledExecutor(
+                ApolloThreadFactory.create("ReleaseMessageStreamClient", true));
+        streamExecutorService = Executors.newCachedThreadPool(
+                ApolloThreadFactory.create("ReleaseMessageStream", true));
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        refreshExecutorService.scheduleWithFixedDelay(() -> {
+            try {
+                refreshStreams();
+            } catch (Throwable ex) {
+                Tracer.logError(ex);
+                logger.error("Refresh release message streams failed", ex);
+            }
+        }, 0, REFRESH_INTERVAL_IN_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Open streams to the newly discovered admin services and close those to the admin services gone
+     */
+    void refreshStreams() {
+        Set<String> streamUrls = Sets.newHashSet();
+        if (bizConfig.isReleaseMessagePushEnabled()) {
+            List<ServiceDTO> adminServices = discoveryService.getServiceInstances(ServiceNameConsts.APOLLO_ADMINSERVICE);
+            for (ServiceDTO adminService : adminServices) {
+                streamUrls.add(assembleStreamUrl(adminService.getHomepageUrl()));
+            }
+        }
+
+        Iterator<Map.Entry<String, Future<?>>> iterator = streams.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Future<?>> stream = iterator.next();
+            if (!streamUrls.contains(stream.getKey())) {
+                stream.getValue().cancel(true);
+                iterator.remove();
+            }
+        }
+
+        for (String streamUrl : streamUrls) {
+            streams.computeIfAbsent(streamUrl, url -> streamExecutorService.submit(() -> keepStreaming(url)));
+        }
+    }
+
+    private void keepStreaming(String streamUrl) {
+        long retryInterval = 1000;
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                stream(streamUrl);
+                retryInterval = 1000;
+            } catch (Throwable ex) {
+                logger.warn("Stream release messages from {} failed, reason: {}", streamUrl, ex.getMessage());
+                try {
+                    TimeUnit.MILLISECONDS.sleep(retryInterval);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                retryInterval = Math.min(retryInterval * 2, MAX_RETRY_INTERVAL_IN_MILLI);
+            }
+        }
+    }
+
+    /**
+     * Read the server-sent events until the stream is closed
+     */
+    void stream(String streamUrl) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(streamUrl).openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_IN_MILLI);
+        connection.setReadTimeout(READ_TIMEOUT_IN_MILLI);
+        connection.setRequestProperty(HttpHeaders.ACCEPT, MediaType.TEXT_EVENT_STREAM_VALUE);
+        String accessToken = findAccessToken();
+        if (accessToken != null) {
+            connection.setRequestProperty(HttpHeaders.AUTHORIZATION, accessToken);
+        }
+
+        try {
+            int statusCode = connection.getResponseCode();
+            if (statusCode != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Unexpected response code " + statusCode);
+            }
+            logger.info("Streaming release messages from {}", streamUrl);
+
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+                String event = null;
+                StringBuilder data = new StringBuilder();
+                String line;
+                while ((line = reader.readLine()) != null && !Thread.currentThread().isInterrupted()) {
+                    if (line.isEmpty()) {
+                        handleEvent(event, data.toString());
+                        event = null;
+                        data.setLength(0);
+                    } else if (line.startsWith("event:")) {
+                        event = line.substring("event:".length()).trim();
+                    } else if (line.startsWith("data:")) {
+                        data.append(line.substring("data:".length()).trim());
+                    }
+                }
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private void handleEvent(String event, String data) {
+        if (!Topics.APOLLO_RELEASE_TOPIC.equals(event) || Strings.isNullOrEmpty(data)) {
+            return;
+        }
+        ReleaseMessage releaseMessage = GSON.fromJson(data, ReleaseMessage.class);
+        Tracer.logEvent("Apollo.ReleaseMessageStream.Received", String.valueOf(releaseMessage.getId()));
+        releaseMessageScanner.onMessagePushed(releaseMessage);
+    }
+
+    private String findAccessToken() {
+        if (!bizConfig.isAdminServiceAccessControlEnabled()) {
+            return null;
+        }
+        String accessTokens = bizConfig.getAdminServiceAccessTokens();
+        if (Strings.isNullOrEmpty(accessTokens)) {
+            return null;
+        }
+        List<String> accessTokenList = ACCESS_TOKEN_SPLITTER.splitToList(accessTokens);
+        return accessTokenList.isEmpty() ? null : accessTokenList.get(0);
+    }
+
+    private String assembleStreamUrl(String homepageUrl) {
+        return homepageUrl.endsWith("/") ? homepageUrl + STREAM_PATH : homepageUrl + "/" + STREAM_PATH;
+    }
+
+    int getStreamCount() {
+        return streams.size();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        refreshExecutorService.shutdownNow();
+        streamExecutorService.shutdownNow();
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.configservice.service.config;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.Maps;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable representation of the configurations of a release, which takes far less memory than the json string.
+ * <p>
+ * The keys are shared by all the instances through a dictionary, as the same keys are used by many namespaces. The
+ * values are stored as UTF-8 bytes in a single array, and decoded on access.
+ */
+public final class CompactConfigurations {
+    private static final Gson GSON = new Gson();
+    private static final Type CONFIGURATION_TYPE_REFERENCE = new TypeToken<Map<String, String>>() {
+    }.getType();
+    private static final Interner<String> KEY_DICTIONARY = Interners.newWeakInterner();
+    private static final long ARRAY_OVERHEAD = 16;
+    private static final long REFERENCE_SIZE = 4;
+    private static final CompactConfigurations EMPTY =
+            new CompactConfigurations(new String[0], new int[0], new int[1], new byte[0], null);
+
+    // in the original order
+    private final String[] keys;
+    // the indexes of the keys in alphabetical order, for lookups
+    private final int[] sortedIndexes;
+    // the value of keys[i] is values[valueOffsets[i], valueOffsets[i + 1])
+    private final int[] valueOffsets;
+    private final byte[] values;
+    // null unless some values are null
+    private final BitSet nullValues;
+
+    private CompactConfigurations(String[] keys, int[] sortedIndexes, int[] valueOffsets, byte[] values,
+                                  BitSet nullValues) {
+        this.keys = keys;
+        this.sortedIndexes = sortedIndexes;
+        this.valueOffsets = valueOffsets;
+        this.values = values;
+        this.nullValues = nullValues;
+    }
+
+    /**
+     * @param configurations the configurations of a release in json
+     */
+    public static CompactConfigurations parse(String configurations) {
+        return of(GSON.fromJson(configurations, CONFIGURATION_TYPE_REFERENCE));
+    }
+
+    public static CompactConfigurations of(Map<String, String> configurations) {
+        if (configurations == null || configurations.isEmpty()) {
+            return EMPTY;
+        }
+
+        int size = configurations.size();
+        String[] keys = new String[size];
+        int[] valueOffsets = new int[size + 1];
+        ByteArrayOutputStream values = new ByteArrayOutputStream();
+        BitSet nullValues = null;
+
+        int i = 0;
+        for (Map.Entry<String, String> entry : configurations.entrySet()) {
+            keys[i] = KEY_DICTIONARY.intern(entry.getKey());
+            if (entry.getValue() == null) {
+                if (nullValues == null) {
+                    nullValues = new BitSet(size);
+                }
+                nullValues.set(i);
+            } else {
+                byte[] value = entry.getValue().getBytes(StandardCharsets.UTF_8);
+                values.write(value, 0, value.length);
+            }
+            valueOffsets[++i] = values.size();
+        }
+
+        int[] sortedIndexes = IntStream.range(0, size).boxed()
+                .sorted(Comparator.comparing(index -> keys[index]))
+                .mapToInt(Integer::intValue).toArray();
+
+        return new CompactConfigurations(keys, sortedIndexes, valueOffsets, values.toByteArray(), nullValues);
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    public boolean containsKey(String key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * @return the value of the key, or null if absent
+     */
+    public String get(String key) {
+        int index = indexOf(key);
+        return index < 0 ? null : valueAt(index);
+    }
+
+    /**
+     * Iterate the configurations in the original order
+     */
+    public void forEach(BiConsumer<String, String> action) {
+        for (int i = 0; i < keys.length; i++) {
+            action.accept(keys[i], valueAt(i));
+        }
+    }
+
+    /**
+     * @return a mutable copy of the configurations in the original order
+     */
+    public Map<String, String> toMap() {
+        Map<String, String> configurations = Maps.newLinkedHashMapWithExpectedSize(keys.length);
+        forEach(configurations::put);
+        return configurations;
+    }
+
+    public String toJson() {
+        return GSON.toJson(toMap());
+    }
+
+    /**
+     * @return the estimated heap size in bytes, excluding the keys shared through the dictionary
+     */
+    public long getFootprint() {
+        return ARRAY_OVERHEAD * 4 + REFERENCE_SIZE * keys.length + Integer.BYTES * sortedIndexes.length
+                + Integer.BYTES * valueOffsets.length + values.length
+                + (nullValues == null ? 0 : nullValues.size() / Byte.SIZE);
+    }
+
+    private int indexOf(String key) {
+        int low = 0;
+        int high = sortedIndexes.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int compared = keys[sortedIndexes[middle]].compareTo(key);
+            if (compared < 0) {
+                low = middle + 1;
+            } else if (compared > 0) {
+                high = middle - 1;
+            } else {
+                return sortedIndexes[middle];
+            }
+        }
+        return -1;
+    }
+
+    private String valueAt(int index) {
+        if (nullValues != null && nullValues.get(index)) {
+            return null;
+        }
+        return new String(values, valueOffsets[index], valueOffsets[index + 1] - valueOffsets[index],
+                StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CompactConfigurations)) {
+            return false;
+        }
+        CompactConfigurations that = (CompactConfigurations) o;
+        return Arrays.equals(keys, that.keys) && Arrays.equals(valueOffsets, that.valueOffsets)
+                && Arrays.equals(values, that.values)
+                && (nullValues == null ? that.nullValues == null : nullValues.equals(that.nullValues));
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(keys) + Arrays.hashCode(values);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.configservice.service.config;
+
+import com.ctrip.framework.apollo.biz.entity.Release;
+
+/**
+ * Release held by the config service caches, with the configurations kept as {@link CompactConfigurations} instead
+ * of the json string. It is never persisted.
+ * <p>
+ * The json string is only assembled for the callers not aware of the compact configurations, once, and kept since.
+ */
+public class CompactRelease extends Release {
+    private volatile CompactConfigurations compactConfigurations;
+    private volatile String configurations;
+
+    private CompactRelease(Release release) {
+        setId(release.getId());
+        setReleaseKey(release.getReleaseKey());
+        setName(release.getName());
+        setAppId(release.getAppId());
+        setClusterName(release.getClusterName());
+        setNamespaceName(release.getNamespaceName());
+        setComment(release.getComment());
+        setAbandoned(release.isAbandoned());
+        setDataChangeCreatedBy(release.getDataChangeCreatedBy());
+        setDataChangeCreatedTime(release.getDataChangeCreatedTime());
+        setDataChangeLastModifiedBy(release.getDataChangeLastModifiedBy());
+        setDataChangeLastModifiedTime(release.getDataChangeLastModifiedTime());
+        compactConfigurations = CompactConfigurations.parse(release.getConfigurations());
+    }
+
+    /**
+     * @return the compact copy of the release, or the release itself if null, compacted or without configurations
+     */
+    public static Release compact(Release release) {
+        if (release == null || release instanceof CompactRelease || release.getConfigurations() == null) {
+            return release;
+        }
+        return new CompactRelease(release);
+    }
+
+    public CompactConfigurations getCompactConfigurations() {
+        return compactConfigurations;
+    }
+
+    /**
+     * @return the configurations in json, which is assembled on the first call
+     */
+    @Override
+    public String getConfigurations() {
+        String json = configurations;
+        if (json == null) {
+            json = compactConfigurations.toJson();
+            configurations = json;
+        }
+        return json;
+    }
+
+    @Override
+    public void setConfigurations(String configurations) {
+        this.compactConfigurations = CompactConfigurations.parse(configurations);
+        this.configurations = null;
+    }
+}
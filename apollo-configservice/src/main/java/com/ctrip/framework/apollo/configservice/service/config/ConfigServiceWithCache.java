@@ -103,7 +103,7 @@ public class ConfigServiceWithCache extends AbstractConfigService {
                                 return nullConfigCacheEntry;
                             }
 
-                            return new ConfigCacheEntry(notificationId, latestRelease);
+                            return new ConfigCacheEntry(notificationId, CompactRelease.compact(latestRelease));
                         } catch (Throwable ex) {
                             transaction.setStatus(ex);
                             throw ex;
@@ -123,7 +123,7 @@ public class ConfigServiceWithCache extends AbstractConfigService {
 
                             transaction.setStatus(Transaction.SUCCESS);
 
-                            return Optional.ofNullable(release);
+                            return Optional.ofNullable(CompactRelease.compact(release));
                         } catch (Throwable ex) {
                             transaction.setStatus(ex);
                             throw ex;
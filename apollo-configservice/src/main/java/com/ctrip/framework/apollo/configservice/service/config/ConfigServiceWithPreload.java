@@ -0,0 +1,308 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.configservice.service.config;
+
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.message.Topics;
+import com.ctrip.framework.apollo.biz.service.ReleaseMessageService;
+import com.ctrip.framework.apollo.biz.service.ReleaseService;
+import com.ctrip.framework.apollo.biz.utils.ReleaseMessageKeyGenerator;
+import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.google.common.base.Splitter;
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Strings;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * config service which loads the latest active releases of all the namespaces at startup, and then keeps them up to
+ * date with the release messages.
+ * <p>
+ * Unlike {@link ConfigServiceWithCache}, the releases never expire, so the requests do not hit the database once
+ * warmed up. The keys are case insensitive, the same as the database.
+ */
+public class ConfigServiceWithPreload extends AbstractConfigService {
+    private static final Logger logger = LoggerFactory.getLogger(ConfigServiceWithPreload.class);
+    private static final long DEFAULT_EXPIRED_AFTER_ACCESS_IN_MINUTES = 60;//1 hour
+    private static final int PRELOAD_BATCH_SIZE = 500;
+    private static final int RELEASE_MESSAGE_BATCH_SIZE = 500;
+    // the estimated size of a release besides its strings, in bytes
+    private static final long RELEASE_OVERHEAD = 200;
+    private static final String TRACER_EVENT_PRELOAD = "ConfigPreload.Preload";
+    private static final String TRACER_EVENT_LOAD = "ConfigPreload.LoadFromDB";
+    private static final String TRACER_EVENT_LOAD_ID = "ConfigPreload.LoadFromDBById";
+    private static final String TRACER_EVENT_GET = "ConfigPreload.Get";
+    private static final String TRACER_EVENT_GET_ID = "ConfigPreload.GetById";
+    private static final Splitter STRING_SPLITTER =
+            Splitter.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR).omitEmptyStrings();
+
+    @Autowired
+    private ReleaseService releaseService;
+
+    @Autowired
+    private ReleaseMessageService releaseMessageService;
+
+    private final ConcurrentMap<String, PreloadEntry> preloadedReleases = Maps.newConcurrentMap();
+
+    private final AtomicLong footprint = new AtomicLong();
+
+    private final AtomicLong warmUpTimeInMillis = new AtomicLong();
+
+    // the notification id the preloaded releases are up to date with
+    private volatile long preloadedNotificationId = ConfigConsts.NOTIFICATION_ID_PLACEHOLDER;
+
+    private LoadingCache<Long, Optional<Release>> configIdCache;
+
+    @PostConstruct
+    void initialize() {
+        configIdCache = CacheBuilder.newBuilder()
+                .expireAfterAccess(DEFAULT_EXPIRED_AFTER_ACCESS_IN_MINUTES, TimeUnit.MINUTES)
+                .build(new CacheLoader<Long, Optional<Release>>() {
+                    @Override
+                    public Optional<Release> load(Long key) throws Exception {
+                        Transaction transaction = Tracer.newTransaction(TRACER_EVENT_LOAD_ID, String.valueOf(key));
+                        try {
+                            Release release = releaseService.findActiveOne(key);
+
+                            transaction.setStatus(Transaction.SUCCESS);
+
+                            return Optional.ofNullable(CompactRelease.compact(release));
+                        } catch (Throwable ex) {
+                            transaction.setStatus(ex);
+                            throw ex;
+                        } finally {
+                            transaction.complete();
+                        }
+                    }
+                });
+
+        Metrics.gauge("apollo.config.preload.releases", preloadedReleases, Map::size);
+        Metrics.gauge("apollo.config.preload.footprint", footprint);
+        Metrics.gauge("apollo.config.preload.warm-up.time", warmUpTimeInMillis);
+
+        preload();
+    }
+
+    private void preload() {
+        Transaction transaction = Tracer.newTransaction(TRACER_EVENT_PRELOAD, "preload");
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        try {
+            //record the latest message before loading, so the releases published meanwhile are caught up later
+            ReleaseMessage latestReleaseMessage = releaseMessageService.findLatestReleaseMessage();
+            long notificationId = latestReleaseMessage == null ? ConfigConsts.NOTIFICATION_ID_PLACEHOLDER :
+                    latestReleaseMessage.getId();
+
+            List<Long> releaseIds = releaseService.findLatestActiveReleaseIds();
+            for (List<Long> batch : Lists.partition(releaseIds, PRELOAD_BATCH_SIZE)) {
+                for (Release release : releaseService.findByReleaseIds(Sets.newHashSet(batch))) {
+                    update(ReleaseMessageKeyGenerator.generate(release.getAppId(), release.getClusterName(),
+                            release.getNamespaceName()), new PreloadEntry(notificationId, release));
+                }
+            }
+            preloadedNotificationId = notificationId;
+
+            catchUp(notificationId);
+
+            warmUpTimeInMillis.set(stopwatch.elapsed(TimeUnit.MILLISECONDS));
+            logger.info("Preloaded {} releases in {} ms, approximately {} bytes", preloadedReleases.size(),
+                    warmUpTimeInMillis.get(), footprint.get());
+            transaction.addData("releases", preloadedReleases.size());
+            transaction.addData("footprint", footprint.get());
+            transaction.setStatus(Transaction.SUCCESS);
+        } catch (Throwable ex) {
+            transaction.setStatus(ex);
+            throw ex;
+        } finally {
+            transaction.complete();
+        }
+    }
+
+    /**
+     * Reload the namespaces of the release messages after the notification id
+     */
+    private void catchUp(long notificationId) {
+        long maxIdScanned = notificationId;
+        boolean hasMore = true;
+        while (hasMore && !Thread.currentThread().isInterrupted()) {
+            List<ReleaseMessage> releaseMessages = releaseMessageService.findReleaseMessagesAfter(maxIdScanned);
+            if (releaseMessages.isEmpty()) {
+                break;
+            }
+            Set<String> messages = Sets.newLinkedHashSet();
+            for (ReleaseMessage releaseMessage : releaseMessages) {
+                messages.add(releaseMessage.getMessage());
+            }
+            for (String message : messages) {
+                reload(message);
+            }
+            maxIdScanned = releaseMessages.get(releaseMessages.size() - 1).getId();
+            hasMore = releaseMessages.size() == RELEASE_MESSAGE_BATCH_SIZE;
+        }
+    }
+
+    private void reload(String key) {
+        List<String> namespaceInfo = STRING_SPLITTER.splitToList(key);
+        if (namespaceInfo.size() != 3) {
+            Tracer.logError(new IllegalArgumentException(String.format("Invalid preload key %s", key)));
+            return;
+        }
+
+        Transaction transaction = Tracer.newTransaction(TRACER_EVENT_LOAD, key);
+        try {
+            ReleaseMessage latestReleaseMessage = releaseMessageService.findLatestReleaseMessageForMessages(Lists
+                    .newArrayList(key));
+            Release latestRelease = releaseService.findLatestActiveRelease(namespaceInfo.get(0), namespaceInfo.get(1),
+                    namespaceInfo.get(2));
+
+            transaction.setStatus(Transaction.SUCCESS);
+
+            long notificationId = latestReleaseMessage == null ? ConfigConsts.NOTIFICATION_ID_PLACEHOLDER :
+                    latestReleaseMessage.getId();
+
+            update(key, new PreloadEntry(notificationId, latestRelease));
+        } catch (Throwable ex) {
+            transaction.setStatus(ex);
+            throw ex;
+        } finally {
+            transaction.complete();
+        }
+    }
+
+    private void update(String key, PreloadEntry entry) {
+        preloadedReleases.compute(key.toLowerCase(), (k, current) -> {
+            //never go back to an older release, in case the loads are completed out of order, while a load without
+            //release message (e.g. cleaned up already) has nothing to compare with and always replaces the current one
+            if (current != null && entry.getNotificationId() != ConfigConsts.NOTIFICATION_ID_PLACEHOLDER
+                    && current.getNotificationId() > entry.getNotificationId()) {
+                return current;
+            }
+            footprint.addAndGet(entry.getFootprint() - (current == null ? 0 : current.getFootprint()));
+            return entry;
+        });
+    }
+
+    @Override
+    protected Release findActiveOne(long id, ApolloNotificationMessages clientMessages) {
+        Tracer.logEvent(TRACER_EVENT_GET_ID, String.valueOf(id));
+        return configIdCache.getUnchecked(id).orElse(null);
+    }
+
+    @Override
+    protected Release findLatestActiveRelease(String appId, String clusterName, String namespaceName,
+                                              ApolloNotificationMessages clientMessages) {
+        String key = ReleaseMessageKeyGenerator.generate(appId, clusterName, namespaceName);
+
+        Tracer.logEvent(TRACER_EVENT_GET, key);
+
+        PreloadEntry entry = preloadedReleases.get(key.toLowerCase());
+        //the namespaces absent are the ones without releases
+        long notificationId = entry == null ? preloadedNotificationId : entry.getNotificationId();
+
+        //the release message is not received yet
+        if (clientMessages != null && clientMessages.has(key) && clientMessages.get(key) > notificationId) {
+            reload(key);
+            entry = preloadedReleases.get(key.toLowerCase());
+        }
+
+        return entry == null ? null : entry.getRelease();
+    }
+
+    int size() {
+        return preloadedReleases.size();
+    }
+
+    long getFootprint() {
+        return footprint.get();
+    }
+
+    @Override
+    public void handleMessage(ReleaseMessage message, String channel) {
+        logger.info("message received - channel: {}, message: {}", channel, message);
+        if (!Topics.APOLLO_RELEASE_TOPIC.equals(channel) || Strings.isNullOrEmpty(message.getMessage())) {
+            return;
+        }
+
+        try {
+            reload(message.getMessage());
+        } catch (Throwable ex) {
+            //ignore
+        }
+    }
+
+    private static class PreloadEntry {
+        private final long notificationId;
+        private final Release release;
+        private final long footprint;
+
+        public PreloadEntry(long notificationId, Release release) {
+            this.notificationId = notificationId;
+            this.release = CompactRelease.compact(release);
+            this.footprint = estimateFootprint(this.release);
+        }
+
+        public long getNotificationId() {
+            return notificationId;
+        }
+
+        public Release getRelease() {
+            return release;
+        }
+
+        public long getFootprint() {
+            return footprint;
+        }
+
+        private static long estimateFootprint(Release release) {
+            if (release == null) {
+                return 0;
+            }
+            long chars = length(release.getReleaseKey()) + length(release.getAppId())
+                    + length(release.getClusterName()) + length(release.getNamespaceName())
+                    + length(release.getName()) + length(release.getComment());
+            //do not assemble the json of a compact release
+            long configurations = release instanceof CompactRelease ?
+                    ((CompactRelease) release).getCompactConfigurations().getFootprint() :
+                    length(release.getConfigurations()) * 2L;
+            return RELEASE_OVERHEAD + chars * 2 + configurations;
+        }
+
+        private static int length(String value) {
+            return value == null ? 0 : value.length();
+        }
+    }
+}
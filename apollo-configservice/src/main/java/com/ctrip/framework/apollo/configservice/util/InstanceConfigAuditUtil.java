@@ -21,8 +21,11 @@ import com.google.common.base.Strings;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Queues;
+import com.google.common.collect.Sets;
 
+import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.entity.Instance;
 import com.ctrip.framework.apollo.biz.entity.InstanceConfig;
 import com.ctrip.framework.apollo.biz.service.InstanceService;
@@ -30,13 +33,19 @@ import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.tracer.Tracer;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -44,6 +53,11 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
+ * Audits the configs loaded by the instances.
+ * <p>
+ * The audits are drained in batches, in which the ones of the same instance and namespace are coalesced, and then
+ * written in one transaction.
+ *
  * @author Jason Song(song_s@ctrip.com)
  */
 @Service
@@ -59,11 +73,15 @@ public class InstanceConfigAuditUtil implements InitializingBean {
             (INSTANCE_CONFIG_AUDIT_MAX_SIZE);
     private Cache<String, Long> instanceCache;
     private Cache<String, String> instanceConfigReleaseKeyCache;
+    private final Counter droppedAudits;
+    private final Timer flushLatency;
 
     private final InstanceService instanceService;
+    private final BizConfig bizConfig;
 
-    public InstanceConfigAuditUtil(final InstanceService instanceService) {
+    public InstanceConfigAuditUtil(final InstanceService instanceService, final BizConfig bizConfig) {
         this.instanceService = instanceService;
+        this.bizConfig = bizConfig;
         auditExecutorService = Executors.newSingleThreadExecutor(
                 ApolloThreadFactory.create("InstanceConfigAuditUtil", true));
         auditStopped = new AtomicBoolean(false);
@@ -71,39 +89,98 @@ public class InstanceConfigAuditUtil implements InitializingBean {
                 .maximumSize(INSTANCE_CACHE_MAX_SIZE).build();
         instanceConfigReleaseKeyCache = CacheBuilder.newBuilder().expireAfterWrite(1, TimeUnit.DAYS)
                 .maximumSize(INSTANCE_CONFIG_CACHE_MAX_SIZE).build();
+        droppedAudits = Metrics.counter("apollo.instance-config.audit.dropped");
+        flushLatency = Metrics.timer("apollo.instance-config.audit.flush.latency");
+        Metrics.gauge("apollo.instance-config.audit.pending", audits, Collection::size);
     }
 
     public boolean audit(String appId, String clusterName, String dataCenter, String
             ip, String configAppId, String configClusterName, String configNamespace, String releaseKey) {
-        return this.audits.offer(new InstanceConfigAuditModel(appId, clusterName, dataCenter, ip,
+        boolean offered = this.audits.offer(new InstanceConfigAuditModel(appId, clusterName, dataCenter, ip,
                 configAppId, configClusterName, configNamespace, releaseKey));
+        if (!offered) {
+            droppedAudits.increment();
+            Tracer.logEvent("Apollo.InstanceConfigAudit.Dropped", STRING_JOINER.join(appId, configAppId,
+                    configNamespace));
+        }
+        return offered;
     }
 
-    void doAudit(InstanceConfigAuditModel auditModel) {
-        String instanceCacheKey = assembleInstanceKey(auditModel.getAppId(), auditModel
-                .getClusterName(), auditModel.getIp(), auditModel.getDataCenter());
-        Long instanceId = instanceCache.getIfPresent(instanceCacheKey);
-        if (instanceId == null) {
-            instanceId = prepareInstanceId(auditModel);
-            instanceCache.put(instanceCacheKey, instanceId);
+    /**
+     * Audit in batch, falls back to auditing one by one if the batch conflicts with the concurrent insertions
+     */
+    void doAudit(List<InstanceConfigAuditModel> auditModels) {
+        //coalesce the audits of the same instance and namespace, the latest wins
+        Map<String, InstanceConfigAuditModel> coalescedAuditModels = Maps.newLinkedHashMap();
+        for (InstanceConfigAuditModel auditModel : auditModels) {
+            coalescedAuditModels.put(STRING_JOINER.join(assembleInstanceKey(auditModel.getAppId(),
+                    auditModel.getClusterName(), auditModel.getIp(), auditModel.getDataCenter()),
+                    auditModel.getConfigAppId(), auditModel.getConfigNamespace()), auditModel);
         }
 
-        //load instance config release key from cache, and check if release key is the same
-        String instanceConfigCacheKey = assembleInstanceConfigKey(instanceId, auditModel
-                .getConfigAppId(), auditModel.getConfigNamespace());
-        String cacheReleaseKey = instanceConfigReleaseKeyCache.getIfPresent(instanceConfigCacheKey);
+        Map<String, InstanceConfigAuditModel> pendingAuditModels = Maps.newLinkedHashMap();
+        Map<String, Long> pendingInstanceIds = Maps.newHashMap();
+        for (InstanceConfigAuditModel auditModel : coalescedAuditModels.values()) {
+            long instanceId;
+            try {
+                instanceId = findInstanceId(auditModel);
+            } catch (Throwable ex) {
+                Tracer.logError(ex);
+                continue;
+            }
+            String instanceConfigCacheKey = assembleInstanceConfigKey(instanceId, auditModel
+                    .getConfigAppId(), auditModel.getConfigNamespace());
+            //if release key is the same, then skip audit
+            if (Objects.equals(instanceConfigReleaseKeyCache.getIfPresent(instanceConfigCacheKey),
+                    auditModel.getReleaseKey())) {
+                continue;
+            }
+            pendingAuditModels.put(instanceConfigCacheKey, auditModel);
+            pendingInstanceIds.put(instanceConfigCacheKey, instanceId);
+        }
 
-        //if release key is the same, then skip audit
-        if (cacheReleaseKey != null && Objects.equals(cacheReleaseKey, auditModel.getReleaseKey())) {
+        if (pendingAuditModels.isEmpty()) {
             return;
         }
 
-        instanceConfigReleaseKeyCache.put(instanceConfigCacheKey, auditModel.getReleaseKey());
+        Map<String, InstanceConfig> instanceConfigs = Maps.newHashMap();
+        for (InstanceConfig instanceConfig : instanceService.findInstanceConfigs(Sets.newHashSet(
+                pendingInstanceIds.values()))) {
+            instanceConfigs.put(assembleInstanceConfigKey(instanceConfig.getInstanceId(),
+                    instanceConfig.getConfigAppId(), instanceConfig.getConfigNamespaceName()), instanceConfig);
+        }
 
-        //if release key is not the same or cannot find in cache, then do audit
-        InstanceConfig instanceConfig = instanceService.findInstanceConfig(instanceId, auditModel
-                .getConfigAppId(), auditModel.getConfigNamespace());
+        List<InstanceConfig> toSave = Lists.newArrayList();
+        for (Map.Entry<String, InstanceConfigAuditModel> entry : pendingAuditModels.entrySet()) {
+            InstanceConfig instanceConfig = assembleInstanceConfig(pendingInstanceIds.get(entry.getKey()),
+                    entry.getValue(), instanceConfigs.get(entry.getKey()));
+            if (instanceConfig != null) {
+                toSave.add(instanceConfig);
+            }
+        }
 
+        try {
+            if (!toSave.isEmpty()) {
+                instanceService.batchSaveInstanceConfigs(toSave);
+            }
+        } catch (DataIntegrityViolationException ex) {
+            //concurrent insertion, audit one by one
+            for (InstanceConfigAuditModel auditModel : pendingAuditModels.values()) {
+                doAudit(auditModel);
+            }
+            return;
+        }
+
+        for (Map.Entry<String, InstanceConfigAuditModel> entry : pendingAuditModels.entrySet()) {
+            instanceConfigReleaseKeyCache.put(entry.getKey(), entry.getValue().getReleaseKey());
+        }
+    }
+
+    /**
+     * @return the instance config to be saved, or null if no need to write
+     */
+    private InstanceConfig assembleInstanceConfig(long instanceId, InstanceConfigAuditModel auditModel,
+                                                  InstanceConfig instanceConfig) {
         if (instanceConfig != null) {
             if (!Objects.equals(instanceConfig.getReleaseKey(), auditModel.getReleaseKey())) {
                 instanceConfig.setConfigClusterName(auditModel.getConfigClusterName());
@@ -112,13 +189,12 @@ public class InstanceConfigAuditUtil implements InitializingBean {
             } else if (offerTimeAndLastModifiedTimeCloseEnough(auditModel.getOfferTime(),
                     instanceConfig.getDataChangeLastModifiedTime())) {
                 //when releaseKey is the same, optimize to reduce writes if the record was updated not long ago
-                return;
+                return null;
             }
             //we need to update no matter the release key is the same or not, to ensure the
             //last modified time is updated each day
             instanceConfig.setDataChangeLastModifiedTime(auditModel.getOfferTime());
-            instanceService.updateInstanceConfig(instanceConfig);
-            return;
+            return instanceConfig;
         }
 
         instanceConfig = new InstanceConfig();
@@ -129,6 +205,47 @@ public class InstanceConfigAuditUtil implements InitializingBean {
         instanceConfig.setReleaseKey(auditModel.getReleaseKey());
         instanceConfig.setReleaseDeliveryTime(auditModel.getOfferTime());
         instanceConfig.setDataChangeCreatedTime(auditModel.getOfferTime());
+        return instanceConfig;
+    }
+
+    private long findInstanceId(InstanceConfigAuditModel auditModel) {
+        String instanceCacheKey = assembleInstanceKey(auditModel.getAppId(), auditModel
+                .getClusterName(), auditModel.getIp(), auditModel.getDataCenter());
+        Long instanceId = instanceCache.getIfPresent(instanceCacheKey);
+        if (instanceId == null) {
+            instanceId = prepareInstanceId(auditModel);
+            instanceCache.put(instanceCacheKey, instanceId);
+        }
+        return instanceId;
+    }
+
+    void doAudit(InstanceConfigAuditModel auditModel) {
+        long instanceId = findInstanceId(auditModel);
+
+        //load instance config release key from cache, and check if release key is the same
+        String instanceConfigCacheKey = assembleInstanceConfigKey(instanceId, auditModel
+                .getConfigAppId(), auditModel.getConfigNamespace());
+        String cacheReleaseKey = instanceConfigReleaseKeyCache.getIfPresent(instanceConfigCacheKey);
+
+        //if release key is the same, then skip audit
+        if (cacheReleaseKey != null && Objects.equals(cacheReleaseKey, auditModel.getReleaseKey())) {
+            return;
+        }
+
+        instanceConfigReleaseKeyCache.put(instanceConfigCacheKey, auditModel.getReleaseKey());
+
+        //if release key is not the same or cannot find in cache, then do audit
+        InstanceConfig instanceConfig = assembleInstanceConfig(instanceId, auditModel, instanceService
+                .findInstanceConfig(instanceId, auditModel.getConfigAppId(), auditModel.getConfigNamespace()));
+
+        if (instanceConfig == null) {
+            return;
+        }
+
+        if (instanceConfig.getId() > 0) {
+            instanceService.updateInstanceConfig(instanceConfig);
+            return;
+        }
 
         try {
             instanceService.createInstanceConfig(instanceConfig);
@@ -167,12 +284,20 @@ public class InstanceConfigAuditUtil implements InitializingBean {
     @Override
     public void afterPropertiesSet() throws Exception {
         auditExecutorService.submit(() -> {
+            List<InstanceConfigAuditModel> auditModels = Lists.newArrayList();
             while (!auditStopped.get() && !Thread.currentThread().isInterrupted()) {
                 try {
-                    InstanceConfigAuditModel model = audits.take();
-                    doAudit(model);
+                    //wait for the first audit, then collect the others till the batch is full or the interval ends
+                    auditModels.add(audits.take());
+                    Queues.drain(audits, auditModels, bizConfig.instanceConfigAuditBatch() - 1,
+                            bizConfig.instanceConfigAuditFlushIntervalInMilli(), TimeUnit.MILLISECONDS);
+                    flushLatency.record(() -> doAudit(auditModels));
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
                 } catch (Throwable ex) {
                     Tracer.logError(ex);
+                } finally {
+                    auditModels.clear();
                 }
             }
         });
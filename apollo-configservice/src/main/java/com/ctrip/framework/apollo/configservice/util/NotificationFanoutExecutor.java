@@ -0,0 +1,207 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.configservice.util;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.configservice.wrapper.DeferredResultWrapper;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Queues;
+import com.google.common.util.concurrent.RateLimiter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Notifies the long polling clients watching a key of a new release message.
+ * <p>
+ * Small fan-outs are done in the caller thread. Large ones are split into batches of
+ * {@link BizConfig#releaseMessageNotificationBatch()} and run on a worker pool, throttled by a token bucket shared by all
+ * the keys of this node. A release message for a key which is still being fanned out is merged into the in-flight task
+ * instead of queueing behind it.
+ */
+@Component
+public class NotificationFanoutExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationFanoutExecutor.class);
+
+    private final ExecutorService fanoutExecutorService;
+    private final ConcurrentMap<String, FanoutTask> inFlightTasks = Maps.newConcurrentMap();
+    private final AtomicLong pendingNotifications = new AtomicLong();
+    private final RateLimiter rateLimiter;
+    private final Timer notifyLatency;
+
+    private final BizConfig bizConfig;
+
+    public NotificationFanoutExecutor(final BizConfig bizConfig) {
+        this.bizConfig = bizConfig;
+        fanoutExecutorService = Executors.newFixedThreadPool(bizConfig.releaseMessageNotificationWorkers(),
+                ApolloThreadFactory.create("NotificationFanoutExecutor", true));
+        rateLimiter = RateLimiter.create(bizConfig.releaseMessageNotificationPermitsPerSecond());
+        notifyLatency = Metrics.timer("apollo.notification.fanout.latency");
+        Metrics.gauge("apollo.notification.fanout.pending", pendingNotifications);
+        Metrics.gauge("apollo.notification.fanout.in-flight", inFlightTasks, Map::size);
+    }
+
+    public void notify(String key, List<DeferredResultWrapper> results, ApolloConfigNotification notification) {
+        if (results.size() <= bizConfig.releaseMessageNotificationBatch() && !inFlightTasks.containsKey(key)) {
+            logger.debug("Notify {} clients for key {}", results.size(), key);
+            for (DeferredResultWrapper result : results) {
+                result.setResult(notification);
+            }
+            logger.debug("Notification completed");
+            return;
+        }
+
+        inFlightTasks.compute(key, (k, task) -> {
+            if (task == null) {
+                task = new FanoutTask(k, notification);
+                task.enqueue(results);
+                fanoutExecutorService.submit(task);
+            } else {
+                Tracer.logEvent("Apollo.LongPoll.FanoutMerged", k);
+                task.merge(notification, results);
+            }
+            return task;
+        });
+    }
+
+    /**
+     * @return the number of clients waiting to be notified
+     */
+    public long getPendingNotifications() {
+        return pendingNotifications.get();
+    }
+
+    /**
+     * @return the number of keys being fanned out
+     */
+    public int getInFlightKeys() {
+        return inFlightTasks.size();
+    }
+
+    private void refreshRate() {
+        int permitsPerSecond = bizConfig.releaseMessageNotificationPermitsPerSecond();
+        if (permitsPerSecond > 0 && permitsPerSecond != rateLimiter.getRate()) {
+            rateLimiter.setRate(permitsPerSecond);
+        }
+    }
+
+    private class FanoutTask implements Runnable {
+        private final String key;
+        private final Queue<DeferredResultWrapper> pending = Queues.newConcurrentLinkedQueue();
+        private final Set<DeferredResultWrapper> queued = ConcurrentHashMap.newKeySet();
+        private volatile ApolloConfigNotification notification;
+        private volatile long messageReceivedTime;
+
+        FanoutTask(String key, ApolloConfigNotification notification) {
+            this.key = key;
+            this.notification = notification;
+            this.messageReceivedTime = System.nanoTime();
+        }
+
+        void merge(ApolloConfigNotification newNotification, List<DeferredResultWrapper> results) {
+            if (newNotification.getNotificationId() >= notification.getNotificationId()) {
+                notification = newNotification;
+                messageReceivedTime = System.nanoTime();
+            }
+            enqueue(results);
+        }
+
+        void enqueue(List<DeferredResultWrapper> results) {
+            for (DeferredResultWrapper result : results) {
+                if (queued.add(result)) {
+                    pending.offer(result);
+                    pendingNotifications.incrementAndGet();
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    List<DeferredResultWrapper> batch = poll(bizConfig.releaseMessageNotificationBatch());
+                    if (batch.isEmpty()) {
+                        if (tryComplete()) {
+                            return;
+                        }
+                        continue;
+                    }
+                    refreshRate();
+                    rateLimiter.acquire(batch.size());
+
+                    ApolloConfigNotification current = notification;
+                    logger.debug("Async notify {} clients for key {}", batch.size(), key);
+                    for (DeferredResultWrapper result : batch) {
+                        result.setResult(current);
+                    }
+                    long latency = System.nanoTime() - messageReceivedTime;
+                    for (int i = 0; i < batch.size(); i++) {
+                        notifyLatency.record(latency, TimeUnit.NANOSECONDS);
+                    }
+                }
+            } catch (Throwable ex) {
+                logger.error("Notify clients for key {} failed", key, ex);
+                Tracer.logError(ex);
+                inFlightTasks.remove(key, this);
+                pendingNotifications.addAndGet(-queued.size());
+            }
+        }
+
+        private List<DeferredResultWrapper> poll(int batchSize) {
+            List<DeferredResultWrapper> batch = Lists.newArrayListWithCapacity(batchSize);
+            DeferredResultWrapper result;
+            while (batch.size() < batchSize && (result = pending.poll()) != null) {
+                queued.remove(result);
+                pendingNotifications.decrementAndGet();
+                batch.add(result);
+            }
+            return batch;
+        }
+
+        /**
+         * Remove the task once drained, this is done atomically with {@link #merge} so that no merged clients are lost
+         */
+        private boolean tryComplete() {
+            boolean[] completed = new boolean[1];
+            inFlightTasks.computeIfPresent(key, (k, task) -> {
+                if (task == this && pending.isEmpty()) {
+                    completed[0] = true;
+                    return null;
+                }
+                return task;
+            });
+            return completed[0];
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.configservice.wrapper;
+
+import com.google.common.collect.Lists;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Registry of the long polling requests, grouped by watch key.
+ * <p>
+ * Keys are case insensitive. Each key is hashed into its own bin of a {@link ConcurrentHashMap}, so registering,
+ * unregistering and notifying different keys never contend on the same lock, and the waiters of one key are
+ * kept in a concurrent set which allows O(1) removal and lock-free snapshots.
+ */
+public class DeferredResultRegistry<T> {
+    private static final int DEFAULT_INITIAL_CAPACITY = 1024;
+
+    private final ConcurrentMap<String, Set<T>> registry;
+    private final AtomicInteger size = new AtomicInteger();
+
+    public DeferredResultRegistry() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    public DeferredResultRegistry(int initialCapacity) {
+        registry = new ConcurrentHashMap<>(initialCapacity);
+    }
+
+    /**
+     * @return true if the value is newly registered for the key
+     */
+    public boolean register(String key, T value) {
+        boolean[] added = new boolean[1];
+        registry.compute(normalize(key), (k, values) -> {
+            if (values == null) {
+                values = ConcurrentHashMap.newKeySet();
+            }
+            added[0] = values.add(value);
+            return values;
+        });
+        if (added[0]) {
+            size.incrementAndGet();
+        }
+        return added[0];
+    }
+
+    /**
+     * @return true if the value was registered for the key
+     */
+    public boolean unregister(String key, T value) {
+        boolean[] removed = new boolean[1];
+        registry.computeIfPresent(normalize(key), (k, values) -> {
+            removed[0] = values.remove(value);
+            // drop the empty set so that the registry does not grow with the number of keys ever watched
+            return values.isEmpty() ? null : values;
+        });
+        if (removed[0]) {
+            size.decrementAndGet();
+        }
+        return removed[0];
+    }
+
+    public boolean containsKey(String key) {
+        return registry.containsKey(normalize(key));
+    }
+
+    /**
+     * Take a snapshot of the values registered for the key, the snapshot is not affected by later registrations
+     */
+    public List<T> get(String key) {
+        Set<T> values = registry.get(normalize(key));
+        if (values == null) {
+            return Collections.emptyList();
+        }
+        return Lists.newArrayList(values);
+    }
+
+    /**
+     * @return the number of key-value registrations
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * @return the number of keys being watched
+     */
+    public int keySize() {
+        return registry.size();
+    }
+
+    private String normalize(String key) {
+        return key.toLowerCase();
+    }
+}
@@ -18,6 +18,7 @@ package com.ctrip.framework.apollo.metaservice.controller;
 
 import com.ctrip.framework.apollo.core.ServiceNameConsts;
 import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.ctrip.framework.apollo.metaservice.service.ConfigServiceRouter;
 import com.ctrip.framework.apollo.metaservice.service.DiscoveryService;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -31,9 +32,12 @@ import java.util.List;
 public class ServiceController {
 
     private final DiscoveryService discoveryService;
+    private final ConfigServiceRouter configServiceRouter;
 
-    public ServiceController(final DiscoveryService discoveryService) {
+    public ServiceController(final DiscoveryService discoveryService,
+                             final ConfigServiceRouter configServiceRouter) {
         this.discoveryService = discoveryService;
+        this.configServiceRouter = configServiceRouter;
     }
 
     /**
@@ -49,7 +53,8 @@ public class ServiceController {
     public List<ServiceDTO> getConfigService(
             @RequestParam(value = "appId", defaultValue = "") String appId,
             @RequestParam(value = "ip", required = false) String clientIp) {
-        return discoveryService.getServiceInstances(ServiceNameConsts.APOLLO_CONFIGSERVICE);
+        return configServiceRouter.route(discoveryService.getServiceInstances(ServiceNameConsts.APOLLO_CONFIGSERVICE),
+                appId, clientIp);
     }
 
     @RequestMapping("/admin")
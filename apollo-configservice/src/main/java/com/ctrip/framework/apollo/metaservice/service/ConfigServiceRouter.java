@@ -0,0 +1,73 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.metaservice.service;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.google.common.base.Strings;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Picks a bounded subset of the config services for each client by rendezvous hashing of the app id and the client ip,
+ * the preferred one first and then the fallbacks.
+ * <p>
+ * The clients shuffle the config services they discover, so an ordering alone would not stick. Returning only the
+ * subset keeps each client on the same few nodes on each discovery, so those nodes keep the releases of its namespaces
+ * cached, and the clients are spread evenly no matter which nodes came up first. When a node joins or leaves, only
+ * the clients whose subsets contain it move.
+ */
+@Component
+public class ConfigServiceRouter {
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final BizConfig bizConfig;
+
+    public ConfigServiceRouter(final BizConfig bizConfig) {
+        this.bizConfig = bizConfig;
+    }
+
+    /**
+     * @return the preferred config services of the client in the order it should try, or all the config services as
+     * discovered if the routing is disabled or the client is unknown
+     */
+    public List<ServiceDTO> route(List<ServiceDTO> services, String appId, String clientIp) {
+        if (!bizConfig.isConfigServiceAffinityRoutingEnabled() || services.size() < 2
+                || (Strings.isNullOrEmpty(appId) && Strings.isNullOrEmpty(clientIp))) {
+            return services;
+        }
+        String clientKey = Strings.nullToEmpty(appId) + "+" + Strings.nullToEmpty(clientIp);
+        return services.stream()
+                .sorted(Comparator.comparingLong((ServiceDTO service) -> score(clientKey, service)).reversed())
+                .limit(bizConfig.configServiceAffinityRoutingSubsetSize())
+                .collect(Collectors.toList());
+    }
+
+    private long score(String clientKey, ServiceDTO service) {
+        return HASH_FUNCTION.newHasher()
+                .putString(clientKey, StandardCharsets.UTF_8)
+                .putString(Strings.nullToEmpty(service.getHomepageUrl()), StandardCharsets.UTF_8)
+                .hash().asLong();
+    }
+}
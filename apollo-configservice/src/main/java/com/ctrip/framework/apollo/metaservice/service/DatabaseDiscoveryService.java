@@ -21,7 +21,10 @@ import com.ctrip.framework.apollo.biz.registry.ServiceInstance;
 import com.ctrip.framework.apollo.core.dto.ServiceDTO;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
@@ -35,13 +38,29 @@ public class DatabaseDiscoveryService implements DiscoveryService {
 
     private final DatabaseDiscoveryClient discoveryClient;
 
+    /**
+     * service id -> instances converted, only kept when the changes are pushed by the client
+     */
+    private final Map<String, List<ServiceDTO>> serviceId2ServiceDTOs = new ConcurrentHashMap<>();
+
+    private final boolean changePushed;
+
     public DatabaseDiscoveryService(
             DatabaseDiscoveryClient discoveryClient) {
         this.discoveryClient = discoveryClient;
+        this.changePushed = discoveryClient.addChangeListener(this.serviceId2ServiceDTOs::remove);
     }
 
     @Override
     public List<ServiceDTO> getServiceInstances(String serviceId) {
+        if (this.changePushed) {
+            return this.serviceId2ServiceDTOs.computeIfAbsent(serviceId,
+                    key -> Collections.unmodifiableList(this.readServiceInstances(key)));
+        }
+        return this.readServiceInstances(serviceId);
+    }
+
+    private List<ServiceDTO> readServiceInstances(String serviceId) {
         List<ServiceInstance> serviceInstanceList = this.discoveryClient.getInstances(serviceId);
         return convert(serviceInstanceList);
     }
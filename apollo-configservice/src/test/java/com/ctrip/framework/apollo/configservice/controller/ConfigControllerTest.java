@@ -16,18 +16,26 @@
  */
 package com.ctrip.framework.apollo.configservice.controller;
 
+import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.entity.Release;
 import com.ctrip.framework.apollo.common.entity.AppNamespace;
 import com.ctrip.framework.apollo.configservice.service.AppNamespaceServiceWithCache;
+import com.ctrip.framework.apollo.configservice.service.ConfigResponseCache;
+import com.ctrip.framework.apollo.configservice.service.ReleaseKeyIndex;
+import com.ctrip.framework.apollo.configservice.service.config.CompactRelease;
 import com.ctrip.framework.apollo.configservice.service.config.ConfigService;
 import com.ctrip.framework.apollo.configservice.util.InstanceConfigAuditUtil;
 import com.ctrip.framework.apollo.configservice.util.NamespaceUtil;
+import com.ctrip.framework.apollo.configservice.util.WatchKeysUtil;
 import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.dto.ApolloConfig;
 import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
 import com.google.common.base.Joiner;
+import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 import org.junit.Before;
@@ -35,13 +43,20 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.*;
 
 /**
@@ -75,12 +90,19 @@ public class ConfigControllerTest {
     private InstanceConfigAuditUtil instanceConfigAuditUtil;
     @Mock
     private HttpServletRequest someRequest;
+    @Mock
+    private BizConfig bizConfig;
+    @Mock
+    private ReleaseKeyIndex releaseKeyIndex;
+    @Mock
+    private WatchKeysUtil watchKeysUtil;
     private Gson gson = new Gson();
 
     @Before
     public void setUp() throws Exception {
         configController = spy(new ConfigController(
-                configService, appNamespaceService, namespaceUtil, instanceConfigAuditUtil, gson
+                configService, appNamespaceService, namespaceUtil, instanceConfigAuditUtil,
+                new ConfigResponseCache(bizConfig, gson), releaseKeyIndex, watchKeysUtil, gson
         ));
 
         someAppId = "1";
@@ -132,6 +154,208 @@ public class ConfigControllerTest {
                 someClientIp, someAppId, someClusterName, defaultNamespaceName, someServerSideNewReleaseKey);
     }
 
+    @Test
+    public void testQueryConfigWithResponseCache() throws Exception {
+        String someClientSideReleaseKey = "1";
+        String someServerSideNewReleaseKey = "2";
+
+        when(bizConfig.isConfigServiceResponseCacheEnabled()).thenReturn(true);
+        when(configService.loadConfig(someAppId, someClientIp, someClientLabel, someAppId, someClusterName, defaultNamespaceName,
+                someDataCenter, someNotificationMessages)).thenReturn(someRelease);
+        when(someRelease.getReleaseKey()).thenReturn(someServerSideNewReleaseKey);
+        when(someRelease.getNamespaceName()).thenReturn(defaultNamespaceName);
+
+        for (int i = 0; i < 2; i++) {
+            MockHttpServletResponse someResponse = new MockHttpServletResponse();
+
+            ApolloConfig result = configController.queryConfig(someAppId, someClusterName,
+                    defaultNamespaceName, someDataCenter, someClientSideReleaseKey,
+                    someClientIp, someClientLabel, someMessagesAsString, new MockHttpServletRequest(), someResponse);
+
+            assertNull(result);
+            assertNull(someResponse.getHeader(HttpHeaders.CONTENT_ENCODING));
+            ApolloConfig written = gson.fromJson(someResponse.getContentAsString(), ApolloConfig.class);
+            assertEquals(someAppId, written.getAppId());
+            assertEquals(someClusterName, written.getCluster());
+            assertEquals(defaultNamespaceName, written.getNamespaceName());
+            assertEquals(someServerSideNewReleaseKey, written.getReleaseKey());
+            assertEquals("foo", written.getConfigurations().get("apollo.bar"));
+        }
+
+        //the configurations are parsed and serialized only once
+        verify(someRelease, times(1)).getConfigurations();
+        verify(instanceConfigAuditUtil, times(2)).audit(someAppId, someClusterName, someDataCenter,
+                someClientIp, someAppId, someClusterName, defaultNamespaceName, someServerSideNewReleaseKey);
+    }
+
+    @Test
+    public void testLoadConfigIgnoresResponseCache() throws Exception {
+        String someClientSideReleaseKey = "1";
+        String someServerSideNewReleaseKey = "2";
+        HttpServletResponse someResponse = mock(HttpServletResponse.class);
+
+        when(configService.loadConfig(someAppId, someClientIp, someClientLabel, someAppId, someClusterName, defaultNamespaceName,
+                someDataCenter, someNotificationMessages)).thenReturn(someRelease);
+        when(someRelease.getReleaseKey()).thenReturn(someServerSideNewReleaseKey);
+
+        ApolloConfig result = configController.loadConfig(someAppId, someClusterName,
+                defaultNamespaceName, someDataCenter, someClientSideReleaseKey,
+                someClientIp, someClientLabel, someMessagesAsString, someRequest, someResponse);
+
+        assertEquals(someServerSideNewReleaseKey, result.getReleaseKey());
+        verify(bizConfig, never()).isConfigServiceResponseCacheEnabled();
+        verify(someResponse, never()).getOutputStream();
+    }
+
+    @Test
+    public void testQueryConfigWithETag() throws Exception {
+        String someServerSideNewReleaseKey = "2";
+        long someIndexVersion = 1;
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/configs");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        when(releaseKeyIndex.currentVersion()).thenReturn(someIndexVersion);
+        when(configService.loadConfig(someAppId, someClientIp, someClientLabel, someAppId, someClusterName, defaultNamespaceName,
+                someDataCenter, someNotificationMessages)).thenReturn(someRelease);
+        when(someRelease.getReleaseKey()).thenReturn(someServerSideNewReleaseKey);
+
+        ApolloConfig result = configController.queryConfig(someAppId, someClusterName,
+                defaultNamespaceName, someDataCenter, "-1", someClientIp, someClientLabel, someMessagesAsString,
+                request, response);
+
+        assertEquals(someServerSideNewReleaseKey, result.getReleaseKey());
+        assertEquals(ReleaseKeyIndex.assembleETag(someServerSideNewReleaseKey), response.getHeader(HttpHeaders.ETAG));
+        verify(releaseKeyIndex, times(1)).put(someAppId, someClusterName, defaultNamespaceName, someDataCenter,
+                someClientIp, someClientLabel, someIndexVersion, someServerSideNewReleaseKey,
+                Lists.newArrayList(someRelease));
+    }
+
+    @Test
+    public void testQueryConfigNotModifiedByETag() throws Exception {
+        String someServerSideReleaseKey = "2";
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/configs");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, ReleaseKeyIndex.assembleETag(someServerSideReleaseKey));
+        when(configService.loadConfig(someAppId, someClientIp, someClientLabel, someAppId, someClusterName, defaultNamespaceName,
+                someDataCenter, someNotificationMessages)).thenReturn(someRelease);
+        when(someRelease.getReleaseKey()).thenReturn(someServerSideReleaseKey);
+
+        ApolloConfig result = configController.queryConfig(someAppId, someClusterName,
+                defaultNamespaceName, someDataCenter, "-1", someClientIp, someClientLabel, someMessagesAsString,
+                request, response);
+
+        assertNull(result);
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+        //the client has newer messages, so the index is not used
+        verify(releaseKeyIndex, never()).find(anyString(), anyString(), anyString(), anyString(), anyString(),
+                anyString());
+    }
+
+    @Test
+    public void testQueryConfigNotModifiedByReleaseKeyIndex() throws Exception {
+        String someServerSideReleaseKey = "2";
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/configs");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ReleaseKeyIndex.Entry someEntry = mock(ReleaseKeyIndex.Entry.class);
+        Release someIndexedRelease = new Release();
+        someIndexedRelease.setAppId(someAppId);
+        someIndexedRelease.setClusterName(someClusterName);
+        someIndexedRelease.setNamespaceName(defaultNamespaceName);
+        someIndexedRelease.setReleaseKey(someServerSideReleaseKey);
+
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, ReleaseKeyIndex.assembleETag(someServerSideReleaseKey));
+        when(someEntry.getETag()).thenReturn(ReleaseKeyIndex.assembleETag(someServerSideReleaseKey));
+        when(someEntry.getReleases()).thenReturn(Lists.newArrayList(someIndexedRelease));
+        when(releaseKeyIndex.find(someAppId, someClusterName, defaultNamespaceName, someDataCenter, someClientIp,
+                someClientLabel)).thenReturn(someEntry);
+
+        ApolloConfig result = configController.queryConfig(someAppId, someClusterName,
+                defaultNamespaceName, someDataCenter, "-1", someClientIp, someClientLabel, null,
+                request, response);
+
+        assertNull(result);
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+        assertEquals(ReleaseKeyIndex.assembleETag(someServerSideReleaseKey), response.getHeader(HttpHeaders.ETAG));
+        verify(configService, never()).loadConfig(anyString(), anyString(), anyString(), anyString(), anyString(),
+                anyString(), anyString(), any());
+        verify(instanceConfigAuditUtil, times(1)).audit(someAppId, someClusterName, someDataCenter,
+                someClientIp, someAppId, someClusterName, defaultNamespaceName, someServerSideReleaseKey);
+    }
+
+    @Test
+    public void testQueryConfigs() throws Exception {
+        String someAppSideReleaseKey = "1";
+        String somePublicAppSideReleaseKey = "2";
+        String somePublicAppId = "somePublicAppId";
+        String someMissingNamespaceName = "someMissingNamespace";
+        AppNamespace somePublicAppNamespace =
+                assemblePublicAppNamespace(somePublicAppId, somePublicNamespaceName);
+        Map<String, String> clientSideReleaseKeys = Maps.newLinkedHashMap();
+        //the application namespace is not changed
+        clientSideReleaseKeys.put(defaultNamespaceName, someAppSideReleaseKey);
+        clientSideReleaseKeys.put(somePublicNamespaceName, null);
+        clientSideReleaseKeys.put(someMissingNamespaceName, "-1");
+
+        when(namespaceUtil.filterNamespaceName(someMissingNamespaceName)).thenReturn(someMissingNamespaceName);
+        when(namespaceUtil.normalizeNamespace(someAppId, someMissingNamespaceName)).thenReturn(someMissingNamespaceName);
+        when(configService.loadConfig(someAppId, someClientIp, someClientLabel, someAppId, someClusterName, defaultNamespaceName,
+                someDataCenter, someNotificationMessages)).thenReturn(someRelease);
+        when(someRelease.getReleaseKey()).thenReturn(someAppSideReleaseKey);
+        when(appNamespaceService.findPublicNamespaceByName(somePublicNamespaceName))
+                .thenReturn(somePublicAppNamespace);
+        when(configService.loadConfig(someAppId, someClientIp, someClientLabel, somePublicAppId, someClusterName, somePublicNamespaceName,
+                someDataCenter, someNotificationMessages)).thenReturn(somePublicRelease);
+        when(somePublicRelease.getReleaseKey()).thenReturn(somePublicAppSideReleaseKey);
+        when(somePublicRelease.getAppId()).thenReturn(somePublicAppId);
+        when(somePublicRelease.getClusterName()).thenReturn(someDataCenter);
+        when(somePublicRelease.getNamespaceName()).thenReturn(somePublicNamespaceName);
+
+        List<ApolloConfig> result = configController.queryConfigs(someAppId, someClusterName, someDataCenter,
+                someClientIp, someClientLabel, someMessagesAsString, clientSideReleaseKeys, someRequest);
+
+        assertEquals(1, result.size());
+        ApolloConfig publicConfig = result.get(0);
+        assertEquals(someAppId, publicConfig.getAppId());
+        assertEquals(someClusterName, publicConfig.getCluster());
+        assertEquals(somePublicNamespaceName, publicConfig.getNamespaceName());
+        assertEquals(somePublicAppSideReleaseKey, publicConfig.getReleaseKey());
+        assertEquals("foo", publicConfig.getConfigurations().get("apollo.public.bar"));
+        verify(instanceConfigAuditUtil, times(1)).audit(someAppId, someClusterName, someDataCenter,
+                someClientIp, someAppId, someClusterName, null, someAppSideReleaseKey);
+        verify(instanceConfigAuditUtil, times(1)).audit(someAppId, someClusterName, someDataCenter,
+                someClientIp, somePublicAppId, someDataCenter, somePublicNamespaceName, somePublicAppSideReleaseKey);
+    }
+
+    @Test
+    public void testQueryConfigsAssemblesWatchKeysOnce() throws Exception {
+        String someReleaseKey = "1";
+        Map<String, String> clientSideReleaseKeys = ImmutableMap.of(defaultNamespaceName, "-1",
+                somePublicNamespaceName, "-1");
+
+        when(configService.loadConfig(eq(someAppId), eq(someClientIp), eq(someClientLabel), eq(someAppId),
+                eq(someClusterName), anyString(), eq(someDataCenter), eq(someNotificationMessages))).thenReturn(someRelease);
+        when(someRelease.getReleaseKey()).thenReturn(someReleaseKey);
+        when(appNamespaceService.findByAppIdAndNamespace(someAppId, somePublicNamespaceName))
+                .thenReturn(assembleAppNamespace(someAppId, somePublicNamespaceName, false));
+        when(watchKeysUtil.assembleAllWatchKeys(someAppId, someClusterName,
+                Sets.newHashSet(defaultNamespaceName, somePublicNamespaceName), someDataCenter))
+                .thenReturn(HashMultimap.create());
+        doAnswer(invocation -> {
+            Supplier<?> watchedKeys = invocation.getArgument(9);
+            watchedKeys.get();
+            return null;
+        }).when(releaseKeyIndex).put(anyString(), anyString(), anyString(), anyString(), anyString(), anyString(),
+                anyLong(), anyString(), anyList(), any(Supplier.class));
+
+        List<ApolloConfig> result = configController.queryConfigs(someAppId, someClusterName, someDataCenter,
+                someClientIp, someClientLabel, someMessagesAsString, clientSideReleaseKeys, someRequest);
+
+        assertEquals(2, result.size());
+        verify(watchKeysUtil, times(1)).assembleAllWatchKeys(someAppId, someClusterName,
+                Sets.newHashSet(defaultNamespaceName, somePublicNamespaceName), someDataCenter);
+    }
+
     @Test
     public void testQueryConfigFile() throws Exception {
         String someClientSideReleaseKey = "1";
@@ -387,6 +611,31 @@ public class ConfigControllerTest {
         assertEquals(value2, result.get(key2));
     }
 
+    @Test
+    public void testMergeCompactConfigurations() throws Exception {
+        Gson gson = new Gson();
+        String key1 = "key1";
+        String value1 = "value1";
+        String anotherValue1 = "anotherValue1";
+
+        String key2 = "key2";
+        String value2 = "value2";
+
+        Release releaseWithHighPriority = new Release();
+        releaseWithHighPriority.setConfigurations(gson.toJson(ImmutableMap.of(key1, anotherValue1)));
+
+        Release releaseWithLowPriority = new Release();
+        releaseWithLowPriority.setConfigurations(gson.toJson(ImmutableMap.of(key2, value2, key1, value1)));
+
+        Map<String, String> result =
+                configController.mergeReleaseConfigurations(
+                        Lists.newArrayList(CompactRelease.compact(releaseWithHighPriority), releaseWithLowPriority));
+
+        assertEquals(Lists.newArrayList(key2, key1), Lists.newArrayList(result.keySet()));
+        assertEquals(anotherValue1, result.get(key1));
+        assertEquals(value2, result.get(key2));
+    }
+
     @Test(expected = JsonSyntaxException.class)
     public void testTransformConfigurationToMapFailed() throws Exception {
         String someInvalidConfiguration = "xxx";
@@ -467,6 +716,22 @@ public class ConfigControllerTest {
         assertNull(configController.transformMessages(someInvalidMessages));
     }
 
+    @Test
+    public void testAcceptsGzip() throws Exception {
+        assertTrue(ConfigController.acceptsGzip("gzip"));
+        assertTrue(ConfigController.acceptsGzip("deflate, GZIP;q=0.5"));
+        assertTrue(ConfigController.acceptsGzip("x-gzip"));
+        assertTrue(ConfigController.acceptsGzip("*"));
+        assertTrue(ConfigController.acceptsGzip("gzip;q=1, *;q=0"));
+
+        assertFalse(ConfigController.acceptsGzip(null));
+        assertFalse(ConfigController.acceptsGzip("identity"));
+        assertFalse(ConfigController.acceptsGzip("gzip;q=0"));
+        assertFalse(ConfigController.acceptsGzip("gzip; q=0.0, *"));
+        assertFalse(ConfigController.acceptsGzip("*;q=0"));
+        assertFalse(ConfigController.acceptsGzip("notgzip"));
+    }
+
     private AppNamespace assemblePublicAppNamespace(String appId, String namespace) {
         return assembleAppNamespace(appId, namespace, true);
     }
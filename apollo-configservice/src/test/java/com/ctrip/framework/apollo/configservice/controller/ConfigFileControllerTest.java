@@ -19,6 +19,7 @@ package com.ctrip.framework.apollo.configservice.controller;
 import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
 import com.ctrip.framework.apollo.biz.grayReleaseRule.GrayReleaseRulesHolder;
 import com.ctrip.framework.apollo.biz.message.Topics;
+import com.ctrip.framework.apollo.configservice.service.ReleaseKeyIndex;
 import com.ctrip.framework.apollo.configservice.util.NamespaceUtil;
 import com.ctrip.framework.apollo.configservice.util.WatchKeysUtil;
 import com.ctrip.framework.apollo.core.dto.ApolloConfig;
@@ -41,14 +42,20 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -66,6 +73,8 @@ public class ConfigFileControllerTest {
     private NamespaceUtil namespaceUtil;
     @Mock
     private GrayReleaseRulesHolder grayReleaseRulesHolder;
+    @Mock
+    private ReleaseKeyIndex releaseKeyIndex;
     private ConfigFileController configFileController;
     private String someAppId;
     private String someClusterName;
@@ -85,7 +94,7 @@ public class ConfigFileControllerTest {
     @Before
     public void setUp() throws Exception {
         configFileController = new ConfigFileController(
-                configController, namespaceUtil, watchKeysUtil, grayReleaseRulesHolder
+                configController, namespaceUtil, watchKeysUtil, grayReleaseRulesHolder, releaseKeyIndex
         );
 
         someAppId = "someAppId";
@@ -128,7 +137,7 @@ public class ConfigFileControllerTest {
         ApolloConfig someApolloConfig = mock(ApolloConfig.class);
         when(someApolloConfig.getConfigurations()).thenReturn(configurations);
         when(configController
-                .queryConfig(someAppId, someClusterName, someNamespace, someDataCenter, "-1", someClientIp, someClientLabel, null,
+                .loadConfig(someAppId, someClusterName, someNamespace, someDataCenter, "-1", someClientIp, someClientLabel, null,
                         someRequest, someResponse)).thenReturn(someApolloConfig);
         when(watchKeysUtil
                 .assembleAllWatchKeys(someAppId, someClusterName, someNamespace, someDataCenter))
@@ -158,7 +167,7 @@ public class ConfigFileControllerTest {
         assertEquals(response, anotherResponse);
 
         verify(configController, times(1))
-                .queryConfig(someAppId, someClusterName, someNamespace, someDataCenter, "-1", someClientIp, someClientLabel, null,
+                .loadConfig(someAppId, someClusterName, someNamespace, someDataCenter, "-1", someClientIp, someClientLabel, null,
                         someRequest, someResponse);
     }
 
@@ -177,7 +186,7 @@ public class ConfigFileControllerTest {
                 ImmutableMap.of(someKey, someValue);
         ApolloConfig someApolloConfig = mock(ApolloConfig.class);
         when(configController
-                .queryConfig(someAppId, someClusterName, someNamespace, someDataCenter, "-1", someClientIp, someClientLabel, null,
+                .loadConfig(someAppId, someClusterName, someNamespace, someDataCenter, "-1", someClientIp, someClientLabel, null,
                         someRequest, someResponse)).thenReturn(someApolloConfig);
         when(someApolloConfig.getConfigurations()).thenReturn(configurations);
         when(watchKeysUtil
@@ -193,6 +202,53 @@ public class ConfigFileControllerTest {
         assertEquals(configurations, GSON.fromJson(response.getBody(), responseType));
     }
 
+    @Test
+    public void testQueryConfigWithETag() throws Exception {
+        String someReleaseKey = "someReleaseKey";
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/configfiles/json");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ApolloConfig someApolloConfig = mock(ApolloConfig.class);
+        ReleaseKeyIndex.Entry someEntry = mock(ReleaseKeyIndex.Entry.class);
+
+        when(someApolloConfig.getConfigurations()).thenReturn(ImmutableMap.of("someKey", "someValue"));
+        when(configController
+                .loadConfig(someAppId, someClusterName, someNamespace, someDataCenter, "-1", someClientIp, someClientLabel, null,
+                        request, response)).thenReturn(someApolloConfig);
+        when(someEntry.getETag()).thenReturn(ReleaseKeyIndex.assembleETag(someReleaseKey));
+        when(releaseKeyIndex.find(someAppId, someClusterName, someNamespace, someDataCenter, someClientIp,
+                someClientLabel)).thenReturn(someEntry);
+
+        ResponseEntity<String> result = configFileController
+                .queryConfigAsJson(someAppId, someClusterName, someNamespace, someDataCenter,
+                        someClientIp, someClientLabel, request, response);
+
+        assertEquals(HttpStatus.OK, result.getStatusCode());
+        assertEquals(ReleaseKeyIndex.assembleETag(someReleaseKey), result.getHeaders().getETag());
+    }
+
+    @Test
+    public void testQueryConfigNotModified() throws Exception {
+        String someReleaseKey = "someReleaseKey";
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/configfiles");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ReleaseKeyIndex.Entry someEntry = mock(ReleaseKeyIndex.Entry.class);
+
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, ReleaseKeyIndex.assembleETag(someReleaseKey));
+        when(someEntry.getETag()).thenReturn(ReleaseKeyIndex.assembleETag(someReleaseKey));
+        when(releaseKeyIndex.find(someAppId, someClusterName, someNamespace, someDataCenter, someClientIp,
+                someClientLabel)).thenReturn(someEntry);
+
+        ResponseEntity<String> result = configFileController
+                .queryConfigAsProperties(someAppId, someClusterName, someNamespace, someDataCenter,
+                        someClientIp, someClientLabel, request, response);
+
+        assertNull(result);
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+        assertEquals(ReleaseKeyIndex.assembleETag(someReleaseKey), response.getHeader(HttpHeaders.ETAG));
+        verify(configController, never()).loadConfig(anyString(), anyString(), anyString(), anyString(), anyString(),
+                anyString(), anyString(), any(), any(), any());
+    }
+
     @Test
     public void testQueryConfigWithGrayRelease() throws Exception {
         String someKey = "someKey";
@@ -209,7 +265,7 @@ public class ConfigFileControllerTest {
         ApolloConfig someApolloConfig = mock(ApolloConfig.class);
         when(someApolloConfig.getConfigurations()).thenReturn(configurations);
         when(configController
-                .queryConfig(someAppId, someClusterName, someNamespace, someDataCenter, "-1", someClientIp, someClientLabel, null,
+                .loadConfig(someAppId, someClusterName, someNamespace, someDataCenter, "-1", someClientIp, someClientLabel, null,
                         someRequest, someResponse)).thenReturn(someApolloConfig);
 
         ResponseEntity<String> response =
@@ -223,7 +279,7 @@ public class ConfigFileControllerTest {
                                 someClientIp, someClientLabel, someRequest, someResponse);
 
         verify(configController, times(2))
-                .queryConfig(someAppId, someClusterName, someNamespace, someDataCenter, "-1", someClientIp, someClientLabel, null,
+                .loadConfig(someAppId, someClusterName, someNamespace, someDataCenter, "-1", someClientIp, someClientLabel, null,
                         someRequest, someResponse);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -22,7 +22,9 @@ import com.ctrip.framework.apollo.biz.message.Topics;
 import com.ctrip.framework.apollo.biz.utils.EntityManagerUtil;
 import com.ctrip.framework.apollo.configservice.service.ReleaseMessageServiceWithCache;
 import com.ctrip.framework.apollo.configservice.util.NamespaceUtil;
+import com.ctrip.framework.apollo.configservice.util.NotificationFanoutExecutor;
 import com.ctrip.framework.apollo.configservice.util.WatchKeysUtil;
+import com.ctrip.framework.apollo.configservice.wrapper.DeferredResultRegistry;
 import com.ctrip.framework.apollo.configservice.wrapper.DeferredResultWrapper;
 import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
@@ -79,17 +81,20 @@ public class NotificationControllerV2Test {
 
     private Gson gson;
 
-    private Multimap<String, DeferredResultWrapper> deferredResults;
+    private DeferredResultRegistry<DeferredResultWrapper> deferredResults;
 
     @Before
     public void setUp() throws Exception {
         gson = new Gson();
-        controller = new NotificationControllerV2(
-                watchKeysUtil, releaseMessageService, entityManagerUtil, namespaceUtil, gson, bizConfig
-        );
 
         when(bizConfig.releaseMessageNotificationBatch()).thenReturn(100);
-        when(bizConfig.releaseMessageNotificationBatchIntervalInMilli()).thenReturn(5);
+        when(bizConfig.releaseMessageNotificationWorkers()).thenReturn(1);
+        when(bizConfig.releaseMessageNotificationPermitsPerSecond()).thenReturn(20000);
+
+        controller = new NotificationControllerV2(
+                watchKeysUtil, releaseMessageService, entityManagerUtil, namespaceUtil,
+                new NotificationFanoutExecutor(bizConfig), gson, bizConfig
+        );
 
         someAppId = "someAppId";
         someCluster = "someCluster";
@@ -106,7 +111,7 @@ public class NotificationControllerV2Test {
         when(namespaceUtil.normalizeNamespace(someAppId, somePublicNamespace)).thenReturn(somePublicNamespace);
 
         deferredResults =
-                (Multimap<String, DeferredResultWrapper>) ReflectionTestUtils.getField(controller, "deferredResults");
+                (DeferredResultRegistry<DeferredResultWrapper>) ReflectionTestUtils.getField(controller, "deferredResults");
     }
 
     @Test
@@ -331,7 +336,7 @@ public class NotificationControllerV2Test {
                         someDataCenter)).thenReturn(watchKeysMap);
 
         when(bizConfig.releaseMessageNotificationBatch()).thenReturn(someBatch);
-        when(bizConfig.releaseMessageNotificationBatchIntervalInMilli()).thenReturn(someBatchInterval);
+        when(bizConfig.releaseMessageNotificationPermitsPerSecond()).thenReturn(someBatch * 1000 / someBatchInterval);
 
         DeferredResult<ResponseEntity<List<ApolloConfigNotification>>>
                 deferredResult = controller
@@ -18,6 +18,8 @@ package com.ctrip.framework.apollo.configservice.integration;
 
 import com.ctrip.framework.apollo.configservice.service.AppNamespaceServiceWithCache;
 import com.google.common.base.Joiner;
+import com.google.common.collect.Maps;
+import com.google.gson.Gson;
 
 import com.ctrip.framework.apollo.core.ConfigConsts;
 import com.ctrip.framework.apollo.core.dto.ApolloConfig;
@@ -25,12 +27,16 @@ import com.ctrip.framework.apollo.core.dto.ApolloConfig;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.client.HttpStatusCodeException;
 
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -189,6 +195,37 @@ public class ConfigControllerIntegrationTest extends AbstractBaseIntegrationTest
         assertEquals("v2-file", result.getConfigurations().get("k2"));
     }
 
+    @Test
+    @Sql(scripts = "/integration-test/test-release.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "/integration-test/cleanup.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    public void testQueryConfigs() throws Exception {
+        Map<String, String> clientSideReleaseKeys = Maps.newLinkedHashMap();
+        clientSideReleaseKeys.put(ConfigConsts.NAMESPACE_APPLICATION, "-1");
+        clientSideReleaseKeys.put(someNamespace, "TEST-RELEASE-KEY2");
+        clientSideReleaseKeys.put(somePublicNamespace, "-1");
+        clientSideReleaseKeys.put("someNamespaceNotExists", "-1");
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        ResponseEntity<ApolloConfig[]> response = restTemplate
+                .postForEntity("http://{baseurl}/configs/{appId}/{clusterName}?dataCenter={dataCenter}",
+                        new HttpEntity<>(new Gson().toJson(clientSideReleaseKeys), headers), ApolloConfig[].class,
+                        getHostUrl(), someAppId, someCluster, someDC);
+        ApolloConfig[] result = response.getBody();
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(2, result.length);
+        assertEquals(ConfigConsts.NAMESPACE_APPLICATION, result[0].getNamespaceName());
+        assertEquals(someDefaultCluster, result[0].getCluster());
+        assertEquals("TEST-RELEASE-KEY1", result[0].getReleaseKey());
+        assertEquals("v1", result[0].getConfigurations().get("k1"));
+        assertEquals(somePublicNamespace, result[1].getNamespaceName());
+        assertEquals(someCluster, result[1].getCluster());
+        assertEquals("TEST-RELEASE-KEY4", result[1].getReleaseKey());
+        assertEquals("someDC-v1", result[1].getConfigurations().get("k1"));
+    }
+
     @Test
     public void testQueryConfigError() throws Exception {
         String someNamespaceNotExists = "someNamespaceNotExists";
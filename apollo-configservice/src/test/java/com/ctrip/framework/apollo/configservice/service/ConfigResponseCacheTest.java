@@ -0,0 +1,155 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.configservice.service;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.message.Topics;
+import com.ctrip.framework.apollo.configservice.service.ConfigResponseCache.CachedResponse;
+import com.ctrip.framework.apollo.core.dto.ApolloConfig;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+import com.google.gson.Gson;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ConfigResponseCacheTest {
+    private ConfigResponseCache configResponseCache;
+    @Mock
+    private BizConfig bizConfig;
+    private Gson gson;
+
+    private String someAppId;
+    private String someClusterName;
+    private String someNamespaceName;
+    private String someReleaseKey;
+    private List<Release> someReleases;
+
+    @Before
+    public void setUp() throws Exception {
+        gson = new Gson();
+        configResponseCache = new ConfigResponseCache(bizConfig, gson);
+
+        someAppId = "someAppId";
+        someClusterName = "someClusterName";
+        someNamespaceName = "someNamespaceName";
+        someReleaseKey = "someReleaseKey";
+        someReleases = Lists.newArrayList(assembleRelease(someAppId, someClusterName, someNamespaceName));
+    }
+
+    @Test
+    public void testGetSerializesOnce() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        ApolloConfig someConfig = assembleConfig(someReleaseKey, 1);
+        Supplier<ApolloConfig> loader = () -> {
+            loads.incrementAndGet();
+            return someConfig;
+        };
+
+        CachedResponse response = configResponseCache.get(someAppId, someClusterName, someNamespaceName,
+                someReleaseKey, someReleases, loader);
+        CachedResponse anotherResponse = configResponseCache.get(someAppId, someClusterName, someNamespaceName,
+                someReleaseKey, someReleases, loader);
+
+        assertSame(response, anotherResponse);
+        assertEquals(1, loads.get());
+        assertEquals(gson.toJson(someConfig), new String(response.getBody(), "UTF-8"));
+        //too small to be compressed
+        assertNull(response.getGzippedBody());
+    }
+
+    @Test
+    public void testGetWithNewReleaseKey() throws Exception {
+        String anotherReleaseKey = "anotherReleaseKey";
+
+        CachedResponse response = configResponseCache.get(someAppId, someClusterName, someNamespaceName,
+                someReleaseKey, someReleases, () -> assembleConfig(someReleaseKey, 1));
+        CachedResponse anotherResponse = configResponseCache.get(someAppId, someClusterName, someNamespaceName,
+                anotherReleaseKey, someReleases, () -> assembleConfig(anotherReleaseKey, 1));
+
+        assertNotSame(response, anotherResponse);
+        assertEquals(anotherReleaseKey, gson.fromJson(new String(anotherResponse.getBody(), "UTF-8"),
+                ApolloConfig.class).getReleaseKey());
+    }
+
+    @Test
+    public void testGzippedBody() throws Exception {
+        CachedResponse response = configResponseCache.get(someAppId, someClusterName, someNamespaceName,
+                someReleaseKey, someReleases, () -> assembleConfig(someReleaseKey, 100));
+
+        assertNotNull(response.getGzippedBody());
+        assertTrue(response.getGzippedBody().length < response.getBody().length);
+        byte[] unzipped = ByteStreams.toByteArray(
+                new GZIPInputStream(new ByteArrayInputStream(response.getGzippedBody())));
+        assertArrayEquals(response.getBody(), unzipped);
+    }
+
+    @Test
+    public void testHandleMessage() throws Exception {
+        String anotherNamespaceName = "anotherNamespaceName";
+        configResponseCache.get(someAppId, someClusterName, someNamespaceName, someReleaseKey, someReleases,
+                () -> assembleConfig(someReleaseKey, 1));
+        configResponseCache.get(someAppId, someClusterName, anotherNamespaceName, someReleaseKey,
+                Lists.newArrayList(assembleRelease(someAppId, someClusterName, anotherNamespaceName)),
+                () -> assembleConfig(someReleaseKey, 1));
+
+        assertEquals(2, configResponseCache.size());
+
+        configResponseCache.handleMessage(new ReleaseMessage(String.join("+", someAppId, someClusterName,
+                someNamespaceName)), "someUnsupportedTopic");
+
+        assertEquals(2, configResponseCache.size());
+
+        configResponseCache.handleMessage(new ReleaseMessage(String.join("+", someAppId, someClusterName,
+                someNamespaceName)), Topics.APOLLO_RELEASE_TOPIC);
+
+        assertEquals(1, configResponseCache.size());
+    }
+
+    private Release assembleRelease(String appId, String clusterName, String namespaceName) {
+        Release release = new Release();
+        release.setAppId(appId);
+        release.setClusterName(clusterName);
+        release.setNamespaceName(namespaceName);
+        return release;
+    }
+
+    private ApolloConfig assembleConfig(String releaseKey, int size) {
+        ApolloConfig apolloConfig = new ApolloConfig(someAppId, someClusterName, someNamespaceName, releaseKey);
+        Map<String, String> configurations = Maps.newHashMap();
+        for (int i = 0; i < size; i++) {
+            configurations.put("someKey" + i, "someValue" + i);
+        }
+        apolloConfig.setConfigurations(configurations);
+        return apolloConfig;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.configservice.service;
+
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.grayReleaseRule.GrayReleaseRulesHolder;
+import com.ctrip.framework.apollo.biz.message.Topics;
+import com.ctrip.framework.apollo.configservice.util.WatchKeysUtil;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReleaseKeyIndexTest {
+    private ReleaseKeyIndex releaseKeyIndex;
+    @Mock
+    private WatchKeysUtil watchKeysUtil;
+    @Mock
+    private GrayReleaseRulesHolder grayReleaseRulesHolder;
+
+    private String someAppId;
+    private String someClusterName;
+    private String someNamespaceName;
+    private String someDataCenter;
+    private String someClientIp;
+    private String someReleaseKey;
+    private String someWatchKey;
+    private List<Release> someReleases;
+
+    @Before
+    public void setUp() throws Exception {
+        releaseKeyIndex = new ReleaseKeyIndex(watchKeysUtil, grayReleaseRulesHolder);
+
+        someAppId = "someAppId";
+        someClusterName = "someClusterName";
+        someNamespaceName = "someNamespaceName";
+        someDataCenter = "someDataCenter";
+        someClientIp = "someClientIp";
+        someReleaseKey = "someReleaseKey";
+        someWatchKey = String.join("+", someAppId, someClusterName, someNamespaceName);
+
+        Release someRelease = new Release();
+        someRelease.setAppId(someAppId);
+        someRelease.setClusterName(someClusterName);
+        someRelease.setNamespaceName(someNamespaceName);
+        someRelease.setReleaseKey(someReleaseKey);
+        someRelease.setConfigurations("{\"someKey\":\"someValue\"}");
+        someReleases = Lists.newArrayList(someRelease);
+
+        when(watchKeysUtil.assembleAllWatchKeys(someAppId, someClusterName, someNamespaceName, someDataCenter))
+                .thenReturn(Sets.newHashSet(someWatchKey));
+    }
+
+    @Test
+    public void testPutAndFind() throws Exception {
+        releaseKeyIndex.put(someAppId, someClusterName, someNamespaceName, someDataCenter, someClientIp, null,
+                releaseKeyIndex.currentVersion(), someReleaseKey, someReleases);
+
+        ReleaseKeyIndex.Entry entry = releaseKeyIndex.find(someAppId, someClusterName, someNamespaceName,
+                someDataCenter, "anotherClientIp", null);
+
+        assertEquals(someReleaseKey, entry.getMergedReleaseKey());
+        assertEquals("W/\"someReleaseKey\"", entry.getETag());
+        assertEquals(1, entry.getReleases().size());
+        assertEquals(someReleaseKey, entry.getReleases().get(0).getReleaseKey());
+        assertEquals(someNamespaceName, entry.getReleases().get(0).getNamespaceName());
+        assertNull(entry.getReleases().get(0).getConfigurations());
+    }
+
+    @Test
+    public void testClientsWithGrayReleaseRuleOrLabelAreNotIndexed() throws Exception {
+        String someGrayClientIp = "someGrayClientIp";
+        when(grayReleaseRulesHolder.hasGrayReleaseRule(someAppId, someGrayClientIp, someNamespaceName))
+                .thenReturn(true);
+
+        releaseKeyIndex.put(someAppId, someClusterName, someNamespaceName, someDataCenter, someGrayClientIp, null,
+                releaseKeyIndex.currentVersion(), someReleaseKey, someReleases);
+        releaseKeyIndex.put(someAppId, someClusterName, someNamespaceName, someDataCenter, someClientIp,
+                "someLabel", releaseKeyIndex.currentVersion(), someReleaseKey, someReleases);
+
+        assertEquals(0, releaseKeyIndex.size());
+
+        releaseKeyIndex.put(someAppId, someClusterName, someNamespaceName, someDataCenter, someClientIp, null,
+                releaseKeyIndex.currentVersion(), someReleaseKey, someReleases);
+
+        assertNotNull(releaseKeyIndex.find(someAppId, someClusterName, someNamespaceName, someDataCenter,
+                someClientIp, null));
+        assertNull(releaseKeyIndex.find(someAppId, someClusterName, someNamespaceName, someDataCenter,
+                someGrayClientIp, null));
+        assertNull(releaseKeyIndex.find(someAppId, someClusterName, someNamespaceName, someDataCenter,
+                someClientIp, "someLabel"));
+    }
+
+    @Test
+    public void testHandleMessage() throws Exception {
+        releaseKeyIndex.put(someAppId, someClusterName, someNamespaceName, someDataCenter, someClientIp, null,
+                releaseKeyIndex.currentVersion(), someReleaseKey, someReleases);
+
+        releaseKeyIndex.handleMessage(new ReleaseMessage(someWatchKey), "someUnsupportedTopic");
+
+        assertEquals(1, releaseKeyIndex.size());
+
+        //the message key might differ in case from the requested one
+        releaseKeyIndex.handleMessage(new ReleaseMessage(someWatchKey.toUpperCase()), Topics.APOLLO_RELEASE_TOPIC);
+
+        assertEquals(0, releaseKeyIndex.size());
+        assertNull(releaseKeyIndex.find(someAppId, someClusterName, someNamespaceName, someDataCenter,
+                someClientIp, null));
+    }
+
+    @Test
+    public void testReleasesLoadedBeforeMessageAreNotIndexed() throws Exception {
+        long loadedVersion = releaseKeyIndex.currentVersion();
+
+        releaseKeyIndex.handleMessage(new ReleaseMessage(someWatchKey), Topics.APOLLO_RELEASE_TOPIC);
+        releaseKeyIndex.put(someAppId, someClusterName, someNamespaceName, someDataCenter, someClientIp, null,
+                loadedVersion, someReleaseKey, someReleases);
+
+        assertEquals(0, releaseKeyIndex.size());
+        //a rejected put leaves no watched keys behind
+        Multimap<?, ?> watchedKeys2IndexKey = (Multimap<?, ?>) ReflectionTestUtils.getField(releaseKeyIndex,
+                "watchedKeys2IndexKey");
+        Multimap<?, ?> indexKey2WatchedKeys = (Multimap<?, ?>) ReflectionTestUtils.getField(releaseKeyIndex,
+                "indexKey2WatchedKeys");
+        assertTrue(watchedKeys2IndexKey.isEmpty());
+        assertTrue(indexKey2WatchedKeys.isEmpty());
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.configservice.service;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.message.ReleaseMessageScanner;
+import com.ctrip.framework.apollo.biz.message.Topics;
+import com.ctrip.framework.apollo.core.ServiceNameConsts;
+import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.ctrip.framework.apollo.metaservice.service.DiscoveryService;
+import com.google.common.collect.Lists;
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.HttpHeaders;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs against an in-process stand-in of the admin service release message stream
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class ReleaseMessageStreamClientTest {
+    private ReleaseMessageStreamClient releaseMessageStreamClient;
+    @Mock
+    private ReleaseMessageScanner releaseMessageScanner;
+    @Mock
+    private DiscoveryService discoveryService;
+    @Mock
+    private BizConfig bizConfig;
+
+    private HttpServer adminService;
+    private String adminServiceUrl;
+    private AtomicReference<String> authorization;
+    private Gson gson;
+
+    @Before
+    public void setUp() throws Exception {
+        gson = new Gson();
+        authorization = new AtomicReference<>();
+        adminService = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        adminService.start();
+        adminServiceUrl = String.format("http://localhost:%d/", adminService.getAddress().getPort());
+
+        releaseMessageStreamClient = new ReleaseMessageStreamClient(releaseMessageScanner, discoveryService, bizConfig);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        releaseMessageStreamClient.destroy();
+        adminService.stop(0);
+    }
+
+    @Test
+    public void testStream() throws Exception {
+        ReleaseMessage someReleaseMessage = assembleReleaseMessage(1, "someAppId+default+application");
+        ReleaseMessage anotherReleaseMessage = assembleReleaseMessage(2, "anotherAppId+default+application");
+        String someAccessToken = "someAccessToken";
+
+        when(bizConfig.isAdminServiceAccessControlEnabled()).thenReturn(true);
+        when(bizConfig.getAdminServiceAccessTokens()).thenReturn(someAccessToken + ",anotherAccessToken");
+        respondWith(assembleEvent(someReleaseMessage, Topics.APOLLO_RELEASE_TOPIC)
+                + assembleEvent(anotherReleaseMessage, "someUnsupportedTopic"));
+
+        releaseMessageStreamClient.stream(adminServiceUrl + "release-messages/stream");
+
+        ArgumentCaptor<ReleaseMessage> captor = ArgumentCaptor.forClass(ReleaseMessage.class);
+        verify(releaseMessageScanner, times(1)).onMessagePushed(captor.capture());
+        assertEquals(someReleaseMessage.getId(), captor.getValue().getId());
+        assertEquals(someReleaseMessage.getMessage(), captor.getValue().getMessage());
+        assertEquals(someAccessToken, authorization.get());
+    }
+
+    @Test(expected = IOException.class)
+    public void testStreamWithUnexpectedResponse() throws Exception {
+        adminService.createContext("/release-messages/stream", exchange -> {
+            exchange.sendResponseHeaders(401, -1);
+            exchange.close();
+        });
+
+        releaseMessageStreamClient.stream(adminServiceUrl + "release-messages/stream");
+    }
+
+    @Test
+    public void testRefreshStreams() throws Exception {
+        ReleaseMessage someReleaseMessage = assembleReleaseMessage(1, "someAppId+default+application");
+        ServiceDTO someAdminService = new ServiceDTO();
+        someAdminService.setHomepageUrl(adminServiceUrl);
+
+        when(bizConfig.isReleaseMessagePushEnabled()).thenReturn(true);
+        when(discoveryService.getServiceInstances(ServiceNameConsts.APOLLO_ADMINSERVICE))
+                .thenReturn(Lists.newArrayList(someAdminService));
+        respondWith(assembleEvent(someReleaseMessage, Topics.APOLLO_RELEASE_TOPIC));
+
+        releaseMessageStreamClient.refreshStreams();
+
+        assertEquals(1, releaseMessageStreamClient.getStreamCount());
+        verify(releaseMessageScanner, timeout(5000).atLeastOnce()).onMessagePushed(any(ReleaseMessage.class));
+
+        when(discoveryService.getServiceInstances(ServiceNameConsts.APOLLO_ADMINSERVICE))
+                .thenReturn(Collections.emptyList());
+
+        releaseMessageStreamClient.refreshStreams();
+
+        assertEquals(0, releaseMessageStreamClient.getStreamCount());
+    }
+
+    private void respondWith(String body) {
+        adminService.createContext("/release-messages/stream", exchange -> {
+            authorization.set(exchange.getRequestHeaders().getFirst(HttpHeaders.AUTHORIZATION));
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add(HttpHeaders.CONTENT_TYPE, "text/event-stream");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        });
+    }
+
+    private String assembleEvent(ReleaseMessage releaseMessage, String channel) {
+        return String.format("id:%d\nevent:%s\ndata:%s\n\n", releaseMessage.getId(), channel,
+                gson.toJson(releaseMessage));
+    }
+
+    private ReleaseMessage assembleReleaseMessage(long id, String message) {
+        ReleaseMessage releaseMessage = new ReleaseMessage(message);
+        releaseMessage.setId(id);
+        return releaseMessage;
+    }
+}
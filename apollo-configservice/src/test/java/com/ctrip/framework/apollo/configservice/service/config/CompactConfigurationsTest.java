@@ -0,0 +1,132 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.configservice.service.config;
+
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.gson.Gson;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CompactConfigurationsTest {
+    private Gson gson;
+    private Map<String, String> someConfigurations;
+
+    @Before
+    public void setUp() throws Exception {
+        gson = new Gson();
+        someConfigurations = Maps.newLinkedHashMap();
+        someConfigurations.put("zKey", "someValue");
+        someConfigurations.put("aKey", "值");
+        someConfigurations.put("mKey", "");
+        someConfigurations.put("nullKey", null);
+    }
+
+    @Test
+    public void testGet() throws Exception {
+        CompactConfigurations configurations = CompactConfigurations.of(someConfigurations);
+
+        assertEquals(4, configurations.size());
+        assertEquals("someValue", configurations.get("zKey"));
+        assertEquals("值", configurations.get("aKey"));
+        assertEquals("", configurations.get("mKey"));
+        assertNull(configurations.get("nullKey"));
+        assertTrue(configurations.containsKey("nullKey"));
+        assertNull(configurations.get("absentKey"));
+        assertFalse(configurations.containsKey("absentKey"));
+    }
+
+    @Test
+    public void testKeepOriginalOrder() throws Exception {
+        CompactConfigurations configurations = CompactConfigurations.of(someConfigurations);
+
+        List<String> keys = Lists.newArrayList();
+        configurations.forEach((key, value) -> keys.add(key));
+
+        assertEquals(Lists.newArrayList(someConfigurations.keySet()), keys);
+        assertEquals(someConfigurations, configurations.toMap());
+        assertEquals(Lists.newArrayList(someConfigurations.keySet()),
+                Lists.newArrayList(configurations.toMap().keySet()));
+    }
+
+    @Test
+    public void testParse() throws Exception {
+        String json = "{\"someKey\":\"someValue\",\"anotherKey\":\"anotherValue\"}";
+
+        CompactConfigurations configurations = CompactConfigurations.parse(json);
+
+        assertEquals(json, configurations.toJson());
+        assertEquals(CompactConfigurations.of(gson.fromJson(json, Map.class)), configurations);
+        assertEquals(0, CompactConfigurations.parse("{}").size());
+    }
+
+    @Test
+    public void testKeysAreShared() throws Exception {
+        CompactConfigurations configurations = CompactConfigurations.parse("{\"someKey\":\"someValue\"}");
+        CompactConfigurations anotherConfigurations = CompactConfigurations.parse("{\"someKey\":\"anotherValue\"}");
+
+        List<String> keys = Lists.newArrayList();
+        configurations.forEach((key, value) -> keys.add(key));
+        anotherConfigurations.forEach((key, value) -> keys.add(key));
+
+        assertSame(keys.get(0), keys.get(1));
+    }
+
+    @Test
+    public void testFootprint() throws Exception {
+        Map<String, String> configurations = Maps.newLinkedHashMap();
+        for (int i = 0; i < 100; i++) {
+            configurations.put("someKey" + i, "someValue" + i);
+        }
+        String json = gson.toJson(configurations);
+
+        //the json string takes at least one byte per char
+        assertTrue(CompactConfigurations.of(configurations).getFootprint() < json.length());
+    }
+
+    @Test
+    public void testCompactRelease() throws Exception {
+        Release someRelease = new Release();
+        someRelease.setId(1);
+        someRelease.setReleaseKey("someReleaseKey");
+        someRelease.setAppId("someAppId");
+        someRelease.setConfigurations(gson.toJson(someConfigurations));
+
+        Release compactRelease = CompactRelease.compact(someRelease);
+
+        assertTrue(compactRelease instanceof CompactRelease);
+        assertEquals(someRelease.getId(), compactRelease.getId());
+        assertEquals(someRelease.getReleaseKey(), compactRelease.getReleaseKey());
+        assertEquals(someRelease.getAppId(), compactRelease.getAppId());
+        assertEquals(someRelease.getConfigurations(), compactRelease.getConfigurations());
+        //the json is assembled only once
+        assertSame(compactRelease.getConfigurations(), compactRelease.getConfigurations());
+        assertSame(compactRelease, CompactRelease.compact(compactRelease));
+
+        compactRelease.setConfigurations("{\"anotherKey\":\"anotherValue\"}");
+        assertEquals("{\"anotherKey\":\"anotherValue\"}", compactRelease.getConfigurations());
+        assertEquals("anotherValue",
+                ((CompactRelease) compactRelease).getCompactConfigurations().get("anotherKey"));
+        assertNull(CompactRelease.compact(null));
+    }
+}
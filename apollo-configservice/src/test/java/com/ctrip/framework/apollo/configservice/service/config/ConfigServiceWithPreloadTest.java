@@ -0,0 +1,235 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.configservice.service.config;
+
+import com.ctrip.framework.apollo.biz.entity.Release;
+import com.ctrip.framework.apollo.biz.entity.ReleaseMessage;
+import com.ctrip.framework.apollo.biz.message.Topics;
+import com.ctrip.framework.apollo.biz.service.ReleaseMessageService;
+import com.ctrip.framework.apollo.biz.service.ReleaseService;
+import com.ctrip.framework.apollo.biz.utils.ReleaseMessageKeyGenerator;
+import com.ctrip.framework.apollo.core.dto.ApolloNotificationMessages;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ConfigServiceWithPreloadTest {
+    private ConfigServiceWithPreload configServiceWithPreload;
+
+    @Mock
+    private ReleaseService releaseService;
+    @Mock
+    private ReleaseMessageService releaseMessageService;
+
+    private String someAppId;
+    private String someClusterName;
+    private String someNamespaceName;
+    private String anotherNamespaceName;
+    private String someKey;
+    private long someNotificationId;
+    private Release someRelease;
+    private Release anotherRelease;
+    private ApolloNotificationMessages someNotificationMessages;
+
+    @Before
+    public void setUp() throws Exception {
+        configServiceWithPreload = new ConfigServiceWithPreload();
+        ReflectionTestUtils.setField(configServiceWithPreload, "releaseService", releaseService);
+        ReflectionTestUtils.setField(configServiceWithPreload, "releaseMessageService", releaseMessageService);
+
+        someAppId = "someAppId";
+        someClusterName = "someClusterName";
+        someNamespaceName = "someNamespaceName";
+        anotherNamespaceName = "anotherNamespaceName";
+        someNotificationId = 10;
+
+        someKey = ReleaseMessageKeyGenerator.generate(someAppId, someClusterName, someNamespaceName);
+
+        someRelease = assembleRelease(1, someNamespaceName, "{\"someKey\":\"someValue\"}");
+        anotherRelease = assembleRelease(2, anotherNamespaceName, "{\"anotherKey\":\"anotherValue\"}");
+
+        someNotificationMessages = new ApolloNotificationMessages();
+
+        when(releaseMessageService.findLatestReleaseMessage())
+                .thenReturn(assembleReleaseMessage(someNotificationId, "anyMessage"));
+        when(releaseService.findLatestActiveReleaseIds()).thenReturn(Lists.newArrayList(1L, 2L));
+        when(releaseService.findByReleaseIds(Sets.newHashSet(1L, 2L)))
+                .thenReturn(Lists.newArrayList(someRelease, anotherRelease));
+    }
+
+    @Test
+    public void testPreload() throws Exception {
+        when(releaseMessageService.findReleaseMessagesAfter(someNotificationId)).thenReturn(Collections.emptyList());
+
+        configServiceWithPreload.initialize();
+
+        assertEquals(2, configServiceWithPreload.size());
+        assertTrue(configServiceWithPreload.getFootprint() > 0);
+        assertRelease(someRelease, configServiceWithPreload.findLatestActiveRelease(someAppId, someClusterName,
+                someNamespaceName, someNotificationMessages));
+        assertRelease(anotherRelease, configServiceWithPreload.findLatestActiveRelease(someAppId, someClusterName,
+                anotherNamespaceName, someNotificationMessages));
+        //keys are case insensitive
+        assertRelease(someRelease, configServiceWithPreload.findLatestActiveRelease(someAppId.toUpperCase(),
+                someClusterName, someNamespaceName, someNotificationMessages));
+
+        verify(releaseService, never()).findLatestActiveRelease(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    public void testPreloadCatchesUpWithReleaseMessages() throws Exception {
+        long anotherNotificationId = someNotificationId + 1;
+        Release yetAnotherRelease = assembleRelease(3, someNamespaceName, "{}");
+
+        when(releaseMessageService.findReleaseMessagesAfter(someNotificationId))
+                .thenReturn(Lists.newArrayList(assembleReleaseMessage(anotherNotificationId, someKey)));
+        when(releaseMessageService.findLatestReleaseMessageForMessages(Lists.newArrayList(someKey)))
+                .thenReturn(assembleReleaseMessage(anotherNotificationId, someKey));
+        when(releaseService.findLatestActiveRelease(someAppId, someClusterName, someNamespaceName))
+                .thenReturn(yetAnotherRelease);
+
+        configServiceWithPreload.initialize();
+
+        assertRelease(yetAnotherRelease, configServiceWithPreload.findLatestActiveRelease(someAppId,
+                someClusterName, someNamespaceName, someNotificationMessages));
+    }
+
+    @Test
+    public void testFindLatestActiveReleaseWithNamespaceNotPreloaded() throws Exception {
+        when(releaseMessageService.findReleaseMessagesAfter(someNotificationId)).thenReturn(Collections.emptyList());
+
+        configServiceWithPreload.initialize();
+
+        assertNull(configServiceWithPreload.findLatestActiveRelease(someAppId, someClusterName,
+                "yetAnotherNamespaceName", someNotificationMessages));
+
+        verify(releaseService, never()).findLatestActiveRelease(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    public void testFindLatestActiveReleaseWithOutdatedPreload() throws Exception {
+        long anotherNotificationId = someNotificationId + 1;
+        Release yetAnotherRelease = assembleRelease(3, someNamespaceName, "{}");
+        someNotificationMessages.put(someKey, anotherNotificationId);
+
+        when(releaseMessageService.findReleaseMessagesAfter(someNotificationId)).thenReturn(Collections.emptyList());
+        when(releaseMessageService.findLatestReleaseMessageForMessages(Lists.newArrayList(someKey)))
+                .thenReturn(assembleReleaseMessage(anotherNotificationId, someKey));
+        when(releaseService.findLatestActiveRelease(someAppId, someClusterName, someNamespaceName))
+                .thenReturn(yetAnotherRelease);
+
+        configServiceWithPreload.initialize();
+
+        assertRelease(yetAnotherRelease, configServiceWithPreload.findLatestActiveRelease(someAppId,
+                someClusterName, someNamespaceName, someNotificationMessages));
+        assertRelease(yetAnotherRelease, configServiceWithPreload.findLatestActiveRelease(someAppId,
+                someClusterName, someNamespaceName, someNotificationMessages));
+
+        verify(releaseService, times(1)).findLatestActiveRelease(someAppId, someClusterName, someNamespaceName);
+    }
+
+    @Test
+    public void testHandleMessage() throws Exception {
+        long anotherNotificationId = someNotificationId + 1;
+        ReleaseMessage someReleaseMessage = assembleReleaseMessage(anotherNotificationId, someKey);
+
+        when(releaseMessageService.findReleaseMessagesAfter(someNotificationId)).thenReturn(Collections.emptyList());
+        when(releaseMessageService.findLatestReleaseMessageForMessages(Lists.newArrayList(someKey)))
+                .thenReturn(someReleaseMessage);
+        when(releaseService.findLatestActiveRelease(someAppId, someClusterName, someNamespaceName)).thenReturn(null);
+
+        configServiceWithPreload.initialize();
+        configServiceWithPreload.handleMessage(someReleaseMessage, "someUnsupportedTopic");
+
+        assertRelease(someRelease, configServiceWithPreload.findLatestActiveRelease(someAppId, someClusterName,
+                someNamespaceName, someNotificationMessages));
+
+        //the release is rolled back
+        configServiceWithPreload.handleMessage(someReleaseMessage, Topics.APOLLO_RELEASE_TOPIC);
+
+        assertNull(configServiceWithPreload.findLatestActiveRelease(someAppId, someClusterName,
+                someNamespaceName, someNotificationMessages));
+    }
+
+    @Test
+    public void testHandleMessageWithReleaseMessageCleanedUp() throws Exception {
+        ReleaseMessage someReleaseMessage = assembleReleaseMessage(someNotificationId + 1, someKey);
+        Release yetAnotherRelease = assembleRelease(3, someNamespaceName, "{}");
+
+        when(releaseMessageService.findReleaseMessagesAfter(someNotificationId)).thenReturn(Collections.emptyList());
+        when(releaseMessageService.findLatestReleaseMessageForMessages(Lists.newArrayList(someKey))).thenReturn(null);
+        when(releaseService.findLatestActiveRelease(someAppId, someClusterName, someNamespaceName))
+                .thenReturn(yetAnotherRelease);
+
+        configServiceWithPreload.initialize();
+        configServiceWithPreload.handleMessage(someReleaseMessage, Topics.APOLLO_RELEASE_TOPIC);
+
+        assertRelease(yetAnotherRelease, configServiceWithPreload.findLatestActiveRelease(someAppId,
+                someClusterName, someNamespaceName, someNotificationMessages));
+    }
+
+    @Test
+    public void testFindActiveOne() throws Exception {
+        long someId = 1;
+
+        when(releaseMessageService.findReleaseMessagesAfter(someNotificationId)).thenReturn(Collections.emptyList());
+        when(releaseService.findActiveOne(someId)).thenReturn(someRelease);
+
+        configServiceWithPreload.initialize();
+
+        assertRelease(someRelease, configServiceWithPreload.findActiveOne(someId, someNotificationMessages));
+        assertRelease(someRelease, configServiceWithPreload.findActiveOne(someId, someNotificationMessages));
+
+        verify(releaseService, times(1)).findActiveOne(someId);
+    }
+
+    private void assertRelease(Release expected, Release actual) {
+        assertTrue(actual instanceof CompactRelease);
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getReleaseKey(), actual.getReleaseKey());
+        assertEquals(expected.getConfigurations(), actual.getConfigurations());
+    }
+
+    private Release assembleRelease(long id, String namespaceName, String configurations) {
+        Release release = new Release();
+        release.setId(id);
+        release.setAppId(someAppId);
+        release.setClusterName(someClusterName);
+        release.setNamespaceName(namespaceName);
+        release.setReleaseKey(namespaceName + id);
+        release.setConfigurations(configurations);
+        return release;
+    }
+
+    private ReleaseMessage assembleReleaseMessage(long id, String message) {
+        ReleaseMessage releaseMessage = new ReleaseMessage(message);
+        releaseMessage.setId(id);
+        return releaseMessage;
+    }
+}
@@ -16,19 +16,28 @@
  */
 package com.ctrip.framework.apollo.configservice.util;
 
+import com.ctrip.framework.apollo.biz.config.BizConfig;
 import com.ctrip.framework.apollo.biz.entity.Instance;
 import com.ctrip.framework.apollo.biz.entity.InstanceConfig;
 import com.ctrip.framework.apollo.biz.service.InstanceService;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.BlockingQueue;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.*;
 
@@ -41,6 +50,8 @@ public class InstanceConfigAuditUtilTest {
 
     @Mock
     private InstanceService instanceService;
+    @Mock
+    private BizConfig bizConfig;
     private BlockingQueue<InstanceConfigAuditUtil.InstanceConfigAuditModel> audits;
 
     private String someAppId;
@@ -56,7 +67,7 @@ public class InstanceConfigAuditUtilTest {
 
     @Before
     public void setUp() throws Exception {
-        instanceConfigAuditUtil = new InstanceConfigAuditUtil(instanceService);
+        instanceConfigAuditUtil = new InstanceConfigAuditUtil(instanceService, bizConfig);
 
         audits = (BlockingQueue<InstanceConfigAuditUtil.InstanceConfigAuditModel>)
                 ReflectionTestUtils.getField(instanceConfigAuditUtil, "audits");
@@ -104,5 +115,84 @@ public class InstanceConfigAuditUtilTest {
         verify(instanceService, times(1)).createInstanceConfig(any(InstanceConfig.class));
     }
 
+    @Test
+    public void testDoAuditInBatch() throws Exception {
+        long someInstanceId = 1;
+        String anotherConfigNamespace = "anotherConfigNamespace";
+        String anotherReleaseKey = "anotherReleaseKey";
+        Instance someInstance = mock(Instance.class);
+        InstanceConfig someInstanceConfig = new InstanceConfig();
+        someInstanceConfig.setId(1);
+        someInstanceConfig.setInstanceId(someInstanceId);
+        someInstanceConfig.setConfigAppId(someConfigAppId);
+        someInstanceConfig.setConfigNamespaceName(anotherConfigNamespace);
+        someInstanceConfig.setReleaseKey(someReleaseKey);
+
+        when(someInstance.getId()).thenReturn(someInstanceId);
+        when(instanceService.findInstance(someAppId, someClusterName, someDataCenter, someIp))
+                .thenReturn(someInstance);
+        when(instanceService.findInstanceConfigs(Sets.newHashSet(someInstanceId)))
+                .thenReturn(Lists.newArrayList(someInstanceConfig));
+
+        InstanceConfigAuditUtil.InstanceConfigAuditModel duplicatedAuditModel =
+                new InstanceConfigAuditUtil.InstanceConfigAuditModel(someAppId, someClusterName, someDataCenter,
+                        someIp, someConfigAppId, someConfigClusterName, someConfigNamespace, someReleaseKey);
+        InstanceConfigAuditUtil.InstanceConfigAuditModel anotherAuditModel =
+                new InstanceConfigAuditUtil.InstanceConfigAuditModel(someAppId, someClusterName, someDataCenter,
+                        someIp, someConfigAppId, someConfigClusterName, anotherConfigNamespace, anotherReleaseKey);
+
+        instanceConfigAuditUtil.doAudit(Lists.newArrayList(someAuditModel, duplicatedAuditModel,
+                anotherAuditModel));
+
+        ArgumentCaptor<List<InstanceConfig>> captor = ArgumentCaptor.forClass(List.class);
+        verify(instanceService, times(1)).findInstance(someAppId, someClusterName, someDataCenter, someIp);
+        verify(instanceService, times(1)).batchSaveInstanceConfigs(captor.capture());
+        verify(instanceService, never()).createInstanceConfig(any(InstanceConfig.class));
+        verify(instanceService, never()).updateInstanceConfig(any(InstanceConfig.class));
+
+        List<InstanceConfig> saved = captor.getValue();
+        assertEquals(2, saved.size());
+        assertEquals(0, saved.get(0).getId());
+        assertEquals(someConfigNamespace, saved.get(0).getConfigNamespaceName());
+        assertEquals(someReleaseKey, saved.get(0).getReleaseKey());
+        assertEquals(someInstanceConfig.getId(), saved.get(1).getId());
+        assertEquals(anotherReleaseKey, saved.get(1).getReleaseKey());
+
+        //the same release keys are skipped
+        instanceConfigAuditUtil.doAudit(Lists.newArrayList(someAuditModel, anotherAuditModel));
+
+        verify(instanceService, times(1)).batchSaveInstanceConfigs(anyList());
+    }
+
+    @Test
+    public void testDoAuditInBatchWithConcurrentInsertion() throws Exception {
+        long someInstanceId = 1;
+        Instance someInstance = mock(Instance.class);
+
+        when(someInstance.getId()).thenReturn(someInstanceId);
+        when(instanceService.findInstance(someAppId, someClusterName, someDataCenter, someIp))
+                .thenReturn(someInstance);
+        when(instanceService.findInstanceConfigs(Sets.newHashSet(someInstanceId)))
+                .thenReturn(Collections.emptyList());
+        doThrow(new DataIntegrityViolationException("someError")).when(instanceService)
+                .batchSaveInstanceConfigs(anyList());
 
+        instanceConfigAuditUtil.doAudit(Lists.newArrayList(someAuditModel));
+
+        verify(instanceService, times(1)).findInstanceConfig(someInstanceId, someConfigAppId,
+                someConfigNamespace);
+        verify(instanceService, times(1)).createInstanceConfig(any(InstanceConfig.class));
+    }
+
+    @Test
+    public void testAuditDropped() throws Exception {
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(audits.offer(someAuditModel));
+        }
+
+        boolean result = instanceConfigAuditUtil.audit(someAppId, someClusterName, someDataCenter,
+                someIp, someConfigAppId, someConfigClusterName, someConfigNamespace, someReleaseKey);
+
+        assertFalse(result);
+    }
 }
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.configservice.util;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.configservice.wrapper.DeferredResultWrapper;
+import com.ctrip.framework.apollo.core.dto.ApolloConfigNotification;
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class NotificationFanoutExecutorTest {
+    private NotificationFanoutExecutor notificationFanoutExecutor;
+
+    @Mock
+    private BizConfig bizConfig;
+
+    private String someKey;
+    private String someNamespace;
+    private int someBatch;
+
+    @Before
+    public void setUp() throws Exception {
+        someKey = "someAppId+default+someNamespace";
+        someNamespace = "someNamespace";
+        someBatch = 2;
+
+        when(bizConfig.releaseMessageNotificationBatch()).thenReturn(someBatch);
+        when(bizConfig.releaseMessageNotificationWorkers()).thenReturn(2);
+        when(bizConfig.releaseMessageNotificationPermitsPerSecond()).thenReturn(20);
+
+        notificationFanoutExecutor = new NotificationFanoutExecutor(bizConfig);
+    }
+
+    @Test
+    public void testNotifyInline() throws Exception {
+        List<DeferredResultWrapper> results = assembleResults(someBatch);
+
+        notificationFanoutExecutor.notify(someKey, results, assembleNotification(1));
+
+        for (DeferredResultWrapper result : results) {
+            assertTrue(result.getResult().hasResult());
+        }
+        assertEquals(0, notificationFanoutExecutor.getInFlightKeys());
+    }
+
+    @Test
+    public void testNotifyInBatch() throws Exception {
+        List<DeferredResultWrapper> results = assembleResults(someBatch * 3);
+
+        notificationFanoutExecutor.notify(someKey, results, assembleNotification(1));
+
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> {
+            for (DeferredResultWrapper result : results) {
+                assertTrue(result.getResult().hasResult());
+            }
+        });
+        await().atMost(1, TimeUnit.SECONDS).untilAsserted(
+                () -> assertEquals(0, notificationFanoutExecutor.getInFlightKeys()));
+        assertEquals(0, notificationFanoutExecutor.getPendingNotifications());
+    }
+
+    @Test
+    public void testMergeNotificationForKeyInFlight() throws Exception {
+        long someNotificationId = 1;
+        long anotherNotificationId = 2;
+        List<DeferredResultWrapper> results = assembleResults(someBatch * 10);
+        List<DeferredResultWrapper> anotherResults = assembleResults(1);
+
+        notificationFanoutExecutor.notify(someKey, results, assembleNotification(someNotificationId));
+        //a small fan-out for a key in flight should be merged rather than done inline
+        notificationFanoutExecutor.notify(someKey, anotherResults, assembleNotification(anotherNotificationId));
+
+        assertEquals(1, notificationFanoutExecutor.getInFlightKeys());
+
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> {
+            for (DeferredResultWrapper result : results) {
+                assertTrue(result.getResult().hasResult());
+            }
+            assertTrue(anotherResults.get(0).getResult().hasResult());
+        });
+
+        ResponseEntity<List<ApolloConfigNotification>> response =
+                (ResponseEntity<List<ApolloConfigNotification>>) results.get(results.size() - 1).getResult().getResult();
+        assertEquals(anotherNotificationId, response.getBody().get(0).getNotificationId());
+        response = (ResponseEntity<List<ApolloConfigNotification>>) anotherResults.get(0).getResult().getResult();
+        assertEquals(anotherNotificationId, response.getBody().get(0).getNotificationId());
+    }
+
+    private List<DeferredResultWrapper> assembleResults(int size) {
+        List<DeferredResultWrapper> results = Lists.newArrayList();
+        for (int i = 0; i < size; i++) {
+            results.add(new DeferredResultWrapper(TimeUnit.MINUTES.toMillis(1)));
+        }
+        return results;
+    }
+
+    private ApolloConfigNotification assembleNotification(long notificationId) {
+        ApolloConfigNotification notification = new ApolloConfigNotification(someNamespace, notificationId);
+        notification.addMessage(someKey, notificationId);
+        return notification;
+    }
+}
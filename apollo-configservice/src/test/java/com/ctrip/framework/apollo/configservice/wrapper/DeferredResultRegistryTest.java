@@ -0,0 +1,146 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.configservice.wrapper;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class DeferredResultRegistryTest {
+    private DeferredResultRegistry<Object> registry;
+
+    @Before
+    public void setUp() throws Exception {
+        registry = new DeferredResultRegistry<>();
+    }
+
+    @Test
+    public void testRegisterAndUnregister() throws Exception {
+        String someKey = "someAppId+someCluster+someNamespace";
+        Object someValue = new Object();
+        Object anotherValue = new Object();
+
+        assertTrue(registry.register(someKey, someValue));
+        assertFalse(registry.register(someKey, someValue));
+        assertTrue(registry.register(someKey, anotherValue));
+
+        assertEquals(2, registry.size());
+        assertEquals(1, registry.keySize());
+        assertTrue(registry.get(someKey).contains(someValue));
+        assertTrue(registry.get(someKey).contains(anotherValue));
+
+        assertTrue(registry.unregister(someKey, someValue));
+        assertFalse(registry.unregister(someKey, someValue));
+        assertTrue(registry.unregister(someKey, anotherValue));
+
+        assertEquals(0, registry.size());
+        assertEquals(0, registry.keySize());
+        assertFalse(registry.containsKey(someKey));
+        assertTrue(registry.get(someKey).isEmpty());
+    }
+
+    @Test
+    public void testKeyIsCaseInsensitive() throws Exception {
+        String someKey = "someAppId+someCluster+someNamespace";
+        Object someValue = new Object();
+
+        registry.register(someKey, someValue);
+
+        assertTrue(registry.containsKey(someKey.toUpperCase()));
+        assertEquals(1, registry.get(someKey.toUpperCase()).size());
+
+        assertTrue(registry.unregister(someKey.toLowerCase(), someValue));
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void testGetReturnsSnapshot() throws Exception {
+        String someKey = "someKey";
+        Object someValue = new Object();
+
+        registry.register(someKey, someValue);
+
+        List<Object> snapshot = registry.get(someKey);
+
+        registry.register(someKey, new Object());
+        registry.unregister(someKey, someValue);
+
+        assertEquals(1, snapshot.size());
+        assertSame(someValue, snapshot.get(0));
+    }
+
+    @Test
+    public void testConcurrentRegisterNotifyAndComplete() throws Exception {
+        int someThreads = 8;
+        int someWaitersPerThread = 15000;
+        String[] someKeys = {"someAppId+default+application", "someAppId+default+TEST1.common",
+                "anotherAppId+default+application", "anotherAppId+default+TEST1.common"};
+        ExecutorService executorService = Executors.newFixedThreadPool(someThreads + 1);
+        CountDownLatch finished = new CountDownLatch(someThreads);
+        AtomicInteger notified = new AtomicInteger();
+
+        for (int i = 0; i < someThreads; i++) {
+            executorService.submit(() -> {
+                try {
+                    for (int j = 0; j < someWaitersPerThread; j++) {
+                        Object waiter = new Object();
+                        for (String key : someKeys) {
+                            registry.register(key, waiter);
+                        }
+                        //the last waiter of each thread stays registered
+                        if (j == someWaitersPerThread - 1) {
+                            break;
+                        }
+                        for (String key : someKeys) {
+                            registry.unregister(key, waiter);
+                        }
+                    }
+                } finally {
+                    finished.countDown();
+                }
+            });
+        }
+        Future<?> notifying = executorService.submit(() -> {
+            do {
+                for (String key : someKeys) {
+                    registry.get(key);
+                }
+            } while (finished.getCount() > 0);
+        });
+
+        assertTrue(finished.await(60, TimeUnit.SECONDS));
+        notifying.get(10, TimeUnit.SECONDS);
+        executorService.shutdown();
+        assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+
+        for (String key : someKeys) {
+            notified.addAndGet(registry.get(key).size());
+        }
+        assertEquals(someThreads * someKeys.length, notified.get());
+        assertEquals(someThreads * someKeys.length, registry.size());
+        assertEquals(someKeys.length, registry.keySize());
+    }
+}
@@ -21,6 +21,7 @@ import static org.mockito.Mockito.when;
 
 import com.ctrip.framework.apollo.core.ServiceNameConsts;
 import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.ctrip.framework.apollo.metaservice.service.ConfigServiceRouter;
 import com.ctrip.framework.apollo.metaservice.service.DiscoveryService;
 
 import java.util.List;
@@ -37,14 +38,20 @@ public class ServiceControllerTest {
     @Mock
     private DiscoveryService discoveryService;
 
+    @Mock
+    private ConfigServiceRouter configServiceRouter;
+
     @Mock
     private List<ServiceDTO> someServices;
 
+    @Mock
+    private List<ServiceDTO> someRoutedServices;
+
     private ServiceController serviceController;
 
     @Before
     public void setUp() throws Exception {
-        serviceController = new ServiceController(discoveryService);
+        serviceController = new ServiceController(discoveryService, configServiceRouter);
     }
 
     @Test
@@ -59,8 +66,9 @@ public class ServiceControllerTest {
 
         when(discoveryService.getServiceInstances(ServiceNameConsts.APOLLO_CONFIGSERVICE))
                 .thenReturn(someServices);
+        when(configServiceRouter.route(someServices, someAppId, someClientIp)).thenReturn(someRoutedServices);
 
-        assertEquals(someServices, serviceController.getConfigService(someAppId, someClientIp));
+        assertEquals(someRoutedServices, serviceController.getConfigService(someAppId, someClientIp));
     }
 
     @Test
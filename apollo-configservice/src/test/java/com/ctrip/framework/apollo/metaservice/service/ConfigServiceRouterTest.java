@@ -0,0 +1,125 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.metaservice.service;
+
+import com.ctrip.framework.apollo.biz.config.BizConfig;
+import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ConfigServiceRouterTest {
+    @Mock
+    private BizConfig bizConfig;
+
+    private ConfigServiceRouter configServiceRouter;
+    private List<ServiceDTO> services;
+
+    @Before
+    public void setUp() throws Exception {
+        configServiceRouter = new ConfigServiceRouter(bizConfig);
+        services = Lists.newArrayList();
+        for (int i = 1; i <= 4; i++) {
+            services.add(assembleService("http://10.0.0." + i + ":8080/"));
+        }
+    }
+
+    @Test
+    public void testRoutingDisabled() throws Exception {
+        when(bizConfig.isConfigServiceAffinityRoutingEnabled()).thenReturn(false);
+
+        assertSame(services, configServiceRouter.route(services, "someAppId", "someIp"));
+    }
+
+    @Test
+    public void testSameOrderForSameClient() throws Exception {
+        when(bizConfig.isConfigServiceAffinityRoutingEnabled()).thenReturn(true);
+        when(bizConfig.configServiceAffinityRoutingSubsetSize()).thenReturn(services.size());
+
+        List<ServiceDTO> routed = configServiceRouter.route(services, "someAppId", "someIp");
+
+        assertEquals(services.size(), routed.size());
+        assertTrue(routed.containsAll(services));
+        assertEquals(routed, configServiceRouter.route(Lists.reverse(services), "someAppId", "someIp"));
+    }
+
+    @Test
+    public void testSubsetReturned() throws Exception {
+        when(bizConfig.isConfigServiceAffinityRoutingEnabled()).thenReturn(true);
+        when(bizConfig.configServiceAffinityRoutingSubsetSize()).thenReturn(2);
+
+        List<ServiceDTO> routed = configServiceRouter.route(services, "someAppId", "someIp");
+
+        assertEquals(2, routed.size());
+        assertEquals(routed, configServiceRouter.route(Lists.reverse(services), "someAppId", "someIp"));
+    }
+
+    @Test
+    public void testClientsSpreadEvenly() throws Exception {
+        when(bizConfig.isConfigServiceAffinityRoutingEnabled()).thenReturn(true);
+        when(bizConfig.configServiceAffinityRoutingSubsetSize()).thenReturn(1);
+
+        Map<String, Integer> firstChoices = Maps.newHashMap();
+        for (int i = 0; i < 4000; i++) {
+            ServiceDTO first = configServiceRouter.route(services, "someAppId", "10.1." + i / 256 + "." + i % 256)
+                    .get(0);
+            firstChoices.merge(first.getHomepageUrl(), 1, Integer::sum);
+        }
+
+        assertEquals(services.size(), firstChoices.size());
+        for (int count : firstChoices.values()) {
+            assertTrue(count > 800 && count < 1200);
+        }
+    }
+
+    @Test
+    public void testOnlyClientsOfRemovedServiceMoved() throws Exception {
+        when(bizConfig.isConfigServiceAffinityRoutingEnabled()).thenReturn(true);
+        when(bizConfig.configServiceAffinityRoutingSubsetSize()).thenReturn(services.size());
+        ServiceDTO removed = services.get(0);
+        List<ServiceDTO> remaining = services.subList(1, services.size());
+
+        for (int i = 0; i < 100; i++) {
+            String someIp = "10.1.0." + i;
+            List<ServiceDTO> before = configServiceRouter.route(services, "someAppId", someIp);
+            List<ServiceDTO> after = configServiceRouter.route(remaining, "someAppId", someIp);
+
+            before.remove(removed);
+            assertEquals(before, after);
+        }
+    }
+
+    private ServiceDTO assembleService(String homepageUrl) {
+        ServiceDTO service = new ServiceDTO();
+        service.setHomepageUrl(homepageUrl);
+        service.setInstanceId(homepageUrl);
+        return service;
+    }
+}
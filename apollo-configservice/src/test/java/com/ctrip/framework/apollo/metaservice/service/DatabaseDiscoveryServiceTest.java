@@ -0,0 +1,89 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.metaservice.service;
+
+import com.ctrip.framework.apollo.biz.registry.DatabaseDiscoveryClient;
+import com.ctrip.framework.apollo.biz.registry.ServiceInstance;
+import com.ctrip.framework.apollo.biz.registry.ServiceInstanceChangeListener;
+import com.ctrip.framework.apollo.biz.registry.configuration.support.ApolloServiceRegistryProperties;
+import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DatabaseDiscoveryServiceTest {
+
+    @Mock
+    private DatabaseDiscoveryClient discoveryClient;
+
+    private String someServiceId = "someServiceId";
+
+    @Test
+    public void testGetServiceInstances() {
+        when(discoveryClient.getInstances(someServiceId)).thenReturn(
+                Lists.newArrayList(mockServiceInstance("http://1.2.3.4:8080/")));
+        DatabaseDiscoveryService discoveryService = new DatabaseDiscoveryService(discoveryClient);
+
+        List<ServiceDTO> serviceDTOList = discoveryService.getServiceInstances(someServiceId);
+        discoveryService.getServiceInstances(someServiceId);
+
+        assertEquals(1, serviceDTOList.size());
+        assertEquals(someServiceId, serviceDTOList.get(0).getAppName());
+        assertEquals("http://1.2.3.4:8080/", serviceDTOList.get(0).getHomepageUrl());
+        //read every time if the changes are not pushed
+        verify(discoveryClient, times(2)).getInstances(someServiceId);
+    }
+
+    @Test
+    public void testGetServiceInstancesWithChangesPushed() {
+        ArgumentCaptor<ServiceInstanceChangeListener> listener =
+                ArgumentCaptor.forClass(ServiceInstanceChangeListener.class);
+        when(discoveryClient.addChangeListener(listener.capture())).thenReturn(true);
+        when(discoveryClient.getInstances(someServiceId)).thenReturn(
+                Lists.newArrayList(mockServiceInstance("http://1.2.3.4:8080/")));
+        DatabaseDiscoveryService discoveryService = new DatabaseDiscoveryService(discoveryClient);
+
+        assertEquals(1, discoveryService.getServiceInstances(someServiceId).size());
+        assertEquals(1, discoveryService.getServiceInstances(someServiceId).size());
+        verify(discoveryClient, times(1)).getInstances(someServiceId);
+
+        when(discoveryClient.getInstances(someServiceId)).thenReturn(Lists.newArrayList(
+                mockServiceInstance("http://1.2.3.4:8080/"), mockServiceInstance("http://1.2.3.5:8080/")));
+        listener.getValue().onChange(someServiceId);
+
+        assertEquals(2, discoveryService.getServiceInstances(someServiceId).size());
+        verify(discoveryClient, times(2)).getInstances(someServiceId);
+    }
+
+    private ServiceInstance mockServiceInstance(String uri) {
+        ApolloServiceRegistryProperties serviceInstance = new ApolloServiceRegistryProperties();
+        serviceInstance.setServiceName(someServiceId);
+        serviceInstance.setUri(uri);
+        return serviceInstance;
+    }
+}
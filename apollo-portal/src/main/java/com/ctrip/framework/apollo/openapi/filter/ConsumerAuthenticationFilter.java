@@ -18,7 +18,11 @@ package com.ctrip.framework.apollo.openapi.filter;
 
 import com.ctrip.framework.apollo.openapi.util.ConsumerAuditUtil;
 import com.ctrip.framework.apollo.openapi.util.ConsumerAuthUtil;
+import com.ctrip.framework.apollo.openapi.util.ConsumerRateLimiter;
+import com.ctrip.framework.apollo.openapi.util.ConsumerTokenLookupThrottledException;
+import io.micrometer.core.instrument.Metrics;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 
 import javax.servlet.*;
 import javax.servlet.http.HttpServletRequest;
@@ -31,10 +35,13 @@ import java.io.IOException;
 public class ConsumerAuthenticationFilter implements Filter {
     private final ConsumerAuthUtil consumerAuthUtil;
     private final ConsumerAuditUtil consumerAuditUtil;
+    private final ConsumerRateLimiter consumerRateLimiter;
 
-    public ConsumerAuthenticationFilter(ConsumerAuthUtil consumerAuthUtil, ConsumerAuditUtil consumerAuditUtil) {
+    public ConsumerAuthenticationFilter(ConsumerAuthUtil consumerAuthUtil, ConsumerAuditUtil consumerAuditUtil,
+                                        ConsumerRateLimiter consumerRateLimiter) {
         this.consumerAuthUtil = consumerAuthUtil;
         this.consumerAuditUtil = consumerAuditUtil;
+        this.consumerRateLimiter = consumerRateLimiter;
     }
 
     @Override
@@ -50,19 +57,38 @@ public class ConsumerAuthenticationFilter implements Filter {
 
         String token = request.getHeader(HttpHeaders.AUTHORIZATION);
 
-        Long consumerId = consumerAuthUtil.getConsumerId(token);
+        Long consumerId;
+        try {
+            consumerId = consumerAuthUtil.getConsumerId(token);
+        } catch (ConsumerTokenLookupThrottledException ex) {
+            countRequest("unknown", "throttled");
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Too Many Requests");
+            return;
+        }
 
         if (consumerId == null) {
+            countRequest("unknown", "unauthorized");
             response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Unauthorized");
             return;
         }
 
+        if (!consumerRateLimiter.tryAcquire(consumerId)) {
+            countRequest(String.valueOf(consumerId), "throttled");
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Too Many Requests");
+            return;
+        }
+        countRequest(String.valueOf(consumerId), "accepted");
+
         consumerAuthUtil.storeConsumerId(request, consumerId);
         consumerAuditUtil.audit(request, consumerId);
 
         chain.doFilter(req, resp);
     }
 
+    private void countRequest(String consumerId, String result) {
+        Metrics.counter("apollo.openapi.requests", "consumer", consumerId, "result", result).increment();
+    }
+
     @Override
     public void destroy() {
         //nothing
@@ -25,6 +25,7 @@ import com.ctrip.framework.apollo.openapi.repository.ConsumerAuditRepository;
 import com.ctrip.framework.apollo.openapi.repository.ConsumerRepository;
 import com.ctrip.framework.apollo.openapi.repository.ConsumerRoleRepository;
 import com.ctrip.framework.apollo.openapi.repository.ConsumerTokenRepository;
+import com.ctrip.framework.apollo.openapi.util.ConsumerTokenCache;
 import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
 import com.ctrip.framework.apollo.portal.entity.bo.UserInfo;
 import com.ctrip.framework.apollo.portal.entity.po.Role;
@@ -64,6 +65,7 @@ public class ConsumerService {
     private final RolePermissionService rolePermissionService;
     private final UserService userService;
     private final RoleRepository roleRepository;
+    private final ConsumerTokenCache consumerTokenCache;
 
     public ConsumerService(
             final UserInfoHolder userInfoHolder,
@@ -74,7 +76,8 @@ public class ConsumerService {
             final PortalConfig portalConfig,
             final RolePermissionService rolePermissionService,
             final UserService userService,
-            final RoleRepository roleRepository) {
+            final RoleRepository roleRepository,
+            final ConsumerTokenCache consumerTokenCache) {
         this.userInfoHolder = userInfoHolder;
         this.consumerTokenRepository = consumerTokenRepository;
         this.consumerRepository = consumerRepository;
@@ -84,6 +87,7 @@ public class ConsumerService {
         this.rolePermissionService = rolePermissionService;
         this.userService = userService;
         this.roleRepository = roleRepository;
+        this.consumerTokenCache = consumerTokenCache;
     }
 
 
@@ -115,7 +119,9 @@ public class ConsumerService {
         ConsumerToken consumerToken = generateConsumerToken(consumer, expires);
         consumerToken.setId(0);
 
-        return consumerTokenRepository.save(consumerToken);
+        ConsumerToken saved = consumerTokenRepository.save(consumerToken);
+        consumerTokenCache.invalidate(saved.getToken());
+        return saved;
     }
 
     public ConsumerToken getConsumerTokenByAppId(String appId) {
@@ -131,11 +137,17 @@ public class ConsumerService {
         if (Strings.isNullOrEmpty(token)) {
             return null;
         }
-        ConsumerToken consumerToken = consumerTokenRepository.findTopByTokenAndExpiresAfter(token,
-                new Date());
+        if (consumerTokenCache.isEnabled()) {
+            return consumerTokenCache.getConsumerId(token, this::findValidConsumerToken);
+        }
+        ConsumerToken consumerToken = findValidConsumerToken(token);
         return consumerToken == null ? null : consumerToken.getConsumerId();
     }
 
+    private ConsumerToken findValidConsumerToken(String token) {
+        return consumerTokenRepository.findTopByTokenAndExpiresAfter(token, new Date());
+    }
+
     public Consumer getConsumerByConsumerId(long consumerId) {
         return consumerRepository.findById(consumerId).orElse(null);
     }
@@ -213,7 +225,9 @@ public class ConsumerService {
     public ConsumerToken createConsumerToken(ConsumerToken entity) {
         entity.setId(0); //for protection
 
-        return consumerTokenRepository.save(entity);
+        ConsumerToken saved = consumerTokenRepository.save(entity);
+        consumerTokenCache.invalidate(saved.getToken());
+        return saved;
     }
 
     private ConsumerToken generateConsumerToken(Consumer consumer, Date expires) {
@@ -309,6 +323,7 @@ public class ConsumerService {
 
         if (Objects.nonNull(consumerToken)) {
             consumerTokenRepository.delete(consumerToken);
+            consumerTokenCache.invalidate(consumerToken.getToken());
         }
     }
 
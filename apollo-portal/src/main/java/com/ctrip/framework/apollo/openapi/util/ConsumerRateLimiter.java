@@ -0,0 +1,54 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.openapi.util;
+
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.RateLimiter;
+
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Limits the open api requests of each consumer, see {@link PortalConfig#consumerRateLimit()}
+ */
+@Service
+public class ConsumerRateLimiter {
+    private final PortalConfig portalConfig;
+    //consumer id -> rate limiter
+    private final ConcurrentMap<Long, RateLimiter> rateLimiters = Maps.newConcurrentMap();
+
+    public ConsumerRateLimiter(final PortalConfig portalConfig) {
+        this.portalConfig = portalConfig;
+    }
+
+    /**
+     * @return whether the request of the consumer is allowed
+     */
+    public boolean tryAcquire(long consumerId) {
+        int rateLimit = portalConfig.consumerRateLimit();
+        if (rateLimit <= 0) {
+            return true;
+        }
+        RateLimiter rateLimiter = rateLimiters.computeIfAbsent(consumerId, k -> RateLimiter.create(rateLimit));
+        if (rateLimiter.getRate() != rateLimit) {
+            rateLimiter.setRate(rateLimit);
+        }
+        return rateLimiter.tryAcquire();
+    }
+}
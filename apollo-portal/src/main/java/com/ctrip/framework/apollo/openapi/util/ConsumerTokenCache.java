@@ -0,0 +1,150 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.openapi.util;
+
+import com.ctrip.framework.apollo.openapi.entity.ConsumerToken;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
+import com.google.common.cache.Cache;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Caches the consumer ids of the open api tokens by the token hashes, so the tokens are not looked up in the database
+ * on each open api request.
+ * <p>
+ * The invalid tokens are cached for a short while too, and the lookups of the tokens not cached are rate limited, so
+ * the clients with wrong tokens do not turn the lookups into a database hotspot. A throttled lookup is reported apart
+ * from an invalid token, so the valid tokens are never rejected as unauthorized without being looked up. The tokens
+ * changed through this portal are invalidated once the transaction commits, the ones changed through other portals
+ * expire with the cache.
+ */
+@Component
+public class ConsumerTokenCache {
+    static final long INVALID_TOKEN_EXPIRE_IN_MILLI = TimeUnit.SECONDS.toMillis(10);
+
+    private final PortalConfig portalConfig;
+    //token hash -> entry
+    private final Cache<String, CacheEntry> cache;
+    private final RateLimiter missRateLimiter;
+    private final Counter throttledMisses;
+
+    public ConsumerTokenCache(final PortalConfig portalConfig) {
+        this.portalConfig = portalConfig;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(portalConfig.consumerTokenCacheSize())
+                .build();
+        this.missRateLimiter = RateLimiter.create(Math.max(1, portalConfig.consumerTokenCacheMissRateLimit()));
+        this.throttledMisses = Metrics.counter("apollo.openapi.token-cache.miss.throttled");
+    }
+
+    public boolean isEnabled() {
+        return portalConfig.isConsumerTokenCacheEnabled();
+    }
+
+    /**
+     * The concurrent lookups of the same token not cached share one load.
+     *
+     * @param loader loads the valid token if not cached
+     * @return the consumer id of the token, or null if the token is invalid
+     * @throws ConsumerTokenLookupThrottledException if the token is not cached and the lookup is throttled
+     */
+    public Long getConsumerId(String token, Function<String, ConsumerToken> loader) {
+        String key = hash(token);
+        CacheEntry entry = cache.getIfPresent(key);
+        if (entry != null) {
+            if (System.currentTimeMillis() < entry.validUntil) {
+                return entry.consumerId;
+            }
+            cache.asMap().remove(key, entry);
+        }
+
+        try {
+            return cache.get(key, () -> load(token, loader)).consumerId;
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError ex) {
+            Throwables.throwIfUnchecked(ex.getCause());
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    private CacheEntry load(String token, Function<String, ConsumerToken> loader) {
+        int missRateLimit = Math.max(1, portalConfig.consumerTokenCacheMissRateLimit());
+        if (missRateLimiter.getRate() != missRateLimit) {
+            missRateLimiter.setRate(missRateLimit);
+        }
+        if (!missRateLimiter.tryAcquire()) {
+            throttledMisses.increment();
+            throw new ConsumerTokenLookupThrottledException();
+        }
+
+        long now = System.currentTimeMillis();
+        ConsumerToken consumerToken = loader.apply(token);
+        if (consumerToken == null) {
+            return new CacheEntry(null, now + INVALID_TOKEN_EXPIRE_IN_MILLI);
+        }
+        long validUntil = Math.min(consumerToken.getExpires().getTime(),
+                now + TimeUnit.SECONDS.toMillis(portalConfig.consumerTokenCacheExpireInSeconds()));
+        return new CacheEntry(consumerToken.getConsumerId(), validUntil);
+    }
+
+    /**
+     * Invalidates the token after the current transaction commits, or at once if there is no transaction, so the
+     * token is not reloaded from the data not committed yet
+     */
+    public void invalidate(String token) {
+        String key = hash(token);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.invalidate(key);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.invalidate(key);
+            }
+        });
+    }
+
+    private String hash(String token) {
+        return Hashing.sha256().hashString(token, StandardCharsets.UTF_8).toString();
+    }
+
+    private static class CacheEntry {
+        //null if the token is invalid
+        private final Long consumerId;
+        private final long validUntil;
+
+        CacheEntry(Long consumerId, long validUntil) {
+            this.consumerId = consumerId;
+            this.validUntil = validUntil;
+        }
+    }
+}
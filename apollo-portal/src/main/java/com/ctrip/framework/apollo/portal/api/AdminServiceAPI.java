@@ -86,6 +86,20 @@ public class AdminServiceAPI {
             return Arrays.asList(namespaceDTOs);
         }
 
+        public List<NamespaceSnapshotDTO> findNamespaceSnapshots(String appId, Env env, String clusterName,
+                                                                 boolean includeDeletedItems) {
+            NamespaceSnapshotDTO[] snapshots = restTemplate.get(env,
+                    "apps/{appId}/clusters/{clusterName}/namespace-snapshots?includeDeletedItems={includeDeletedItems}",
+                    NamespaceSnapshotDTO[].class, appId, clusterName, includeDeletedItems);
+            return Arrays.asList(snapshots);
+        }
+
+        public List<NamespaceVersionDTO> findNamespaceVersions(String appId, Env env, String clusterName) {
+            NamespaceVersionDTO[] versions = restTemplate.get(env, "apps/{appId}/clusters/{clusterName}/namespace-versions",
+                    NamespaceVersionDTO[].class, appId, clusterName);
+            return Arrays.asList(versions);
+        }
+
         public PageDTO<NamespaceDTO> findByItem(Env env, String itemKey, int page, int size) {
             ResponseEntity<PageDTO<NamespaceDTO>>
                     entity = restTemplate.get(env, "/namespaces/find-by-item?itemKey={itemKey}&page={page}&size={size}",
@@ -21,7 +21,6 @@ import com.ctrip.framework.apollo.core.dto.ServiceDTO;
 import com.ctrip.framework.apollo.portal.environment.Env;
 import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.tracer.Tracer;
-import com.google.common.collect.Lists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
@@ -56,16 +55,19 @@ public class AdminServiceAddressLocator {
     private final PortalSettings portalSettings;
     private final RestTemplateFactory restTemplateFactory;
     private final PortalMetaDomainService portalMetaDomainService;
+    private final AdminServiceLoadBalancer adminServiceLoadBalancer;
 
     public AdminServiceAddressLocator(
             final HttpMessageConverters httpMessageConverters,
             final PortalSettings portalSettings,
             final RestTemplateFactory restTemplateFactory,
-            final PortalMetaDomainService portalMetaDomainService
+            final PortalMetaDomainService portalMetaDomainService,
+            final AdminServiceLoadBalancer adminServiceLoadBalancer
     ) {
         this.portalSettings = portalSettings;
         this.restTemplateFactory = restTemplateFactory;
         this.portalMetaDomainService = portalMetaDomainService;
+        this.adminServiceLoadBalancer = adminServiceLoadBalancer;
     }
 
     @PostConstruct
@@ -86,9 +88,7 @@ public class AdminServiceAddressLocator {
         if (CollectionUtils.isEmpty(services)) {
             return Collections.emptyList();
         }
-        List<ServiceDTO> randomConfigServices = Lists.newArrayList(services);
-        Collections.shuffle(randomConfigServices);
-        return randomConfigServices;
+        return adminServiceLoadBalancer.order(services);
     }
 
     //maintain admin server address
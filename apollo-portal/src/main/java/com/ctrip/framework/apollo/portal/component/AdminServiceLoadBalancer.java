@@ -0,0 +1,168 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.portal.component;
+
+import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.ctrip.framework.apollo.portal.environment.Env;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the latencies and failures of the admin servers, to order them for each request.
+ * <p>
+ * The servers are picked by the power of two choices: of two random servers the one with the lower average latency
+ * goes first, so the faster servers get more requests without all the requests going to one server. A server failed
+ * consecutively is moved to the end, as if its circuit was open, until the cool down elapses.
+ */
+@Component
+public class AdminServiceLoadBalancer {
+    static final int CIRCUIT_BREAKER_FAILURE_THRESHOLD = 5;
+    static final long CIRCUIT_BREAKER_COOL_DOWN_IN_MILLI = TimeUnit.SECONDS.toMillis(30);
+    //the latencies kept of each env and endpoint, for the percentile
+    static final int LATENCY_WINDOW_SIZE = 128;
+    private static final double LATENCY_PERCENTILE = 0.95;
+    //the weight of a new latency in the average
+    private static final double EWMA_ALPHA = 0.3;
+
+    //admin server homepage url -> statistics
+    private final ConcurrentMap<String, ServerStatistics> serverStatistics = Maps.newConcurrentMap();
+    //env + endpoint -> latencies
+    private final ConcurrentMap<String, LatencyWindow> latencyWindows = Maps.newConcurrentMap();
+
+    /**
+     * @return the admin servers in the order they should be tried
+     */
+    public List<ServiceDTO> order(List<ServiceDTO> services) {
+        List<ServiceDTO> ordered = Lists.newArrayList(services);
+        Collections.shuffle(ordered);
+        if (ordered.size() < 2) {
+            return ordered;
+        }
+
+        long now = System.currentTimeMillis();
+        //move the servers with open circuits to the end, keeping the random order
+        List<ServiceDTO> open = Lists.newArrayList();
+        ordered.removeIf(service -> {
+            if (statisticsOf(service).isCircuitOpen(now)) {
+                open.add(service);
+                return true;
+            }
+            return false;
+        });
+        if (ordered.size() >= 2 && statisticsOf(ordered.get(1)).getAverageLatencyInMicros() <
+                statisticsOf(ordered.get(0)).getAverageLatencyInMicros()) {
+            Collections.swap(ordered, 0, 1);
+        }
+        ordered.addAll(open);
+        return ordered;
+    }
+
+    public void onSuccess(Env env, String endpoint, ServiceDTO service, long latencyInMicros) {
+        statisticsOf(service).onSuccess(latencyInMicros);
+        latencyWindows.computeIfAbsent(latencyWindowKey(env, endpoint), k -> new LatencyWindow())
+                .add(latencyInMicros);
+    }
+
+    /**
+     * Record a failure of the server itself, i.e. unreachable or timed out, not a business error
+     */
+    public void onFailure(ServiceDTO service) {
+        statisticsOf(service).onFailure(System.currentTimeMillis());
+    }
+
+    /**
+     * @return the percentile latency of the endpoint in milliseconds, or the default delay if not enough observed
+     */
+    public long hedgeDelayInMilli(Env env, String endpoint, long defaultDelay) {
+        LatencyWindow window = latencyWindows.get(latencyWindowKey(env, endpoint));
+        if (window == null || !window.isFull()) {
+            return defaultDelay;
+        }
+        return Math.max(1, TimeUnit.MICROSECONDS.toMillis(window.percentile(LATENCY_PERCENTILE)));
+    }
+
+    private ServerStatistics statisticsOf(ServiceDTO service) {
+        return serverStatistics.computeIfAbsent(service.getHomepageUrl(), k -> new ServerStatistics());
+    }
+
+    private String latencyWindowKey(Env env, String endpoint) {
+        return env.getName() + " " + endpoint;
+    }
+
+    private static class ServerStatistics {
+        private final AtomicLong averageLatencyInMicros = new AtomicLong();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private volatile long circuitOpenUntil;
+
+        void onSuccess(long latencyInMicros) {
+            consecutiveFailures.set(0);
+            circuitOpenUntil = 0;
+            averageLatencyInMicros.updateAndGet(average -> average == 0 ? latencyInMicros :
+                    (long) (average + (latencyInMicros - average) * EWMA_ALPHA));
+        }
+
+        void onFailure(long now) {
+            //a half open circuit opens again on the first failure
+            if (consecutiveFailures.incrementAndGet() >= CIRCUIT_BREAKER_FAILURE_THRESHOLD) {
+                circuitOpenUntil = now + CIRCUIT_BREAKER_COOL_DOWN_IN_MILLI;
+            }
+        }
+
+        boolean isCircuitOpen(long now) {
+            return now < circuitOpenUntil;
+        }
+
+        long getAverageLatencyInMicros() {
+            return averageLatencyInMicros.get();
+        }
+    }
+
+    private static class LatencyWindow {
+        private final long[] latencies = new long[LATENCY_WINDOW_SIZE];
+        private int next;
+        private boolean full;
+
+        synchronized void add(long latency) {
+            latencies[next] = latency;
+            next = (next + 1) % LATENCY_WINDOW_SIZE;
+            full = full || next == 0;
+        }
+
+        synchronized boolean isFull() {
+            return full;
+        }
+
+        long percentile(double percentile) {
+            long[] sorted;
+            synchronized (this) {
+                sorted = latencies.clone();
+            }
+            Arrays.sort(sorted);
+            return sorted[(int) Math.ceil(percentile * sorted.length) - 1];
+        }
+    }
+}
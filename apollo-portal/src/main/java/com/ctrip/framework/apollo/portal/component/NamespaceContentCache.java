@@ -0,0 +1,186 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.portal.component;
+
+import com.ctrip.framework.apollo.common.dto.ItemDTO;
+import com.ctrip.framework.apollo.common.dto.NamespaceDTO;
+import com.ctrip.framework.apollo.common.dto.NamespaceVersionDTO;
+import com.ctrip.framework.apollo.portal.api.AdminServiceAPI;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
+import com.ctrip.framework.apollo.portal.environment.Env;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.base.Joiner;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Maps;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the latest release and the items of the namespaces loaded from the admin services.
+ * <p>
+ * The versions of all the namespaces in a cluster are loaded in one request before the namespaces are loaded, and a
+ * namespace cached is only used if its version is unchanged, so the changes made through other portals are never
+ * missed. The namespaces modified through this portal are invalidated at once.
+ */
+@Component
+public class NamespaceContentCache {
+    private static final Logger logger = LoggerFactory.getLogger(NamespaceContentCache.class);
+    private static final Joiner KEY_JOINER = Joiner.on('+');
+    private static final long EXPIRE_AFTER_ACCESS_IN_MINUTES = 60;
+
+    private final PortalConfig portalConfig;
+    private final AdminServiceAPI.NamespaceAPI namespaceAPI;
+    private final Cache<String, CacheEntry> cache;
+
+    public NamespaceContentCache(final PortalConfig portalConfig, final AdminServiceAPI.NamespaceAPI namespaceAPI) {
+        this.portalConfig = portalConfig;
+        this.namespaceAPI = namespaceAPI;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(portalConfig.namespaceCacheSize())
+                .expireAfterAccess(EXPIRE_AFTER_ACCESS_IN_MINUTES, TimeUnit.MINUTES)
+                .build();
+    }
+
+    /**
+     * @return namespace name -> version of the namespaces in the cluster, or null if the cache is disabled or the
+     * versions failed to load, e.g. the admin service is not upgraded yet
+     */
+    public Map<String, NamespaceVersionDTO> loadVersions(Env env, String appId, String clusterName) {
+        if (!portalConfig.isNamespaceCacheEnabled()) {
+            return null;
+        }
+        try {
+            Map<String, NamespaceVersionDTO> versions = Maps.newHashMap();
+            for (NamespaceVersionDTO version : namespaceAPI.findNamespaceVersions(appId, env, clusterName)) {
+                versions.put(version.getNamespaceName(), version);
+            }
+            return versions;
+        } catch (Throwable ex) {
+            logger.warn("Load namespace versions failed, appId: {}, env: {}, clusterName: {}", appId, env,
+                    clusterName, ex);
+            Tracer.logError(ex);
+            return null;
+        }
+    }
+
+    /**
+     * @param versions the versions loaded by {@link #loadVersions(Env, String, String)}
+     * @return the content of the namespace cached at the version, or null if not cached, changed or the deleted items
+     * are required but not cached
+     */
+    public NamespaceContent get(Env env, NamespaceDTO namespace, Map<String, NamespaceVersionDTO> versions,
+                                boolean includeDeletedItems) {
+        if (versions == null) {
+            return null;
+        }
+        CacheEntry entry = cache.getIfPresent(key(env, namespace.getAppId(), namespace.getClusterName(),
+                namespace.getNamespaceName()));
+        if (entry == null || !entry.isVersion(versionOf(namespace, versions))) {
+            return null;
+        }
+        if (includeDeletedItems && entry.content.getDeletedItems() == null) {
+            return null;
+        }
+        return entry.content;
+    }
+
+    /**
+     * Cache the content loaded after the versions. If the namespace is changed in between, the content is newer than
+     * the version, and it is loaded again on the next access as the version is changed.
+     */
+    public void put(Env env, NamespaceDTO namespace, Map<String, NamespaceVersionDTO> versions,
+                    NamespaceContent content) {
+        if (versions == null) {
+            return;
+        }
+        cache.put(key(env, namespace.getAppId(), namespace.getClusterName(), namespace.getNamespaceName()),
+                new CacheEntry(versionOf(namespace, versions), content));
+    }
+
+    public void invalidate(Env env, String appId, String clusterName, String namespaceName) {
+        cache.invalidate(key(env, appId, clusterName, namespaceName));
+    }
+
+    private NamespaceVersionDTO versionOf(NamespaceDTO namespace, Map<String, NamespaceVersionDTO> versions) {
+        //neither released nor committed yet
+        return versions.getOrDefault(namespace.getNamespaceName(),
+                new NamespaceVersionDTO(namespace.getNamespaceName(), 0, 0, 0, 0));
+    }
+
+    private String key(Env env, String appId, String clusterName, String namespaceName) {
+        return KEY_JOINER.join(env.getName(), appId, clusterName, namespaceName);
+    }
+
+    private static class CacheEntry {
+        private final long latestReleaseId;
+        private final long latestCommitId;
+        private final long itemCount;
+        private final long itemsLastModifiedTime;
+        private final NamespaceContent content;
+
+        CacheEntry(NamespaceVersionDTO version, NamespaceContent content) {
+            this.latestReleaseId = version.getLatestReleaseId();
+            this.latestCommitId = version.getLatestCommitId();
+            this.itemCount = version.getItemCount();
+            this.itemsLastModifiedTime = version.getItemsLastModifiedTime();
+            this.content = content;
+        }
+
+        boolean isVersion(NamespaceVersionDTO version) {
+            return latestReleaseId == version.getLatestReleaseId() && latestCommitId == version.getLatestCommitId()
+                    && itemCount == version.getItemCount()
+                    && itemsLastModifiedTime == version.getItemsLastModifiedTime();
+        }
+    }
+
+    /**
+     * The configurations of the latest release of a namespace, and the items. It is shared by the loads, so
+     * it must not be modified.
+     */
+    public static class NamespaceContent {
+        private final Map<String, String> releaseItems;
+        private final List<ItemDTO> items;
+        //null if not loaded
+        private final List<ItemDTO> deletedItems;
+
+        public NamespaceContent(Map<String, String> releaseItems, List<ItemDTO> items, List<ItemDTO> deletedItems) {
+            this.releaseItems = Collections.unmodifiableMap(releaseItems);
+            this.items = Collections.unmodifiableList(items);
+            this.deletedItems = deletedItems == null ? null : Collections.unmodifiableList(deletedItems);
+        }
+
+        public Map<String, String> getReleaseItems() {
+            return releaseItems;
+        }
+
+        public List<ItemDTO> getItems() {
+            return items;
+        }
+
+        public List<ItemDTO> getDeletedItems() {
+            return deletedItems;
+        }
+    }
+}
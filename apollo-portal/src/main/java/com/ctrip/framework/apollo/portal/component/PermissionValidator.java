@@ -24,9 +24,13 @@ import com.ctrip.framework.apollo.portal.service.RolePermissionService;
 import com.ctrip.framework.apollo.portal.service.SystemRoleManagerService;
 import com.ctrip.framework.apollo.portal.spi.UserInfoHolder;
 import com.ctrip.framework.apollo.portal.util.RoleUtils;
+import com.google.common.collect.Sets;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
+import java.util.Set;
+
 @Component("permissionValidator")
 public class PermissionValidator {
 
@@ -122,6 +126,17 @@ public class PermissionValidator {
         return isSuperAdmin() || hasAssignRolePermission(appId);
     }
 
+    /**
+     * @return the apps the current user is admin of, checked with the permissions of the user loaded once
+     */
+    public Set<String> findAppAdminAppIds(Collection<String> appIds) {
+        if (isSuperAdmin()) {
+            return Sets.newHashSet(appIds);
+        }
+        return rolePermissionService.findUserPermittedTargetIds(userInfoHolder.getUser().getUserId(),
+                PermissionType.ASSIGN_ROLE, appIds);
+    }
+
     public boolean isSuperAdmin() {
         return rolePermissionService.isSuperAdmin(userInfoHolder.getUser().getUserId());
     }
@@ -54,7 +54,11 @@ public class RestTemplateFactory implements FactoryBean<RestTemplate>, Initializ
 
     @Override
     public void afterPropertiesSet() {
-        CloseableHttpClient httpClient = HttpClientBuilder.create().build();
+        //the default pool allows only 2 connections per admin server, which serializes the parallel requests
+        CloseableHttpClient httpClient = HttpClientBuilder.create()
+                .setMaxConnTotal(portalConfig.maxConnections())
+                .setMaxConnPerRoute(portalConfig.maxConnectionsPerRoute())
+                .build();
 
         restTemplate = new RestTemplate(httpMessageConverters.getConverters());
         HttpComponentsClientHttpRequestFactory requestFactory =
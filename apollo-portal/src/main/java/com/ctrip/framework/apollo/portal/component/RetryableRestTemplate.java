@@ -18,6 +18,7 @@ package com.ctrip.framework.apollo.portal.component;
 
 import com.ctrip.framework.apollo.common.exception.ServiceException;
 import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
 import com.ctrip.framework.apollo.portal.constant.TracerEventType;
 import com.ctrip.framework.apollo.portal.environment.Env;
@@ -25,9 +26,11 @@ import com.ctrip.framework.apollo.portal.environment.PortalMetaDomainService;
 import com.ctrip.framework.apollo.tracer.Tracer;
 import com.ctrip.framework.apollo.tracer.spi.Transaction;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Maps;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
+import io.micrometer.core.instrument.Metrics;
 import org.apache.http.conn.ConnectTimeoutException;
 import org.apache.http.conn.HttpHostConnectException;
 import org.slf4j.Logger;
@@ -50,6 +53,14 @@ import java.lang.reflect.Type;
 import java.net.SocketTimeoutException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 封装RestTemplate. admin server集群在某些机器宕机或者超时的情况下轮询重试
@@ -74,19 +85,24 @@ public class RetryableRestTemplate {
     private final AdminServiceAddressLocator adminServiceAddressLocator;
     private final PortalMetaDomainService portalMetaDomainService;
     private final PortalConfig portalConfig;
+    private final AdminServiceLoadBalancer adminServiceLoadBalancer;
     private volatile String lastAdminServiceAccessTokens;
     private volatile Map<Env, String> adminServiceAccessTokenMap;
+    //created on the first hedged request
+    private volatile ExecutorService hedgeExecutorService;
 
     public RetryableRestTemplate(
             final @Lazy RestTemplateFactory restTemplateFactory,
             final @Lazy AdminServiceAddressLocator adminServiceAddressLocator,
             final PortalMetaDomainService portalMetaDomainService,
-            final PortalConfig portalConfig
+            final PortalConfig portalConfig,
+            final AdminServiceLoadBalancer adminServiceLoadBalancer
     ) {
         this.restTemplateFactory = restTemplateFactory;
         this.adminServiceAddressLocator = adminServiceAddressLocator;
         this.portalMetaDomainService = portalMetaDomainService;
         this.portalConfig = portalConfig;
+        this.adminServiceLoadBalancer = adminServiceLoadBalancer;
     }
 
 
@@ -127,6 +143,25 @@ public class RetryableRestTemplate {
             path = path.substring(1);
         }
 
+        String finalPath = path;
+        return executeWithRetry(method, env, path, uriVariables, (service, extraHeaders) ->
+                doExecute(method, extraHeaders, service, finalPath, request, responseType, uriVariables));
+    }
+
+    private <T> ResponseEntity<T> exchangeGet(Env env, String path, ParameterizedTypeReference<T> reference,
+                                              Object... uriVariables) {
+        if (path.startsWith("/")) {
+            path = path.substring(1);
+        }
+
+        String finalPath = path;
+        return executeWithRetry(HttpMethod.GET, env, path, uriVariables, (service, extraHeaders) ->
+                restTemplate.exchange(parseHost(service) + finalPath, HttpMethod.GET,
+                        new HttpEntity<Void>(extraHeaders), reference, uriVariables));
+    }
+
+    private <T> T executeWithRetry(HttpMethod method, Env env, String path, Object[] uriVariables,
+                                   AdminServiceCall<T> call) {
         String uri = uriTemplateHandler.expand(path, uriVariables).getPath();
         Transaction ct = Tracer.newTransaction("AdminAPI", uri);
         ct.addData("Env", env);
@@ -134,80 +169,141 @@ public class RetryableRestTemplate {
         List<ServiceDTO> services = getAdminServices(env, ct);
         HttpHeaders extraHeaders = assembleExtraHeaders(env);
 
+        long start = System.nanoTime();
+        String status = "failure";
+        try {
+            //only the GET requests are idempotent to be sent twice
+            T result = method == HttpMethod.GET && services.size() > 1 && portalConfig.isAdminServiceHedgeEnabled() ?
+                    executeHedged(env, path, uri, services, extraHeaders, call) :
+                    executeSequentially(method, env, path, uri, services, extraHeaders, call);
+            status = "success";
+            ct.setStatus(Transaction.SUCCESS);
+            return result;
+        } catch (Throwable t) {
+            ct.setStatus(t);
+            throw t;
+        } finally {
+            ct.complete();
+            Metrics.timer("apollo.portal.admin-api", "env", env.getName(), "method", method.name(),
+                    "endpoint", path, "status", status).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private <T> T executeSequentially(HttpMethod method, Env env, String path, String uri, List<ServiceDTO> services,
+                                      HttpHeaders extraHeaders, AdminServiceCall<T> call) {
         for (ServiceDTO serviceDTO : services) {
             try {
-
-                T result = doExecute(method, extraHeaders, serviceDTO, path, request, responseType, uriVariables);
-
-                ct.setStatus(Transaction.SUCCESS);
-                ct.complete();
-                return result;
+                return callAndRecord(env, path, serviceDTO, extraHeaders, call);
             } catch (Throwable t) {
-                logger.error("Http request failed, uri: {}, method: {}", uri, method, t);
-                Tracer.logError(t);
-                if (canRetry(t, method)) {
-                    Tracer.logEvent(TracerEventType.API_RETRY, uri);
-                } else {//biz exception rethrow
-                    ct.setStatus(t);
-                    ct.complete();
+                if (!onFailure(t, method, uri, serviceDTO)) {//biz exception rethrow
                     throw t;
                 }
             }
         }
 
         //all admin server down
-        ServiceException e =
-                new ServiceException(String.format("Admin servers are unresponsive. meta server address: %s, admin servers: %s",
-                        portalMetaDomainService.getDomain(env), services));
-        ct.setStatus(e);
-        ct.complete();
-        throw e;
+        throw allAdminServersDown(env, services);
     }
 
-    private <T> ResponseEntity<T> exchangeGet(Env env, String path, ParameterizedTypeReference<T> reference,
-                                              Object... uriVariables) {
-        if (path.startsWith("/")) {
-            path = path.substring(1);
+    /**
+     * Send the request to the next admin server if the current one fails, or does not respond within the usual
+     * latency of the endpoint. The first response wins and the others are cancelled.
+     */
+    private <T> T executeHedged(Env env, String path, String uri, List<ServiceDTO> services,
+                                HttpHeaders extraHeaders, AdminServiceCall<T> call) {
+        long hedgeDelay = adminServiceLoadBalancer.hedgeDelayInMilli(env, path, portalConfig.adminServiceHedgeDelay());
+        CompletionService<T> completionService = new ExecutorCompletionService<>(getHedgeExecutorService());
+        Map<Future<T>, ServiceDTO> pending = Maps.newHashMap();
+        int next = 0;
+        try {
+            submit(completionService, pending, services.get(next++), env, path, extraHeaders, call);
+            while (!pending.isEmpty()) {
+                Future<T> future = next < services.size() ?
+                        completionService.poll(hedgeDelay, TimeUnit.MILLISECONDS) : completionService.take();
+                if (future == null) {
+                    Tracer.logEvent(TracerEventType.API_HEDGE, uri);
+                    Metrics.counter("apollo.portal.admin-api.hedged", "env", env.getName(), "endpoint", path)
+                            .increment();
+                    submit(completionService, pending, services.get(next++), env, path, extraHeaders, call);
+                    continue;
+                }
+                ServiceDTO service = pending.remove(future);
+                try {
+                    return future.get();
+                } catch (ExecutionException e) {
+                    Throwable t = e.getCause();
+                    if (!onFailure(t, HttpMethod.GET, uri, service)) {//biz exception rethrow
+                        Throwables.throwIfUnchecked(t);
+                        throw new IllegalStateException(t);
+                    }
+                    if (next < services.size()) {
+                        submit(completionService, pending, services.get(next++), env, path, extraHeaders, call);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("Interrupted while requesting admin servers", e);
+        } finally {
+            pending.keySet().forEach(future -> future.cancel(true));
         }
 
-        String uri = uriTemplateHandler.expand(path, uriVariables).getPath();
-        Transaction ct = Tracer.newTransaction("AdminAPI", uri);
-        ct.addData("Env", env);
+        //all admin server down
+        throw allAdminServersDown(env, services);
+    }
 
-        List<ServiceDTO> services = getAdminServices(env, ct);
-        HttpEntity<Void> entity = new HttpEntity<>(assembleExtraHeaders(env));
+    private <T> void submit(CompletionService<T> completionService, Map<Future<T>, ServiceDTO> pending,
+                            ServiceDTO service, Env env, String path, HttpHeaders extraHeaders,
+                            AdminServiceCall<T> call) {
+        pending.put(completionService.submit(() -> callAndRecord(env, path, service, extraHeaders, call)), service);
+    }
 
-        for (ServiceDTO serviceDTO : services) {
-            try {
+    private <T> T callAndRecord(Env env, String path, ServiceDTO service, HttpHeaders extraHeaders,
+                                AdminServiceCall<T> call) {
+        long start = System.nanoTime();
+        T result = call.call(service, extraHeaders);
+        adminServiceLoadBalancer.onSuccess(env, path, service,
+                TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+        return result;
+    }
+
+    /**
+     * @return whether the request could be retried on another admin server
+     */
+    private boolean onFailure(Throwable t, HttpMethod method, String uri, ServiceDTO service) {
+        logger.error("Http request failed, uri: {}, method: {}", uri, method, t);
+        Tracer.logError(t);
+        //the admin server is unreachable or timed out
+        if (canRetry(t, HttpMethod.GET)) {
+            adminServiceLoadBalancer.onFailure(service);
+        }
+        if (canRetry(t, method)) {
+            Tracer.logEvent(TracerEventType.API_RETRY, uri);
+            return true;
+        }
+        return false;
+    }
 
-                ResponseEntity<T> result =
-                        restTemplate.exchange(parseHost(serviceDTO) + path, HttpMethod.GET, entity, reference, uriVariables);
+    private ServiceException allAdminServersDown(Env env, List<ServiceDTO> services) {
+        return new ServiceException(String.format("Admin servers are unresponsive. meta server address: %s, admin servers: %s",
+                portalMetaDomainService.getDomain(env), services));
+    }
 
-                ct.setStatus(Transaction.SUCCESS);
-                ct.complete();
-                return result;
-            } catch (Throwable t) {
-                logger.error("Http request failed, uri: {}, method: {}", uri, HttpMethod.GET, t);
-                Tracer.logError(t);
-                if (canRetry(t, HttpMethod.GET)) {
-                    Tracer.logEvent(TracerEventType.API_RETRY, uri);
-                } else {// biz exception rethrow
-                    ct.setStatus(t);
-                    ct.complete();
-                    throw t;
+    private ExecutorService getHedgeExecutorService() {
+        if (hedgeExecutorService == null) {
+            synchronized (this) {
+                if (hedgeExecutorService == null) {
+                    int threads = Math.max(1, portalConfig.adminServiceHedgeThreads());
+                    //the caller sends the request itself, without hedging, when the pool is saturated
+                    ThreadPoolExecutor executorService = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                            new ArrayBlockingQueue<>(threads), ApolloThreadFactory.create("AdminServiceHedge", true),
+                            new ThreadPoolExecutor.CallerRunsPolicy());
+                    executorService.allowCoreThreadTimeOut(true);
+                    hedgeExecutorService = executorService;
                 }
-
             }
         }
-
-        //all admin server down
-        ServiceException e =
-                new ServiceException(String.format("Admin servers are unresponsive. meta server address: %s, admin servers: %s",
-                        portalMetaDomainService.getDomain(env), services));
-        ct.setStatus(e);
-        ct.complete();
-        throw e;
-
+        return hedgeExecutorService;
     }
 
     private HttpHeaders assembleExtraHeaders(Env env) {
@@ -318,4 +414,8 @@ public class RetryableRestTemplate {
                 || nestedException instanceof ConnectTimeoutException;
     }
 
+    private interface AdminServiceCall<T> {
+        T call(ServiceDTO service, HttpHeaders extraHeaders);
+    }
+
 }
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.portal.component;
+
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
+import com.ctrip.framework.apollo.portal.repository.PermissionRepository;
+import com.ctrip.framework.apollo.portal.repository.RolePermissionRepository;
+import com.ctrip.framework.apollo.portal.repository.UserRoleRepository;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Caches the permissions of the users, so the permission checks are answered in memory.
+ * <p>
+ * The users whose roles are changed through this portal are invalidated at once. The changes through other portals
+ * are found by the latest modified time of the user roles, role permissions and permissions, checked periodically,
+ * and invalidate all the users.
+ */
+@Component
+public class UserPermissionCache implements InitializingBean, DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(UserPermissionCache.class);
+    private static final long EXPIRE_AFTER_WRITE_IN_MINUTES = 60;
+    //DataChange_LastTime is in seconds, so a change in the same second as the latest change checked is not found by
+    //the modified time, the latest change is checked again until it is older than this
+    private static final long CHANGE_SETTLE_TIME_IN_MILLI = 2000;
+
+    private final PortalConfig portalConfig;
+    private final UserRoleRepository userRoleRepository;
+    private final RolePermissionRepository rolePermissionRepository;
+    private final PermissionRepository permissionRepository;
+    //user id -> permissions
+    private final Cache<String, Set<String>> cache;
+    private final ScheduledExecutorService executorService;
+    //increased on each invalidation, so the permissions loaded before are not cached
+    private long version;
+    //only accessed in the executor thread, null if not settled
+    private Long latestChangeChecked;
+
+    public UserPermissionCache(final PortalConfig portalConfig, final UserRoleRepository userRoleRepository,
+                               final RolePermissionRepository rolePermissionRepository,
+                               final PermissionRepository permissionRepository) {
+        this.portalConfig = portalConfig;
+        this.userRoleRepository = userRoleRepository;
+        this.rolePermissionRepository = rolePermissionRepository;
+        this.permissionRepository = permissionRepository;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(portalConfig.userPermissionCacheSize())
+                .expireAfterWrite(EXPIRE_AFTER_WRITE_IN_MINUTES, TimeUnit.MINUTES)
+                .build();
+        this.executorService = Executors.newScheduledThreadPool(1, ApolloThreadFactory
+                .create("UserPermissionCache", true));
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (!isEnabled()) {
+            return;
+        }
+        int checkInterval = Math.max(1, portalConfig.userPermissionCacheCheckInterval());
+        executorService.scheduleWithFixedDelay(this::checkChanges, checkInterval, checkInterval, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        executorService.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return portalConfig.isUserPermissionCacheEnabled();
+    }
+
+    /**
+     * @param loader loads the permissions of the user if not cached
+     */
+    public Set<String> get(String userId, Function<String, Set<String>> loader) {
+        Set<String> permissions = cache.getIfPresent(userId);
+        if (permissions != null) {
+            return permissions;
+        }
+        long versionLoaded;
+        synchronized (this) {
+            versionLoaded = version;
+        }
+        permissions = ImmutableSet.copyOf(loader.apply(userId));
+        synchronized (this) {
+            //the permissions may be changed while loading
+            if (versionLoaded == version) {
+                cache.put(userId, permissions);
+            }
+        }
+        return permissions;
+    }
+
+    /**
+     * Invalidate the users, after the transaction is committed if any, so the permissions loaded meanwhile from the
+     * uncommitted data are not kept
+     */
+    public void invalidate(Collection<String> userIds) {
+        afterCommit(() -> {
+            synchronized (this) {
+                version++;
+                cache.invalidateAll(userIds);
+            }
+        });
+    }
+
+    public void invalidateAll() {
+        afterCommit(() -> {
+            synchronized (this) {
+                version++;
+                cache.invalidateAll();
+            }
+        });
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    void checkChanges() {
+        try {
+            Long latestChange = null;
+            for (Date modifiedTime : Lists.newArrayList(userRoleRepository.findLatestDataChangeLastModifiedTime(),
+                    rolePermissionRepository.findLatestDataChangeLastModifiedTime(),
+                    permissionRepository.findLatestDataChangeLastModifiedTime())) {
+                if (modifiedTime != null && (latestChange == null || modifiedTime.getTime() > latestChange)) {
+                    latestChange = modifiedTime.getTime();
+                }
+            }
+            if (!Objects.equals(latestChange, latestChangeChecked)) {
+                invalidateAll();
+            }
+            boolean settled = latestChange == null ||
+                    System.currentTimeMillis() - latestChange >= CHANGE_SETTLE_TIME_IN_MILLI;
+            latestChangeChecked = settled ? latestChange : null;
+        } catch (Throwable ex) {
+            logger.error("Check the changes of the user permissions failed", ex);
+            Tracer.logError(ex);
+        }
+    }
+}
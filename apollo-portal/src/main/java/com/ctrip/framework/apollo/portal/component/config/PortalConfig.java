@@ -166,6 +166,104 @@ public class PortalConfig extends RefreshableConfig {
         return getIntProperty("api.readTimeout", 10000);
     }
 
+    /**
+     * the max connections to all the admin and meta servers
+     */
+    public int maxConnections() {
+        return getIntProperty("api.maxConnections", 200);
+    }
+
+    /**
+     * the max connections to each admin or meta server
+     */
+    public int maxConnectionsPerRoute() {
+        return getIntProperty("api.maxConnectionsPerRoute", 50);
+    }
+
+    /**
+     * whether a backup request is sent to another admin server when a GET request is slower than usual
+     */
+    public boolean isAdminServiceHedgeEnabled() {
+        return getBooleanProperty("admin-service.hedge.enabled", false);
+    }
+
+    /**
+     * the delay in milliseconds before the backup request, used until enough latencies are observed
+     */
+    public int adminServiceHedgeDelay() {
+        return getIntProperty("admin-service.hedge.delay", 200);
+    }
+
+    /**
+     * the number of threads sending the requests when hedging is enabled
+     */
+    public int adminServiceHedgeThreads() {
+        return getIntProperty("admin-service.hedge.threads", 32);
+    }
+
+    /**
+     * the number of threads fetching the configs from admin services when exporting
+     */
+    public int configsExportParallelism() {
+        return getIntProperty("configs.export.parallelism", 8);
+    }
+
+    /**
+     * the number of zip entries buffered for the writer when exporting
+     */
+    public int configsExportBufferSize() {
+        return getIntProperty("configs.export.buffer.size", 256);
+    }
+
+    /**
+     * the number of threads importing the configs to admin services
+     */
+    public int configsImportParallelism() {
+        return getIntProperty("configs.import.parallelism", 8);
+    }
+
+    /**
+     * the max time in milliseconds to wait for each env when searching by item
+     */
+    public int searchByItemTimeoutInMilli() {
+        return getIntProperty("searchByItem.timeout", 5000);
+    }
+
+    /**
+     * whether to cache the releases and items of the namespaces, checked by the namespace versions on each load
+     */
+    public boolean isNamespaceCacheEnabled() {
+        return getBooleanProperty("namespace.cache.enabled", false);
+    }
+
+    /**
+     * the max number of namespaces cached
+     */
+    public int namespaceCacheSize() {
+        return getIntProperty("namespace.cache.size", 1000);
+    }
+
+    /**
+     * whether to cache the permissions of the users, checked for the changes through other portals periodically
+     */
+    public boolean isUserPermissionCacheEnabled() {
+        return getBooleanProperty("user.permission.cache.enabled", false);
+    }
+
+    /**
+     * the max number of users whose permissions are cached
+     */
+    public int userPermissionCacheSize() {
+        return getIntProperty("user.permission.cache.size", 10000);
+    }
+
+    /**
+     * the interval in seconds to check the changes of the roles and permissions through other portals
+     */
+    public int userPermissionCacheCheckInterval() {
+        return getIntProperty("user.permission.cache.check.interval", 5);
+    }
+
     public List<Organization> organizations() {
 
         String organizations = getValue("organizations");
@@ -212,6 +310,41 @@ public class PortalConfig extends RefreshableConfig {
         return getValue("consumer.token.salt", "apollo-portal");
     }
 
+    /**
+     * whether to cache the consumer ids of the open api tokens, including the invalid tokens
+     */
+    public boolean isConsumerTokenCacheEnabled() {
+        return getBooleanProperty("consumer.token.cache.enabled", false);
+    }
+
+    /**
+     * the max number of open api tokens cached
+     */
+    public int consumerTokenCacheSize() {
+        return getIntProperty("consumer.token.cache.size", 10000);
+    }
+
+    /**
+     * the seconds a valid token is cached, the tokens deleted through other portals are still accepted meanwhile
+     */
+    public int consumerTokenCacheExpireInSeconds() {
+        return getIntProperty("consumer.token.cache.expire", 60);
+    }
+
+    /**
+     * the max number of the tokens not cached looked up in the database per second, the others are rejected
+     */
+    public int consumerTokenCacheMissRateLimit() {
+        return getIntProperty("consumer.token.cache.miss.rate.limit", 100);
+    }
+
+    /**
+     * the max number of open api requests per second of each consumer, not limited if not positive
+     */
+    public int consumerRateLimit() {
+        return getIntProperty("consumer.rate.limit", 0);
+    }
+
     public boolean isEmailEnabled() {
         return getBooleanProperty("email.enabled", false);
     }
@@ -19,12 +19,10 @@ package com.ctrip.framework.apollo.portal.component.txtresolver;
 import com.ctrip.framework.apollo.common.dto.ItemChangeSets;
 import com.ctrip.framework.apollo.common.dto.ItemDTO;
 import com.ctrip.framework.apollo.common.exception.BadRequestException;
-import com.ctrip.framework.apollo.common.utils.BeanUtils;
 
 import com.google.common.base.Strings;
 import org.springframework.stereotype.Component;
 
-import javax.validation.constraints.NotNull;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -40,29 +38,52 @@ import java.util.Set;
 public class PropertyResolver implements ConfigTextResolver {
 
     private static final String KV_SEPARATOR = "=";
-    private static final String ITEM_SEPARATOR = "\n";
+    private static final char ITEM_SEPARATOR = '\n';
 
+    /**
+     * The text is resolved in a single pass, line by line, without splitting it up front.
+     */
     @Override
     public ItemChangeSets resolve(long namespaceId, String configText, List<ItemDTO> baseItems) {
 
-        Map<Integer, ItemDTO> oldLineNumMapItem = BeanUtils.mapByKey("lineNum", baseItems);
-        Map<String, ItemDTO> oldKeyMapItem = BeanUtils.mapByKey("key", baseItems);
+        Map<Integer, ItemDTO> oldLineNumMapItem = new HashMap<>();
+        Map<String, ItemDTO> oldKeyMapItem = new HashMap<>();
+        if (baseItems != null) {
+            for (ItemDTO baseItem : baseItems) {
+                oldLineNumMapItem.put(baseItem.getLineNum(), baseItem);
+                oldKeyMapItem.put(baseItem.getKey(), baseItem);
+            }
+        }
 
         //remove comment and blank item map.
         oldKeyMapItem.remove("");
 
-        String[] newItems = configText.split(ITEM_SEPARATOR);
+        Set<String> keys = new HashSet<>();
         Set<String> repeatKeys = new HashSet<>();
-        if (isHasRepeatKey(newItems, repeatKeys)) {
-            throw new BadRequestException("Config text has repeated keys: %s, please check your input.", repeatKeys);
+        ItemChangeSets changeSets = new ItemChangeSets();
+
+        //the same lines as String.split, which removes the trailing empty lines
+        int textEnd = configText.length();
+        if (configText.indexOf(ITEM_SEPARATOR) >= 0) {
+            while (textEnd > 0 && configText.charAt(textEnd - 1) == ITEM_SEPARATOR) {
+                textEnd--;
+            }
         }
+        boolean hasLines = textEnd > 0 || configText.indexOf(ITEM_SEPARATOR) < 0;
+
+        int lineCounter = 0;
+        int lineStart = 0;
+        while (hasLines) {
+            int lineEnd = configText.indexOf(ITEM_SEPARATOR, lineStart);
+            if (lineEnd < 0 || lineEnd > textEnd) {
+                lineEnd = textEnd;
+            }
+            lineCounter++;
 
-        ItemChangeSets changeSets = new ItemChangeSets();
-        Map<Integer, String> newLineNumMapItem = new HashMap<>();//use for delete blank and comment item
-        int lineCounter = 1;
-        for (String newItem : newItems) {
-            newItem = newItem.trim();
-            newLineNumMapItem.put(lineCounter, newItem);
+            String rawItem = configText.substring(lineStart, lineEnd);
+            checkRepeatKey(rawItem, lineCounter, keys, repeatKeys);
+
+            String newItem = rawItem.trim();
             ItemDTO oldItemByLine = oldLineNumMapItem.get(lineCounter);
 
             //comment item
@@ -80,33 +101,45 @@ public class PropertyResolver implements ConfigTextResolver {
                 handleNormalLine(namespaceId, oldKeyMapItem, newItem, lineCounter, changeSets);
             }
 
-            lineCounter++;
+            deleteCommentAndBlankItem(oldItemByLine, newItem, changeSets);
+
+            if (lineEnd >= textEnd) {
+                break;
+            }
+            lineStart = lineEnd + 1;
+        }
+
+        if (!repeatKeys.isEmpty()) {
+            throw new BadRequestException("Config text has repeated keys: %s, please check your input.", repeatKeys);
         }
 
-        deleteCommentAndBlankItem(oldLineNumMapItem, newLineNumMapItem, changeSets);
+        //the comment and blank items of the lines removed
+        for (Map.Entry<Integer, ItemDTO> entry : oldLineNumMapItem.entrySet()) {
+            int lineNum = entry.getKey();
+            if (lineNum < 1 || lineNum > lineCounter) {
+                deleteCommentAndBlankItem(entry.getValue(), null, changeSets);
+            }
+        }
         deleteNormalKVItem(oldKeyMapItem, changeSets);
 
         return changeSets;
     }
 
-    private boolean isHasRepeatKey(String[] newItems, @NotNull Set<String> repeatKeys) {
-        Set<String> keys = new HashSet<>();
-        int lineCounter = 1;
-        for (String item : newItems) {
-            if (!isCommentItem(item) && !isBlankItem(item)) {
-                String[] kv = parseKeyValueFromItem(item);
-                if (kv != null) {
-                    String key = kv[0].toLowerCase();
-                    if (!keys.add(key)) {
-                        repeatKeys.add(key);
-                    }
-                } else {
-                    throw new BadRequestException("line:" + lineCounter + " key value must separate by '='");
-                }
-            }
-            lineCounter++;
+    /**
+     * Check the line before trimmed, the same as the check before resolving
+     */
+    private void checkRepeatKey(String item, int lineCounter, Set<String> keys, Set<String> repeatKeys) {
+        if (isCommentItem(item) || isBlankItem(item)) {
+            return;
+        }
+        int kvSeparator = item.indexOf(KV_SEPARATOR);
+        if (kvSeparator == -1) {
+            throw new BadRequestException("line:" + lineCounter + " key value must separate by '='");
+        }
+        String key = item.substring(0, kvSeparator).trim().toLowerCase();
+        if (!keys.add(key)) {
+            repeatKeys.add(key);
         }
-        return !repeatKeys.isEmpty();
     }
 
     private String[] parseKeyValueFromItem(String item) {
@@ -183,22 +216,17 @@ public class PropertyResolver implements ConfigTextResolver {
         }
     }
 
-    private void deleteCommentAndBlankItem(Map<Integer, ItemDTO> oldLineNumMapItem,
-                                           Map<Integer, String> newLineNumMapItem,
-                                           ItemChangeSets changeSets) {
+    private void deleteCommentAndBlankItem(ItemDTO oldItem, String newItem, ItemChangeSets changeSets) {
+        if (oldItem == null) {
+            return;
+        }
 
-        for (Map.Entry<Integer, ItemDTO> entry : oldLineNumMapItem.entrySet()) {
-            int lineNum = entry.getKey();
-            ItemDTO oldItem = entry.getValue();
-            String newItem = newLineNumMapItem.get(lineNum);
-
-            //1. old is blank by now is not
-            //2.old is comment by now is not exist or modified
-            //3.old is blank by now is not exist or modified
-            if ((isBlankItem(oldItem) && !isBlankItem(newItem))
-                    || (isCommentItem(oldItem) || isBlankItem(oldItem)) && (newItem == null || !newItem.equals(oldItem.getComment()))) {
-                changeSets.addDeleteItem(oldItem);
-            }
+        //1. old is blank by now is not
+        //2.old is comment by now is not exist or modified
+        //3.old is blank by now is not exist or modified
+        if ((isBlankItem(oldItem) && !isBlankItem(newItem))
+                || (isCommentItem(oldItem) || isBlankItem(oldItem)) && (newItem == null || !newItem.equals(oldItem.getComment()))) {
+            changeSets.addDeleteItem(oldItem);
         }
     }
 
@@ -36,6 +36,8 @@ public interface TracerEventType {
 
     String API_RETRY = "API.Retry";
 
+    String API_HEDGE = "API.Hedge";
+
     String USER_ACCESS = "User.Access";
 
     String CREATE_GRAY_RELEASE = "GrayRelease.Create";
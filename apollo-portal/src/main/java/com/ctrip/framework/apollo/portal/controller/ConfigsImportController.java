@@ -19,6 +19,7 @@ package com.ctrip.framework.apollo.portal.controller;
 import com.google.common.base.Splitter;
 
 import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
+import com.ctrip.framework.apollo.portal.entity.vo.ItemDiffs;
 import com.ctrip.framework.apollo.portal.environment.Env;
 import com.ctrip.framework.apollo.portal.service.ConfigsImportService;
 import com.ctrip.framework.apollo.portal.util.ConfigFileUtils;
@@ -30,7 +31,6 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -80,31 +80,33 @@ public class ConfigsImportController {
 
     @PreAuthorize(value = "@permissionValidator.isSuperAdmin()")
     @PostMapping(value = "/configs/import", params = "conflictAction=cover")
-    public void importConfigByZipWithCoverConflictNamespace(@RequestParam(value = "envs") String envs,
-                                                            @RequestParam("file") MultipartFile file) throws IOException {
+    public List<ItemDiffs> importConfigByZipWithCoverConflictNamespace(@RequestParam(value = "envs") String envs,
+                                                                       @RequestParam("file") MultipartFile file,
+                                                                       @RequestParam(value = "dryRun", defaultValue = "false")
+                                                                               boolean dryRun) throws IOException {
 
         List<Env>
                 importEnvs =
                 Splitter.on(ENV_SEPARATOR).splitToList(envs).stream().map(env -> Env.valueOf(env)).collect(Collectors.toList());
 
-        byte[] bytes = file.getBytes();
-        try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(bytes))) {
-            configsImportService.importDataFromZipFile(importEnvs, zipInputStream, false);
+        try (ZipInputStream zipInputStream = new ZipInputStream(file.getInputStream())) {
+            return configsImportService.importDataFromZipFile(importEnvs, zipInputStream, false, dryRun);
         }
     }
 
     @PreAuthorize(value = "@permissionValidator.isSuperAdmin()")
     @PostMapping(value = "/configs/import", params = "conflictAction=ignore")
-    public void importConfigByZipWithIgnoreConflictNamespace(@RequestParam(value = "envs") String envs,
-                                                             @RequestParam("file") MultipartFile file) throws IOException {
+    public List<ItemDiffs> importConfigByZipWithIgnoreConflictNamespace(@RequestParam(value = "envs") String envs,
+                                                                        @RequestParam("file") MultipartFile file,
+                                                                        @RequestParam(value = "dryRun", defaultValue = "false")
+                                                                                boolean dryRun) throws IOException {
 
         List<Env>
                 importEnvs =
                 Splitter.on(ENV_SEPARATOR).splitToList(envs).stream().map(env -> Env.valueOf(env)).collect(Collectors.toList());
 
-        byte[] bytes = file.getBytes();
-        try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(bytes))) {
-            configsImportService.importDataFromZipFile(importEnvs, zipInputStream, true);
+        try (ZipInputStream zipInputStream = new ZipInputStream(file.getInputStream())) {
+            return configsImportService.importDataFromZipFile(importEnvs, zipInputStream, true, dryRun);
         }
     }
 }
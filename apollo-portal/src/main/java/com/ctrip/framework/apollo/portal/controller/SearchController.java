@@ -17,16 +17,22 @@
 package com.ctrip.framework.apollo.portal.controller;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 import com.ctrip.framework.apollo.common.dto.NamespaceDTO;
 import com.ctrip.framework.apollo.common.dto.PageDTO;
 import com.ctrip.framework.apollo.common.entity.App;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.portal.component.PortalSettings;
 import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
 import com.ctrip.framework.apollo.portal.environment.Env;
 import com.ctrip.framework.apollo.portal.service.AppService;
 import com.ctrip.framework.apollo.portal.service.NamespaceService;
+import com.ctrip.framework.apollo.tracer.Tracer;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.data.domain.Pageable;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -34,14 +40,23 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * @author lepdou 2021-09-13
  */
 @RestController("/app")
-public class SearchController {
+public class SearchController implements DisposableBean {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(SearchController.class);
+
+    private final ExecutorService executorService;
     private AppService appService;
     private PortalSettings portalSettings;
     private NamespaceService namespaceService;
@@ -55,6 +70,13 @@ public class SearchController {
         this.portalConfig = portalConfig;
         this.portalSettings = portalSettings;
         this.namespaceService = namespaceService;
+        this.executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2,
+                ApolloThreadFactory.create("SearchByItem", true));
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        executorService.shutdownNow();
     }
 
     @GetMapping("/apps/search/by-appid-or-name")
@@ -85,21 +107,42 @@ public class SearchController {
         }
 
         //use the env witch has the most namespace as page index.
-        final AtomicLong maxTotal = new AtomicLong(0);
+        long maxTotal = 0;
 
         List<Env> activeEnvs = portalSettings.getActiveEnvs();
 
-        activeEnvs.forEach(env -> {
-            PageDTO<NamespaceDTO> namespacePage = namespaceService.findNamespacesByItem(env, itemKey, pageable);
-            if (!namespacePage.hasContent()) {
-                return;
+        //search the envs in parallel, an env failed or timed out is skipped
+        Map<Env, Future<PageDTO<NamespaceDTO>>> namespacePages = Maps.newLinkedHashMap();
+        activeEnvs.forEach(env -> namespacePages.put(env,
+                executorService.submit(() -> namespaceService.findNamespacesByItem(env, itemKey, pageable))));
+
+        long deadline = System.currentTimeMillis() + portalConfig.searchByItemTimeoutInMilli();
+        for (Map.Entry<Env, Future<PageDTO<NamespaceDTO>>> entry : namespacePages.entrySet()) {
+            Env env = entry.getKey();
+            PageDTO<NamespaceDTO> namespacePage;
+            try {
+                namespacePage = entry.getValue().get(Math.max(0, deadline - System.currentTimeMillis()),
+                        TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                entry.getValue().cancel(true);
+                LOGGER.warn("Search by item timed out. env: {}, item key: {}", env, itemKey);
+                Tracer.logEvent("Apollo.Portal.SearchByItem.Timeout", env.getName());
+                continue;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                LOGGER.error("Search by item failed. env: {}, item key: {}", env, itemKey, e.getCause());
+                Tracer.logError(String.format("Search by item failed. env: %s", env), e.getCause());
+                continue;
             }
 
-            long currentEnvNSTotal = namespacePage.getTotal();
-            if (currentEnvNSTotal > maxTotal.get()) {
-                maxTotal.set(namespacePage.getTotal());
+            if (!namespacePage.hasContent()) {
+                continue;
             }
 
+            maxTotal = Math.max(maxTotal, namespacePage.getTotal());
+
             List<NamespaceDTO> namespaceDTOS = namespacePage.getContent();
 
             namespaceDTOS.forEach(namespaceDTO -> {
@@ -114,9 +157,9 @@ public class SearchController {
 
                 result.add(app);
             });
-        });
+        }
 
-        return new PageDTO<>(result, pageable, maxTotal.get());
+        return new PageDTO<>(result, pageable, maxTotal);
     }
 
 }
@@ -23,6 +23,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -49,4 +50,10 @@ public interface PermissionRepository extends PagingAndSortingRepository<Permiss
     @Modifying
     @Query("UPDATE Permission SET IsDeleted = 1, DeletedAt = ROUND(UNIX_TIMESTAMP(NOW(4))*1000), DataChange_LastModifiedBy = ?2 WHERE Id in ?1 and IsDeleted = 0")
     Integer batchDelete(List<Long> permissionIds, String operator);
+
+    /**
+     * find the latest modified time of the permissions, including the deleted ones
+     */
+    @Query(value = "SELECT MAX(`DataChange_LastTime`) FROM `Permission`", nativeQuery = true)
+    Date findLatestDataChangeLastModifiedTime();
 }
@@ -23,6 +23,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
 
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -38,4 +39,10 @@ public interface RolePermissionRepository extends PagingAndSortingRepository<Rol
     @Modifying
     @Query("UPDATE RolePermission SET IsDeleted = 1, DeletedAt = ROUND(UNIX_TIMESTAMP(NOW(4))*1000), DataChange_LastModifiedBy = ?2 WHERE PermissionId in ?1 and IsDeleted = 0")
     Integer batchDeleteByPermissionIds(List<Long> permissionIds, String operator);
+
+    /**
+     * find the latest modified time of the role permissions, including the deleted ones
+     */
+    @Query(value = "SELECT MAX(`DataChange_LastTime`) FROM `RolePermission`", nativeQuery = true)
+    Date findLatestDataChangeLastModifiedTime();
 }
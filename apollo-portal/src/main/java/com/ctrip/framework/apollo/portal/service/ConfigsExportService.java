@@ -23,34 +23,52 @@ import com.ctrip.framework.apollo.common.entity.App;
 import com.ctrip.framework.apollo.common.entity.AppNamespace;
 import com.ctrip.framework.apollo.common.exception.BadRequestException;
 import com.ctrip.framework.apollo.common.exception.ServiceException;
-import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.portal.component.PermissionValidator;
 import com.ctrip.framework.apollo.portal.component.PortalSettings;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
 import com.ctrip.framework.apollo.portal.entity.bo.ConfigBO;
 import com.ctrip.framework.apollo.portal.entity.bo.NamespaceBO;
 import com.ctrip.framework.apollo.portal.environment.Env;
 import com.ctrip.framework.apollo.portal.util.ConfigFileUtils;
+import com.ctrip.framework.apollo.tracer.Tracer;
+import com.ctrip.framework.apollo.tracer.spi.Transaction;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 @Service
-public class ConfigsExportService {
+public class ConfigsExportService implements DisposableBean {
 
     private static final Logger logger = LoggerFactory.getLogger(ConfigsExportService.class);
 
@@ -68,19 +86,39 @@ public class ConfigsExportService {
 
     private final PermissionValidator permissionValidator;
 
+    private final PortalConfig portalConfig;
+
+    private final Counter exportedEntries = Metrics.counter("apollo.portal.configs.export.entries");
+
+    private final Counter exportedBytes = Metrics.counter("apollo.portal.configs.export.bytes");
+
+    private final Timer exportTimer = Metrics.timer("apollo.portal.configs.export.time");
+
+    //shared by all the exports, created on the first export
+    private ExecutorService executorService;
+
     public ConfigsExportService(
             AppService appService,
             ClusterService clusterService,
             final @Lazy NamespaceService namespaceService,
             final AppNamespaceService appNamespaceService,
             PortalSettings portalSettings,
-            PermissionValidator permissionValidator) {
+            PermissionValidator permissionValidator,
+            PortalConfig portalConfig) {
         this.appService = appService;
         this.clusterService = clusterService;
         this.namespaceService = namespaceService;
         this.appNamespaceService = appNamespaceService;
         this.portalSettings = portalSettings;
         this.permissionValidator = permissionValidator;
+        this.portalConfig = portalConfig;
+    }
+
+    @Override
+    public synchronized void destroy() throws Exception {
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
     }
 
     /**
@@ -111,6 +149,9 @@ public class ConfigsExportService {
             return;
         }
 
+        Transaction transaction = Tracer.newTransaction("Apollo.ConfigsExport", "exportApps");
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        ExportProgress progress = new ExportProgress(exportEnvs.size() * hasPermissionApps.size());
         try (final ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
             //write app info to zip
             writeAppInfoToZip(hasPermissionApps, zipOutputStream);
@@ -119,16 +160,25 @@ public class ConfigsExportService {
             exportAppNamespaces(zipOutputStream);
 
             //export app's clusters
-            exportEnvs.parallelStream().forEach(env -> {
-                try {
-                    this.exportClusters(env, hasPermissionApps, zipOutputStream);
-                } catch (Exception e) {
-                    logger.error("export cluster error. env = {}", env, e);
-                }
-            });
+            exportClusters(exportEnvs, hasPermissionApps, zipOutputStream, progress);
+
+            transaction.setStatus(Transaction.SUCCESS);
         } catch (IOException e) {
             logger.error("export config error", e);
+            transaction.setStatus(e);
             throw new ServiceException("export config error", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            transaction.setStatus(e);
+            throw new ServiceException("export config interrupted", e);
+        } finally {
+            long elapsed = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+            exportTimer.record(elapsed, TimeUnit.MILLISECONDS);
+            logger.info("export finished, {} apps in {} envs, {} entries, {} bytes in {} ms", hasPermissionApps.size(),
+                    exportEnvs.size(), progress.getEntries(), progress.getBytes(), elapsed);
+            transaction.addData("entries", progress.getEntries());
+            transaction.addData("bytes", progress.getBytes());
+            transaction.complete();
         }
     }
 
@@ -140,19 +190,18 @@ public class ConfigsExportService {
             return Collections.emptyList();
         }
 
-        // permission check
-        final Predicate<App> isAppAdmin =
-                app -> {
-                    try {
-                        return permissionValidator.isAppAdmin(app.getAppId());
-                    } catch (Exception e) {
-                        logger.error("permission check failed. app = {}", app);
-                        return false;
-                    }
-                };
+        // permission check, of all the apps at once
+        final Set<String> appAdminAppIds;
+        try {
+            appAdminAppIds = permissionValidator.findAppAdminAppIds(
+                    apps.stream().map(App::getAppId).collect(Collectors.toList()));
+        } catch (Exception e) {
+            logger.error("permission check failed.", e);
+            return Collections.emptyList();
+        }
 
         // app admin permission filter
-        return apps.stream().filter(isAppAdmin).collect(Collectors.toList());
+        return apps.stream().filter(app -> appAdminAppIds.contains(app.getAppId())).collect(Collectors.toList());
     }
 
     private void writeAppInfoToZip(List<App> apps, ZipOutputStream zipOutputStream) {
@@ -161,12 +210,10 @@ public class ConfigsExportService {
         final Consumer<App> appConsumer =
                 app -> {
                     try {
-                        synchronized (zipOutputStream) {
-                            String fileName = ConfigFileUtils.genAppInfoPath(app);
-                            String content = gson.toJson(app);
+                        String fileName = ConfigFileUtils.genAppInfoPath(app);
+                        String content = gson.toJson(app);
 
-                            writeToZip(fileName, content, zipOutputStream);
-                        }
+                        writeToZip(fileName, content.getBytes(), zipOutputStream);
                     } catch (IOException e) {
                         logger.error("Write error. {}", app);
                         throw new ServiceException("Write app error. {}", e);
@@ -183,12 +230,10 @@ public class ConfigsExportService {
 
         Consumer<AppNamespace> appNamespaceConsumer = appNamespace -> {
             try {
-                synchronized (zipOutputStream) {
-                    String fileName = ConfigFileUtils.genAppNamespaceInfoPath(appNamespace);
-                    String content = gson.toJson(appNamespace);
+                String fileName = ConfigFileUtils.genAppNamespaceInfoPath(appNamespace);
+                String content = gson.toJson(appNamespace);
 
-                    writeToZip(fileName, content, zipOutputStream);
-                }
+                writeToZip(fileName, content.getBytes(), zipOutputStream);
             } catch (Exception e) {
                 logger.error("Write appnamespace error. {}", appNamespace);
                 throw new IllegalStateException(e);
@@ -199,17 +244,89 @@ public class ConfigsExportService {
 
     }
 
-    private void exportClusters(final Env env, final List<App> exportApps, ZipOutputStream zipOutputStream) {
-        exportApps.parallelStream().forEach(exportApp -> {
+    /**
+     * The clusters and namespaces are fetched from admin services by a bounded pool shared by the exports, and written
+     * by the current thread through a bounded buffer, so the fetches are throttled when the writer can not catch up.
+     * The fetches the pool rejects run in the current thread, and write their entries directly.
+     */
+    private void exportClusters(final Collection<Env> exportEnvs, final List<App> exportApps,
+                                ZipOutputStream zipOutputStream, ExportProgress progress)
+            throws IOException, InterruptedException {
+        BlockingQueue<ExportEntry> entries = new ArrayBlockingQueue<>(Math.max(1,
+                portalConfig.configsExportBufferSize()));
+        Thread writer = Thread.currentThread();
+        AtomicReference<IOException> writeFailure = new AtomicReference<>();
+        ExportEntryConsumer entryConsumer = entry -> {
+            if (Thread.currentThread() != writer) {
+                entries.put(entry);
+                return;
+            }
             try {
-                this.exportCluster(env, exportApp, zipOutputStream);
-            } catch (Exception e) {
-                logger.error("export cluster error. appId = {}", exportApp.getAppId(), e);
+                writeEntry(entry, zipOutputStream, progress);
+            } catch (IOException e) {
+                writeFailure.set(e);
+                throw new UncheckedIOException(e);
+            }
+        };
+        ExecutorService executor = getExecutorService();
+        List<Future<?>> futures = Lists.newArrayListWithCapacity(progress.getTasks());
+        AtomicInteger remainingTasks = new AtomicInteger(progress.getTasks());
+        try {
+            for (Env env : exportEnvs) {
+                for (App exportApp : exportApps) {
+                    futures.add(executor.submit(() -> {
+                        try {
+                            this.exportCluster(env, exportApp, entryConsumer);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } catch (UncheckedIOException e) {
+                            //the write failure is rethrown by the writer
+                        } catch (Exception e) {
+                            logger.error("export cluster error. appId = {}", exportApp.getAppId(), e);
+                        } finally {
+                            remainingTasks.decrementAndGet();
+                            progress.taskCompleted();
+                        }
+                    }));
+                    if (writeFailure.get() != null) {
+                        throw writeFailure.get();
+                    }
+                }
+            }
+
+            while (true) {
+                ExportEntry entry = entries.poll(100, TimeUnit.MILLISECONDS);
+                if (entry != null) {
+                    writeEntry(entry, zipOutputStream, progress);
+                } else if (remainingTasks.get() == 0 && entries.isEmpty()) {
+                    //the tasks put all their entries before completed
+                    break;
+                }
             }
-        });
+        } finally {
+            //stop the fetches if the writer failed
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private void writeEntry(ExportEntry entry, ZipOutputStream zipOutputStream, ExportProgress progress)
+            throws IOException {
+        writeToZip(entry.getFilePath(), entry.getContent(), zipOutputStream);
+        progress.entryWritten(entry.getContent().length);
+    }
+
+    private synchronized ExecutorService getExecutorService() {
+        if (executorService == null) {
+            int parallelism = Math.max(1, portalConfig.configsExportParallelism());
+            executorService = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(parallelism * 2), ApolloThreadFactory.create("ConfigsExport", true),
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+        return executorService;
     }
 
-    private void exportCluster(final Env env, final App exportApp, ZipOutputStream zipOutputStream) {
+    private void exportCluster(final Env env, final App exportApp, ExportEntryConsumer entryConsumer)
+            throws InterruptedException {
         final List<ClusterDTO> exportClusters = clusterService.findClusters(env, exportApp.getAppId());
 
         if (CollectionUtils.isEmpty(exportClusters)) {
@@ -217,22 +334,27 @@ public class ConfigsExportService {
         }
 
         //write cluster info to zip
-        writeClusterInfoToZip(env, exportApp, exportClusters, zipOutputStream);
+        for (ClusterDTO cluster : exportClusters) {
+            String fileName = ConfigFileUtils.genClusterInfoPath(exportApp, env, cluster);
+            entryConsumer.accept(new ExportEntry(fileName, gson.toJson(cluster).getBytes()));
+        }
 
         //export namespaces
-        exportClusters.parallelStream().forEach(cluster -> {
+        for (ClusterDTO cluster : exportClusters) {
             try {
-                this.exportNamespaces(env, exportApp, cluster, zipOutputStream);
+                this.exportNamespaces(env, exportApp, cluster, entryConsumer);
             } catch (BadRequestException badRequestException) {
                 //ignore
+            } catch (InterruptedException | UncheckedIOException e) {
+                throw e;
             } catch (Exception e) {
                 logger.error("export namespace error. appId = {}, cluster = {}", exportApp.getAppId(), cluster, e);
             }
-        });
+        }
     }
 
     private void exportNamespaces(final Env env, final App exportApp, final ClusterDTO exportCluster,
-                                  ZipOutputStream zipOutputStream) {
+                                  ExportEntryConsumer entryConsumer) throws InterruptedException {
         String clusterName = exportCluster.getName();
 
         List<NamespaceBO> namespaceBOS = namespaceService.findNamespaceBOs(exportApp.getAppId(), env, clusterName, false);
@@ -241,73 +363,93 @@ public class ConfigsExportService {
             return;
         }
 
-        Stream<ConfigBO> configBOStream = namespaceBOS.stream()
-                .map(
-                        namespaceBO -> new ConfigBO(env, exportApp.getOwnerName(), exportApp.getAppId(), clusterName, namespaceBO));
+        for (NamespaceBO namespaceBO : namespaceBOS) {
+            ConfigBO configBO = new ConfigBO(env, exportApp.getOwnerName(), exportApp.getAppId(), clusterName,
+                    namespaceBO);
 
-        writeNamespacesToZip(configBOStream, zipOutputStream);
-    }
+            String configFileName = ConfigFileUtils.toFilename(configBO.getAppId(), clusterName,
+                    configBO.getNamespace(), configBO.getFormat());
+            String filePath = ConfigFileUtils.genNamespacePath(configBO.getOwnerName(), configBO.getAppId(),
+                    configBO.getEnv(), configFileName);
 
-    private void writeNamespacesToZip(Stream<ConfigBO> configBOStream, ZipOutputStream zipOutputStream) {
-        final Consumer<ConfigBO> configBOConsumer =
-                configBO -> {
-                    try {
-                        synchronized (zipOutputStream) {
-                            String appId = configBO.getAppId();
-                            String clusterName = configBO.getClusterName();
-                            String namespace = configBO.getNamespace();
-                            String configFileContent = configBO.getConfigFileContent();
-                            ConfigFileFormat configFileFormat = configBO.getFormat();
-
-                            String
-                                    configFileName =
-                                    ConfigFileUtils.toFilename(appId, clusterName, namespace, configFileFormat);
-                            String filePath =
-                                    ConfigFileUtils.genNamespacePath(configBO.getOwnerName(), appId, configBO.getEnv(), configFileName);
-
-                            writeToZip(filePath, configFileContent, zipOutputStream);
-                        }
-                    } catch (IOException e) {
-                        logger.error("Write error. {}", configBO);
-                        throw new ServiceException("Write namespace error. {}", e);
-                    }
-                };
-
-        configBOStream.forEach(configBOConsumer);
-    }
-
-    private void writeClusterInfoToZip(Env env, App app, List<ClusterDTO> exportClusters,
-                                       ZipOutputStream zipOutputStream) {
-        final Consumer<ClusterDTO> clusterConsumer =
-                cluster -> {
-                    try {
-                        synchronized (zipOutputStream) {
-                            String fileName = ConfigFileUtils.genClusterInfoPath(app, env, cluster);
-                            String content = gson.toJson(cluster);
-
-                            writeToZip(fileName, content, zipOutputStream);
-                        }
-                    } catch (IOException e) {
-                        logger.error("Write error. {}", cluster);
-                        throw new ServiceException("Write error. {}", e);
-                    }
-                };
-
-        exportClusters.forEach(clusterConsumer);
+            entryConsumer.accept(new ExportEntry(filePath, configBO.getConfigFileContent().getBytes()));
+        }
     }
 
-    private void writeToZip(String filePath, String content, ZipOutputStream zipOutputStream)
+    private void writeToZip(String filePath, byte[] content, ZipOutputStream zipOutputStream)
             throws IOException {
         final ZipEntry zipEntry = new ZipEntry(filePath);
         try {
             zipOutputStream.putNextEntry(zipEntry);
-            zipOutputStream.write(content.getBytes());
+            zipOutputStream.write(content);
             zipOutputStream.closeEntry();
         } catch (IOException e) {
-            String errorMsg = "write content to zip error. file = " + filePath + ", content = " + content;
+            String errorMsg = "write content to zip error. file = " + filePath;
             logger.error(errorMsg);
             throw new IOException(errorMsg, e);
         }
     }
 
+    @FunctionalInterface
+    private interface ExportEntryConsumer {
+        void accept(ExportEntry entry) throws InterruptedException;
+    }
+
+    private static class ExportEntry {
+        private final String filePath;
+        private final byte[] content;
+
+        ExportEntry(String filePath, byte[] content) {
+            this.filePath = filePath;
+            this.content = content;
+        }
+
+        String getFilePath() {
+            return filePath;
+        }
+
+        byte[] getContent() {
+            return content;
+        }
+    }
+
+    private class ExportProgress {
+        private static final int LOG_INTERVAL = 100;
+        private final int tasks;
+        private final AtomicInteger completedTasks = new AtomicInteger();
+        private final AtomicLong entries = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+
+        ExportProgress(int tasks) {
+            this.tasks = tasks;
+        }
+
+        void taskCompleted() {
+            int completed = completedTasks.incrementAndGet();
+            if (completed % LOG_INTERVAL == 0 || completed == tasks) {
+                logger.info("export progress {}/{}, {} entries, {} bytes written", completed, tasks, entries.get(),
+                        bytes.get());
+            }
+        }
+
+        void entryWritten(int size) {
+            entries.incrementAndGet();
+            bytes.addAndGet(size);
+            exportedEntries.increment();
+            exportedBytes.increment(size);
+        }
+
+        int getTasks() {
+            return tasks;
+        }
+
+        long getEntries() {
+            return entries.get();
+        }
+
+        long getBytes() {
+            return bytes.get();
+        }
+    }
+
 }
@@ -16,17 +16,27 @@
  */
 package com.ctrip.framework.apollo.portal.service;
 
+import com.google.common.base.Joiner;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.gson.Gson;
 
 import com.ctrip.framework.apollo.common.constants.GsonType;
 import com.ctrip.framework.apollo.common.dto.ClusterDTO;
+import com.ctrip.framework.apollo.common.dto.ItemChangeSets;
 import com.ctrip.framework.apollo.common.dto.ItemDTO;
 import com.ctrip.framework.apollo.common.dto.NamespaceDTO;
 import com.ctrip.framework.apollo.common.entity.App;
 import com.ctrip.framework.apollo.common.entity.AppNamespace;
 import com.ctrip.framework.apollo.common.exception.ServiceException;
 import com.ctrip.framework.apollo.core.ConfigConsts;
+import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
+import com.ctrip.framework.apollo.portal.entity.vo.ItemDiffs;
+import com.ctrip.framework.apollo.portal.entity.vo.NamespaceIdentifier;
 import com.ctrip.framework.apollo.portal.environment.Env;
 import com.ctrip.framework.apollo.portal.listener.AppNamespaceCreationEvent;
 import com.ctrip.framework.apollo.portal.spi.UserInfoHolder;
@@ -37,20 +47,31 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Lazy;
-import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
-import org.springframework.web.client.HttpStatusCodeException;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.rmi.ServerException;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -61,6 +82,8 @@ import java.util.zip.ZipInputStream;
 public class ConfigsImportService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ConfigsImportService.class);
+    private static final int NAMESPACE_PROGRESS_LOG_INTERVAL = 100;
+    private static final Joiner STRING_JOINER = Joiner.on(ConfigConsts.CLUSTER_NAMESPACE_SEPARATOR);
 
     private Gson gson = new Gson();
 
@@ -72,6 +95,7 @@ public class ConfigsImportService {
     private final ApplicationEventPublisher publisher;
     private final UserInfoHolder userInfoHolder;
     private final RoleInitializationService roleInitializationService;
+    private final PortalConfig portalConfig;
 
     public ConfigsImportService(
             final ItemService itemService,
@@ -81,7 +105,8 @@ public class ConfigsImportService {
             final AppNamespaceService appNamespaceService,
             final ApplicationEventPublisher publisher,
             final UserInfoHolder userInfoHolder,
-            final RoleInitializationService roleInitializationService) {
+            final RoleInitializationService roleInitializationService,
+            final PortalConfig portalConfig) {
         this.itemService = itemService;
         this.appService = appService;
         this.clusterService = clusterService;
@@ -90,6 +115,7 @@ public class ConfigsImportService {
         this.publisher = publisher;
         this.userInfoHolder = userInfoHolder;
         this.roleInitializationService = roleInitializationService;
+        this.portalConfig = portalConfig;
     }
 
     /**
@@ -106,7 +132,7 @@ public class ConfigsImportService {
 
         String operator = userInfoHolder.getUser().getUserId();
 
-        this.importNamespaceFromText(env, standardFilename, configText, false, operator);
+        this.importNamespaceFromText(env, standardFilename, configText, false, operator, false);
     }
 
     /**
@@ -114,135 +140,77 @@ public class ConfigsImportService {
      */
     public void importDataFromZipFile(List<Env> importEnvs, ZipInputStream dataZip, boolean ignoreConflictNamespace)
             throws IOException {
-        List<String> toImportApps = Lists.newArrayList();
-        List<String> toImportAppNSs = Lists.newArrayList();
-        List<ImportClusterData> toImportClusters = Lists.newArrayList();
-        List<ImportNamespaceData> toImportNSs = Lists.newArrayList();
-
-        ZipEntry entry;
-        while ((entry = dataZip.getNextEntry()) != null) {
-            if (entry.isDirectory()) {
-                continue;
-            }
-
-            String filePath = entry.getName();
-            String content = readContent(dataZip);
-
-            String[] info = filePath.split("/");
-
-            String fileName;
-            if (info.length == 1) {
-                //app namespace metadata file. path format : ${namespaceName}.appnamespace.metadata
-                fileName = info[0];
-                if (fileName.endsWith(ConfigFileUtils.APP_NAMESPACE_METADATA_FILE_SUFFIX)) {
-                    toImportAppNSs.add(content);
-                }
-            } else if (info.length == 3) {
-                fileName = info[2];
-                if (fileName.equals(ConfigFileUtils.APP_METADATA_FILENAME)) {
-                    //app metadata file. path format : apollo/${appId}/app.metadata
-                    toImportApps.add(content);
-                }
-            } else {
-                String env = info[2];
-                fileName = info[3];
-                for (Env importEnv : importEnvs) {
-                    if (Objects.equals(importEnv.getName(), env)) {
-                        if (fileName.endsWith(ConfigFileUtils.CLUSTER_METADATA_FILE_SUFFIX)) {
-                            //cluster metadata file. path format : apollo/${appId}/${env}/${clusterName}.cluster.metadata
-                            toImportClusters.add(new ImportClusterData(Env.transformEnv(env), content));
-                        } else {
-                            //namespace file.path format : apollo/${appId}/${env}/${appId}+${cluster}+${namespaceName}
-                            toImportNSs.add(new ImportNamespaceData(Env.valueOf(env), fileName, content, ignoreConflictNamespace));
-                        }
-                    }
-                }
-            }
-        }
-
-        try {
-            LOGGER.info("Import data. app = {}, appns = {}, cluster = {}, namespace = {}", toImportApps.size(),
-                    toImportAppNSs.size(),
-                    toImportClusters.size(), toImportNSs.size());
-
-            doImport(importEnvs, toImportApps, toImportAppNSs, toImportClusters, toImportNSs);
-
-        } catch (Exception e) {
-            LOGGER.error("import config error.", e);
-            throw new ServerException("import config error.", e);
-        }
+        importDataFromZipFile(importEnvs, dataZip, ignoreConflictNamespace, false);
     }
 
-    private void doImport(List<Env> importEnvs, List<String> toImportApps, List<String> toImportAppNSs,
-                          List<ImportClusterData> toImportClusters, List<ImportNamespaceData> toImportNSs)
-            throws InterruptedException {
-        LOGGER.info("Start to import app. size = {}", toImportApps.size());
-
+    /**
+     * import all data include app、appnamespace、cluster、namespace、item.
+     * <p>
+     * The entries are imported while reading. An app namespace or cluster read before its app, and a namespace read
+     * before the metadata of its app, app namespace or cluster, are held until it is imported, or until the end of the
+     * file, so the entries could be in any order while an exported file is imported without holding anything. The items of a namespace are written in
+     * one change set, and the unchanged ones are skipped, so an interrupted import can be resumed by importing the same
+     * file again.
+     *
+     * @param dryRun only compare the items with the existing ones, nothing is written
+     * @return the item changes of the namespaces if dry run, otherwise empty
+     */
+    public List<ItemDiffs> importDataFromZipFile(List<Env> importEnvs, ZipInputStream dataZip,
+                                                 boolean ignoreConflictNamespace, boolean dryRun) throws IOException {
         String operator = userInfoHolder.getUser().getUserId();
 
-        long startTime = System.currentTimeMillis();
-        CountDownLatch appLatch = new CountDownLatch(toImportApps.size());
-        toImportApps.parallelStream().forEach(app -> {
-            try {
-                importApp(app, importEnvs, operator);
-            } catch (Exception e) {
-                LOGGER.error("import app error. app = {}", app, e);
-            } finally {
-                appLatch.countDown();
-            }
-        });
-        appLatch.await();
-
-        LOGGER.info("Finish to import app. duration = {}", System.currentTimeMillis() - startTime);
-        LOGGER.info("Start to import appnamespace. size = {}", toImportAppNSs.size());
+        ZipImporter importer = new ZipImporter(importEnvs, operator, ignoreConflictNamespace, dryRun);
+        try {
+            ZipEntry entry;
+            while ((entry = dataZip.getNextEntry()) != null) {
+                if (entry.isDirectory()) {
+                    continue;
+                }
 
-        startTime = System.currentTimeMillis();
-        CountDownLatch appNSLatch = new CountDownLatch(toImportAppNSs.size());
-        toImportAppNSs.parallelStream().forEach(appNS -> {
-            try {
-                importAppNamespace(appNS, operator);
-            } catch (Exception e) {
-                LOGGER.error("import appnamespace error. appnamespace = {}", appNS, e);
-            } finally {
-                appNSLatch.countDown();
-            }
-        });
-        appNSLatch.await();
+                String filePath = entry.getName();
+                String content = readContent(dataZip);
 
-        LOGGER.info("Finish to import appnamespace. duration = {}", System.currentTimeMillis() - startTime);
-        LOGGER.info("Start to import cluster. size = {}", toImportClusters.size());
+                String[] info = filePath.split("/");
 
-        startTime = System.currentTimeMillis();
-        CountDownLatch clusterLatch = new CountDownLatch(toImportClusters.size());
-        toImportClusters.parallelStream().forEach(cluster -> {
-            try {
-                importCluster(cluster, operator);
-            } catch (Exception e) {
-                LOGGER.error("import cluster error. cluster = {}", cluster, e);
-            } finally {
-                clusterLatch.countDown();
-            }
-        });
-        clusterLatch.await();
-
-        LOGGER.info("Finish to import cluster. duration = {}", System.currentTimeMillis() - startTime);
-        LOGGER.info("Start to import namespace. size = {}", toImportNSs.size());
-
-        startTime = System.currentTimeMillis();
-        CountDownLatch nsLatch = new CountDownLatch(toImportNSs.size());
-        toImportNSs.parallelStream().forEach(namespace -> {
-            try {
-                importNamespaceFromText(namespace.getEnv(), namespace.getFileName(), namespace.getContent(),
-                        namespace.isIgnoreConflictNamespace(), operator);
-            } catch (Exception e) {
-                LOGGER.error("import namespace error. namespace = {}", namespace, e);
-            } finally {
-                nsLatch.countDown();
+                String fileName;
+                if (info.length == 1) {
+                    //app namespace metadata file. path format : ${namespaceName}.appnamespace.metadata
+                    fileName = info[0];
+                    if (fileName.endsWith(ConfigFileUtils.APP_NAMESPACE_METADATA_FILE_SUFFIX)) {
+                        importer.importAppNamespace(content);
+                    }
+                } else if (info.length == 3) {
+                    fileName = info[2];
+                    if (fileName.equals(ConfigFileUtils.APP_METADATA_FILENAME)) {
+                        //app metadata file. path format : apollo/${appId}/app.metadata
+                        importer.importApp(content);
+                    }
+                } else {
+                    String env = info[2];
+                    fileName = info[3];
+                    for (Env importEnv : importEnvs) {
+                        if (Objects.equals(importEnv.getName(), env)) {
+                            if (fileName.endsWith(ConfigFileUtils.CLUSTER_METADATA_FILE_SUFFIX)) {
+                                //cluster metadata file. path format : apollo/${appId}/${env}/${clusterName}.cluster.metadata
+                                importer.importCluster(new ImportClusterData(Env.transformEnv(env), content));
+                            } else {
+                                //namespace file.path format : apollo/${appId}/${env}/${appId}+${cluster}+${namespaceName}
+                                importer.importNamespace(new ImportNamespaceData(Env.valueOf(env), fileName, content,
+                                        ignoreConflictNamespace));
+                            }
+                        }
+                    }
+                }
             }
-        });
-        nsLatch.await();
 
-        LOGGER.info("Finish to import namespace. duration = {}", System.currentTimeMillis() - startTime);
+            return importer.complete();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("import config interrupted.", e);
+            throw new ServerException("import config interrupted.", e);
+        } finally {
+            importer.shutdown();
+        }
     }
 
     private void importApp(String appInfo, List<Env> importEnvs, String operator) {
@@ -259,14 +227,14 @@ public class ConfigsImportService {
             appService.importAppInLocal(toImportApp);
         }
 
-        importEnvs.parallelStream().forEach(env -> {
+        for (Env env : importEnvs) {
             try {
                 appService.load(env, appId);
             } catch (Exception e) {
                 //not existed
                 appService.createAppInRemote(env, toImportApp);
             }
-        });
+        }
     }
 
     private void importAppNamespace(String appNamespace, String operator) {
@@ -331,21 +299,23 @@ public class ConfigsImportService {
      * @param env              environment
      * @param standardFilename appId+cluster+namespace.format
      * @param configText       config content
+     * @return the item changes of the namespace, or null if ignored for conflict
      */
-    private void importNamespaceFromText(final Env env, final String standardFilename, final String configText,
-                                         boolean ignoreConflictNamespace, String operator) {
+    private ItemDiffs importNamespaceFromText(final Env env, final String standardFilename, final String configText,
+                                              boolean ignoreConflictNamespace, String operator, boolean dryRun) {
         final String appId = ConfigFileUtils.getAppId(standardFilename);
         final String clusterName = ConfigFileUtils.getClusterName(standardFilename);
         final String namespace = ConfigFileUtils.getNamespace(standardFilename);
         final String format = ConfigFileUtils.getFormat(standardFilename);
 
-        this.importNamespace(appId, env, clusterName, namespace, configText, format, ignoreConflictNamespace, operator);
+        return this.importNamespace(appId, env, clusterName, namespace, configText, format, ignoreConflictNamespace,
+                operator, dryRun);
     }
 
-    private void importNamespace(final String appId, final Env env,
-                                 final String clusterName, final String namespaceName,
-                                 final String configText, final String format,
-                                 boolean ignoreConflictNamespace, String operator) {
+    private ItemDiffs importNamespace(final String appId, final Env env,
+                                      final String clusterName, final String namespaceName,
+                                      final String configText, final String format,
+                                      boolean ignoreConflictNamespace, String operator, boolean dryRun) {
         NamespaceDTO namespaceDTO;
         try {
             namespaceDTO = namespaceService.loadNamespaceBaseInfo(appId, env, clusterName, namespaceName);
@@ -354,7 +324,7 @@ public class ConfigsImportService {
             namespaceDTO = null;
         }
 
-        if (namespaceDTO == null) {
+        if (namespaceDTO == null && !dryRun) {
             namespaceDTO = new NamespaceDTO();
             namespaceDTO.setAppId(appId);
             namespaceDTO.setClusterName(clusterName);
@@ -367,22 +337,56 @@ public class ConfigsImportService {
             roleInitializationService.initNamespaceEnvRoles(appId, namespaceName, operator);
         }
 
-        List<ItemDTO> itemDTOS = itemService.findItems(appId, env, clusterName, namespaceName);
+        List<ItemDTO> itemDTOS = namespaceDTO == null ? Collections.emptyList() :
+                itemService.findItems(appId, env, clusterName, namespaceName);
         // skip import if target namespace has existed items
         if (!CollectionUtils.isEmpty(itemDTOS) && ignoreConflictNamespace) {
-            return;
+            return null;
         }
 
-        importItems(appId, env, clusterName, namespaceName, configText, namespaceDTO, operator);
+        ItemChangeSets changeSets = assembleChangeSets(configText, itemDTOS,
+                namespaceDTO == null ? 0 : namespaceDTO.getId(), operator);
+        if (!dryRun && !changeSets.isEmpty()) {
+            itemService.updateItems(appId, env, clusterName, namespaceName, changeSets);
+        }
+
+        NamespaceIdentifier namespaceIdentifier = new NamespaceIdentifier();
+        namespaceIdentifier.setAppId(appId);
+        namespaceIdentifier.setEnv(env.getName());
+        namespaceIdentifier.setClusterName(clusterName);
+        namespaceIdentifier.setNamespaceName(namespaceName);
+
+        ItemDiffs itemDiffs = new ItemDiffs(namespaceIdentifier);
+        itemDiffs.setDiffs(changeSets);
+        if (namespaceDTO == null) {
+            itemDiffs.setExtInfo("namespace " + namespaceName + " will be created");
+        }
+        return itemDiffs;
     }
 
-    private void importItems(String appId, Env env, String clusterName, String namespaceName, String configText,
-                             NamespaceDTO namespaceDTO, String operator) {
+    /**
+     * @return the items to create or update, the existing items not in the config text are kept
+     */
+    private ItemChangeSets assembleChangeSets(String configText, List<ItemDTO> managedItems, long namespaceId,
+                                              String operator) {
         List<ItemDTO> toImportItems = gson.fromJson(configText, GsonType.ITEM_DTOS);
 
-        toImportItems.parallelStream().forEach(newItem -> {
+        Map<String, ItemDTO> managedNormalItems = Maps.newHashMap();
+        Set<String> managedComments = Sets.newHashSet();
+        for (ItemDTO managedItem : managedItems) {
+            if (StringUtils.hasText(managedItem.getKey())) {
+                managedNormalItems.put(managedItem.getKey(), managedItem);
+            } else if (StringUtils.hasText(managedItem.getComment())) {
+                managedComments.add(managedItem.getComment());
+            }
+        }
+
+        ItemChangeSets changeSets = new ItemChangeSets();
+        changeSets.setDataChangeLastModifiedBy(operator);
+
+        for (ItemDTO newItem : toImportItems) {
             String key = newItem.getKey();
-            newItem.setNamespaceId(namespaceDTO.getId());
+            newItem.setNamespaceId(namespaceId);
             newItem.setDataChangeCreatedBy(operator);
             newItem.setDataChangeLastModifiedBy(operator);
             newItem.setDataChangeCreatedTime(new Date());
@@ -390,30 +394,25 @@ public class ConfigsImportService {
 
             if (StringUtils.hasText(key)) {
                 //create or update normal item
-                try {
-                    ItemDTO oldItem = itemService.loadItem(env, appId, clusterName, namespaceName, key);
-                    newItem.setId(oldItem.getId());
-                    //existed
-                    itemService.updateItem(appId, env, clusterName, namespaceName, newItem);
-                } catch (Exception e) {
-                    if (e instanceof HttpStatusCodeException && ((HttpStatusCodeException) e).getStatusCode()
-                            .equals(HttpStatus.NOT_FOUND)) {
-                        //not existed
-                        itemService.createItem(appId, env, clusterName, namespaceName, newItem);
-                    } else {
-                        LOGGER.error("Load or update item error. appId = {}, env = {}, cluster = {}, namespace = {}", appId, env,
-                                clusterName, namespaceDTO, e);
-                    }
+                ItemDTO managedItem = managedNormalItems.get(key);
+                if (managedItem == null) {
+                    newItem.setId(0);
+                    changeSets.addCreateItem(newItem);
+                } else if (!Objects.equals(managedItem.getValue(), newItem.getValue())
+                        || !Objects.equals(managedItem.getComment(), newItem.getComment())) {
+                    newItem.setId(managedItem.getId());
+                    changeSets.addUpdateItem(newItem);
                 }
-            } else if (StringUtils.hasText(newItem.getComment())) {
+            } else if (StringUtils.hasText(newItem.getComment()) && !managedComments.contains(newItem.getComment())) {
                 //create comment item
-                itemService.createCommentItem(appId, env, clusterName, namespaceName, newItem);
+                newItem.setId(0);
+                changeSets.addCreateItem(newItem);
             }
+        }
 
-        });
+        return changeSets;
     }
 
-
     private String readContent(ZipInputStream zipInputStream) {
         try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
             byte[] buffer = new byte[1024];
@@ -428,6 +427,250 @@ public class ConfigsImportService {
         }
     }
 
+    /**
+     * Imports the entries of a zip file on a bounded pool. The metadata read before the first namespace is imported
+     * in phases, and the reading thread runs the imports itself when the pool is saturated. The app namespaces and
+     * clusters whose app is not imported yet, and the namespaces whose metadata is not imported yet, are held back
+     * until it is.
+     */
+    private class ZipImporter {
+        private final List<Env> importEnvs;
+        private final String operator;
+        private final boolean ignoreConflictNamespace;
+        private final boolean dryRun;
+        private final ExecutorService executorService;
+        private final Phaser pendingNamespaces = new Phaser(1);
+        private final AtomicInteger importedNamespaces = new AtomicInteger();
+        private final Queue<ItemDiffs> itemDiffs = new ConcurrentLinkedQueue<>();
+        private final List<String> toImportApps = Lists.newArrayList();
+        private final List<String> toImportAppNSs = Lists.newArrayList();
+        private final List<ImportClusterData> toImportClusters = Lists.newArrayList();
+        //the metadata imported, or to be imported before any namespace
+        private final Set<String> importedApps = Sets.newHashSet();
+        private final Set<String> importedAppNamespaces = Sets.newHashSet();
+        private final Set<String> importedClusters = Sets.newHashSet();
+        //app id -> the metadata held until the app is imported
+        private final ListMultimap<String, String> heldAppNamespaces = ArrayListMultimap.create();
+        private final ListMultimap<String, ImportClusterData> heldClusters = ArrayListMultimap.create();
+        private final List<ImportNamespaceData> heldNamespaces = Lists.newLinkedList();
+        private boolean metadataImported;
+        private final long startTime = System.currentTimeMillis();
+
+        ZipImporter(List<Env> importEnvs, String operator, boolean ignoreConflictNamespace, boolean dryRun) {
+            this.importEnvs = importEnvs;
+            this.operator = operator;
+            this.ignoreConflictNamespace = ignoreConflictNamespace;
+            this.dryRun = dryRun;
+            int parallelism = Math.max(1, portalConfig.configsImportParallelism());
+            this.executorService = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(parallelism * 2), ApolloThreadFactory.create("ConfigsImport", true),
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+
+        void importApp(String app) throws InterruptedException {
+            if (metadataImported) {
+                importInPhase("app", Collections.singletonList(app),
+                        toImportApp -> ConfigsImportService.this.importApp(toImportApp, importEnvs, operator));
+            } else {
+                toImportApps.add(app);
+            }
+            String appId = gson.fromJson(app, App.class).getAppId();
+            importedApps.add(appId);
+            importHeldMetadata(appId);
+            importHeldNamespaces();
+        }
+
+        void importAppNamespace(String appNamespace) throws InterruptedException {
+            String appId = gson.fromJson(appNamespace, AppNamespace.class).getAppId();
+            if (dryRun || importedApps.contains(appId)) {
+                doImportAppNamespace(appNamespace);
+            } else {
+                heldAppNamespaces.put(appId, appNamespace);
+            }
+        }
+
+        void importCluster(ImportClusterData cluster) throws InterruptedException {
+            String appId = gson.fromJson(cluster.getClusterInfo(), ClusterDTO.class).getAppId();
+            //the default cluster is created with the app, so the clusters are not imported before it
+            if (dryRun || importedApps.contains(appId)) {
+                doImportCluster(cluster);
+            } else {
+                heldClusters.put(appId, cluster);
+            }
+        }
+
+        private void doImportAppNamespace(String appNamespace) throws InterruptedException {
+            if (metadataImported) {
+                importInPhase("appnamespace", Collections.singletonList(appNamespace),
+                        toImportAppNS -> ConfigsImportService.this.importAppNamespace(toImportAppNS, operator));
+            } else {
+                toImportAppNSs.add(appNamespace);
+            }
+            AppNamespace importedAppNamespace = gson.fromJson(appNamespace, AppNamespace.class);
+            //a public app namespace is associated by the namespaces of other apps
+            importedAppNamespaces.add(importedAppNamespace.isPublic() ? importedAppNamespace.getName() :
+                    STRING_JOINER.join(importedAppNamespace.getAppId(), importedAppNamespace.getName()));
+            importHeldNamespaces();
+        }
+
+        private void doImportCluster(ImportClusterData cluster) throws InterruptedException {
+            if (metadataImported) {
+                importInPhase("cluster", Collections.singletonList(cluster),
+                        toImportCluster -> ConfigsImportService.this.importCluster(toImportCluster, operator));
+            } else {
+                toImportClusters.add(cluster);
+            }
+            ClusterDTO importedCluster = gson.fromJson(cluster.getClusterInfo(), ClusterDTO.class);
+            importedClusters.add(STRING_JOINER.join(cluster.getEnv().getName(), importedCluster.getAppId(),
+                    importedCluster.getName()));
+            importHeldNamespaces();
+        }
+
+        private void importHeldMetadata(String appId) throws InterruptedException {
+            for (String appNamespace : heldAppNamespaces.removeAll(appId)) {
+                doImportAppNamespace(appNamespace);
+            }
+            for (ImportClusterData cluster : heldClusters.removeAll(appId)) {
+                doImportCluster(cluster);
+            }
+        }
+
+        void importNamespace(ImportNamespaceData namespace) throws InterruptedException {
+            importMetadata();
+
+            if (dryRun || isMetadataImported(namespace)) {
+                submitNamespace(namespace);
+            } else {
+                heldNamespaces.add(namespace);
+            }
+        }
+
+        private boolean isMetadataImported(ImportNamespaceData namespace) {
+            String appId = ConfigFileUtils.getAppId(namespace.getFileName());
+            String clusterName = ConfigFileUtils.getClusterName(namespace.getFileName());
+            String namespaceName = ConfigFileUtils.getNamespace(namespace.getFileName());
+            return importedApps.contains(appId)
+                    && importedClusters.contains(STRING_JOINER.join(namespace.getEnv().getName(), appId, clusterName))
+                    && (importedAppNamespaces.contains(STRING_JOINER.join(appId, namespaceName))
+                    || importedAppNamespaces.contains(namespaceName));
+        }
+
+        private void importHeldNamespaces() {
+            if (!metadataImported || heldNamespaces.isEmpty()) {
+                return;
+            }
+            Iterator<ImportNamespaceData> iterator = heldNamespaces.iterator();
+            while (iterator.hasNext()) {
+                ImportNamespaceData namespace = iterator.next();
+                if (isMetadataImported(namespace)) {
+                    iterator.remove();
+                    submitNamespace(namespace);
+                }
+            }
+        }
+
+        private void submitNamespace(ImportNamespaceData namespace) {
+            pendingNamespaces.register();
+            executorService.execute(() -> {
+                try {
+                    ItemDiffs diffs = importNamespaceFromText(namespace.getEnv(), namespace.getFileName(),
+                            namespace.getContent(), namespace.isIgnoreConflictNamespace(), operator, dryRun);
+                    if (dryRun && diffs != null) {
+                        itemDiffs.add(diffs);
+                    }
+                    int imported = importedNamespaces.incrementAndGet();
+                    if (imported % NAMESPACE_PROGRESS_LOG_INTERVAL == 0) {
+                        LOGGER.info("Imported {} namespaces. duration = {}", imported,
+                                System.currentTimeMillis() - startTime);
+                    }
+                } catch (Exception e) {
+                    LOGGER.error("import namespace error. namespace = {}", namespace.getFileName(), e);
+                } finally {
+                    pendingNamespaces.arriveAndDeregister();
+                }
+            });
+        }
+
+        List<ItemDiffs> complete() throws InterruptedException {
+            importMetadata();
+            //the apps of the metadata held are not in the file, which might exist already
+            if (!heldAppNamespaces.isEmpty() || !heldClusters.isEmpty()) {
+                LOGGER.info("Import {} app namespaces and {} clusters without app in the file.",
+                        heldAppNamespaces.size(), heldClusters.size());
+                for (String appId : Sets.union(Sets.newHashSet(heldAppNamespaces.keySet()),
+                        Sets.newHashSet(heldClusters.keySet()))) {
+                    importHeldMetadata(appId);
+                }
+            }
+            //the metadata of the namespaces held is not in the file, which might exist already
+            if (!heldNamespaces.isEmpty()) {
+                LOGGER.info("Import {} namespaces without metadata in the file.", heldNamespaces.size());
+                heldNamespaces.forEach(this::submitNamespace);
+                heldNamespaces.clear();
+            }
+            pendingNamespaces.awaitAdvanceInterruptibly(pendingNamespaces.arrive());
+
+            LOGGER.info("Finish to import namespace. size = {}, ignoreConflictNamespace = {}, dryRun = {}, "
+                            + "duration = {}", importedNamespaces.get(), ignoreConflictNamespace, dryRun,
+                    System.currentTimeMillis() - startTime);
+
+            return Lists.newArrayList(itemDiffs);
+        }
+
+        void shutdown() {
+            executorService.shutdownNow();
+        }
+
+        private void importMetadata() throws InterruptedException {
+            if (metadataImported) {
+                return;
+            }
+            metadataImported = true;
+
+            if (dryRun) {
+                LOGGER.info("Skip to import metadata for dry run. app = {}, appns = {}, cluster = {}",
+                        toImportApps.size(), toImportAppNSs.size(), toImportClusters.size());
+                return;
+            }
+
+            importInPhase("app", toImportApps,
+                    app -> ConfigsImportService.this.importApp(app, importEnvs, operator));
+            importInPhase("appnamespace", toImportAppNSs,
+                    appNS -> ConfigsImportService.this.importAppNamespace(appNS, operator));
+            importInPhase("cluster", toImportClusters,
+                    cluster -> ConfigsImportService.this.importCluster(cluster, operator));
+
+            toImportApps.clear();
+            toImportAppNSs.clear();
+            toImportClusters.clear();
+        }
+
+        private <T> void importInPhase(String type, List<T> toImportData, Consumer<T> importer)
+                throws InterruptedException {
+            if (dryRun || toImportData.isEmpty()) {
+                return;
+            }
+            LOGGER.info("Start to import {}. size = {}", type, toImportData.size());
+
+            long phaseStartTime = System.currentTimeMillis();
+            CountDownLatch latch = new CountDownLatch(toImportData.size());
+            for (T data : toImportData) {
+                executorService.execute(() -> {
+                    try {
+                        importer.accept(data);
+                    } catch (Exception e) {
+                        LOGGER.error("import {} error. {} = {}", type, type, data, e);
+                    } finally {
+                        latch.countDown();
+                    }
+                });
+            }
+            latch.await();
+
+            LOGGER.info("Finish to import {}. duration = {}", type, System.currentTimeMillis() - phaseStartTime);
+        }
+    }
+
     static class ImportNamespaceData {
 
         private Env env;
@@ -29,6 +29,7 @@ import com.ctrip.framework.apollo.portal.api.AdminServiceAPI;
 import com.ctrip.framework.apollo.portal.api.AdminServiceAPI.ItemAPI;
 import com.ctrip.framework.apollo.portal.api.AdminServiceAPI.NamespaceAPI;
 import com.ctrip.framework.apollo.portal.api.AdminServiceAPI.ReleaseAPI;
+import com.ctrip.framework.apollo.portal.component.NamespaceContentCache;
 import com.ctrip.framework.apollo.portal.component.txtresolver.ConfigTextResolver;
 import com.ctrip.framework.apollo.portal.constant.TracerEventType;
 import com.ctrip.framework.apollo.portal.entity.model.NamespaceTextModel;
@@ -60,6 +61,7 @@ public class ItemService {
     private final AdminServiceAPI.ReleaseAPI releaseAPI;
     private final ConfigTextResolver fileTextResolver;
     private final ConfigTextResolver propertyResolver;
+    private final NamespaceContentCache namespaceContentCache;
 
     public ItemService(
             final UserInfoHolder userInfoHolder,
@@ -67,13 +69,15 @@ public class ItemService {
             final ItemAPI itemAPI,
             final ReleaseAPI releaseAPI,
             final @Qualifier("fileTextResolver") ConfigTextResolver fileTextResolver,
-            final @Qualifier("propertyResolver") ConfigTextResolver propertyResolver) {
+            final @Qualifier("propertyResolver") ConfigTextResolver propertyResolver,
+            final NamespaceContentCache namespaceContentCache) {
         this.userInfoHolder = userInfoHolder;
         this.namespaceAPI = namespaceAPI;
         this.itemAPI = itemAPI;
         this.releaseAPI = releaseAPI;
         this.fileTextResolver = fileTextResolver;
         this.propertyResolver = propertyResolver;
+        this.namespaceContentCache = namespaceContentCache;
     }
 
 
@@ -126,6 +130,7 @@ public class ItemService {
 
     public void updateItems(String appId, Env env, String clusterName, String namespaceName, ItemChangeSets changeSets) {
         itemAPI.updateItemsByChangeSet(appId, env, clusterName, namespaceName, changeSets);
+        namespaceContentCache.invalidate(env, appId, clusterName, namespaceName);
     }
 
 
@@ -138,6 +143,7 @@ public class ItemService {
         item.setNamespaceId(namespace.getId());
 
         ItemDTO itemDTO = itemAPI.createItem(appId, env, clusterName, namespaceName, item);
+        namespaceContentCache.invalidate(env, appId, clusterName, namespaceName);
         Tracer.logEvent(TracerEventType.MODIFY_NAMESPACE, String.format("%s+%s+%s+%s", appId, env, clusterName, namespaceName));
         return itemDTO;
     }
@@ -150,11 +156,14 @@ public class ItemService {
         }
         item.setNamespaceId(namespace.getId());
 
-        return itemAPI.createCommentItem(appId, env, clusterName, namespaceName, item);
+        ItemDTO itemDTO = itemAPI.createCommentItem(appId, env, clusterName, namespaceName, item);
+        namespaceContentCache.invalidate(env, appId, clusterName, namespaceName);
+        return itemDTO;
     }
 
     public void updateItem(String appId, Env env, String clusterName, String namespaceName, ItemDTO item) {
         itemAPI.updateItem(appId, env, clusterName, namespaceName, item.getId(), item);
+        namespaceContentCache.invalidate(env, appId, clusterName, namespaceName);
     }
 
     public void deleteItem(Env env, long itemId, String userId) {
@@ -197,6 +206,7 @@ public class ItemService {
             String namespaceName = namespaceIdentifier.getNamespaceName();
 
             itemAPI.updateItemsByChangeSet(appId, env, clusterName, namespaceName, changeSets);
+            namespaceContentCache.invalidate(env, appId, clusterName, namespaceName);
 
             Tracer.logEvent(TracerEventType.SYNC_NAMESPACE, String.format("%s+%s+%s+%s", appId, env, clusterName, namespaceName));
         }
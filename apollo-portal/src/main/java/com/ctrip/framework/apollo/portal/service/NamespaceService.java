@@ -26,6 +26,8 @@ import com.ctrip.framework.apollo.core.utils.ApolloThreadFactory;
 import com.ctrip.framework.apollo.core.utils.StringUtils;
 import com.ctrip.framework.apollo.portal.api.AdminServiceAPI;
 import com.ctrip.framework.apollo.portal.api.AdminServiceAPI.NamespaceAPI;
+import com.ctrip.framework.apollo.portal.component.NamespaceContentCache;
+import com.ctrip.framework.apollo.portal.component.NamespaceContentCache.NamespaceContent;
 import com.ctrip.framework.apollo.portal.component.PortalSettings;
 import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
 import com.ctrip.framework.apollo.portal.constant.RoleType;
@@ -45,8 +47,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.client.HttpClientErrorException;
 
 import java.util.*;
 import java.util.concurrent.CountDownLatch;
@@ -75,6 +79,7 @@ public class NamespaceService {
     private final RolePermissionService rolePermissionService;
     private final AdditionalUserInfoEnrichService additionalUserInfoEnrichService;
     private final ClusterService clusterService;
+    private final NamespaceContentCache namespaceContentCache;
 
     public NamespaceService(
             final PortalConfig portalConfig,
@@ -88,7 +93,8 @@ public class NamespaceService {
             final @Lazy NamespaceBranchService branchService,
             final RolePermissionService rolePermissionService,
             final AdditionalUserInfoEnrichService additionalUserInfoEnrichService,
-            ClusterService clusterService) {
+            ClusterService clusterService,
+            final NamespaceContentCache namespaceContentCache) {
         this.portalConfig = portalConfig;
         this.portalSettings = portalSettings;
         this.userInfoHolder = userInfoHolder;
@@ -101,6 +107,7 @@ public class NamespaceService {
         this.rolePermissionService = rolePermissionService;
         this.additionalUserInfoEnrichService = additionalUserInfoEnrichService;
         this.clusterService = clusterService;
+        this.namespaceContentCache = namespaceContentCache;
     }
 
 
@@ -162,6 +169,7 @@ public class NamespaceService {
 
         String operator = userInfoHolder.getUser().getUserId();
         namespaceAPI.deleteNamespace(env, appId, clusterName, namespaceName, operator);
+        namespaceContentCache.invalidate(env, appId, clusterName, namespaceName);
     }
 
     public NamespaceDTO loadNamespaceBaseInfo(String appId, Env env, String clusterName,
@@ -177,6 +185,79 @@ public class NamespaceService {
      * load cluster all namespace info with items
      */
     public List<NamespaceBO> findNamespaceBOs(String appId, Env env, String clusterName, boolean includeDeletedItems) {
+        //one request for the versions of all the namespaces, so the namespaces unchanged are loaded from the cache
+        Map<String, NamespaceVersionDTO> versions = namespaceContentCache.loadVersions(env, appId, clusterName);
+        if (versions != null) {
+            List<NamespaceBO> namespaceBOs = findCachedNamespaceBOs(appId, env, clusterName, includeDeletedItems,
+                    versions);
+            if (namespaceBOs != null) {
+                return sortById(namespaceBOs);
+            }
+        }
+
+        //one request for all the namespaces with their items and releases
+        List<NamespaceSnapshotDTO> snapshots;
+        try {
+            snapshots = namespaceAPI.findNamespaceSnapshots(appId, env, clusterName, includeDeletedItems);
+        } catch (HttpClientErrorException e) {
+            if (e.getStatusCode() != HttpStatus.NOT_FOUND) {
+                throw e;
+            }
+            //the admin service is not upgraded yet
+            return loadNamespaceBOs(appId, env, clusterName, includeDeletedItems, versions);
+        }
+        if (snapshots == null || snapshots.size() == 0) {
+            throw new BadRequestException("namespaces not exist");
+        }
+
+        List<NamespaceBO> namespaceBOs = new LinkedList<>();
+        List<String> exceptionNamespaces = new LinkedList<>();
+        for (NamespaceSnapshotDTO snapshot : snapshots) {
+            NamespaceDTO namespace = snapshot.getNamespace();
+            try {
+                NamespaceContent content = transformSnapshot2Content(snapshot);
+                namespaceContentCache.put(env, namespace, versions, content);
+                namespaceBOs.add(transformNamespace2BO(namespace, content, includeDeletedItems));
+            } catch (Exception e) {
+                LOGGER.error("parse namespace error. app id:{}, env:{}, clusterName:{}, namespace:{}",
+                        appId, env, clusterName, namespace.getNamespaceName(), e);
+                exceptionNamespaces.add(namespace.getNamespaceName());
+            }
+        }
+
+        checkNamespacesParsed(snapshots.size(), namespaceBOs, exceptionNamespaces);
+
+        return sortById(namespaceBOs);
+    }
+
+    /**
+     * @return the namespaces if all of them are cached and unchanged, otherwise null
+     */
+    private List<NamespaceBO> findCachedNamespaceBOs(String appId, Env env, String clusterName,
+                                                     boolean includeDeletedItems,
+                                                     Map<String, NamespaceVersionDTO> versions) {
+        List<NamespaceDTO> namespaces = namespaceAPI.findNamespaceByCluster(appId, env, clusterName);
+        if (namespaces == null || namespaces.size() == 0) {
+            throw new BadRequestException("namespaces not exist");
+        }
+
+        List<NamespaceBO> namespaceBOs = new LinkedList<>();
+        for (NamespaceDTO namespace : namespaces) {
+            NamespaceContent content = namespaceContentCache.get(env, namespace, versions, includeDeletedItems);
+            if (content == null) {
+                return null;
+            }
+            namespaceBOs.add(transformNamespace2BO(namespace, content, includeDeletedItems));
+        }
+        return namespaceBOs;
+    }
+
+    /**
+     * load the namespaces one by one, each with its latest release, items and deleted items
+     */
+    private List<NamespaceBO> loadNamespaceBOs(String appId, Env env, String clusterName,
+                                               boolean includeDeletedItems,
+                                               Map<String, NamespaceVersionDTO> versions) {
 
         List<NamespaceDTO> namespaces = namespaceAPI.findNamespaceByCluster(appId, env, clusterName);
         if (namespaces == null || namespaces.size() == 0) {
@@ -190,7 +271,7 @@ public class NamespaceService {
             executorService.submit(() -> {
                 NamespaceBO namespaceBO;
                 try {
-                    namespaceBO = transformNamespace2BO(env, namespace, includeDeletedItems);
+                    namespaceBO = transformNamespace2BO(env, namespace, includeDeletedItems, versions);
                     namespaceBOs.add(namespaceBO);
                 } catch (Exception e) {
                     LOGGER.error("parse namespace error. app id:{}, env:{}, clusterName:{}, namespace:{}",
@@ -208,11 +289,20 @@ public class NamespaceService {
             //ignore
         }
 
-        if (namespaceBOs.size() != namespaces.size()) {
+        checkNamespacesParsed(namespaces.size(), namespaceBOs, exceptionNamespaces);
+
+        return sortById(namespaceBOs);
+    }
+
+    private void checkNamespacesParsed(int expected, List<NamespaceBO> namespaceBOs,
+                                       List<String> exceptionNamespaces) {
+        if (namespaceBOs.size() != expected) {
             throw new RuntimeException(String
-                    .format("Parse namespaces error, expected: %s, but actual: %s, cannot get those namespaces: %s", namespaces.size(), namespaceBOs.size(), exceptionNamespaces));
+                    .format("Parse namespaces error, expected: %s, but actual: %s, cannot get those namespaces: %s", expected, namespaceBOs.size(), exceptionNamespaces));
         }
+    }
 
+    private List<NamespaceBO> sortById(List<NamespaceBO> namespaceBOs) {
         return namespaceBOs.stream()
                 .sorted(Comparator.comparing(o -> o.getBaseInfo().getId()))
                 .collect(Collectors.toList());
@@ -245,7 +335,8 @@ public class NamespaceService {
         if (namespace == null) {
             throw new BadRequestException("namespaces not exist");
         }
-        return transformNamespace2BO(env, namespace, includeDeletedItems);
+        Map<String, NamespaceVersionDTO> versions = namespaceContentCache.loadVersions(env, appId, clusterName);
+        return transformNamespace2BO(env, namespace, includeDeletedItems, versions);
     }
 
     public NamespaceBO loadNamespaceBO(String appId, Env env, String clusterName,
@@ -283,30 +374,32 @@ public class NamespaceService {
         return result;
     }
 
-    private NamespaceBO transformNamespace2BO(Env env, NamespaceDTO namespace, boolean includeDeletedItems) {
+    private NamespaceBO transformNamespace2BO(Env env, NamespaceDTO namespace, boolean includeDeletedItems,
+                                              Map<String, NamespaceVersionDTO> versions) {
+        NamespaceContent content = namespaceContentCache.get(env, namespace, versions, includeDeletedItems);
+        if (content == null) {
+            content = loadNamespaceContent(env, namespace, includeDeletedItems);
+            namespaceContentCache.put(env, namespace, versions, content);
+        }
+        return transformNamespace2BO(namespace, content, includeDeletedItems);
+    }
+
+    private NamespaceBO transformNamespace2BO(NamespaceDTO namespace, NamespaceContent content,
+                                              boolean includeDeletedItems) {
         NamespaceBO namespaceBO = new NamespaceBO();
         namespaceBO.setBaseInfo(namespace);
 
-        String appId = namespace.getAppId();
-        String clusterName = namespace.getClusterName();
-        String namespaceName = namespace.getNamespaceName();
-
         fillAppNamespaceProperties(namespaceBO);
 
         List<ItemBO> itemBOs = new LinkedList<>();
         namespaceBO.setItems(itemBOs);
 
         //latest Release
-        ReleaseDTO latestRelease;
-        Map<String, String> releaseItems = new HashMap<>();
-        Map<String, ItemDTO> deletedItemDTOs = new HashMap<>();
-        latestRelease = releaseService.loadLatestRelease(appId, env, clusterName, namespaceName);
-        if (latestRelease != null) {
-            releaseItems = GSON.fromJson(latestRelease.getConfigurations(), GsonType.CONFIG);
-        }
+        Map<String, String> releaseItems = content.getReleaseItems();
 
-        //not Release config items
-        List<ItemDTO> items = itemService.findItems(appId, env, clusterName, namespaceName);
+        //not Release config items, copied as the content is shared by the loads
+        List<ItemDTO> items = new ArrayList<>(content.getItems().size());
+        content.getItems().forEach(item -> items.add(BeanUtils.transform(ItemDTO.class, item)));
         additionalUserInfoEnrichService
                 .enrichAdditionalUserInfo(items, BaseDtoUserInfoEnrichedAdapter::new);
         int modifiedItemCnt = 0;
@@ -322,9 +415,10 @@ public class NamespaceService {
         }
 
         if (includeDeletedItems) {
-            //deleted items
-            itemService.findDeletedItems(appId, env, clusterName, namespaceName).forEach(item -> {
-                deletedItemDTOs.put(item.getKey(), item);
+            //deleted items, copied as they are filled with the released values
+            Map<String, ItemDTO> deletedItemDTOs = new HashMap<>();
+            content.getDeletedItems().forEach(item -> {
+                deletedItemDTOs.put(item.getKey(), BeanUtils.transform(ItemDTO.class, item));
             });
 
             List<ItemBO> deletedItems = parseDeletedItems(items, releaseItems, deletedItemDTOs);
@@ -338,7 +432,37 @@ public class NamespaceService {
     }
 
     private NamespaceBO transformNamespace2BO(Env env, NamespaceDTO namespace) {
-        return transformNamespace2BO(env, namespace, true);
+        return transformNamespace2BO(env, namespace, true, null);
+    }
+
+    private NamespaceContent loadNamespaceContent(Env env, NamespaceDTO namespace, boolean includeDeletedItems) {
+        String appId = namespace.getAppId();
+        String clusterName = namespace.getClusterName();
+        String namespaceName = namespace.getNamespaceName();
+
+        ReleaseDTO latestRelease = releaseService.loadLatestRelease(appId, env, clusterName, namespaceName);
+        Map<String, String> releaseItems = parseReleaseItems(latestRelease);
+
+        List<ItemDTO> items = itemService.findItems(appId, env, clusterName, namespaceName);
+
+        List<ItemDTO> deletedItems = null;
+        if (includeDeletedItems) {
+            deletedItems = itemService.findDeletedItems(appId, env, clusterName, namespaceName);
+        }
+
+        return new NamespaceContent(releaseItems, items, deletedItems);
+    }
+
+    private NamespaceContent transformSnapshot2Content(NamespaceSnapshotDTO snapshot) {
+        return new NamespaceContent(parseReleaseItems(snapshot.getLatestRelease()), snapshot.getItems(),
+                snapshot.getDeletedItems());
+    }
+
+    private Map<String, String> parseReleaseItems(ReleaseDTO latestRelease) {
+        if (latestRelease == null) {
+            return new HashMap<>();
+        }
+        return GSON.fromJson(latestRelease.getConfigurations(), GsonType.CONFIG);
     }
 
     private void fillAppNamespaceProperties(NamespaceBO namespace) {
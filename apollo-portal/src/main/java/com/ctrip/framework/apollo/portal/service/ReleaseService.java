@@ -22,6 +22,7 @@ import com.ctrip.framework.apollo.common.dto.ReleaseDTO;
 import com.ctrip.framework.apollo.portal.environment.Env;
 import com.ctrip.framework.apollo.core.utils.StringUtils;
 import com.ctrip.framework.apollo.portal.api.AdminServiceAPI;
+import com.ctrip.framework.apollo.portal.component.NamespaceContentCache;
 import com.ctrip.framework.apollo.portal.constant.TracerEventType;
 import com.ctrip.framework.apollo.portal.entity.bo.KVEntity;
 import com.ctrip.framework.apollo.portal.entity.bo.ReleaseBO;
@@ -52,10 +53,13 @@ public class ReleaseService {
 
     private final UserInfoHolder userInfoHolder;
     private final AdminServiceAPI.ReleaseAPI releaseAPI;
+    private final NamespaceContentCache namespaceContentCache;
 
-    public ReleaseService(final UserInfoHolder userInfoHolder, final AdminServiceAPI.ReleaseAPI releaseAPI) {
+    public ReleaseService(final UserInfoHolder userInfoHolder, final AdminServiceAPI.ReleaseAPI releaseAPI,
+                          final NamespaceContentCache namespaceContentCache) {
         this.userInfoHolder = userInfoHolder;
         this.releaseAPI = releaseAPI;
+        this.namespaceContentCache = namespaceContentCache;
     }
 
     public ReleaseDTO publish(NamespaceReleaseModel model) {
@@ -70,6 +74,7 @@ public class ReleaseService {
         ReleaseDTO releaseDTO = releaseAPI.createRelease(appId, env, clusterName, namespaceName,
                 model.getReleaseTitle(), model.getReleaseComment(),
                 releaseBy, isEmergencyPublish);
+        namespaceContentCache.invalidate(env, appId, clusterName, namespaceName);
 
         Tracer.logEvent(TracerEventType.RELEASE_NAMESPACE,
                 String.format("%s+%s+%s+%s", appId, env, clusterName, namespaceName));
@@ -88,6 +93,7 @@ public class ReleaseService {
         ReleaseDTO releaseDTO = releaseAPI.createGrayDeletionRelease(appId, env, clusterName, namespaceName,
                 model.getReleaseTitle(), model.getReleaseComment(),
                 releaseBy, isEmergencyPublish, model.getGrayDelKeys());
+        namespaceContentCache.invalidate(env, appId, clusterName, namespaceName);
 
         Tracer.logEvent(TracerEventType.RELEASE_NAMESPACE,
                 String.format("%s+%s+%s+%s", appId, env, clusterName, namespaceName));
@@ -99,8 +105,12 @@ public class ReleaseService {
                                        String releaseTitle, String releaseComment, String branchName,
                                        boolean isEmergencyPublish, boolean deleteBranch, ItemChangeSets changeSets) {
 
-        return releaseAPI.updateAndPublish(appId, env, clusterName, namespaceName, releaseTitle, releaseComment, branchName,
-                isEmergencyPublish, deleteBranch, changeSets);
+        ReleaseDTO releaseDTO = releaseAPI.updateAndPublish(appId, env, clusterName, namespaceName, releaseTitle,
+                releaseComment, branchName, isEmergencyPublish, deleteBranch, changeSets);
+        namespaceContentCache.invalidate(env, appId, clusterName, namespaceName);
+        namespaceContentCache.invalidate(env, appId, branchName, namespaceName);
+
+        return releaseDTO;
     }
 
     public List<ReleaseBO> findAllReleases(String appId, Env env, String clusterName, String namespaceName, int page,
@@ -20,8 +20,10 @@ import com.ctrip.framework.apollo.portal.entity.bo.UserInfo;
 import com.ctrip.framework.apollo.portal.entity.po.Permission;
 import com.ctrip.framework.apollo.portal.entity.po.Role;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * @author Jason Song(song_s@ctrip.com)
@@ -61,6 +63,15 @@ public interface RolePermissionService {
      */
     boolean userHasPermission(String userId, String permissionType, String targetId);
 
+    /**
+     * Find the targets the user has the permission of
+     */
+    default Set<String> findUserPermittedTargetIds(String userId, String permissionType,
+                                                   Collection<String> targetIds) {
+        return targetIds.stream().filter(targetId -> userHasPermission(userId, permissionType, targetId))
+                .collect(Collectors.toSet());
+    }
+
     /**
      * Find the user's roles
      */
@@ -17,6 +17,7 @@
 package com.ctrip.framework.apollo.portal.spi.defaultimpl;
 
 import com.ctrip.framework.apollo.openapi.repository.ConsumerRoleRepository;
+import com.ctrip.framework.apollo.portal.component.UserPermissionCache;
 import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
 import com.ctrip.framework.apollo.portal.entity.bo.UserInfo;
 import com.ctrip.framework.apollo.portal.entity.po.Permission;
@@ -28,6 +29,7 @@ import com.ctrip.framework.apollo.portal.repository.RolePermissionRepository;
 import com.ctrip.framework.apollo.portal.repository.RoleRepository;
 import com.ctrip.framework.apollo.portal.repository.UserRoleRepository;
 import com.ctrip.framework.apollo.portal.service.RolePermissionService;
+import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
@@ -49,6 +51,8 @@ import java.util.stream.StreamSupport;
  * Created by timothy on 2017/4/26.
  */
 public class DefaultRolePermissionService implements RolePermissionService {
+    private static final Joiner PERMISSION_KEY_JOINER = Joiner.on('+');
+
     @Autowired
     private RoleRepository roleRepository;
     @Autowired
@@ -61,6 +65,8 @@ public class DefaultRolePermissionService implements RolePermissionService {
     private PortalConfig portalConfig;
     @Autowired
     private ConsumerRoleRepository consumerRoleRepository;
+    @Autowired
+    private UserPermissionCache userPermissionCache;
 
     /**
      * Create role with permissions, note that role name should be unique
@@ -117,6 +123,7 @@ public class DefaultRolePermissionService implements RolePermissionService {
         }).collect(Collectors.toList());
 
         userRoleRepository.saveAll(toCreate);
+        userPermissionCache.invalidate(toAssignUserIds);
         return toAssignUserIds;
     }
 
@@ -139,6 +146,7 @@ public class DefaultRolePermissionService implements RolePermissionService {
         }
 
         userRoleRepository.saveAll(existedUserRoles);
+        userPermissionCache.invalidate(userIds);
     }
 
     /**
@@ -174,6 +182,10 @@ public class DefaultRolePermissionService implements RolePermissionService {
      */
     @Override
     public boolean userHasPermission(String userId, String permissionType, String targetId) {
+        if (userPermissionCache.isEnabled() && !isSuperAdmin(userId)) {
+            return findUserPermissions(userId).contains(permissionKey(permissionType, targetId));
+        }
+
         Permission permission =
                 permissionRepository.findTopByPermissionTypeAndTargetId(permissionType, targetId);
         if (permission == null) {
@@ -205,6 +217,50 @@ public class DefaultRolePermissionService implements RolePermissionService {
         return false;
     }
 
+    /**
+     * Find the targets the user has the permission of, with the permissions of the user loaded once
+     */
+    @Override
+    public Set<String> findUserPermittedTargetIds(String userId, String permissionType,
+                                                  Collection<String> targetIds) {
+        if (isSuperAdmin(userId)) {
+            return RolePermissionService.super.findUserPermittedTargetIds(userId, permissionType, targetIds);
+        }
+        Set<String> permissions = findUserPermissions(userId);
+        return targetIds.stream().filter(targetId -> permissions.contains(permissionKey(permissionType, targetId)))
+                .collect(Collectors.toSet());
+    }
+
+    private Set<String> findUserPermissions(String userId) {
+        if (userPermissionCache.isEnabled()) {
+            return userPermissionCache.get(userId, this::loadUserPermissions);
+        }
+        return loadUserPermissions(userId);
+    }
+
+    private Set<String> loadUserPermissions(String userId) {
+        List<UserRole> userRoles = userRoleRepository.findByUserId(userId);
+        if (CollectionUtils.isEmpty(userRoles)) {
+            return Collections.emptySet();
+        }
+
+        Set<Long> roleIds = userRoles.stream().map(UserRole::getRoleId).collect(Collectors.toSet());
+        List<RolePermission> rolePermissions = rolePermissionRepository.findByRoleIdIn(roleIds);
+        if (CollectionUtils.isEmpty(rolePermissions)) {
+            return Collections.emptySet();
+        }
+
+        Set<Long> permissionIds = rolePermissions.stream().map(RolePermission::getPermissionId)
+                .collect(Collectors.toSet());
+        return StreamSupport.stream(permissionRepository.findAllById(permissionIds).spliterator(), false)
+                .map(permission -> permissionKey(permission.getPermissionType(), permission.getTargetId()))
+                .collect(Collectors.toSet());
+    }
+
+    private String permissionKey(String permissionType, String targetId) {
+        return PERMISSION_KEY_JOINER.join(permissionType, targetId);
+    }
+
     @Override
     public List<Role> findUserRoles(String userId) {
         List<UserRole> userRoles = userRoleRepository.findByUserId(userId);
@@ -287,6 +343,8 @@ public class DefaultRolePermissionService implements RolePermissionService {
             // 5. delete Consumer Role
             consumerRoleRepository.batchDeleteByRoleIds(roleIds, operator);
         }
+
+        userPermissionCache.invalidateAll();
     }
 
     @Transactional
@@ -314,5 +372,7 @@ public class DefaultRolePermissionService implements RolePermissionService {
             // 5. delete Consumer Role
             consumerRoleRepository.batchDeleteByRoleIds(roleIds, operator);
         }
+
+        userPermissionCache.invalidateAll();
     }
 }
@@ -18,6 +18,8 @@ package com.ctrip.framework.apollo.openapi.filter;
 
 import com.ctrip.framework.apollo.openapi.util.ConsumerAuditUtil;
 import com.ctrip.framework.apollo.openapi.util.ConsumerAuthUtil;
+import com.ctrip.framework.apollo.openapi.util.ConsumerRateLimiter;
+import com.ctrip.framework.apollo.openapi.util.ConsumerTokenLookupThrottledException;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -50,6 +52,8 @@ public class ConsumerAuthenticationFilterTest {
     @Mock
     private ConsumerAuditUtil consumerAuditUtil;
     @Mock
+    private ConsumerRateLimiter consumerRateLimiter;
+    @Mock
     private HttpServletRequest request;
     @Mock
     private HttpServletResponse response;
@@ -58,7 +62,8 @@ public class ConsumerAuthenticationFilterTest {
 
     @Before
     public void setUp() throws Exception {
-        authenticationFilter = new ConsumerAuthenticationFilter(consumerAuthUtil, consumerAuditUtil);
+        authenticationFilter = new ConsumerAuthenticationFilter(consumerAuthUtil, consumerAuditUtil,
+                consumerRateLimiter);
     }
 
     @Test
@@ -68,6 +73,7 @@ public class ConsumerAuthenticationFilterTest {
 
         when(request.getHeader(HttpHeaders.AUTHORIZATION)).thenReturn(someToken);
         when(consumerAuthUtil.getConsumerId(someToken)).thenReturn(someConsumerId);
+        when(consumerRateLimiter.tryAcquire(someConsumerId)).thenReturn(true);
 
         authenticationFilter.doFilter(request, response, filterChain);
 
@@ -90,4 +96,35 @@ public class ConsumerAuthenticationFilterTest {
         verify(consumerAuditUtil, never()).audit(eq(request), anyLong());
         verify(filterChain, never()).doFilter(request, response);
     }
+
+    @Test
+    public void testThrottled() throws Exception {
+        String someToken = "someToken";
+        Long someConsumerId = 1L;
+
+        when(request.getHeader(HttpHeaders.AUTHORIZATION)).thenReturn(someToken);
+        when(consumerAuthUtil.getConsumerId(someToken)).thenReturn(someConsumerId);
+        when(consumerRateLimiter.tryAcquire(someConsumerId)).thenReturn(false);
+
+        authenticationFilter.doFilter(request, response, filterChain);
+
+        verify(response, times(1)).sendError(eq(429), anyString());
+        verify(consumerAuditUtil, never()).audit(eq(request), anyLong());
+        verify(filterChain, never()).doFilter(request, response);
+    }
+
+    @Test
+    public void testTokenLookupThrottled() throws Exception {
+        String someToken = "someToken";
+
+        when(request.getHeader(HttpHeaders.AUTHORIZATION)).thenReturn(someToken);
+        when(consumerAuthUtil.getConsumerId(someToken)).thenThrow(new ConsumerTokenLookupThrottledException());
+
+        authenticationFilter.doFilter(request, response, filterChain);
+
+        verify(response, times(1)).sendError(eq(429), anyString());
+        verify(response, never()).sendError(eq(HttpServletResponse.SC_UNAUTHORIZED), anyString());
+        verify(consumerAuditUtil, never()).audit(eq(request), anyLong());
+        verify(filterChain, never()).doFilter(request, response);
+    }
 }
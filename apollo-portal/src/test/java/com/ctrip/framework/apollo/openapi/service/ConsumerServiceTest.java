@@ -22,6 +22,7 @@ import com.ctrip.framework.apollo.openapi.entity.ConsumerToken;
 import com.ctrip.framework.apollo.openapi.repository.ConsumerRepository;
 import com.ctrip.framework.apollo.openapi.repository.ConsumerRoleRepository;
 import com.ctrip.framework.apollo.openapi.repository.ConsumerTokenRepository;
+import com.ctrip.framework.apollo.openapi.util.ConsumerTokenCache;
 import com.ctrip.framework.apollo.portal.AbstractUnitTest;
 import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
 import com.ctrip.framework.apollo.portal.entity.bo.UserInfo;
@@ -62,6 +63,8 @@ public class ConsumerServiceTest extends AbstractUnitTest {
     private ConsumerRoleRepository consumerRoleRepository;
     @Mock
     private RolePermissionService rolePermissionService;
+    @Mock
+    private ConsumerTokenCache consumerTokenCache;
     @Spy
     @InjectMocks
     private ConsumerService consumerService;
@@ -89,6 +92,18 @@ public class ConsumerServiceTest extends AbstractUnitTest {
         assertEquals(someConsumerId, consumerService.getConsumerIdByToken(someToken).longValue());
     }
 
+    @Test
+    public void testGetConsumerIdFromCache() throws Exception {
+        String someToken = "someToken";
+        long someConsumerId = 1;
+
+        when(consumerTokenCache.isEnabled()).thenReturn(true);
+        when(consumerTokenCache.getConsumerId(eq(someToken), any())).thenReturn(someConsumerId);
+
+        assertEquals(someConsumerId, consumerService.getConsumerIdByToken(someToken).longValue());
+        verify(consumerTokenRepository, never()).findTopByTokenAndExpiresAfter(anyString(), any(Date.class));
+    }
+
     @Test
     public void testGetConsumerIdWithNullToken() throws Exception {
         Long consumerId = consumerService.getConsumerIdByToken(null);
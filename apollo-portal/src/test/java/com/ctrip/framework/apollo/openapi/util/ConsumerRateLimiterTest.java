@@ -0,0 +1,59 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.openapi.util;
+
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ConsumerRateLimiterTest {
+    @Mock
+    private PortalConfig portalConfig;
+
+    private ConsumerRateLimiter consumerRateLimiter;
+
+    @Before
+    public void setUp() throws Exception {
+        consumerRateLimiter = new ConsumerRateLimiter(portalConfig);
+    }
+
+    @Test
+    public void testNotLimited() throws Exception {
+        when(portalConfig.consumerRateLimit()).thenReturn(0);
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(consumerRateLimiter.tryAcquire(1));
+        }
+    }
+
+    @Test
+    public void testLimitedByConsumer() throws Exception {
+        when(portalConfig.consumerRateLimit()).thenReturn(1);
+
+        assertTrue(consumerRateLimiter.tryAcquire(1));
+        assertFalse(consumerRateLimiter.tryAcquire(1));
+        assertTrue(consumerRateLimiter.tryAcquire(2));
+    }
+}
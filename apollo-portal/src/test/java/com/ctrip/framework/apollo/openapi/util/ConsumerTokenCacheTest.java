@@ -0,0 +1,191 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.openapi.util;
+
+import com.ctrip.framework.apollo.openapi.entity.ConsumerToken;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ConsumerTokenCacheTest {
+    private static final String someToken = "someToken";
+    private static final long someConsumerId = 1;
+
+    @Mock
+    private PortalConfig portalConfig;
+
+    private ConsumerTokenCache consumerTokenCache;
+    private AtomicInteger loadCount;
+    private ConsumerToken someConsumerToken;
+    private Function<String, ConsumerToken> loader;
+
+    @Before
+    public void setUp() throws Exception {
+        when(portalConfig.consumerTokenCacheSize()).thenReturn(100);
+        //not throttled however fast the lookups are
+        when(portalConfig.consumerTokenCacheMissRateLimit()).thenReturn(Integer.MAX_VALUE);
+        consumerTokenCache = new ConsumerTokenCache(portalConfig);
+
+        someConsumerToken = new ConsumerToken();
+        someConsumerToken.setToken(someToken);
+        someConsumerToken.setConsumerId(someConsumerId);
+        someConsumerToken.setExpires(new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1)));
+        loadCount = new AtomicInteger();
+        loader = token -> {
+            loadCount.incrementAndGet();
+            return someToken.equals(token) ? someConsumerToken : null;
+        };
+    }
+
+    @Test
+    public void testValidTokenCached() throws Exception {
+        when(portalConfig.consumerTokenCacheExpireInSeconds()).thenReturn(60);
+
+        assertEquals(someConsumerId, (long) consumerTokenCache.getConsumerId(someToken, loader));
+        assertEquals(someConsumerId, (long) consumerTokenCache.getConsumerId(someToken, loader));
+        assertEquals(1, loadCount.get());
+    }
+
+    @Test
+    public void testInvalidTokenCached() throws Exception {
+        assertNull(consumerTokenCache.getConsumerId("someInvalidToken", loader));
+        assertNull(consumerTokenCache.getConsumerId("someInvalidToken", loader));
+        assertEquals(1, loadCount.get());
+    }
+
+    @Test
+    public void testTokenExpired() throws Exception {
+        when(portalConfig.consumerTokenCacheExpireInSeconds()).thenReturn(60);
+        someConsumerToken.setExpires(new Date(System.currentTimeMillis() - 1));
+
+        consumerTokenCache.getConsumerId(someToken, loader);
+        consumerTokenCache.getConsumerId(someToken, loader);
+
+        assertEquals(2, loadCount.get());
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        assertNull(consumerTokenCache.getConsumerId("anotherToken", loader));
+
+        consumerTokenCache.invalidate("anotherToken");
+        consumerTokenCache.getConsumerId("anotherToken", loader);
+
+        assertEquals(2, loadCount.get());
+    }
+
+    @Test
+    public void testInvalidateAfterCommit() throws Exception {
+        when(portalConfig.consumerTokenCacheExpireInSeconds()).thenReturn(60);
+        consumerTokenCache.getConsumerId(someToken, loader);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            consumerTokenCache.invalidate(someToken);
+            //the token deleted is not committed yet
+            consumerTokenCache.getConsumerId(someToken, loader);
+            assertEquals(1, loadCount.get());
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager
+                    .getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        consumerTokenCache.getConsumerId(someToken, loader);
+
+        assertEquals(2, loadCount.get());
+    }
+
+    @Test
+    public void testMissesThrottled() throws Exception {
+        when(portalConfig.consumerTokenCacheMissRateLimit()).thenReturn(1);
+        consumerTokenCache = new ConsumerTokenCache(portalConfig);
+
+        consumerTokenCache.getConsumerId("someInvalidToken", loader);
+        for (int i = 0; i < 10; i++) {
+            try {
+                consumerTokenCache.getConsumerId("anotherInvalidToken" + i, loader);
+                fail("Should be throttled");
+            } catch (ConsumerTokenLookupThrottledException ex) {
+                //expected
+            }
+        }
+        //the valid token is throttled too, but not rejected as invalid
+        try {
+            consumerTokenCache.getConsumerId(someToken, loader);
+            fail("Should be throttled");
+        } catch (ConsumerTokenLookupThrottledException ex) {
+            //expected
+        }
+
+        assertEquals(1, loadCount.get());
+    }
+
+    @Test
+    public void testConcurrentMissesShareOneLoad() throws Exception {
+        when(portalConfig.consumerTokenCacheExpireInSeconds()).thenReturn(60);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Function<String, ConsumerToken> slowLoader = token -> {
+            loading.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return loader.apply(token);
+        };
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            Future<Long> first = executorService.submit(() -> consumerTokenCache.getConsumerId(someToken, slowLoader));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<Long> second = executorService.submit(() -> consumerTokenCache.getConsumerId(someToken, slowLoader));
+            TimeUnit.MILLISECONDS.sleep(100);
+            release.countDown();
+
+            assertEquals(someConsumerId, (long) first.get(5, TimeUnit.SECONDS));
+            assertEquals(someConsumerId, (long) second.get(5, TimeUnit.SECONDS));
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        assertEquals(1, loadCount.get());
+    }
+}
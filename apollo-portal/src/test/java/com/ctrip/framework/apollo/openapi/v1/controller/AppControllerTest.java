@@ -26,6 +26,7 @@ import com.ctrip.framework.apollo.openapi.repository.ConsumerTokenRepository;
 import com.ctrip.framework.apollo.openapi.server.service.ServerAppOpenApiService;
 import com.ctrip.framework.apollo.openapi.service.ConsumerService;
 import com.ctrip.framework.apollo.openapi.util.ConsumerAuthUtil;
+import com.ctrip.framework.apollo.openapi.util.ConsumerTokenCache;
 import com.ctrip.framework.apollo.portal.component.PortalSettings;
 import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
 import com.ctrip.framework.apollo.portal.entity.po.Role;
@@ -81,6 +82,9 @@ public class AppControllerTest {
     @MockBean
     private ConsumerAuthUtil consumerAuthUtil;
 
+    @MockBean
+    private ConsumerTokenCache consumerTokenCache;
+
     @MockBean
     private PermissionRepository permissionRepository;
 
@@ -21,6 +21,7 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.mock;
@@ -32,6 +33,7 @@ import static org.mockito.Mockito.when;
 import com.ctrip.framework.apollo.common.exception.ServiceException;
 import com.ctrip.framework.apollo.core.dto.ServiceDTO;
 import com.ctrip.framework.apollo.portal.component.AdminServiceAddressLocator;
+import com.ctrip.framework.apollo.portal.component.AdminServiceLoadBalancer;
 import com.ctrip.framework.apollo.portal.component.RetryableRestTemplate;
 import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
 import com.ctrip.framework.apollo.portal.environment.Env;
@@ -44,6 +46,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.http.HttpHost;
 import org.apache.http.conn.ConnectTimeoutException;
@@ -57,7 +60,9 @@ import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
@@ -71,6 +76,8 @@ public class RetryableRestTemplateTest extends AbstractUnitTest {
     private PortalMetaDomainService portalMetaDomainService;
     @Mock
     private PortalConfig portalConfig;
+    @Mock
+    private AdminServiceLoadBalancer adminServiceLoadBalancer;
     @InjectMocks
     private RetryableRestTemplate retryableRestTemplate;
 
@@ -495,6 +502,89 @@ public class RetryableRestTemplateTest extends AbstractUnitTest {
         assertTrue(headers.isEmpty());
     }
 
+    @Test
+    public void testHedgedGetReturnsFirstResponse() {
+        ResponseEntity someEntity = mock(ResponseEntity.class);
+        ResponseEntity anotherEntity = mock(ResponseEntity.class);
+        when(anotherEntity.getBody()).thenReturn(result);
+
+        when(portalConfig.isAdminServiceHedgeEnabled()).thenReturn(true);
+        when(portalConfig.adminServiceHedgeThreads()).thenReturn(2);
+        when(adminServiceLoadBalancer.hedgeDelayInMilli(eq(Env.DEV), eq(path), anyLong())).thenReturn(50L);
+        when(serviceAddressLocator.getServiceList(any()))
+                .thenReturn(Arrays.asList(mockService(serviceOne), mockService(serviceTwo)));
+        when(restTemplate
+                .exchange(eq(serviceOne + "/" + path), eq(HttpMethod.GET), any(HttpEntity.class),
+                        eq(Object.class))).thenAnswer(invocation -> {
+                            TimeUnit.SECONDS.sleep(5);
+                            return someEntity;
+                        });
+        when(restTemplate
+                .exchange(eq(serviceTwo + "/" + path), eq(HttpMethod.GET), any(HttpEntity.class),
+                        eq(Object.class))).thenReturn(anotherEntity);
+
+        long start = System.currentTimeMillis();
+        Object actualResult = retryableRestTemplate.get(Env.DEV, path, Object.class);
+
+        assertEquals(result, actualResult);
+        assertTrue(System.currentTimeMillis() - start < 3000);
+        verify(adminServiceLoadBalancer).onSuccess(eq(Env.DEV), eq(path), any(ServiceDTO.class), anyLong());
+    }
+
+    @Test
+    public void testHedgedGetFailover() {
+        ResponseEntity someEntity = mock(ResponseEntity.class);
+        when(someEntity.getBody()).thenReturn(result);
+
+        when(portalConfig.isAdminServiceHedgeEnabled()).thenReturn(true);
+        when(portalConfig.adminServiceHedgeThreads()).thenReturn(2);
+        when(adminServiceLoadBalancer.hedgeDelayInMilli(eq(Env.DEV), eq(path), anyLong())).thenReturn(5000L);
+        ServiceDTO someService = mockService(serviceOne);
+        when(serviceAddressLocator.getServiceList(any()))
+                .thenReturn(Arrays.asList(someService, mockService(serviceTwo)));
+        when(restTemplate
+                .exchange(eq(serviceOne + "/" + path), eq(HttpMethod.GET), any(HttpEntity.class),
+                        eq(Object.class))).thenThrow(connectTimeoutException);
+        when(restTemplate
+                .exchange(eq(serviceTwo + "/" + path), eq(HttpMethod.GET), any(HttpEntity.class),
+                        eq(Object.class))).thenReturn(someEntity);
+
+        long start = System.currentTimeMillis();
+        Object actualResult = retryableRestTemplate.get(Env.DEV, path, Object.class);
+
+        assertEquals(result, actualResult);
+        //failed over without waiting for the hedge delay
+        assertTrue(System.currentTimeMillis() - start < 3000);
+        verify(adminServiceLoadBalancer).onFailure(someService);
+    }
+
+    @Test
+    public void testHedgedGetBizExceptionNotRetried() {
+        HttpClientErrorException someException = new HttpClientErrorException(HttpStatus.NOT_FOUND);
+
+        when(portalConfig.isAdminServiceHedgeEnabled()).thenReturn(true);
+        when(portalConfig.adminServiceHedgeThreads()).thenReturn(2);
+        when(adminServiceLoadBalancer.hedgeDelayInMilli(eq(Env.DEV), eq(path), anyLong())).thenReturn(5000L);
+        when(serviceAddressLocator.getServiceList(any()))
+                .thenReturn(Arrays.asList(mockService(serviceOne), mockService(serviceTwo)));
+        when(restTemplate
+                .exchange(eq(serviceOne + "/" + path), eq(HttpMethod.GET), any(HttpEntity.class),
+                        eq(Object.class))).thenThrow(someException);
+
+        Throwable exception = null;
+        try {
+            retryableRestTemplate.get(Env.DEV, path, Object.class);
+        } catch (Throwable ex) {
+            exception = ex;
+        }
+
+        assertSame(someException, exception);
+        verify(restTemplate, never())
+                .exchange(eq(serviceTwo + "/" + path), eq(HttpMethod.GET), any(HttpEntity.class),
+                        eq(Object.class));
+        verify(adminServiceLoadBalancer, never()).onFailure(any());
+    }
+
     private String mockAdminServiceTokens(Env env, String token) {
         Map<String, String> tokenMap = Maps.newHashMap();
         tokenMap.put(env.getName(), token);
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.portal.component;
+
+import com.ctrip.framework.apollo.core.dto.ServiceDTO;
+import com.ctrip.framework.apollo.portal.environment.Env;
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AdminServiceLoadBalancerTest {
+    private static final String somePath = "apps/{appId}";
+
+    private AdminServiceLoadBalancer loadBalancer;
+    private ServiceDTO someService;
+    private ServiceDTO anotherService;
+
+    @Before
+    public void setUp() throws Exception {
+        loadBalancer = new AdminServiceLoadBalancer();
+        someService = mockService("http://10.0.0.1");
+        anotherService = mockService("http://10.0.0.2");
+    }
+
+    @Test
+    public void testFasterServerPreferred() throws Exception {
+        loadBalancer.onSuccess(Env.DEV, somePath, someService, 100000);
+        loadBalancer.onSuccess(Env.DEV, somePath, anotherService, 1000);
+
+        for (int i = 0; i < 20; i++) {
+            List<ServiceDTO> ordered = loadBalancer.order(Lists.newArrayList(someService, anotherService));
+
+            assertEquals(anotherService, ordered.get(0));
+            assertEquals(2, ordered.size());
+        }
+    }
+
+    @Test
+    public void testServerWithOpenCircuitMovedToEnd() throws Exception {
+        for (int i = 0; i < AdminServiceLoadBalancer.CIRCUIT_BREAKER_FAILURE_THRESHOLD; i++) {
+            loadBalancer.onFailure(anotherService);
+        }
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals(someService, loadBalancer.order(Lists.newArrayList(someService, anotherService)).get(0));
+        }
+
+        //the circuit is closed on success
+        loadBalancer.onSuccess(Env.DEV, somePath, anotherService, 1);
+        loadBalancer.onSuccess(Env.DEV, somePath, someService, 100000);
+
+        assertEquals(anotherService, loadBalancer.order(Lists.newArrayList(someService, anotherService)).get(0));
+    }
+
+    @Test
+    public void testCircuitNotOpenBelowThreshold() throws Exception {
+        loadBalancer.onSuccess(Env.DEV, somePath, someService, 100000);
+        loadBalancer.onSuccess(Env.DEV, somePath, anotherService, 1000);
+        for (int i = 0; i < AdminServiceLoadBalancer.CIRCUIT_BREAKER_FAILURE_THRESHOLD - 1; i++) {
+            loadBalancer.onFailure(anotherService);
+        }
+
+        assertEquals(anotherService, loadBalancer.order(Lists.newArrayList(someService, anotherService)).get(0));
+    }
+
+    @Test
+    public void testHedgeDelay() throws Exception {
+        long defaultDelay = 200;
+
+        assertEquals(defaultDelay, loadBalancer.hedgeDelayInMilli(Env.DEV, somePath, defaultDelay));
+
+        for (int i = 1; i <= AdminServiceLoadBalancer.LATENCY_WINDOW_SIZE; i++) {
+            //1ms to 128ms
+            loadBalancer.onSuccess(Env.DEV, somePath, someService, i * 1000L);
+        }
+
+        long delay = loadBalancer.hedgeDelayInMilli(Env.DEV, somePath, defaultDelay);
+        assertNotEquals(defaultDelay, delay);
+        assertTrue(delay >= 120 && delay <= 125);
+        //other endpoints and envs are not affected
+        assertEquals(defaultDelay, loadBalancer.hedgeDelayInMilli(Env.FAT, somePath, defaultDelay));
+        assertEquals(defaultDelay, loadBalancer.hedgeDelayInMilli(Env.DEV, "anotherPath", defaultDelay));
+    }
+
+    private ServiceDTO mockService(String homepageUrl) {
+        ServiceDTO serviceDTO = new ServiceDTO();
+        serviceDTO.setHomepageUrl(homepageUrl);
+        return serviceDTO;
+    }
+}
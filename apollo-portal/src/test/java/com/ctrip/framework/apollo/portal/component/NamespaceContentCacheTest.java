@@ -0,0 +1,148 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.portal.component;
+
+import com.ctrip.framework.apollo.common.dto.ItemDTO;
+import com.ctrip.framework.apollo.common.dto.NamespaceDTO;
+import com.ctrip.framework.apollo.common.dto.NamespaceVersionDTO;
+import com.ctrip.framework.apollo.portal.AbstractUnitTest;
+import com.ctrip.framework.apollo.portal.api.AdminServiceAPI;
+import com.ctrip.framework.apollo.portal.component.NamespaceContentCache.NamespaceContent;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
+import com.ctrip.framework.apollo.portal.environment.Env;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class NamespaceContentCacheTest extends AbstractUnitTest {
+    private static final String someAppId = "someAppId";
+    private static final String someClusterName = "someClusterName";
+    private static final String someNamespaceName = "someNamespaceName";
+
+    @Mock
+    private PortalConfig portalConfig;
+    @Mock
+    private AdminServiceAPI.NamespaceAPI namespaceAPI;
+
+    private NamespaceContentCache namespaceContentCache;
+    private NamespaceDTO someNamespace;
+    private NamespaceContent someContent;
+
+    @Before
+    public void setUp() throws Exception {
+        when(portalConfig.namespaceCacheSize()).thenReturn(100);
+        when(portalConfig.isNamespaceCacheEnabled()).thenReturn(true);
+        namespaceContentCache = new NamespaceContentCache(portalConfig, namespaceAPI);
+
+        someNamespace = new NamespaceDTO();
+        someNamespace.setAppId(someAppId);
+        someNamespace.setClusterName(someClusterName);
+        someNamespace.setNamespaceName(someNamespaceName);
+        someContent = new NamespaceContent(ImmutableMap.of("k", "v"),
+                Lists.newArrayList(new ItemDTO("k", "v", "", 1)), Collections.emptyList());
+    }
+
+    @Test
+    public void testLoadVersions() throws Exception {
+        NamespaceVersionDTO someVersion = new NamespaceVersionDTO(someNamespaceName, 1, 2, 1, 1000);
+        when(namespaceAPI.findNamespaceVersions(someAppId, Env.DEV, someClusterName))
+                .thenReturn(Lists.newArrayList(someVersion));
+
+        Map<String, NamespaceVersionDTO> versions = namespaceContentCache.loadVersions(Env.DEV, someAppId,
+                someClusterName);
+
+        assertSame(someVersion, versions.get(someNamespaceName));
+    }
+
+    @Test
+    public void testLoadVersionsWhenDisabledOrFailed() throws Exception {
+        when(portalConfig.isNamespaceCacheEnabled()).thenReturn(false);
+
+        assertNull(namespaceContentCache.loadVersions(Env.DEV, someAppId, someClusterName));
+        verify(namespaceAPI, never()).findNamespaceVersions(someAppId, Env.DEV, someClusterName);
+
+        when(portalConfig.isNamespaceCacheEnabled()).thenReturn(true);
+        when(namespaceAPI.findNamespaceVersions(someAppId, Env.DEV, someClusterName))
+                .thenThrow(new RuntimeException("not found"));
+
+        assertNull(namespaceContentCache.loadVersions(Env.DEV, someAppId, someClusterName));
+    }
+
+    @Test
+    public void testGetByVersion() throws Exception {
+        Map<String, NamespaceVersionDTO> versions = versions(1, 2);
+        namespaceContentCache.put(Env.DEV, someNamespace, versions, someContent);
+
+        assertSame(someContent, namespaceContentCache.get(Env.DEV, someNamespace, versions, true));
+        assertSame(someContent, namespaceContentCache.get(Env.DEV, someNamespace, versions(1, 2), false));
+        //released or committed since cached
+        assertNull(namespaceContentCache.get(Env.DEV, someNamespace, versions(3, 2), true));
+        assertNull(namespaceContentCache.get(Env.DEV, someNamespace, versions(1, 3), true));
+        //items modified without commit, e.g. the comments or the order
+        assertNull(namespaceContentCache.get(Env.DEV, someNamespace, versions(1, 2, 1, 2000), true));
+        assertNull(namespaceContentCache.get(Env.DEV, someNamespace, versions(1, 2, 2, 1000), true));
+        //other env
+        assertNull(namespaceContentCache.get(Env.FAT, someNamespace, versions, true));
+        //the cache disabled or the versions failed to load
+        assertNull(namespaceContentCache.get(Env.DEV, someNamespace, null, true));
+    }
+
+    @Test
+    public void testGetWithoutDeletedItemsCached() throws Exception {
+        NamespaceContent contentWithoutDeletedItems = new NamespaceContent(Collections.emptyMap(),
+                Collections.emptyList(), null);
+        //neither released nor committed
+        Map<String, NamespaceVersionDTO> versions = Collections.emptyMap();
+        namespaceContentCache.put(Env.DEV, someNamespace, versions, contentWithoutDeletedItems);
+
+        assertSame(contentWithoutDeletedItems, namespaceContentCache.get(Env.DEV, someNamespace, versions, false));
+        assertNull(namespaceContentCache.get(Env.DEV, someNamespace, versions, true));
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        Map<String, NamespaceVersionDTO> versions = versions(1, 2);
+        namespaceContentCache.put(Env.DEV, someNamespace, versions, someContent);
+        assertNotNull(namespaceContentCache.get(Env.DEV, someNamespace, versions, true));
+
+        namespaceContentCache.invalidate(Env.DEV, someAppId, someClusterName, someNamespaceName);
+
+        assertNull(namespaceContentCache.get(Env.DEV, someNamespace, versions, true));
+    }
+
+    private Map<String, NamespaceVersionDTO> versions(long latestReleaseId, long latestCommitId) {
+        return versions(latestReleaseId, latestCommitId, 1, 1000);
+    }
+
+    private Map<String, NamespaceVersionDTO> versions(long latestReleaseId, long latestCommitId, long itemCount,
+                                                      long itemsLastModifiedTime) {
+        return ImmutableMap.of(someNamespaceName, new NamespaceVersionDTO(someNamespaceName, latestReleaseId,
+                latestCommitId, itemCount, itemsLastModifiedTime));
+    }
+}
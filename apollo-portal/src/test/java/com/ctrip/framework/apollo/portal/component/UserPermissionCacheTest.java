@@ -0,0 +1,158 @@
+/*
+ * Copyright 2022 Apollo Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.ctrip.framework.apollo.portal.component;
+
+import com.ctrip.framework.apollo.portal.AbstractUnitTest;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
+import com.ctrip.framework.apollo.portal.repository.PermissionRepository;
+import com.ctrip.framework.apollo.portal.repository.RolePermissionRepository;
+import com.ctrip.framework.apollo.portal.repository.UserRoleRepository;
+import com.google.common.collect.Sets;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
+public class UserPermissionCacheTest extends AbstractUnitTest {
+    private static final String someUserId = "someUser";
+    private static final String anotherUserId = "anotherUser";
+
+    @Mock
+    private PortalConfig portalConfig;
+    @Mock
+    private UserRoleRepository userRoleRepository;
+    @Mock
+    private RolePermissionRepository rolePermissionRepository;
+    @Mock
+    private PermissionRepository permissionRepository;
+
+    private UserPermissionCache userPermissionCache;
+    private AtomicInteger loadCount;
+    private Function<String, Set<String>> loader;
+
+    @Before
+    public void setUp() throws Exception {
+        when(portalConfig.userPermissionCacheSize()).thenReturn(100);
+        userPermissionCache = new UserPermissionCache(portalConfig, userRoleRepository, rolePermissionRepository,
+                permissionRepository);
+        loadCount = new AtomicInteger();
+        loader = userId -> {
+            loadCount.incrementAndGet();
+            return Sets.newHashSet("somePermission+" + userId);
+        };
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        userPermissionCache.destroy();
+    }
+
+    @Test
+    public void testGetCached() throws Exception {
+        assertEquals(Collections.singleton("somePermission+someUser"), userPermissionCache.get(someUserId, loader));
+        assertEquals(Collections.singleton("somePermission+someUser"), userPermissionCache.get(someUserId, loader));
+        assertEquals(1, loadCount.get());
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        userPermissionCache.get(someUserId, loader);
+        userPermissionCache.get(anotherUserId, loader);
+
+        userPermissionCache.invalidate(Sets.newHashSet(someUserId));
+        userPermissionCache.get(someUserId, loader);
+        userPermissionCache.get(anotherUserId, loader);
+
+        assertEquals(3, loadCount.get());
+    }
+
+    @Test
+    public void testInvalidateAfterCommit() throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            userPermissionCache.invalidate(Sets.newHashSet(someUserId));
+            //loaded from the data not committed yet
+            userPermissionCache.get(someUserId, loader);
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager
+                    .getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        userPermissionCache.get(someUserId, loader);
+
+        assertEquals(2, loadCount.get());
+    }
+
+    @Test
+    public void testNotCachedIfInvalidatedWhileLoading() throws Exception {
+        userPermissionCache.get(someUserId, userId -> {
+            userPermissionCache.invalidate(Sets.newHashSet(userId));
+            return loader.apply(userId);
+        });
+        userPermissionCache.get(someUserId, loader);
+
+        assertEquals(2, loadCount.get());
+    }
+
+    @Test
+    public void testCheckChanges() throws Exception {
+        Date someChangeTime = new Date(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(1));
+        when(userRoleRepository.findLatestDataChangeLastModifiedTime()).thenReturn(someChangeTime);
+        userPermissionCache.checkChanges();
+        userPermissionCache.get(someUserId, loader);
+
+        //unchanged
+        userPermissionCache.checkChanges();
+        userPermissionCache.get(someUserId, loader);
+        assertEquals(1, loadCount.get());
+
+        //changed through another portal
+        when(permissionRepository.findLatestDataChangeLastModifiedTime()).thenReturn(
+                new Date(someChangeTime.getTime() + 1000));
+        userPermissionCache.checkChanges();
+        userPermissionCache.get(someUserId, loader);
+        assertEquals(2, loadCount.get());
+    }
+
+    @Test
+    public void testCheckRecentChangeUntilSettled() throws Exception {
+        when(rolePermissionRepository.findLatestDataChangeLastModifiedTime()).thenReturn(new Date());
+        userPermissionCache.checkChanges();
+        userPermissionCache.get(someUserId, loader);
+
+        //more changes may be made in the same second
+        userPermissionCache.checkChanges();
+        userPermissionCache.get(someUserId, loader);
+
+        assertEquals(2, loadCount.get());
+    }
+}
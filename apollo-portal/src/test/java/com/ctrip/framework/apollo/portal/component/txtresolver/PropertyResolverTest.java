@@ -26,6 +26,7 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -133,6 +134,26 @@ public class PropertyResolverTest extends AbstractUnitTest {
         Assert.assertEquals(5, changeSets.getCreateItems().size());
     }
 
+    @Test
+    public void testIgnoreTrailingNewLines() {
+        ItemChangeSets changeSets = resolver.resolve(1, "a=b\nb=c\nc=d\n\n\n", mockBaseItemHas3Key());
+        Assert.assertTrue(changeSets.isEmpty());
+    }
+
+    @Test
+    public void testResolveLargeTextUnchanged() {
+        int size = 20000;
+        StringBuilder text = new StringBuilder();
+        List<ItemDTO> baseItems = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            text.append("key").append(i).append('=').append("value").append(i).append('\n');
+            baseItems.add(new ItemDTO("key" + i, "value" + i, "", i));
+        }
+
+        ItemChangeSets changeSets = resolver.resolve(1, text.toString(), baseItems);
+        Assert.assertTrue(changeSets.isEmpty());
+    }
+
     /**
      * a=b b=c c=d
      */
@@ -27,6 +27,7 @@ import com.ctrip.framework.apollo.portal.environment.Env;
 import com.ctrip.framework.apollo.portal.service.AppService;
 import com.ctrip.framework.apollo.portal.service.NamespaceService;
 
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -38,6 +39,7 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.times;
@@ -62,6 +64,11 @@ public class SearchControllerTest {
     @InjectMocks
     private SearchController searchController;
 
+    @After
+    public void tearDown() throws Exception {
+        searchController.destroy();
+    }
+
     @Test
     public void testSearchByEmptyKey() {
         PageRequest request = PageRequest.of(0, 20);
@@ -112,6 +119,7 @@ public class SearchControllerTest {
 
         when(appService.searchByAppIdOrAppName(query, request)).thenReturn(apps);
         when(portalConfig.supportSearchByItem()).thenReturn(true);
+        when(portalConfig.searchByItemTimeoutInMilli()).thenReturn(5000);
         when(portalSettings.getActiveEnvs()).thenReturn(Lists.newArrayList(Env.DEV, Env.FAT));
         when(namespaceService.findNamespacesByItem(Env.DEV, query, request)).thenReturn(devNamespaces);
         when(namespaceService.findNamespacesByItem(Env.FAT, query, request)).thenReturn(fatNamespaces);
@@ -127,6 +135,34 @@ public class SearchControllerTest {
         verify(namespaceService).findNamespacesByItem(Env.FAT, query, request);
     }
 
+    @Test
+    public void testSearchItemSkipFailedAndTimedOutEnvs() {
+        String query = "timeout";
+        PageRequest request = PageRequest.of(0, 20);
+
+        PageDTO<App> apps = new PageDTO<>(Lists.newLinkedList(), request, 0);
+        PageDTO<NamespaceDTO> devNamespaces = genPageNamespace(10, request, 20);
+
+        when(appService.searchByAppIdOrAppName(query, request)).thenReturn(apps);
+        when(portalConfig.supportSearchByItem()).thenReturn(true);
+        when(portalConfig.searchByItemTimeoutInMilli()).thenReturn(500);
+        when(portalSettings.getActiveEnvs()).thenReturn(Lists.newArrayList(Env.DEV, Env.FAT, Env.UAT));
+        when(namespaceService.findNamespacesByItem(Env.DEV, query, request)).thenReturn(devNamespaces);
+        when(namespaceService.findNamespacesByItem(Env.FAT, query, request))
+                .thenThrow(new RuntimeException("some error"));
+        when(namespaceService.findNamespacesByItem(Env.UAT, query, request)).thenAnswer(invocation -> {
+            TimeUnit.SECONDS.sleep(10);
+            return genPageNamespace(15, request, 30);
+        });
+
+        long start = System.currentTimeMillis();
+        PageDTO<App> result = searchController.search(query, request);
+
+        Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+        Assert.assertEquals(10, result.getContent().size());
+        Assert.assertEquals(20, result.getTotal());
+    }
+
     private PageDTO<App> genPageApp(int size, Pageable pageable, int total) {
         List<App> result = Lists.newLinkedList();
         for (int i = 0; i < size; i++) {
@@ -25,6 +25,7 @@ import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
 import com.ctrip.framework.apollo.portal.environment.Env;
 import com.ctrip.framework.apollo.portal.AbstractUnitTest;
 import com.ctrip.framework.apollo.portal.api.AdminServiceAPI;
+import com.ctrip.framework.apollo.portal.component.NamespaceContentCache;
 import com.ctrip.framework.apollo.portal.spi.UserInfoHolder;
 import com.ctrip.framework.apollo.portal.entity.bo.UserInfo;
 import com.ctrip.framework.apollo.portal.component.txtresolver.PropertyResolver;
@@ -60,6 +61,8 @@ public class ConfigServiceTest extends AbstractUnitTest {
     private PropertyResolver resolver;
     @Mock
     private UserInfoHolder userInfoHolder;
+    @Mock
+    private NamespaceContentCache namespaceContentCache;
 
     @InjectMocks
     private ItemService configService;
@@ -17,6 +17,7 @@
 package com.ctrip.framework.apollo.portal.service;
 
 import com.ctrip.framework.apollo.common.dto.ClusterDTO;
+import com.ctrip.framework.apollo.common.dto.ItemChangeSets;
 import com.ctrip.framework.apollo.common.dto.ItemDTO;
 import com.ctrip.framework.apollo.common.dto.NamespaceDTO;
 import com.ctrip.framework.apollo.common.entity.App;
@@ -24,30 +25,44 @@ import com.ctrip.framework.apollo.common.entity.AppNamespace;
 import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
 import com.ctrip.framework.apollo.portal.AbstractUnitTest;
 import com.ctrip.framework.apollo.portal.component.PermissionValidator;
+import com.ctrip.framework.apollo.portal.component.config.PortalConfig;
 import com.ctrip.framework.apollo.portal.entity.bo.ItemBO;
 import com.ctrip.framework.apollo.portal.entity.bo.NamespaceBO;
 import com.ctrip.framework.apollo.portal.entity.bo.UserInfo;
+import com.ctrip.framework.apollo.portal.entity.vo.ItemDiffs;
 import com.ctrip.framework.apollo.portal.environment.Env;
 import com.ctrip.framework.apollo.portal.spi.UserInfoHolder;
+import com.ctrip.framework.apollo.portal.util.ConfigFileUtils;
 
+import com.google.common.collect.Sets;
+import com.google.gson.Gson;
 import org.assertj.core.util.Lists;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.http.HttpStatus;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.HttpStatusCodeException;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.util.Collection;
 import java.util.List;
+import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -69,6 +84,8 @@ public class ConfigsExportServiceTest extends AbstractUnitTest {
     private UserInfoHolder userInfoHolder;
     @Mock
     private AppNamespaceService appNamespaceService;
+    @Mock
+    private PortalConfig portalConfig;
     @InjectMocks
     private ConfigsExportService configsExportService;
     @Mock
@@ -144,7 +161,8 @@ public class ConfigsExportServiceTest extends AbstractUnitTest {
 
         when(appService.findAll()).thenReturn(exportApps);
         when(appNamespaceService.findAll()).thenReturn(appNamespaces);
-        when(permissionValidator.isAppAdmin(any())).thenReturn(true);
+        when(permissionValidator.findAppAdminAppIds(any())).thenAnswer(
+                invocation -> Sets.newHashSet((Collection<String>) invocation.getArgument(0)));
         when(clusterService.findClusters(env, appId1)).thenReturn(app1Clusters);
         when(clusterService.findClusters(env, appId2)).thenReturn(app2Clusters);
         when(namespaceService.findNamespaceBOs(appId1, Env.DEV, clusterName1, false)).thenReturn(app1Cluster1Namespace);
@@ -168,8 +186,6 @@ public class ConfigsExportServiceTest extends AbstractUnitTest {
         when(namespaceService.createNamespace(any(), any())).thenReturn(genNamespaceDTO(1));
 
         when(itemService.findItems(any(), any(), any(), any())).thenReturn(Lists.newArrayList());
-        HttpStatusCodeException itemNotFoundException = new HttpClientErrorException(HttpStatus.NOT_FOUND);
-        when(itemService.loadItem(any(), any(), any(), any(), anyString())).thenThrow(itemNotFoundException);
 
         FileInputStream fileInputStream = new FileInputStream("/tmp/apollo.zip");
         ZipInputStream zipInputStream = new ZipInputStream(fileInputStream);
@@ -190,7 +206,146 @@ public class ConfigsExportServiceTest extends AbstractUnitTest {
         verify(namespaceService, times(6)).createNamespace(any(), any());
         verify(roleInitializationService, times(6)).initNamespaceRoles(any(), any(), anyString());
         verify(roleInitializationService, times(6)).initNamespaceEnvRoles(any(), any(), anyString());
-        verify(itemService, times(12)).createItem(any(), any(), any(), any(), any());
+        //one change set with 2 items per namespace
+        ArgumentCaptor<ItemChangeSets> changeSetsCaptor = ArgumentCaptor.forClass(ItemChangeSets.class);
+        verify(itemService, times(6)).updateItems(any(), any(), any(), any(), changeSetsCaptor.capture());
+        for (ItemChangeSets changeSets : changeSetsCaptor.getAllValues()) {
+            assertEquals(2, changeSets.getCreateItems().size());
+        }
+    }
+
+    @Test
+    public void testExportWithBoundedBuffer() throws Exception {
+        int appCount = 50;
+        String clusterName = "default";
+        List<App> exportApps = Lists.newArrayList();
+        for (int i = 0; i < appCount; i++) {
+            String appId = "app" + i;
+            App app = genApp(appId, appId, "org1", "org2");
+            exportApps.add(app);
+
+            ClusterDTO cluster = genCluster(clusterName, appId);
+            when(clusterService.findClusters(Env.DEV, appId)).thenReturn(Lists.newArrayList(cluster));
+            when(namespaceService.findNamespaceBOs(appId, Env.DEV, clusterName, false)).thenReturn(
+                    Lists.newArrayList(genNamespace(app, cluster, Lists.newArrayList(genItem("k1", "v1")), "ns1")));
+        }
+
+        when(appService.findAll()).thenReturn(exportApps);
+        when(appNamespaceService.findAll()).thenReturn(Lists.newArrayList());
+        when(permissionValidator.findAppAdminAppIds(any())).thenAnswer(
+                invocation -> Sets.newHashSet((Collection<String>) invocation.getArgument(0)));
+        when(portalConfig.configsExportParallelism()).thenReturn(4);
+        when(portalConfig.configsExportBufferSize()).thenReturn(2);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        configsExportService.exportData(outputStream, Lists.newArrayList(Env.DEV));
+
+        int entries = 0;
+        try (ZipInputStream zipInputStream = new ZipInputStream(
+                new ByteArrayInputStream(outputStream.toByteArray()))) {
+            while (zipInputStream.getNextEntry() != null) {
+                entries++;
+            }
+        }
+
+        //app info, cluster info and namespace of each app
+        assertEquals(appCount * 3, entries);
+    }
+
+    @Test
+    public void testImportDryRun() throws Exception {
+        when(userInfoHolder.getUser()).thenReturn(genUser());
+        when(namespaceService.loadNamespaceBaseInfo(any(), any(), any(), any())).thenThrow(new RuntimeException());
+
+        List<ItemDiffs> diffs = configsImportService.importDataFromZipFile(Lists.newArrayList(Env.DEV),
+                genNamespaceZip(Lists.newArrayList(genItem("k1", "v1"), genItem("k2", "v2"))), false, true);
+
+        assertEquals(1, diffs.size());
+        assertEquals("app1", diffs.get(0).getNamespace().getAppId());
+        assertEquals("application", diffs.get(0).getNamespace().getNamespaceName());
+        assertEquals(2, diffs.get(0).getDiffs().getCreateItems().size());
+        assertNotNull(diffs.get(0).getExtInfo());
+        verify(namespaceService, never()).createNamespace(any(), any());
+        verify(itemService, never()).updateItems(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testImportSkipUnchangedItems() throws Exception {
+        when(userInfoHolder.getUser()).thenReturn(genUser());
+        when(namespaceService.loadNamespaceBaseInfo(any(), any(), any(), any())).thenReturn(genNamespaceDTO(1));
+        ItemDTO unchangedItem = genItem("k1", "v1").getItem();
+        unchangedItem.setId(10);
+        ItemDTO changedItem = genItem("k2", "oldValue").getItem();
+        changedItem.setId(11);
+        when(itemService.findItems(any(), any(), any(), any())).thenReturn(
+                Lists.newArrayList(unchangedItem, changedItem));
+
+        List<ItemDiffs> diffs = configsImportService.importDataFromZipFile(Lists.newArrayList(Env.DEV),
+                genNamespaceZip(Lists.newArrayList(genItem("k1", "v1"), genItem("k2", "v2"))), false, false);
+
+        assertTrue(diffs.isEmpty());
+        ArgumentCaptor<ItemChangeSets> changeSetsCaptor = ArgumentCaptor.forClass(ItemChangeSets.class);
+        verify(itemService, times(1)).updateItems(any(), any(), any(), any(), changeSetsCaptor.capture());
+        ItemChangeSets changeSets = changeSetsCaptor.getValue();
+        assertTrue(changeSets.getCreateItems().isEmpty());
+        assertEquals(1, changeSets.getUpdateItems().size());
+        assertEquals(11, changeSets.getUpdateItems().get(0).getId());
+        assertEquals("v2", changeSets.getUpdateItems().get(0).getValue());
+    }
+
+    @Test
+    public void testImportShuffledZip() throws Exception {
+        App app = genApp("app1", "app1", "org1", "org2");
+        app.setOwnerName("owner");
+        ClusterDTO cluster = genCluster("default", "app1");
+        AppNamespace appNamespace = genAppNamespace("app1", "application", false);
+        Gson gson = new Gson();
+
+        when(userInfoHolder.getUser()).thenReturn(genUser());
+        when(appService.load(any(), any())).thenThrow(new RuntimeException());
+        when(clusterService.loadCluster(any(), any(), any())).thenThrow(new RuntimeException());
+        when(appNamespaceService.importAppNamespaceInLocal(any())).thenReturn(appNamespace);
+        when(namespaceService.loadNamespaceBaseInfo(any(), any(), any(), any())).thenThrow(new RuntimeException());
+        when(namespaceService.createNamespace(any(), any())).thenReturn(genNamespaceDTO(1));
+        when(itemService.findItems(any(), any(), any(), any())).thenReturn(Lists.newArrayList());
+
+        //the namespace comes before its metadata, and the cluster and app namespace before their app
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+            zipOutputStream.putNextEntry(new ZipEntry("owner/app1/DEV/app1+default+application.properties"));
+            zipOutputStream.write(gson.toJson(Lists.newArrayList(genItem("k1", "v1").getItem())).getBytes());
+            zipOutputStream.putNextEntry(new ZipEntry(ConfigFileUtils.genClusterInfoPath(app, Env.DEV, cluster)));
+            zipOutputStream.write(gson.toJson(cluster).getBytes());
+            zipOutputStream.putNextEntry(new ZipEntry(ConfigFileUtils.genAppNamespaceInfoPath(appNamespace)));
+            zipOutputStream.write(gson.toJson(appNamespace).getBytes());
+            zipOutputStream.putNextEntry(new ZipEntry(ConfigFileUtils.genAppInfoPath(app)));
+            zipOutputStream.write(gson.toJson(app).getBytes());
+        }
+
+        configsImportService.importDataFromZipFile(Lists.newArrayList(Env.DEV),
+                new ZipInputStream(new ByteArrayInputStream(outputStream.toByteArray())), false, false);
+
+        InOrder inOrder = inOrder(appService, clusterService, appNamespaceService, namespaceService, itemService);
+        inOrder.verify(appService).createAppInRemote(any(), any());
+        inOrder.verify(appNamespaceService).importAppNamespaceInLocal(any());
+        inOrder.verify(clusterService).createCluster(any(), any());
+        inOrder.verify(namespaceService).createNamespace(any(), any());
+        inOrder.verify(itemService).updateItems(any(), any(), any(), any(), any());
+    }
+
+    private ZipInputStream genNamespaceZip(List<ItemBO> items) throws Exception {
+        List<ItemDTO> itemDTOs = Lists.newArrayList();
+        for (ItemBO item : items) {
+            itemDTOs.add(item.getItem());
+        }
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+            zipOutputStream.putNextEntry(new ZipEntry("owner/app1/DEV/app1+default+application.properties"));
+            zipOutputStream.write(new Gson().toJson(itemDTOs).getBytes());
+            zipOutputStream.closeEntry();
+        }
+        return new ZipInputStream(new ByteArrayInputStream(outputStream.toByteArray()));
     }
 
     private App genApp(String name, String appId, String orgId, String orgName) {
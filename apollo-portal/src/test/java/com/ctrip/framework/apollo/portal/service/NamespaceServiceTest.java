@@ -19,9 +19,13 @@ package com.ctrip.framework.apollo.portal.service;
 import com.ctrip.framework.apollo.common.dto.ClusterDTO;
 import com.ctrip.framework.apollo.common.dto.ItemDTO;
 import com.ctrip.framework.apollo.common.dto.NamespaceDTO;
+import com.ctrip.framework.apollo.common.dto.NamespaceSnapshotDTO;
+import com.ctrip.framework.apollo.common.dto.NamespaceVersionDTO;
 import com.ctrip.framework.apollo.common.dto.ReleaseDTO;
 import com.ctrip.framework.apollo.common.entity.AppNamespace;
 import com.ctrip.framework.apollo.core.enums.ConfigFileFormat;
+import com.ctrip.framework.apollo.portal.component.NamespaceContentCache;
+import com.ctrip.framework.apollo.portal.component.NamespaceContentCache.NamespaceContent;
 import com.ctrip.framework.apollo.portal.component.PortalSettings;
 import com.ctrip.framework.apollo.portal.entity.vo.NamespaceUsage;
 import com.ctrip.framework.apollo.portal.environment.Env;
@@ -37,17 +41,23 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
 
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatExceptionOfType;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -76,6 +86,8 @@ public class NamespaceServiceTest extends AbstractUnitTest {
     private PortalSettings portalSettings;
     @Mock
     private ClusterService clusterService;
+    @Mock
+    private NamespaceContentCache namespaceContentCache;
 
     @InjectMocks
     private NamespaceService namespaceService;
@@ -122,6 +134,9 @@ public class NamespaceServiceTest extends AbstractUnitTest {
         when(appNamespaceService.findByAppIdAndName(testAppId, testNamespaceName))
                 .thenReturn(applicationAppNamespace);
         when(appNamespaceService.findPublicAppNamespace("hermes")).thenReturn(hermesAppNamespace);
+        //the admin service not supporting the snapshots
+        when(namespaceAPI.findNamespaceSnapshots(testAppId, Env.DEV, testClusterName, true))
+                .thenThrow(new HttpClientErrorException(HttpStatus.NOT_FOUND));
         when(namespaceAPI.findNamespaceByCluster(testAppId, Env.DEV, testClusterName)).thenReturn(namespaces);
         when(releaseService.loadLatestRelease(testAppId, Env.DEV, testClusterName,
                 testNamespaceName)).thenReturn(someRelease);
@@ -151,6 +166,77 @@ public class NamespaceServiceTest extends AbstractUnitTest {
 
     }
 
+    @Test
+    public void testFindNamespaceBySnapshots() {
+        AppNamespace applicationAppNamespace = mock(AppNamespace.class);
+        when(applicationAppNamespace.getFormat()).thenReturn(ConfigFileFormat.Properties.getValue());
+        when(appNamespaceService.findByAppIdAndName(testAppId, testNamespaceName))
+                .thenReturn(applicationAppNamespace);
+
+        NamespaceDTO application = createNamespace(testAppId, testClusterName, testNamespaceName);
+        application.setId(2);
+        ReleaseDTO someRelease = new ReleaseDTO();
+        someRelease.setConfigurations("{\"a\":\"123\",\"b\":\"123\",\"d\":\"123\"}");
+        ItemDTO deletedItem = new ItemDTO("d", "1", "some comment", 0);
+        NamespaceSnapshotDTO applicationSnapshot = createSnapshot(application, someRelease,
+                Arrays.asList(new ItemDTO("a", "123", "", 1), new ItemDTO("b", "1", "", 2),
+                        new ItemDTO("c", "1", "", 3)), Collections.singletonList(deletedItem));
+
+        NamespaceDTO unreleased = createNamespace(testAppId, testClusterName, "unreleased");
+        unreleased.setId(1);
+        NamespaceSnapshotDTO unreleasedSnapshot = createSnapshot(unreleased, null,
+                Collections.singletonList(new ItemDTO("e", "1", "", 1)), Collections.emptyList());
+
+        //the cache disabled
+        when(namespaceContentCache.loadVersions(Env.DEV, testAppId, testClusterName)).thenReturn(null);
+        when(namespaceAPI.findNamespaceSnapshots(testAppId, Env.DEV, testClusterName, true))
+                .thenReturn(Arrays.asList(applicationSnapshot, unreleasedSnapshot));
+
+        List<NamespaceBO> namespaceBOs = namespaceService.findNamespaceBOs(testAppId, Env.DEV, testClusterName);
+
+        assertEquals(2, namespaceBOs.size());
+        NamespaceBO unreleasedBO = namespaceBOs.get(0);
+        assertEquals("unreleased", unreleasedBO.getBaseInfo().getNamespaceName());
+        assertEquals(1, unreleasedBO.getItemModifiedCnt());
+        NamespaceBO applicationBO = namespaceBOs.get(1);
+        assertEquals(testNamespaceName, applicationBO.getBaseInfo().getNamespaceName());
+        assertEquals(Arrays.asList("a", "b", "c", "d"),
+                applicationBO.getItems().stream().map(s -> s.getItem().getKey()).collect(Collectors.toList()));
+        //b and c modified, d deleted
+        assertEquals(3, applicationBO.getItemModifiedCnt());
+        assertEquals("some comment", applicationBO.getItems().get(3).getItem().getComment());
+        assertEquals("123", applicationBO.getItems().get(3).getOldValue());
+        //the deleted item returned is not modified
+        assertEquals("1", deletedItem.getValue());
+
+        verify(namespaceAPI, never()).findNamespaceByCluster(any(), any(), any());
+        verify(releaseService, never()).loadLatestRelease(any(), any(), any(), any());
+        verify(itemService, never()).findItems(any(), any(), any(), any());
+        verify(itemService, never()).findDeletedItems(any(), any(), any(), any());
+    }
+
+    @Test
+    public void testFindNamespaceFromCache() {
+        NamespaceDTO application = createNamespace(testAppId, testClusterName, testNamespaceName);
+        Map<String, NamespaceVersionDTO> versions = Collections.emptyMap();
+        NamespaceContent content = new NamespaceContent(Collections.singletonMap("a", "1"),
+                Collections.singletonList(new ItemDTO("a", "2", "", 1)), Collections.emptyList());
+
+        when(namespaceContentCache.loadVersions(Env.DEV, testAppId, testClusterName)).thenReturn(versions);
+        when(namespaceAPI.findNamespaceByCluster(testAppId, Env.DEV, testClusterName))
+                .thenReturn(Collections.singletonList(application));
+        when(namespaceContentCache.get(Env.DEV, application, versions, true)).thenReturn(content);
+
+        List<NamespaceBO> namespaceBOs = namespaceService.findNamespaceBOs(testAppId, Env.DEV, testClusterName);
+
+        assertEquals(1, namespaceBOs.size());
+        assertEquals(1, namespaceBOs.get(0).getItemModifiedCnt());
+        //the items cached are copied before enriched
+        assertNotSame(content.getItems().get(0), namespaceBOs.get(0).getItems().get(0).getItem());
+        assertEquals("2", namespaceBOs.get(0).getItems().get(0).getItem().getValue());
+        verify(namespaceAPI, never()).findNamespaceSnapshots(any(), any(), any(), anyBoolean());
+    }
+
     @Test
     public void testDeletePrivateNamespace() {
         String operator = "user";
@@ -292,6 +378,16 @@ public class NamespaceServiceTest extends AbstractUnitTest {
         return instance;
     }
 
+    private NamespaceSnapshotDTO createSnapshot(NamespaceDTO namespace, ReleaseDTO latestRelease, List<ItemDTO> items,
+                                                List<ItemDTO> deletedItems) {
+        NamespaceSnapshotDTO snapshot = new NamespaceSnapshotDTO();
+        snapshot.setNamespace(namespace);
+        snapshot.setLatestRelease(latestRelease);
+        snapshot.setItems(items);
+        snapshot.setDeletedItems(deletedItems);
+        return snapshot;
+    }
+
     private UserInfo createUser(String userId) {
         UserInfo instance = new UserInfo();
 
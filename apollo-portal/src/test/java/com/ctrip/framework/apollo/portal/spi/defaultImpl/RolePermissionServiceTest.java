@@ -319,6 +319,25 @@ public class RolePermissionServiceTest extends AbstractIntegrationTest {
 
     }
 
+    @Test
+    @Sql(scripts = "/sql/permission/insert-test-roles.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "/sql/permission/insert-test-permissions.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "/sql/permission/insert-test-userroles.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "/sql/permission/insert-test-rolepermissions.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "/sql/cleanup.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    public void testFindUserPermittedTargetIds() throws Exception {
+        String someTargetId = "someTargetId";
+        String anotherTargetId = "anotherTargetId";
+        String somePermissionType = "somePermissionType";
+        String someUser = "someUser";
+        String someUserWithNoPermission = "someUserWithNoPermission";
+
+        assertEquals(Sets.newHashSet(someTargetId), rolePermissionService.findUserPermittedTargetIds(someUser,
+                somePermissionType, Sets.newHashSet(someTargetId, anotherTargetId)));
+        assertTrue(rolePermissionService.findUserPermittedTargetIds(someUserWithNoPermission, somePermissionType,
+                Sets.newHashSet(someTargetId, anotherTargetId)).isEmpty());
+    }
+
     private Role assembleRole(String roleName) {
         Role role = new Role();
         role.setRoleName(roleName);